@@ -0,0 +1,246 @@
+/*
+ *  SuprSetr is Copyright 2010-2023 by Jeremy Brooks
+ *
+ *  This file is part of SuprSetr.
+ *
+ *   SuprSetr is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   SuprSetr is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with SuprSetr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.jeremybrooks.suprsetr;
+
+import net.jeremybrooks.suprsetr.dao.DAOHelper;
+import net.jeremybrooks.suprsetr.dao.LookupDAO;
+import net.jeremybrooks.suprsetr.dao.PhotosetDAO;
+import net.jeremybrooks.suprsetr.flickr.FlickrHelper;
+import net.jeremybrooks.suprsetr.refresh.RefreshEngine;
+import net.jeremybrooks.suprsetr.refresh.RefreshListener;
+import net.jeremybrooks.suprsetr.refresh.RefreshResult;
+import net.jeremybrooks.suprsetr.utils.SSUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.ResourceBundle;
+import java.util.Set;
+
+/**
+ * Command line entry point that refreshes managed sets without a user interface.
+ *
+ * <p>This is intended for scheduled refreshes on machines without a display,
+ * such as from cron. SuprSetr must have been run normally at least once, so
+ * that the database exists and the user has logged in to Flickr.</p>
+ *
+ * <p>With no arguments, all managed sets are refreshed. Sets can be selected
+ * by photoset ID or by title, and the --due option limits the refresh to sets
+ * that are due based on the refresh wait time. The time taken for each set is
+ * printed as it finishes.</p>
+ *
+ * <p>As when SuprSetr exits normally, the database is backed up after the
+ * refresh if the user has turned on backups at exit, and then the tables are
+ * compressed.</p>
+ *
+ * @author Jeremy Brooks
+ */
+public class HeadlessRefresh {
+
+  private static final Logger logger = LogManager.getLogger(HeadlessRefresh.class);
+
+  /** All sets were refreshed. */
+  static final int EXIT_OK = 0;
+  /** At least one set could not be refreshed. */
+  static final int EXIT_SET_ERRORS = 1;
+  /** The database or Flickr authorization could not be loaded. */
+  static final int EXIT_SETUP_FAILED = 2;
+  /** The command line arguments were not valid. */
+  static final int EXIT_USAGE = 3;
+
+  private static final ResourceBundle resourceBundle = ResourceBundle.getBundle("net.jeremybrooks.suprsetr.misc");
+
+
+  /**
+   * Refresh sets and exit.
+   *
+   * @param args options and the sets to refresh.
+   */
+  public static void main(String[] args) {
+    // make sure nothing tries to open a window
+    System.setProperty("java.awt.headless", "true");
+    System.exit(new HeadlessRefresh().run(args, System.out));
+  }
+
+
+  /**
+   * Refresh the sets selected by the arguments.
+   *
+   * @param args options and the sets to refresh.
+   * @param out  where to print progress.
+   * @return exit status.
+   */
+  int run(String[] args, PrintStream out) {
+    boolean dueOnly = false;
+    Set<String> selectors = new LinkedHashSet<>();
+    for (String arg : args) {
+      if (arg.equals("--due")) {
+        dueOnly = true;
+      } else if (arg.startsWith("-")) {
+        out.println(resourceBundle.getString("HeadlessRefresh.usage"));
+        return arg.equals("--help") || arg.equals("-h") ? EXIT_OK : EXIT_USAGE;
+      } else {
+        selectors.add(arg);
+      }
+    }
+
+    Main.loadProperties();
+    Main.configDir = new File(System.getProperty("user.home"), ".suprsetr");
+    System.setProperty("derby.system.home", Main.configDir.getAbsolutePath());
+    logger.info("SuprSetr version {} headless refresh starting with Java version {}",
+        Main.VERSION, System.getProperty("java.version"));
+
+    if (!new File(Main.configDir, "SuprSetrDB").exists()) {
+      out.println(resourceBundle.getString("HeadlessRefresh.nodb"));
+      return EXIT_SETUP_FAILED;
+    }
+    try (Connection conn = DAOHelper.getConnection()) {
+      logger.info("Database connection test: success.");
+    } catch (Exception e) {
+      logger.error("Database connection failed.", e);
+      out.println(resourceBundle.getString("Main.dialog.error.dbconn.message"));
+      return EXIT_SETUP_FAILED;
+    }
+
+    try {
+      DAOHelper.upgradeDatabase();
+      Main.setDefaultValues();
+      Main.initFlickr();
+      if (!FlickrHelper.getInstance().authorize()) {
+        out.println(resourceBundle.getString("HeadlessRefresh.noauth"));
+        return EXIT_SETUP_FAILED;
+      }
+      logger.info("Authorized as {}", FlickrHelper.getInstance().getUsername());
+
+      List<SSPhotoset> list = this.selectPhotosets(selectors, dueOnly, out);
+      if (list == null) {
+        return EXIT_USAGE;
+      }
+      if (list.isEmpty()) {
+        out.println(resourceBundle.getString("HeadlessRefresh.none"));
+        return EXIT_OK;
+      }
+
+      List<RefreshResult> results = new RefreshEngine(new ConsoleListener(out)).refresh(list);
+      int errors = list.size() - results.size();
+      for (RefreshResult result : results) {
+        if (result.isError()) {
+          errors++;
+        }
+      }
+      out.println(results.size() + " " + resourceBundle.getString("HeadlessRefresh.summary") + " " + errors);
+      this.backupAndCompress(out);
+      return errors == 0 ? EXIT_OK : EXIT_SET_ERRORS;
+    } catch (Exception e) {
+      logger.error("Headless refresh failed.", e);
+      out.println(resourceBundle.getString("Main.dialog.error.message"));
+      return EXIT_SETUP_FAILED;
+    } finally {
+      try {
+        DAOHelper.shutdown();
+      } catch (Exception e) {
+        logger.warn("Error shutting down database.", e);
+      }
+    }
+  }
+
+
+  /*
+   * Do the housekeeping that MainWindow does at exit. Errors are logged and
+   * do not change the exit status, since the sets were refreshed.
+   */
+  private void backupAndCompress(PrintStream out) {
+    if (DAOHelper.stringToBoolean(LookupDAO.getValueForKey(SSConstants.LOOKUP_KEY_BACKUP_AT_EXIT))) {
+      try {
+        File backup = DAOHelper.backupDatabase();
+        out.println(resourceBundle.getString("HeadlessRefresh.backup") + " " + backup.getAbsolutePath());
+      } catch (Exception e) {
+        logger.error("THERE WAS AN ERROR DURING DATABASE BACKUP.", e);
+        out.println(resourceBundle.getString("HeadlessRefresh.backupError"));
+      }
+    }
+    logger.info("Compressing database tables...");
+    try {
+      DAOHelper.compressTables();
+    } catch (Exception e) {
+      logger.error("ERROR COMPRESSING DATABASE TABLES.", e);
+    }
+  }
+
+
+  /*
+   * Get the managed sets matching the selectors, by ID or by title.
+   * Returns null if a selector does not match any set.
+   */
+  private List<SSPhotoset> selectPhotosets(Set<String> selectors, boolean dueOnly, PrintStream out) throws Exception {
+    List<SSPhotoset> list = new ArrayList<>();
+    Set<String> unmatched = new LinkedHashSet<>(selectors);
+    for (SSPhotoset ssPhotoset : PhotosetDAO.getPhotosetListOrderByManagedAndTitle()) {
+      if (!ssPhotoset.isManaged()) {
+        continue;
+      }
+      boolean selected = selectors.isEmpty()
+          || selectors.contains(ssPhotoset.getPhotosetId()) || selectors.contains(ssPhotoset.getTitle());
+      if (selected) {
+        unmatched.remove(ssPhotoset.getPhotosetId());
+        unmatched.remove(ssPhotoset.getTitle());
+        if (!dueOnly || SSUtils.readyForUpdate(ssPhotoset.getLastRefreshDate())) {
+          list.add(ssPhotoset);
+        }
+      }
+    }
+    if (!unmatched.isEmpty()) {
+      for (String selector : unmatched) {
+        out.println(resourceBundle.getString("HeadlessRefresh.notfound") + " '" + selector + "'");
+      }
+      return null;
+    }
+    return list;
+  }
+
+
+  /**
+   * Prints the result of each set as it finishes.
+   */
+  private static class ConsoleListener implements RefreshListener {
+    private final PrintStream out;
+
+    ConsoleListener(PrintStream out) {
+      this.out = out;
+    }
+
+    @Override
+    public void message(String message) {
+      out.println(message);
+    }
+
+    @Override
+    public void setFinished(RefreshResult result, int completed, int total) {
+      out.println(String.format("[%d/%d] %-10s %6d -> %-6d %7dms  %s%s",
+          completed, total, result.getStatus(), result.getOldCount(), result.getNewCount(),
+          result.getElapsed(), result.getPhotoset().getTitle(), result.isLocal() ? " (local)" : ""));
+    }
+  }
+}
@@ -26,6 +26,7 @@ import net.jeremybrooks.suprsetr.dao.LookupDAO;
 import javax.swing.GroupLayout;
 import javax.swing.JScrollPane;
 import javax.swing.JTextArea;
+import javax.swing.SwingUtilities;
 import java.awt.Container;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
@@ -125,9 +126,21 @@ public class LogWindow extends javax.swing.JFrame {
 	}
 
 
+	/**
+	 * Add a message to the log window.
+	 *
+	 * <p>This method can be called from any thread; the text area is updated
+	 * on the event dispatch thread.</p>
+	 *
+	 * @param message the message to add.
+	 */
 	public static void addLogMessage(String message) {
-		txtLog.append(message + "\n");
-		txtLog.setCaretPosition(txtLog.getDocument().getLength());
+		if (SwingUtilities.isEventDispatchThread()) {
+			txtLog.append(message + "\n");
+			txtLog.setCaretPosition(txtLog.getDocument().getLength());
+		} else {
+			SwingUtilities.invokeLater(() -> addLogMessage(message));
+		}
 	}
 
 	// Variables declaration - do not modify//GEN-BEGIN:variables
@@ -89,13 +89,7 @@ public class Main {
     }
 
     // SET VERSION
-    try {
-      Main.VERSION = Main.class.getPackage().getImplementationVersion();
-      privateProperties = new Properties();
-      privateProperties.load(Main.class.getClassLoader().getResourceAsStream("net/jeremybrooks/suprsetr/private.properties"));
-    } catch (Exception e) {
-      Main.VERSION = "0.0.0";
-    }
+    loadProperties();
 
     // SET CONFIG DIR BASED ON USER HOME
     Main.configDir = new File(System.getProperty("user.home"), ".suprsetr");
@@ -167,13 +161,86 @@ public class Main {
 
     logger.info("Database schema version {}", LookupDAO.getDatabaseVersion());
 
-    // Set some default key/value pairs in the database
+    setDefaultValues();
+    initFlickr();
+
+    // Display tutorial
+    if (LookupDAO.getValueForKey(SSConstants.LOOKUP_KEY_TUTORIAL_DISPLAYED) == null ||
+        LookupDAO.getValueForKey(SSConstants.LOOKUP_KEY_TUTORIAL_DISPLAYED).isEmpty()) {
+      LookupDAO.setKeyAndValue(SSConstants.LOOKUP_KEY_TUTORIAL_DISPLAYED, DAOHelper.booleanToString(true));
+      new Tutorial(null, true).setVisible(true);
+    }
+
+    try {
+      // Finally, show the main window
+      java.awt.EventQueue.invokeLater(() -> {
+        MainWindow main = new MainWindow();
+        main.setVisible(true);
+        main.doAuth();
+        main.executeLoadFlickrSetsWorker();
+      });
+    } catch (Throwable t) {
+      System.out.println("A fatal error has occurred.");
+      t.printStackTrace();
+      logger.fatal("A fatal error has occurred.", t);
+      JOptionPane.showMessageDialog(null,
+          resourceBundle.getString("Main.dialog.error.message"),
+          resourceBundle.getString("Main.dialog.error.title"),
+          JOptionPane.ERROR_MESSAGE);
+      System.exit(2);
+    }
+
+
+    // Check for updates
+    if (DAOHelper.stringToBoolean(LookupDAO.getValueForKey(SSConstants.LOOKUP_KEY_CHECK_FOR_UPDATE))) {
+      (new Thread(new VersionChecker(), "VersionCheckerThread")).start();
+    }
+  }
+
+  /**
+   * Load the application version and the private properties.
+   */
+  static void loadProperties() {
+    try {
+      Main.VERSION = Main.class.getPackage().getImplementationVersion();
+      privateProperties = new Properties();
+      privateProperties.load(Main.class.getClassLoader().getResourceAsStream("net/jeremybrooks/suprsetr/private.properties"));
+    } catch (Exception e) {
+      Main.VERSION = "0.0.0";
+    }
+  }
+
+
+  /**
+   * Set some default key/value pairs in the database.
+   *
+   * <p>Values that the user has already set are not changed.</p>
+   */
+  static void setDefaultValues() {
     if (LookupDAO.getValueForKey(SSConstants.LOOKUP_KEY_CHECK_FOR_UPDATE) == null) {
       LookupDAO.setKeyAndValue(SSConstants.LOOKUP_KEY_CHECK_FOR_UPDATE, DAOHelper.booleanToString(true));
     }
     if (LookupDAO.getValueForKey(SSConstants.LOOKUP_KEY_FAVRTAGR_INTERVAL) == null) {
       LookupDAO.setKeyAndValue(SSConstants.LOOKUP_KEY_FAVRTAGR_INTERVAL, SSConstants.DEFAULT_FAVRTAGR_INTERVAL);
     }
+    if (LookupDAO.getValueForKey(SSConstants.LOOKUP_KEY_REFRESH_THREADS) == null) {
+      LookupDAO.setKeyAndValue(SSConstants.LOOKUP_KEY_REFRESH_THREADS, SSConstants.DEFAULT_REFRESH_THREADS);
+    }
+    if (LookupDAO.getValueForKey(SSConstants.LOOKUP_KEY_SEARCH_PAGE_THREADS) == null) {
+      LookupDAO.setKeyAndValue(SSConstants.LOOKUP_KEY_SEARCH_PAGE_THREADS, SSConstants.DEFAULT_SEARCH_PAGE_THREADS);
+    }
+    if (LookupDAO.getValueForKey(SSConstants.LOOKUP_KEY_API_CALLS_PER_HOUR) == null) {
+      LookupDAO.setKeyAndValue(SSConstants.LOOKUP_KEY_API_CALLS_PER_HOUR, SSConstants.DEFAULT_API_CALLS_PER_HOUR);
+    }
+    if (LookupDAO.getValueForKey(SSConstants.LOOKUP_KEY_AUTO_REFRESH_WINDOW) == null) {
+      LookupDAO.setKeyAndValue(SSConstants.LOOKUP_KEY_AUTO_REFRESH_WINDOW, SSConstants.DEFAULT_AUTO_REFRESH_WINDOW);
+    }
+    if (LookupDAO.getValueForKey(SSConstants.LOOKUP_KEY_USE_LOCAL_LIBRARY) == null) {
+      LookupDAO.setKeyAndValue(SSConstants.LOOKUP_KEY_USE_LOCAL_LIBRARY, DAOHelper.booleanToString(false));
+    }
+    if (LookupDAO.getValueForKey(SSConstants.LOOKUP_KEY_FLYWEIGHT_SET_LIST) == null) {
+      LookupDAO.setKeyAndValue(SSConstants.LOOKUP_KEY_FLYWEIGHT_SET_LIST, DAOHelper.booleanToString(true));
+    }
     if (LookupDAO.getValueForKey(SSConstants.LOOKUP_KEY_USE_PROXY) == null) {
       LookupDAO.setKeyAndValue(SSConstants.LOOKUP_KEY_USE_PROXY, DAOHelper.booleanToString(false));
       LookupDAO.setKeyAndValue(SSConstants.LOOKUP_KEY_PROXY_HOST, "");
@@ -225,7 +292,13 @@ public class Main {
     if (LookupDAO.getValueForKey(SSConstants.LOOKUP_KEY_SHOW_TOOLS_TOOLBAR) == null) {
       LookupDAO.setKeyAndValue(SSConstants.LOOKUP_KEY_SHOW_TOOLS_TOOLBAR, "N");
     }
+  }
 
+
+  /**
+   * Set up the Flickr API library, including logging and the proxy.
+   */
+  static void initFlickr() {
     JinxFactory.getInstance().init(getPrivateProperty("FLICKR_KEY"), getPrivateProperty("FLICKR_SECRET"));
 
     // Turn on Jinx logging if needed
@@ -242,39 +315,6 @@ public class Main {
       logger.info("Using proxy " + host + ":" + port);
       NetUtil.enableProxy(host, port, user, pass.toCharArray());
     }
-
-
-    // Display tutorial
-    if (LookupDAO.getValueForKey(SSConstants.LOOKUP_KEY_TUTORIAL_DISPLAYED) == null ||
-        LookupDAO.getValueForKey(SSConstants.LOOKUP_KEY_TUTORIAL_DISPLAYED).isEmpty()) {
-      LookupDAO.setKeyAndValue(SSConstants.LOOKUP_KEY_TUTORIAL_DISPLAYED, DAOHelper.booleanToString(true));
-      new Tutorial(null, true).setVisible(true);
-    }
-
-    try {
-      // Finally, show the main window
-      java.awt.EventQueue.invokeLater(() -> {
-        MainWindow main = new MainWindow();
-        main.setVisible(true);
-        main.doAuth();
-        main.executeLoadFlickrSetsWorker();
-      });
-    } catch (Throwable t) {
-      System.out.println("A fatal error has occurred.");
-      t.printStackTrace();
-      logger.fatal("A fatal error has occurred.", t);
-      JOptionPane.showMessageDialog(null,
-          resourceBundle.getString("Main.dialog.error.message"),
-          resourceBundle.getString("Main.dialog.error.title"),
-          JOptionPane.ERROR_MESSAGE);
-      System.exit(2);
-    }
-
-
-    // Check for updates
-    if (DAOHelper.stringToBoolean(LookupDAO.getValueForKey(SSConstants.LOOKUP_KEY_CHECK_FOR_UPDATE))) {
-      (new Thread(new VersionChecker(), "VersionCheckerThread")).start();
-    }
   }
 
   public static String getPrivateProperty(String key) {
@@ -25,9 +25,15 @@ import net.jeremybrooks.suprsetr.dao.DAOHelper;
 import net.jeremybrooks.suprsetr.dao.LookupDAO;
 import net.jeremybrooks.suprsetr.dao.PhotosetDAO;
 import net.jeremybrooks.suprsetr.flickr.FlickrHelper;
+import net.jeremybrooks.suprsetr.refresh.RefreshEngine;
+import net.jeremybrooks.suprsetr.refresh.RefreshListener;
+import net.jeremybrooks.suprsetr.refresh.RefreshResult;
+import net.jeremybrooks.suprsetr.refresh.RefreshScheduler;
 import net.jeremybrooks.suprsetr.tutorial.Tutorial;
 import net.jeremybrooks.suprsetr.utils.FilenameContainsFilter;
 import net.jeremybrooks.suprsetr.utils.SSUtils;
+import net.jeremybrooks.suprsetr.utils.SetFilterIndex;
+import net.jeremybrooks.suprsetr.utils.SimpleCache;
 import net.jeremybrooks.suprsetr.workers.AddPhotosetWorker;
 import net.jeremybrooks.suprsetr.workers.DatabaseBackupWorker;
 import net.jeremybrooks.suprsetr.workers.DeletePhotosetWorker;
@@ -41,7 +47,6 @@ import org.apache.logging.log4j.Logger;
 
 import javax.swing.BoxLayout;
 import javax.swing.ButtonGroup;
-import javax.swing.DefaultListModel;
 import javax.swing.ImageIcon;
 import javax.swing.JButton;
 import javax.swing.JCheckBoxMenuItem;
@@ -69,9 +74,11 @@ import javax.swing.event.MenuListener;
 import java.awt.BorderLayout;
 import java.awt.Component;
 import java.awt.Desktop;
+import java.awt.Dialog;
 import java.awt.GridLayout;
 import java.awt.Rectangle;
 import java.awt.Toolkit;
+import java.awt.Window;
 import java.awt.event.ActionEvent;
 import java.awt.event.FocusAdapter;
 import java.awt.event.FocusEvent;
@@ -87,12 +94,14 @@ import java.io.FileOutputStream;
 import java.io.Serial;
 import java.net.URL;
 import java.text.SimpleDateFormat;
+import java.time.LocalTime;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.ResourceBundle;
-import java.util.TimerTask;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
@@ -108,11 +117,20 @@ public class MainWindow extends javax.swing.JFrame {
   private static final Logger logger = LogManager.getLogger(MainWindow.class);
 
   /* List model. */
-  private final DefaultListModel<SSPhotoset> listModel = new DefaultListModel<>();
+  private final SetListModel listModel = new SetListModel();
 
   /* Master list. */
   private List<SSPhotoset> masterList;
 
+  /* Index in the master list of each photoset ID. Changed only by setMasterList and removeFromMasterList. */
+  private final Map<String, Integer> masterIndex = new HashMap<>();
+
+  /* Filter index of the master list. Set to null when the master list changes. */
+  private SetFilterIndex filterIndex;
+
+  /* The most recent filter. Cancelled if the filter changes before it is done. */
+  private FilterSetListWorker filterWorker;
+
   private static MainWindow theWindow;
 
   private final LogWindow logWindow;
@@ -120,7 +138,7 @@ public class MainWindow extends javax.swing.JFrame {
   /* Timer used to trigger filtering. */
   private final Timer filterTimer;
 
-  private java.util.Timer autoRefreshTimer = null;
+  private final RefreshScheduler refreshScheduler = new RefreshScheduler(new AutoRefreshClient());
 
   private static boolean blocked = false;
 
@@ -680,7 +698,7 @@ public class MainWindow extends javax.swing.JFrame {
               }
           });
           this.jList1.setModel(this.listModel);
-          this.jList1.setCellRenderer(new SetListRenderer());
+          this.jList1.setCellRenderer(new SetListRenderer(this.jList1, DAOHelper.stringToBoolean(LookupDAO.getValueForKey(SSConstants.LOOKUP_KEY_FLYWEIGHT_SET_LIST))));
           jScrollPane1.setViewportView(jList1);
       }
       contentPane.add(jScrollPane1, BorderLayout.CENTER);
@@ -818,7 +836,7 @@ public class MainWindow extends javax.swing.JFrame {
     List<SSPhotoset> list = new ArrayList<>();
     // Put all sets that are ready for refresh in a list
     for (int i = 0; i < this.listModel.getSize(); i++) {
-      ssPhotoset = (SSPhotoset) this.listModel.getElementAt(i);
+      ssPhotoset = this.listModel.getElementAt(i);
       if (ssPhotoset.isManaged() && SSUtils.readyForUpdate(ssPhotoset.getLastRefreshDate())) {
         list.add(ssPhotoset);
       }
@@ -835,7 +853,7 @@ public class MainWindow extends javax.swing.JFrame {
 
         // Put all managed sets in the list
         for (int i = 0; i < this.listModel.getSize(); i++) {
-          ssPhotoset = (SSPhotoset) this.listModel.getElementAt(i);
+          ssPhotoset = this.listModel.getElementAt(i);
           if (ssPhotoset.isManaged()) {
             list.add(ssPhotoset);
           }
@@ -903,7 +921,7 @@ public class MainWindow extends javax.swing.JFrame {
           resourceBundle.getString("MainWindow.dialog.editset.title"),
           JOptionPane.INFORMATION_MESSAGE);
     } else {
-      SSPhotoset set = (SSPhotoset) this.listModel.get(index);
+      SSPhotoset set = this.listModel.get(index);
       (new SetEditor(this, EditorMode.EDIT, set)).setVisible(true);
     }
   }
@@ -912,7 +930,7 @@ public class MainWindow extends javax.swing.JFrame {
   private void doDeleteSetAction() {
     int index = jList1.getSelectedIndex();
     if (index != -1) {
-      SSPhotoset ssPhotoset = (SSPhotoset) listModel.get(index);
+      SSPhotoset ssPhotoset = listModel.get(index);
       int confirm = JOptionPane.showConfirmDialog(this,
           resourceBundle.getString("MainWindow.dialog.deleteset.message1") +
               "\"" + ssPhotoset.getTitle() + "\"\n" +
@@ -938,7 +956,7 @@ public class MainWindow extends javax.swing.JFrame {
     int index = jList1.getSelectedIndex();
     int confirm = JOptionPane.YES_OPTION;
     if (index != -1) {
-      SSPhotoset ssPhotoset = (SSPhotoset) listModel.get(index);
+      SSPhotoset ssPhotoset = listModel.get(index);
       // to update, set must be managed and ready for refresh
       // if not ready for refresh, give user option to force refresh
       if (!ssPhotoset.isManaged()) {
@@ -970,7 +988,7 @@ public class MainWindow extends javax.swing.JFrame {
   private void doOpenInBrowserAction() {
     int index = jList1.getSelectedIndex();
     if (index != -1) {
-      SSPhotoset ssPhotoset = (SSPhotoset) listModel.get(index);
+      SSPhotoset ssPhotoset = listModel.get(index);
       try {
         Desktop.getDesktop().browse(new URL(ssPhotoset.getUrl()).toURI());
       } catch (Exception e) {
@@ -1204,10 +1222,15 @@ public class MainWindow extends javax.swing.JFrame {
 
   public void doFilter(String visibleId) {
     String filter = this.getFilter();
-    this.listModel.clear();
-    BlockerPanel blocker = new BlockerPanel(this, resourceBundle.getString("MainWindow.blocker.filter"));
-    setGlassPane(blocker);
-    new FilterSetListWorker(blocker, masterList, filter, listModel, this.mnuHideUnmanaged.isSelected(), this.mnuHideManaged.isSelected(), visibleId).execute();
+    if (this.filterWorker != null) {
+      this.filterWorker.cancel(false);
+    }
+    if (this.filterIndex == null) {
+      this.filterIndex = new SetFilterIndex(this.masterList);
+    }
+    this.filterWorker = new FilterSetListWorker(this.filterIndex, filter, listModel,
+        this.mnuHideUnmanaged.isSelected(), this.mnuHideManaged.isSelected(), visibleId);
+    this.filterWorker.execute();
   }
 
 
@@ -1239,16 +1262,12 @@ public class MainWindow extends javax.swing.JFrame {
   private void mnuCaseSensitiveActionPerformed() {
     boolean caseSensitive = this.mnuCaseSensitive.isSelected();
     LookupDAO.setKeyAndValue(SSConstants.LOOKUP_KEY_CASE_SENSITIVE, DAOHelper.booleanToString(caseSensitive));
-    String filter = this.getFilter();
-    this.listModel.clear();
     try {
-      this.masterList = PhotosetDAO.getPhotosetListOrderByManagedAndTitle();
+      this.setMasterList(PhotosetDAO.getPhotosetListOrderByManagedAndTitle());
     } catch (Exception e) {
       logger.error("Error while getting photoset list.", e);
     }
-    BlockerPanel blocker = new BlockerPanel(this, resourceBundle.getString("MainWindow.blocker.filter"));
-    setGlassPane(blocker);
-    new FilterSetListWorker(blocker, masterList, filter, listModel, this.mnuHideUnmanaged.isSelected(), this.mnuHideManaged.isSelected(), null).execute();
+    this.doFilter();
   }
 
   private void btnRefreshAllActionPerformed() {
@@ -1337,7 +1356,7 @@ public class MainWindow extends javax.swing.JFrame {
     boolean exists = false;
 
     for (int i = 0; i < listModel.size(); i++) {
-      SSPhotoset setDef = (SSPhotoset) listModel.elementAt(i);
+      SSPhotoset setDef = listModel.get(i);
       if (setDef.getTitle().equals(title)) {
         exists = true;
         break;
@@ -1385,12 +1404,9 @@ public class MainWindow extends javax.swing.JFrame {
   }
 
   public void scrollToPhotoset(String id) {
-    for (int i = 0; i < this.listModel.size(); i++) {
-      SSPhotoset set = (SSPhotoset) this.listModel.elementAt(i);
-      if (id.equals(set.getPhotosetId())) {
-        this.makeIndexVisibleAndSelected(i);
-        break;
-      }
+    int index = this.listModel.indexOf(id);
+    if (index != -1) {
+      this.makeIndexVisibleAndSelected(index);
     }
   }
 
@@ -1434,11 +1450,11 @@ public class MainWindow extends javax.swing.JFrame {
   public void updateMasterList(String visiblePhotosetId) {
     try {
       switch (LookupDAO.getValueForKey(SSConstants.LOOKUP_KEY_LIST_SORT_ORDER)) {
-        case SSConstants.LIST_SORT_ATOZ -> this.masterList = PhotosetDAO.getPhotosetListOrderByManagedAndTitle();
-        case SSConstants.LIST_SORT_ZTOA -> this.masterList = PhotosetDAO.getPhotosetListOrderByManagedAndTitleDescending();
-        case SSConstants.LIST_SORT_VIEW_HIGHLOW -> this.masterList = PhotosetDAO.getPhotosetListOrderByManagedAndViewCountHighToLow();
-        case SSConstants.LIST_SORT_VIEW_LOWHIGH -> this.masterList = PhotosetDAO.getPhotosetListOrderByManagedAndViewCountLowToHigh();
-        default -> this.masterList = PhotosetDAO.getPhotosetListOrderByManagedAndTitle();
+        case SSConstants.LIST_SORT_ATOZ -> this.setMasterList(PhotosetDAO.getPhotosetListOrderByManagedAndTitle());
+        case SSConstants.LIST_SORT_ZTOA -> this.setMasterList(PhotosetDAO.getPhotosetListOrderByManagedAndTitleDescending());
+        case SSConstants.LIST_SORT_VIEW_HIGHLOW -> this.setMasterList(PhotosetDAO.getPhotosetListOrderByManagedAndViewCountHighToLow());
+        case SSConstants.LIST_SORT_VIEW_LOWHIGH -> this.setMasterList(PhotosetDAO.getPhotosetListOrderByManagedAndViewCountLowToHigh());
+        default -> this.setMasterList(PhotosetDAO.getPhotosetListOrderByManagedAndTitle());
       }
     } catch (Exception e) {
       JOptionPane.showMessageDialog(this,
@@ -1459,11 +1475,39 @@ public class MainWindow extends javax.swing.JFrame {
    */
   public void deletePhotosetFromListModel(SSPhotoset photoset) {
     this.listModel.removeElement(photoset);
-    this.masterList.remove(photoset);
+    this.removeFromMasterList(photoset.getPhotosetId());
     this.updateTitle();
   }
 
 
+  /*
+   * Replace the master list, and index it by photoset ID.
+   */
+  private void setMasterList(List<SSPhotoset> list) {
+    this.masterList = list;
+    this.masterIndex.clear();
+    for (int i = 0; i < list.size(); i++) {
+      this.masterIndex.put(list.get(i).getPhotosetId(), i);
+    }
+    this.filterIndex = null;
+  }
+
+
+  /*
+   * Remove a photoset from the master list. The sets after it move up one.
+   */
+  private void removeFromMasterList(String photosetId) {
+    Integer index = this.masterIndex.remove(photosetId);
+    if (index != null) {
+      this.masterList.remove(index.intValue());
+      for (int i = index; i < this.masterList.size(); i++) {
+        this.masterIndex.put(this.masterList.get(i).getPhotosetId(), i);
+      }
+      this.filterIndex = null;
+    }
+  }
+
+
   /**
    * This method will insert a single photoset into the list model.
    * <p>
@@ -1481,10 +1525,10 @@ public class MainWindow extends javax.swing.JFrame {
    * @param photoset   photoset to insert in list model.
    */
   public void insertPhotosetInListModel(List<SSPhotoset> masterList, SSPhotoset photoset) {
-    int index = masterList.indexOf(photoset);
+    this.setMasterList(masterList);
+    int index = this.masterIndex.getOrDefault(photoset.getPhotosetId(), -1);
     if (index != -1) {
       String filter = this.txtFilter.getText();
-      this.masterList = masterList;
 
       // update the list model if the photoset should be displayed
       if (filter == null || photoset.getTitle().toLowerCase().contains(filter)) {
@@ -1519,6 +1563,34 @@ public class MainWindow extends javax.swing.JFrame {
   }
 
 
+  /**
+   * Show new icons for photosets in the list.
+   *
+   * <p>The icons are copied to the photosets in the master list, and only
+   * the rows showing those photosets are repainted. This must be called on
+   * the event dispatch thread.</p>
+   *
+   * @param photosets photosets with new icons.
+   */
+  public void updatePhotosetIcons(List<SSPhotoset> photosets) {
+    for (SSPhotoset photoset : photosets) {
+      Integer index = this.masterIndex.get(photoset.getPhotosetId());
+      if (index != null) {
+        this.masterList.get(index).setPrimaryPhotoIcon(photoset.getPrimaryPhotoIcon());
+      }
+      SimpleCache.getInstance().invalidate(photoset.getPhotosetId());
+      int row = this.listModel.indexOf(photoset.getPhotosetId());
+      if (row != -1) {
+        this.listModel.get(row).setPrimaryPhotoIcon(photoset.getPrimaryPhotoIcon());
+        Rectangle bounds = this.jList1.getCellBounds(row, row);
+        if (bounds != null) {
+          this.jList1.repaint(bounds);
+        }
+      }
+    }
+  }
+
+
   public void updateTitle() {
     this.setTitle("SuprSetr :: " + FlickrHelper.getInstance().getUsername()
         + " :: " +
@@ -1642,7 +1714,7 @@ public class MainWindow extends javax.swing.JFrame {
   }
 
 
-  private void executeRefreshSetWorker(List<SSPhotoset> list, boolean exitWhenDone) {
+  private RefreshPhotosetWorker executeRefreshSetWorker(List<SSPhotoset> list, boolean exitWhenDone) {
     BlockerPanel blocker = new BlockerPanel(this,
         resourceBundle.getString("MainWindow.blocker.refreshing1") +
             " " +
@@ -1651,7 +1723,9 @@ public class MainWindow extends javax.swing.JFrame {
             resourceBundle.getString("MainWindow.blocker.refreshing2"));
     setGlassPane(blocker);
     blocker.block("");
-    new RefreshPhotosetWorker(blocker, list, exitWhenDone).execute();
+    RefreshPhotosetWorker worker = new RefreshPhotosetWorker(blocker, list, exitWhenDone);
+    worker.execute();
+    return worker;
   }
 
 
@@ -1718,13 +1792,12 @@ public class MainWindow extends javax.swing.JFrame {
 
     @Override
     public void run() {
-      int index = listModel.indexOf(photoset);
-      if (index != -1) {
-        listModel.set(index, photoset);
-      }
-      index = masterList.indexOf(photoset);
-      if (index != -1) {
+      listModel.update(photoset);
+      Integer index = masterIndex.get(photoset.getPhotosetId());
+      if (index != null) {
         masterList.set(index, photoset);
+        // the title may have changed
+        filterIndex = null;
       }
     }
   }
@@ -1738,45 +1811,115 @@ public class MainWindow extends javax.swing.JFrame {
             LookupDAO.getValueForKey(SSConstants.LOOKUP_KEY_AUTO_REFRESH_TIME) +
             ")");
 
-        if (autoRefreshTimer != null) {
-          autoRefreshTimer.cancel();
-        }
-        autoRefreshTimer = new java.util.Timer("AutoRefreshTimer", true);
-        autoRefreshTimer.schedule(new AutoRefreshTimerTask(), 1000, 30000);
-        logger.info("Auto-refresh timer scheduled.");
+        refreshScheduler.start(LocalTime.parse(LookupDAO.getValueForKey(SSConstants.LOOKUP_KEY_AUTO_REFRESH_TIME)),
+            LookupDAO.getIntValueForKey(SSConstants.LOOKUP_KEY_AUTO_REFRESH_WINDOW,
+                Integer.parseInt(SSConstants.DEFAULT_AUTO_REFRESH_WINDOW)));
 
       } else {
         lblStatus.setText(resourceBundle.getString("MainWindow.lblStatus.text"));
-        if (autoRefreshTimer != null) {
-          autoRefreshTimer.cancel();
-          autoRefreshTimer = null;
-          logger.info("Auto-refresh timer canceled.");
-        }
+        refreshScheduler.stop();
       }
     }
   }
 
-  class AutoRefreshTimerTask extends TimerTask {
-    private String time = LookupDAO.getValueForKey(SSConstants.LOOKUP_KEY_AUTO_REFRESH_TIME);
-    private SimpleDateFormat format = new SimpleDateFormat("HH:mm");
+  /**
+   * Supplies the managed sets to the refresh scheduler, and refreshes each
+   * batch it dispatches in the background.
+   */
+  class AutoRefreshClient implements RefreshScheduler.Client {
 
     @Override
-    public void run() {
-      String currentTime = format.format(new Date());
-      if (time.equals(currentTime) && !getGlassPane().isVisible()) {
-        boolean exitWhenDone = DAOHelper.stringToBoolean(LookupDAO.getValueForKey(SSConstants.LOOKUP_KEY_AUTO_REFRESH_EXIT_AFTER));
-        logger.info("Auto-refresh triggered.");
-        LogWindow.addLogMessage(resourceBundle.getString("MainWindow.log.message.autorefresh") + " " + new Date());
-        SSPhotoset ssPhotoset;
-        List<SSPhotoset> list = new ArrayList<>();
-        // Put all managed sets in the list
-        for (int i = 0; i < listModel.getSize(); i++) {
-          ssPhotoset = (SSPhotoset) listModel.getElementAt(i);
-          if (ssPhotoset.isManaged()) {
-            list.add(ssPhotoset);
+    public List<SSPhotoset> getPhotosets() {
+      List<SSPhotoset> list = new ArrayList<>();
+      try {
+        SwingUtilities.invokeAndWait(() -> {
+          if (masterList != null) {
+            for (SSPhotoset ssPhotoset : masterList) {
+              if (ssPhotoset.isManaged()) {
+                list.add(ssPhotoset);
+              }
+            }
           }
+        });
+      } catch (Exception e) {
+        logger.error("Error getting the list of managed sets.", e);
+      }
+      return list;
+    }
+
+    /**
+     * Refresh a batch on the scheduler thread.
+     *
+     * <p>The window is blocked for the length of the batch, so the user
+     * cannot load sets from Flickr, edit, delete or refresh sets, or exit
+     * without confirming while a set is being changed. The window is free
+     * again between batches. Each refreshed set is updated in the list as it
+     * finishes. If the window is blocked by another operation, or a dialog
+     * such as the set editor is open, the batch is tried again later.</p>
+     */
+    @Override
+    public List<RefreshResult> dispatch(List<SSPhotoset> batch) throws Exception {
+      BlockerPanel[] blocker = new BlockerPanel[1];
+      SwingUtilities.invokeAndWait(() -> {
+        if (getGlassPane().isVisible() || isModalDialogShowing()) {
+          return;
         }
-        executeRefreshSetWorker(list, exitWhenDone);
+        blocker[0] = new BlockerPanel(MainWindow.this,
+            resourceBundle.getString("MainWindow.blocker.refreshing1") +
+                " " +
+                batch.size() +
+                " " +
+                resourceBundle.getString("MainWindow.blocker.refreshing2"));
+        setGlassPane(blocker[0]);
+        blocker[0].block("");
+      });
+      if (blocker[0] == null) {
+        return null;
+      }
+      try {
+        return new RefreshEngine(new RefreshListener() {
+          @Override
+          public void setMessage(SSPhotoset ssPhotoset, String message) {
+            blocker[0].updateMessage("'" + ssPhotoset.getTitle() + "': " + message);
+          }
+
+          @Override
+          public void setFinished(RefreshResult result, int completed, int total) {
+            SimpleCache.getInstance().invalidate(result.getPhotoset().getPhotosetId());
+            updatePhotosetInList(result.getPhotoset());
+          }
+
+          @Override
+          public void log(String message) {
+            LogWindow.addLogMessage(message);
+          }
+        }).refresh(batch);
+      } finally {
+        SwingUtilities.invokeLater(blocker[0]::unBlock);
+      }
+    }
+
+    /* A modal dialog, such as the set editor, may be changing a set. */
+    private boolean isModalDialogShowing() {
+      for (Window window : Window.getWindows()) {
+        if (window instanceof Dialog && ((Dialog) window).isModal() && window.isShowing()) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    public void runStarted(int count) {
+      logger.info("Auto-refresh triggered for " + count + " sets.");
+      LogWindow.addLogMessage(resourceBundle.getString("MainWindow.log.message.autorefresh") + " " + new Date());
+    }
+
+    @Override
+    public void runFinished() {
+      if (DAOHelper.stringToBoolean(LookupDAO.getValueForKey(SSConstants.LOOKUP_KEY_AUTO_REFRESH_EXIT_AFTER))) {
+        logger.info("Refresh is done, exiting.");
+        SwingUtilities.invokeLater(MainWindow.this::backupAndExit);
       }
     }
   }
@@ -20,7 +20,6 @@
 package net.jeremybrooks.suprsetr;
 
 import net.jeremybrooks.jinx.response.photos.Photo;
-import net.jeremybrooks.suprsetr.utils.ObjectCache;
 import net.jeremybrooks.suprsetr.workers.LoadImagesWorker;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -44,10 +43,11 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
-import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.ResourceBundle;
+import java.util.concurrent.ConcurrentHashMap;
 
 
 /**
@@ -56,10 +56,9 @@ import java.util.ResourceBundle;
  * When the user selects a photo and clicks Save, the selected photo will become
  * the primary photo on the SetEditor window.
  *
- * This class uses an Object Cache to save square images that have already
- * been downloaded. This will reduce traffic to Flickr and improve performance.
- * Once the cache is created, it will persist for the lifetime of the
- * application.
+ * Square images are loaded through the shared thumbnail cache, so images
+ * that have already been downloaded are not requested from Flickr again.
+ * The icons for photos this dialog has shown are kept until it is closed.
  *
  * @author Jeremy Brooks
  */
@@ -78,9 +77,9 @@ public class PhotoPickerDialog extends javax.swing.JDialog {
 	private SSPhotoset photoset;
 
 	/**
-	 * Cache image icons.
+	 * Icons for the photos that have been loaded, by photo ID.
 	 */
-	private ObjectCache cache = null;
+	private final Map<String, ImageIcon> icons = new ConcurrentHashMap<>();
 
 	/**
 	 * The dataset used by the table model.
@@ -120,7 +119,6 @@ public class PhotoPickerDialog extends javax.swing.JDialog {
 		this.parent = parent;
 		this.photoset = photoset;
 		this.photos = new ArrayList<>();
-		this.cache = new ObjectCache(new File(Main.configDir, "image_cache"));
 		initComponents();
 		setIconImage(new ImageIcon(getClass().getResource("/images/s16.png")).getImage());
 
@@ -306,7 +304,7 @@ public class PhotoPickerDialog extends javax.swing.JDialog {
 			String id = this.photos.get(index).getPhotoId();
 			try {
 				if (this.parent instanceof SetEditor) {
-					((SetEditor) this.parent).setPrimaryPhotoImage(id, (ImageIcon) this.cache.get(id));
+					((SetEditor) this.parent).setPrimaryPhotoImage(id, this.icons.get(id));
 					((SetEditor) this.parent).setMessage(resourceBundle.getString("PhotoPickerDialog.changeMessage"));
 				}
 			} catch (Exception e) {
@@ -347,7 +345,7 @@ public class PhotoPickerDialog extends javax.swing.JDialog {
 		BlockerPanel blocker = new BlockerPanel(this, resourceBundle.getString("PhotoPickerDialog.blocker.title"));
 		setGlassPane(blocker);
 		blocker.block(resourceBundle.getString("PhotoPickerDialog.blocker.loading") + photoset.getTitle() + "'");
-		new LoadImagesWorker(blocker, photoset.getPhotosetId(), this.page, this.cache, this.photos, this).execute();
+		new LoadImagesWorker(blocker, photoset.getPhotosetId(), this.page, this.icons, this.photos, this).execute();
 	}
 
 
@@ -421,7 +419,7 @@ public class PhotoPickerDialog extends javax.swing.JDialog {
 				if (index < photos.size()) {
 					try {
 						Photo thePhoto = photos.get(index);
-						result = (ImageIcon) cache.get(thePhoto.getPhotoId());
+						result = icons.get(thePhoto.getPhotoId());
 						if (result == null) {
 							logger.warn("Photo should have been in cache, but was not. Something is wrong somewhere.");
 						}
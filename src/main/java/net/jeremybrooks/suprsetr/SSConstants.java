@@ -96,6 +96,17 @@ public class SSConstants {
   public static final String LOOKUP_KEY_AUTO_REFRESH = "AUTO_REFRESH";
   public static final String LOOKUP_KEY_AUTO_REFRESH_TIME = "AUTO_REFRESH_TIME";
   public static final String LOOKUP_KEY_AUTO_REFRESH_EXIT_AFTER = "AUTO_REFRESH_EXIT_AFTER";
+  public static final String LOOKUP_KEY_AUTO_REFRESH_WINDOW = "AUTO_REFRESH_WINDOW";
+
+  public static final String LOOKUP_KEY_REFRESH_THREADS = "REFRESH_THREADS";
+  public static final String LOOKUP_KEY_SEARCH_PAGE_THREADS = "SEARCH_PAGE_THREADS";
+  public static final String LOOKUP_KEY_API_CALLS_PER_HOUR = "API_CALLS_PER_HOUR";
+
+  public static final String LOOKUP_KEY_USE_LOCAL_LIBRARY = "USE_LOCAL_LIBRARY";
+  public static final String LOOKUP_KEY_LIBRARY_SYNC_TIME = "LIBRARY_SYNC_TIME";
+  public static final String LOOKUP_KEY_LIBRARY_FULL_SYNC_TIME = "LIBRARY_FULL_SYNC_TIME";
+
+  public static final String LOOKUP_KEY_FLYWEIGHT_SET_LIST = "FLYWEIGHT_SET_LIST";
 
   public static final String LOOKUP_KEY_BACKUP_AT_EXIT = "BACKUP_AT_EXIT";
   public static final String LOOKUP_KEY_BACKUP_COUNT = "BACKUP_COUNT";
@@ -114,13 +125,24 @@ public class SSConstants {
 
   public static final String DEFAULT_REFRESH_WAIT = "24";
   public static final String DEFAULT_FAVRTAGR_INTERVAL = "10";
+  public static final String DEFAULT_REFRESH_THREADS = "3";
+  public static final String DEFAULT_SEARCH_PAGE_THREADS = "4";
+  public static final String DEFAULT_AUTO_REFRESH_WINDOW = "60";
+  // Flickr allows 3600 calls per hour; leave room for other tools using the same account
+  public static final String DEFAULT_API_CALLS_PER_HOUR = "3000";
 
   public static final String VERSION_URL = "https://www.jeremybrooks.net/suprsetr/VERSION";
   public static final String DOWNLOAD_URL = "https://www.jeremybrooks.net/suprsetr/download.html";
 
   public static final String ADD_MANAGED = "This set is managed by <a href=\"https://www.jeremybrooks.net/suprsetr\">SuprSetr</a>";
 
-  public static final int DATABASE_SCHEMA_CURRENT_VERSION = 9;
+  public static final int DATABASE_SCHEMA_CURRENT_VERSION = 15;
+
+  /**
+   * The schema version that adds the PHOTOSET_ICON table. After this patch is
+   * applied, the serialized icons are moved from the PHOTOSET table to the new table.
+   */
+  public static final int DATABASE_SCHEMA_ICON_TABLE_VERSION = 12;
 
   /**
    * This map contains the DDL necessary to update the database from version to version.
@@ -179,6 +201,41 @@ public class SSConstants {
       entry(9, List.of(
           "ALTER TABLE PHOTOSET ADD COLUMN COLOR_CODE VARCHAR(2000)",
           "ALTER TABLE PHOTOSET ADD COLUMN PICTURE_STYLE VARCHAR(2000)",
-          "ALTER TABLE PHOTOSET ADD COLUMN ORIENTATION VARCHAR(2000)"))
+          "ALTER TABLE PHOTOSET ADD COLUMN ORIENTATION VARCHAR(2000)")),
+      entry(10, List.of(
+          "ALTER TABLE PHOTOSET ADD COLUMN PHOTO_FINGERPRINT VARCHAR(64)")),
+      entry(11, List.of(
+          "CREATE TABLE PHOTO ( "
+              + "ID VARCHAR(32) PRIMARY KEY, "
+              + "TITLE VARCHAR(2000), "
+              + "DESCRIPTION VARCHAR(32000), "
+              + "TAGS VARCHAR(32000), "
+              + "MACHINE_TAGS VARCHAR(32000), "
+              + "DATE_TAKEN TIMESTAMP, "
+              + "DATE_UPLOAD TIMESTAMP, "
+              + "LAST_UPDATE TIMESTAMP, "
+              + "VIEWS INTEGER, "
+              + "MEDIA VARCHAR(10), "
+              + "IS_PUBLIC VARCHAR(1), "
+              + "IS_FRIEND VARCHAR(1), "
+              + "IS_FAMILY VARCHAR(1), "
+              + "GEOTAGGED VARCHAR(1), "
+              + "SAFE VARCHAR(1), "
+              + "SYNC_TIMESTAMP BIGINT)",
+          "CREATE INDEX PHOTO_DATE_UPLOAD_IDX ON PHOTO (DATE_UPLOAD)",
+          "CREATE INDEX PHOTO_SYNC_TIMESTAMP_IDX ON PHOTO (SYNC_TIMESTAMP)")),
+      entry(12, List.of(
+          "CREATE TABLE PHOTOSET_ICON ( "
+              + "ID VARCHAR(30) PRIMARY KEY, "
+              + "PHOTO_ID VARCHAR(32), "
+              + "ICON BLOB)")),
+      entry(13, List.of(
+          "ALTER TABLE PHOTOSET DROP COLUMN PRIMARY_PHOTO_ICON")),
+      entry(14, List.of(
+          "ALTER TABLE PHOTOSET ADD COLUMN REFRESH_COST BIGINT")),
+      entry(15, List.of(
+          "CREATE TABLE PHOTOSET_PHOTOS ( "
+              + "ID VARCHAR(30) PRIMARY KEY, "
+              + "PHOTO_IDS CLOB)"))
   );
 }
@@ -0,0 +1,196 @@
+/*
+ *  SuprSetr is Copyright 2010-2023 by Jeremy Brooks
+ *
+ *  This file is part of SuprSetr.
+ *
+ *   SuprSetr is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   SuprSetr is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with SuprSetr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.jeremybrooks.suprsetr;
+
+import java.util.Date;
+
+
+/**
+ * Metadata for a single photo in the user's library.
+ *
+ * <p>SuprSetr keeps a local copy of this data for every photo in the
+ * user's account, so that the rules for a managed set can be evaluated
+ * without searching Flickr. The data in here is saved to the PHOTO table.</p>
+ *
+ * @author Jeremy Brooks
+ */
+public class SSPhoto {
+
+  private String photoId;
+  private String title;
+  private String description;
+  private String tags;
+  private String machineTags;
+  private Date dateTaken;
+  private Date dateUpload;
+  private Date lastUpdate;
+  private int views;
+  private String media;
+  private boolean isPublic;
+  private boolean isFriend;
+  private boolean isFamily;
+  private boolean geotagged;
+  private boolean safe;
+
+
+  public String getPhotoId() {
+    return photoId;
+  }
+
+  public void setPhotoId(String photoId) {
+    this.photoId = photoId;
+  }
+
+  public String getTitle() {
+    return title;
+  }
+
+  public void setTitle(String title) {
+    this.title = title;
+  }
+
+  public String getDescription() {
+    return description;
+  }
+
+  public void setDescription(String description) {
+    this.description = description;
+  }
+
+  /**
+   * Get the tags for this photo.
+   *
+   * @return space separated list of tags, as returned by Flickr.
+   */
+  public String getTags() {
+    return tags;
+  }
+
+  public void setTags(String tags) {
+    this.tags = tags;
+  }
+
+  /**
+   * Get the machine tags for this photo.
+   *
+   * @return space separated list of machine tags, as returned by Flickr.
+   */
+  public String getMachineTags() {
+    return machineTags;
+  }
+
+  public void setMachineTags(String machineTags) {
+    this.machineTags = machineTags;
+  }
+
+  public Date getDateTaken() {
+    return dateTaken;
+  }
+
+  public void setDateTaken(Date dateTaken) {
+    this.dateTaken = dateTaken;
+  }
+
+  public Date getDateUpload() {
+    return dateUpload;
+  }
+
+  public void setDateUpload(Date dateUpload) {
+    this.dateUpload = dateUpload;
+  }
+
+  public Date getLastUpdate() {
+    return lastUpdate;
+  }
+
+  public void setLastUpdate(Date lastUpdate) {
+    this.lastUpdate = lastUpdate;
+  }
+
+  public int getViews() {
+    return views;
+  }
+
+  public void setViews(int views) {
+    this.views = views;
+  }
+
+  /**
+   * Get the media type.
+   *
+   * @return "photo" or "video".
+   */
+  public String getMedia() {
+    return media;
+  }
+
+  public void setMedia(String media) {
+    this.media = media;
+  }
+
+  public boolean isPublic() {
+    return isPublic;
+  }
+
+  public void setPublic(boolean isPublic) {
+    this.isPublic = isPublic;
+  }
+
+  public boolean isFriend() {
+    return isFriend;
+  }
+
+  public void setFriend(boolean isFriend) {
+    this.isFriend = isFriend;
+  }
+
+  public boolean isFamily() {
+    return isFamily;
+  }
+
+  public void setFamily(boolean isFamily) {
+    this.isFamily = isFamily;
+  }
+
+  public boolean isGeotagged() {
+    return geotagged;
+  }
+
+  public void setGeotagged(boolean geotagged) {
+    this.geotagged = geotagged;
+  }
+
+  /**
+   * Check if this photo is returned by a search with the "safe" safety level.
+   *
+   * @return true if the photo is marked safe.
+   */
+  public boolean isSafe() {
+    return safe;
+  }
+
+  public void setSafe(boolean safe) {
+    this.safe = safe;
+  }
+
+  @Override
+  public String toString() {
+    return "SSPhoto [ID:" + photoId + " | TITLE:" + title + " | MEDIA:" + media + "]";
+  }
+}
@@ -22,7 +22,6 @@ package net.jeremybrooks.suprsetr;
 import net.jeremybrooks.jinx.response.photosets.Photoset;
 import net.jeremybrooks.suprsetr.utils.SSUtils;
 
-import javax.swing.ImageIcon;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
@@ -72,7 +71,7 @@ public class SSPhotoset {
 	private Date lastRefreshDate;
 	private long syncTimestamp;
 	private boolean managed;
-	private ImageIcon primaryPhotoIcon;
+	private byte[] primaryPhotoIcon;
 	private int sortOrder;
 	private boolean sendTweet;
 	private String tweetTemplate;
@@ -97,6 +96,7 @@ public class SSPhotoset {
   private String colorCode;
   private String pictureStyle;
   private String orientation;
+  private String photoFingerprint;
 
 	public boolean isMetadataEqual(Photoset p) {
 		if ((this.getTitle() == null) ? (p.getTitle() != null) : !this.getTitle().equals(p.getTitle())) {
@@ -334,9 +334,13 @@ public class SSPhotoset {
 
 
 	/**
+	 * The icon is kept as encoded image bytes, so that the refresh code does
+	 * not need Swing. Use {@link net.jeremybrooks.suprsetr.utils.IconUtils#decode(byte[])}
+	 * to display it.
+	 *
 	 * @return the primaryPhotoIcon
 	 */
-	public ImageIcon getPrimaryPhotoIcon() {
+	public byte[] getPrimaryPhotoIcon() {
 		return primaryPhotoIcon;
 	}
 
@@ -344,7 +348,7 @@ public class SSPhotoset {
 	/**
 	 * @param primaryPhotoIcon the primaryPhotoIcon to set
 	 */
-	public void setPrimaryPhotoIcon(ImageIcon primaryPhotoIcon) {
+	public void setPrimaryPhotoIcon(byte[] primaryPhotoIcon) {
 		this.primaryPhotoIcon = primaryPhotoIcon;
 	}
 
@@ -438,7 +442,7 @@ public class SSPhotoset {
 		sb.append(" | MACHINE TAGS:").append(getMachineTagsAsString());
 		sb.append(" | MACHINE TAG MATCH MODE:").append(getMachineTagMatchMode());
 		sb.append(" | PRIMARY PHOTO ID:").append(getPrimary());
-		sb.append(" | PRIMARY PHOTO ICON:").append(primaryPhotoIcon);
+		sb.append(" | PRIMARY PHOTO ICON:").append(primaryPhotoIcon == null ? null : primaryPhotoIcon.length + " bytes");
 		sb.append(" | MATCH TAKEN DATES:").append(matchTakenDates);
 		sb.append(" | MIN TAKEN DATE:").append(minTakenDate);
 		sb.append(" | MAX TAKEN DATE:").append(maxTakenDate);
@@ -470,6 +474,7 @@ public class SSPhotoset {
 		sb.append(" | ON THIS DAY DAY: '").append(onThisDayDay).append("'");
 		sb.append(" | ON THIS DAY YEAR START: '").append(onThisDayYearStart).append("'");
 		sb.append(" | ON THIS DAY YEAR END: '").append(onThisDayYearEnd).append("'");
+		sb.append(" | PHOTO FINGERPRINT: '").append(photoFingerprint).append("'");
 
 		sb.append("] ");
 
@@ -962,4 +967,18 @@ public class SSPhotoset {
   public void setOrientation(String orientation) {
     this.orientation = orientation;
   }
+
+  /**
+   * Get the fingerprint of the photos that were last applied to this set.
+   *
+   * @return fingerprint of the last ordered list of photo ID's and primary photo, or null.
+   * @see net.jeremybrooks.suprsetr.utils.SSUtils#fingerprint(String, java.util.List)
+   */
+  public String getPhotoFingerprint() {
+    return photoFingerprint;
+  }
+
+  public void setPhotoFingerprint(String photoFingerprint) {
+    this.photoFingerprint = photoFingerprint;
+  }
 }
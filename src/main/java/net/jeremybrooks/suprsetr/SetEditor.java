@@ -26,8 +26,13 @@ import net.jeremybrooks.jinx.response.Response;
 import net.jeremybrooks.suprsetr.dao.DAOHelper;
 import net.jeremybrooks.suprsetr.dao.LookupDAO;
 import net.jeremybrooks.suprsetr.dao.PhotosetDAO;
+import net.jeremybrooks.suprsetr.dao.PhotosetIconDAO;
 import net.jeremybrooks.suprsetr.flickr.JinxFactory;
+import net.jeremybrooks.suprsetr.flickr.PhotoHelper;
+import net.jeremybrooks.suprsetr.flickr.PhotosetHelper;
+import net.jeremybrooks.suprsetr.flickr.RateLimiter;
 import net.jeremybrooks.suprsetr.twitter.TwitterHelper;
+import net.jeremybrooks.suprsetr.utils.IconUtils;
 import net.jeremybrooks.suprsetr.utils.SSUtils;
 import net.jeremybrooks.suprsetr.utils.SimpleCache;
 import org.apache.logging.log4j.LogManager;
@@ -126,7 +131,7 @@ public class SetEditor extends javax.swing.JDialog {
   // These can be changed from the PhotoPicker, so we need to remember this
   // state when the window is first displayed in order to revert any changes
   // if the user clicks Cancel
-  private ImageIcon originalPrimaryIcon;
+  private byte[] originalPrimaryIcon;
   private String originalPrimaryId;
   private boolean originalLockSelected;
 
@@ -274,8 +279,16 @@ public class SetEditor extends javax.swing.JDialog {
 
 
     // set the values based on the setDefinition
+    if (ssPhotoset.getPrimaryPhotoIcon() == null && editorMode != EditorMode.CREATE) {
+      // icons are not loaded with the set list unless the set has been displayed
+      try {
+        ssPhotoset.setPrimaryPhotoIcon(PhotosetIconDAO.getIcon(ssPhotoset.getPhotosetId()));
+      } catch (Exception e) {
+        logger.warn("Could not load icon for set " + ssPhotoset.getPhotosetId(), e);
+      }
+    }
     if (ssPhotoset.getPrimaryPhotoIcon() != null) {
-      this.lblIcon.setIcon(ssPhotoset.getPrimaryPhotoIcon());
+      this.lblIcon.setIcon(IconUtils.decode(ssPhotoset.getPrimaryPhotoIcon()));
     }
     this.cbxLock.setSelected(ssPhotoset.isLockPrimaryPhoto());
 
@@ -1596,7 +1609,7 @@ public class SetEditor extends javax.swing.JDialog {
    */
   private void btnCancelActionPerformed() {
     // make sure any icon changes are undone
-    this.lblIcon.setIcon(this.originalPrimaryIcon);
+    this.lblIcon.setIcon(IconUtils.decode(this.originalPrimaryIcon));
     this.ssPhotoset.setPrimary(this.originalPrimaryId);
     this.ssPhotoset.setPrimaryPhotoIcon(this.originalPrimaryIcon);
     this.cbxLock.setSelected(this.originalLockSelected);
@@ -1633,7 +1646,7 @@ public class SetEditor extends javax.swing.JDialog {
   private void btnSaveAndRefreshActionPerformed() {
     if (this.doValidation()) {
       if (this.editorMode == EditorMode.CREATE) {
-        this.ssPhotoset.setPrimaryPhotoIcon(new ImageIcon(this.getClass().getClassLoader().getResource("images/empty_set_icon.png")));
+        this.ssPhotoset.setPrimaryPhotoIcon(PhotoHelper.getInstance().getEmptySetIcon());
         MainWindow.getMainWindow().executeAddSetWorker(this.ssPhotoset);
       } else {
         MainWindow.getMainWindow().executeRefreshSetWorker(this.ssPhotoset);
@@ -1953,7 +1966,8 @@ public class SetEditor extends javax.swing.JDialog {
               !d.equals(this.ssPhotoset.getDescription())) &&
               this.editorMode == EditorMode.EDIT) {
         try {
-          Response response = JinxFactory.getInstance().getPhotosetsApi().editMeta(this.ssPhotoset.getPhotosetId(), t, d);
+          PhotosetHelper.getInstance().invalidatePhotosetList();
+          Response response = RateLimiter.getInstance().call("flickr.photosets.editMeta", () -> JinxFactory.getInstance().getPhotosetsApi().editMeta(this.ssPhotoset.getPhotosetId(), t, d));
           if (response.getCode() != 0) {
             throw new Exception("Error setting metadata. Code " + response.getCode() + ":" + response.getMessage());
           }
@@ -2114,7 +2128,7 @@ public class SetEditor extends javax.swing.JDialog {
   void setPrimaryPhotoImage(String id, ImageIcon image) {
     this.lblIcon.setIcon(image);
     this.ssPhotoset.setPrimary(id);
-    this.ssPhotoset.setPrimaryPhotoIcon(image);
+    this.ssPhotoset.setPrimaryPhotoIcon(IconUtils.encode(image));
     this.cbxLock.setSelected(true);
     this.ssPhotoset.setLockPrimaryPhoto(true);
   }
@@ -36,7 +36,7 @@ import java.util.ResourceBundle;
 public class SetListCell extends javax.swing.JPanel {
 
 	private static final long serialVersionUID = -1125238132858767565L;
-	private boolean cacheValid = false;
+	private volatile boolean cacheValid = false;
 
 	// Some static references to often-used icons. No need to have more than
 	// one instance of these
@@ -45,7 +45,7 @@ public class SetListCell extends javax.swing.JPanel {
 	private static final ImageIcon ICON_ACCEPT;
 	private static final ImageIcon ICON_WARN;
 
-	private ResourceBundle resourceBundle = ResourceBundle.getBundle("net.jeremybrooks.suprsetr.setlistcell");
+	private static final ResourceBundle resourceBundle = ResourceBundle.getBundle("net.jeremybrooks.suprsetr.setlistcell");
 
 	static {
     ICON_REFRESH = new ImageIcon(SetListCell.class.getResource("/images/759-refresh-2-toolbar.png"));
@@ -209,20 +209,38 @@ public class SetListCell extends javax.swing.JPanel {
 	 * @param lastUpdate date of the last set refresh.
 	 */
 	public void setLastUpdate(Date lastUpdate) {
+		setLastUpdate(getLastUpdateText(lastUpdate), SSUtils.readyForUpdate(lastUpdate));
+	}
+
+
+	/**
+	 * Set the text and icon indicating that this set is ready to be refreshed.
+	 *
+	 * @param text           the text from {@link #getLastUpdateText(Date)}.
+	 * @param readyForUpdate true if the set is ready to be refreshed.
+	 */
+	public void setLastUpdate(String text, boolean readyForUpdate) {
 		this.lblLastUpdate.setVisible(true);
-		if (lastUpdate == null) {
-			this.lblLastUpdate.setText(resourceBundle.getString("SetListCell.lblLastUpdate.noupdates"));
+		this.lblLastUpdate.setText(text);
+		if (readyForUpdate) {
 			this.lblLastUpdate.setIcon(ICON_REFRESH);
 		} else {
+			this.lblLastUpdate.setIcon(ICON_ACCEPT);
+		}
+	}
 
-			this.lblLastUpdate.setText(resourceBundle.getString("SetListCell.lblLastUpdate.updated") + " " + SSUtils.formatDate(lastUpdate));
 
-			if (SSUtils.readyForUpdate(lastUpdate)) {
-				this.lblLastUpdate.setIcon(ICON_REFRESH);
-			} else {
-				this.lblLastUpdate.setIcon(ICON_ACCEPT);
-			}
+	/**
+	 * Get the text describing the last refresh of a set.
+	 *
+	 * @param lastUpdate date of the last set refresh, or null if it has never been refreshed.
+	 * @return text for the last update label.
+	 */
+	public static String getLastUpdateText(Date lastUpdate) {
+		if (lastUpdate == null) {
+			return resourceBundle.getString("SetListCell.lblLastUpdate.noupdates");
 		}
+		return resourceBundle.getString("SetListCell.lblLastUpdate.updated") + " " + SSUtils.formatDate(lastUpdate);
 	}
 
 
@@ -0,0 +1,167 @@
+/*
+ *  SuprSetr is Copyright 2010-2023 by Jeremy Brooks
+ *
+ *  This file is part of SuprSetr.
+ *
+ *   SuprSetr is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   SuprSetr is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with SuprSetr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.jeremybrooks.suprsetr;
+
+import net.jeremybrooks.suprsetr.dao.PhotosetIconDAO;
+import net.jeremybrooks.suprsetr.utils.SimpleCache;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.swing.JList;
+import javax.swing.ListModel;
+import javax.swing.SwingUtilities;
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+
+/**
+ * Loads set icons in the background for the set list.
+ *
+ * <p>The renderer asks for the icon of each cell it paints that does not have
+ * one yet. Requests made while the list is painting are collected, and read
+ * from the database in one query after the paint is done. When the icons
+ * arrive, they are set on the photosets and only the rows that show them are
+ * repainted.</p>
+ *
+ * <p>All methods except the database read run on the event dispatch thread.</p>
+ *
+ * @author Jeremy Brooks
+ */
+public class SetListIconLoader {
+
+  private static final Logger logger = LogManager.getLogger(SetListIconLoader.class);
+
+  /**
+   * The list to repaint when icons arrive.
+   */
+  private final JList list;
+
+  /**
+   * Photosets waiting for a query, by photoset ID.
+   */
+  private final Map<String, SSPhotoset> pending = new LinkedHashMap<>();
+
+  /**
+   * Photosets that have already been looked up, by photoset ID. When the set
+   * list is reloaded, the new instances are looked up again.
+   */
+  private final Map<String, SSPhotoset> requested = new HashMap<>();
+
+  /**
+   * True if a query has been scheduled for the pending requests.
+   */
+  private boolean scheduled = false;
+
+  /**
+   * Reads the icons from the database, one batch at a time.
+   */
+  private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+    Thread t = new Thread(r, "SetListIconLoader");
+    t.setDaemon(true);
+    return t;
+  });
+
+
+  /**
+   * Create a loader for a list.
+   *
+   * @param list the list to repaint when icons are loaded.
+   */
+  public SetListIconLoader(JList list) {
+    this.list = list;
+  }
+
+
+  /**
+   * Ask for the icon of a photoset.
+   *
+   * <p>If the icon has already been requested for this photoset instance,
+   * nothing happens.</p>
+   *
+   * @param ssPhotoset the photoset that needs an icon.
+   */
+  public void request(SSPhotoset ssPhotoset) {
+    if (this.requested.put(ssPhotoset.getPhotosetId(), ssPhotoset) == ssPhotoset) {
+      return;
+    }
+    this.pending.put(ssPhotoset.getPhotosetId(), ssPhotoset);
+    if (!this.scheduled) {
+      this.scheduled = true;
+      // run after the current paint, so all the visible cells are in one query
+      SwingUtilities.invokeLater(this::submit);
+    }
+  }
+
+
+  private void submit() {
+    this.scheduled = false;
+    Map<String, SSPhotoset> batch = new LinkedHashMap<>(this.pending);
+    this.pending.clear();
+    if (batch.isEmpty()) {
+      return;
+    }
+    this.executor.execute(() -> {
+      try {
+        Map<String, byte[]> icons = PhotosetIconDAO.getIcons(batch.keySet());
+        SwingUtilities.invokeLater(() -> update(batch, icons));
+      } catch (Exception e) {
+        logger.warn("Could not load icons for " + batch.size() + " sets.", e);
+      }
+    });
+  }
+
+
+  /*
+   * Set the icons and repaint the rows that show them.
+   */
+  private void update(Map<String, SSPhotoset> batch, Map<String, byte[]> icons) {
+    List<String> updated = new ArrayList<>();
+    for (Map.Entry<String, byte[]> entry : icons.entrySet()) {
+      SSPhotoset ssPhotoset = batch.get(entry.getKey());
+      if (ssPhotoset != null && ssPhotoset.getPrimaryPhotoIcon() == null) {
+        ssPhotoset.setPrimaryPhotoIcon(entry.getValue());
+        SimpleCache.getInstance().invalidate(entry.getKey());
+        updated.add(entry.getKey());
+      }
+    }
+    if (updated.isEmpty()) {
+      return;
+    }
+
+    // only rows that are on screen need to be repainted
+    ListModel model = this.list.getModel();
+    int first = Math.max(this.list.getFirstVisibleIndex(), 0);
+    int last = Math.min(this.list.getLastVisibleIndex(), model.getSize() - 1);
+    for (int i = first; i <= last; i++) {
+      Object o = model.getElementAt(i);
+      if (o instanceof SSPhotoset ssp && updated.contains(ssp.getPhotosetId())) {
+        Rectangle bounds = this.list.getCellBounds(i, i);
+        if (bounds != null) {
+          this.list.repaint(bounds);
+        }
+      }
+    }
+  }
+}
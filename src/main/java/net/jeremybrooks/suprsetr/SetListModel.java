@@ -0,0 +1,227 @@
+/*
+ *  SuprSetr is Copyright 2010-2023 by Jeremy Brooks
+ *
+ *  This file is part of SuprSetr.
+ *
+ *   SuprSetr is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   SuprSetr is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with SuprSetr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.jeremybrooks.suprsetr;
+
+import javax.swing.AbstractListModel;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * List model for the set list on the main window.
+ *
+ * <p>The sets are kept in an array, with a map from photoset ID to array
+ * index. Finding or replacing a set by ID takes constant time, and the whole
+ * list can be replaced with one event to the list. Inserting or removing a
+ * single set takes linear time, since the indexes after it change.</p>
+ *
+ * <p>Like other Swing models, this should only be used on the event dispatch
+ * thread.</p>
+ *
+ * @author Jeremy Brooks
+ */
+public class SetListModel extends AbstractListModel<SSPhotoset> {
+
+  private static final long serialVersionUID = 4187962519783044392L;
+
+  private SSPhotoset[] sets = new SSPhotoset[0];
+  private int size = 0;
+  private final Map<String, Integer> indexById = new HashMap<>();
+
+
+  @Override
+  public int getSize() {
+    return this.size;
+  }
+
+  @Override
+  public SSPhotoset getElementAt(int index) {
+    return get(index);
+  }
+
+
+  /**
+   * Get the number of sets in the model.
+   *
+   * @return number of sets.
+   */
+  public int size() {
+    return this.size;
+  }
+
+
+  /**
+   * Get the set at an index.
+   *
+   * @param index the index.
+   * @return the set.
+   * @throws ArrayIndexOutOfBoundsException if the index is not in the model.
+   */
+  public SSPhotoset get(int index) {
+    if (index < 0 || index >= this.size) {
+      throw new ArrayIndexOutOfBoundsException(index);
+    }
+    return this.sets[index];
+  }
+
+
+  /**
+   * Get the index of a set.
+   *
+   * @param photosetId the photoset ID.
+   * @return the index, or -1 if the set is not in the model.
+   */
+  public int indexOf(String photosetId) {
+    Integer index = photosetId == null ? null : this.indexById.get(photosetId);
+    return index == null ? -1 : index;
+  }
+
+
+  /**
+   * Get the index of a set, by its photoset ID.
+   *
+   * @param photoset the photoset.
+   * @return the index, or -1 if the set is not in the model.
+   */
+  public int indexOf(SSPhotoset photoset) {
+    return indexOf(photoset.getPhotosetId());
+  }
+
+
+  /**
+   * Replace the contents of the model.
+   *
+   * <p>The rows that exist before and after the change are reported with a
+   * single contents changed event. Rows added or removed at the end are
+   * reported as an added or removed interval, so the list can update its
+   * selection.</p>
+   *
+   * @param list the new contents.
+   */
+  public void setAll(List<SSPhotoset> list) {
+    int oldSize = this.size;
+    this.sets = list.toArray(new SSPhotoset[0]);
+    this.size = this.sets.length;
+    reindex(0);
+    int common = Math.min(oldSize, this.size);
+    if (oldSize > this.size) {
+      fireIntervalRemoved(this, this.size, oldSize - 1);
+    } else if (this.size > oldSize) {
+      fireIntervalAdded(this, oldSize, this.size - 1);
+    }
+    if (common > 0) {
+      fireContentsChanged(this, 0, common - 1);
+    }
+  }
+
+
+  /**
+   * Replace the set at an index.
+   *
+   * @param index    the index.
+   * @param photoset the new set.
+   */
+  public void set(int index, SSPhotoset photoset) {
+    SSPhotoset old = get(index);
+    this.indexById.remove(old.getPhotosetId());
+    this.sets[index] = photoset;
+    this.indexById.put(photoset.getPhotosetId(), index);
+    fireContentsChanged(this, index, index);
+  }
+
+
+  /**
+   * Replace the set with the same photoset ID.
+   *
+   * @param photoset the new set.
+   * @return the index of the set, or -1 if the set is not in the model.
+   */
+  public int update(SSPhotoset photoset) {
+    int index = indexOf(photoset);
+    if (index != -1) {
+      set(index, photoset);
+    }
+    return index;
+  }
+
+
+  /**
+   * Insert a set.
+   *
+   * @param index    the index to insert at.
+   * @param photoset the set.
+   */
+  public void add(int index, SSPhotoset photoset) {
+    if (index < 0 || index > this.size) {
+      throw new ArrayIndexOutOfBoundsException(index);
+    }
+    if (this.size == this.sets.length) {
+      this.sets = Arrays.copyOf(this.sets, Math.max(16, this.size * 2));
+    }
+    System.arraycopy(this.sets, index, this.sets, index + 1, this.size - index);
+    this.sets[index] = photoset;
+    this.size++;
+    reindex(index);
+    fireIntervalAdded(this, index, index);
+  }
+
+
+  /**
+   * Remove a set, by its photoset ID.
+   *
+   * @param photoset the set to remove.
+   * @return true if the set was in the model.
+   */
+  public boolean removeElement(SSPhotoset photoset) {
+    int index = indexOf(photoset);
+    if (index == -1) {
+      return false;
+    }
+    this.indexById.remove(photoset.getPhotosetId());
+    System.arraycopy(this.sets, index + 1, this.sets, index, this.size - index - 1);
+    this.size--;
+    this.sets[this.size] = null;
+    reindex(index);
+    fireIntervalRemoved(this, index, index);
+    return true;
+  }
+
+
+  /**
+   * Remove all sets.
+   */
+  public void clear() {
+    setAll(List.of());
+  }
+
+
+  /*
+   * Update the map for the sets from an index to the end.
+   */
+  private void reindex(int from) {
+    if (from == 0) {
+      this.indexById.clear();
+    }
+    for (int i = from; i < this.size; i++) {
+      this.indexById.put(this.sets[i].getPhotosetId(), i);
+    }
+  }
+}
@@ -16,20 +16,30 @@
  *   You should have received a copy of the GNU General Public License
  *   along with SuprSetr.  If not, see <http://www.gnu.org/licenses/>.
  */
-
 package net.jeremybrooks.suprsetr;
 
+import net.jeremybrooks.suprsetr.utils.IconUtils;
+import net.jeremybrooks.suprsetr.utils.SSUtils;
 import net.jeremybrooks.suprsetr.utils.SimpleCache;
 
+import javax.swing.ImageIcon;
 import javax.swing.JList;
 import javax.swing.ListCellRenderer;
 import java.awt.Component;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
 import java.util.ResourceBundle;
 
 
 /**
  * Custom renderer for the List of sets on the main window.
  *
+ * <p>There are two ways to render the list. In flyweight mode, a single
+ * SetListCell is filled in for each set as it is painted, and only the text
+ * for each set is cached. Otherwise, each set gets its own SetListCell, which
+ * is kept in the {@link SimpleCache}.</p>
+ *
  * @author Jeremy Brooks
  */
 public class SetListRenderer implements ListCellRenderer {
@@ -39,11 +49,72 @@ public class SetListRenderer implements ListCellRenderer {
 	 */
 	private SimpleCache cache;
 
+	/**
+	 * Shown until the icon for a set has been loaded.
+	 */
+	private static final ImageIcon PLACEHOLDER_ICON =
+			new ImageIcon(SetListRenderer.class.getResource("/images/empty_set_icon.png"));
+
+	/**
+	 * Most entries to keep in the text cache.
+	 */
+	private static final int MAX_TEXT_CACHE_SIZE = 2000;
+
+	/**
+	 * Most entries to keep in the icon cache.
+	 */
+	private static final int MAX_ICON_CACHE_SIZE = 200;
+
+	/**
+	 * Loads icons for sets that do not have one yet.
+	 */
+	private final SetListIconLoader iconLoader;
+
+	/**
+	 * True to render every set with one cell.
+	 */
+	private final boolean flyweight;
+
+	/**
+	 * The cell used for every set in flyweight mode.
+	 */
+	private SetListCell sharedCell;
+
+	/**
+	 * Text for the cells in flyweight mode, by photoset ID, in access order.
+	 */
+	private final Map<String, CellText> textCache = new LinkedHashMap<>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, CellText> eldest) {
+			return size() > MAX_TEXT_CACHE_SIZE;
+		}
+	};
+
+	/**
+	 * Decoded icons, by photoset ID, in access order. Set icons are stored as
+	 * image bytes, so this keeps the sets on screen from being decoded each
+	 * time they are painted.
+	 */
+	private final Map<String, CellIcon> iconCache = new LinkedHashMap<>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, CellIcon> eldest) {
+			return size() > MAX_ICON_CACHE_SIZE;
+		}
+	};
+
 	private ResourceBundle resourceBundle = ResourceBundle.getBundle("net.jeremybrooks.suprsetr.misc");
 
-	public SetListRenderer() {
+	/**
+	 * Create a renderer for a list.
+	 *
+	 * @param list      the list this renderer paints.
+	 * @param flyweight true to render every set with one cell.
+	 */
+	public SetListRenderer(JList list, boolean flyweight) {
 		super();
 		this.cache = SimpleCache.getInstance();
+		this.iconLoader = new SetListIconLoader(list);
+		this.flyweight = flyweight;
 	}
 
 
@@ -59,83 +130,194 @@ public class SetListRenderer implements ListCellRenderer {
 	 */
 	@Override
 	public Component getListCellRendererComponent(JList list, Object value, int index, boolean isSelected, boolean cellHasFocus) {
-		SSPhotoset def;
 		SetListCell cell;
 
-		if (!(value instanceof SSPhotoset)) {
+		if (!(value instanceof SSPhotoset def)) {
 			cell = new SetListCell();
 			cell.setTitle(resourceBundle.getString("SetListRenderer.error.wrongclass"));
+		} else if (this.flyweight) {
+			cell = getSharedCell(def);
+		} else {
+			cell = getCachedCell(def);
+		}
+		cell.setSelected(isSelected);
+		return cell;
+	}
+
 
+	/*
+	 * Fill in the shared cell for a set. Everything that is displayed must be
+	 * set each time, since the cell was last used for a different set.
+	 */
+	private SetListCell getSharedCell(SSPhotoset def) {
+		if (this.sharedCell == null) {
+			this.sharedCell = new SetListCell();
+		}
+		SetListCell cell = this.sharedCell;
+
+		CellText text = this.textCache.get(def.getPhotosetId());
+		int version = getVersion(def);
+		if (text == null || text.version != version) {
+			text = new CellText(version, buildTitle(def), buildDescription(def),
+					SetListCell.getLastUpdateText(def.getLastRefreshDate()),
+					SSUtils.readyForUpdate(def.getLastRefreshDate()));
+			this.textCache.put(def.getPhotosetId(), text);
+		}
+
+		cell.setTitle(text.title);
+		cell.setDescription(text.description);
+		if (def.isManaged()) {
+			cell.setLastUpdate(text.lastUpdate, text.readyForUpdate);
 		} else {
-			def = (SSPhotoset) value;
+			cell.hideLastUpdate();
+		}
+		cell.setManaged(def.isManaged());
+		setImage(cell, def);
+		cell.setTwitter(def.isSendTweet());
+		cell.setWarnIcon(def.isErrorFlag());
+		return cell;
+	}
 
-			cell = this.cache.getFromCache(def.getPhotosetId());
-			if (cell == null) {
-				cell = new SetListCell();
-				cell.setCacheValid(false);
-			}
 
-			if (!cell.isCacheValid()) {
-				StringBuilder sb = new StringBuilder();
-
-				sb.append(def.getTitle());
-				sb.append("  [");
-				sb.append(def.getPhotos()).append(' ');
-				if (def.getPhotos() == 1) {
-					sb.append(resourceBundle.getString("SetListRenderer.text.photo"));
-				} else {
-					sb.append(resourceBundle.getString("SetListRenderer.text.photos"));
-				}
-				if (def.getVideos() > 0) {
-					sb.append(", ").append(def.getVideos()).append(" ");
-					if (def.getVideos() == 1) {
-						sb.append(resourceBundle.getString("SetListRenderer.text.video"));
-					} else {
-						sb.append(resourceBundle.getString("SetListRenderer.text.videos"));
-					}
-				}
-
-				if (def.getViewCount() != -1) {
-					sb.append(", ").append(def.getViewCount()).append(' ');
-					if (def.getViewCount() == 1) {
-						sb.append(resourceBundle.getString("SetListRenderer.text.count"));
-					} else {
-						sb.append(resourceBundle.getString("SetListRenderer.text.counts"));
-					}
-				}
-
-				sb.append(']');
-
-				cell.setTitle(sb.toString());
-
-				if (def.getDescription() == null || def.getDescription().isEmpty()) {
-					cell.setDescription(resourceBundle.getString("SetListRenderer.text.nodescription"));
-				} else {
-					cell.setDescription(def.getDescription());
-				}
-
-				if (def.isManaged()) {
-					cell.setLastUpdate(def.getLastRefreshDate());
-				} else {
-					cell.hideLastUpdate();
-				}
-
-				cell.setManaged(def.isManaged());
-
-				if (def.getPrimaryPhotoIcon() != null) {
-					cell.setImage(def.getPrimaryPhotoIcon());
-				}
-
-				cell.setTwitter(def.isSendTweet());
-
-				cell.setWarnIcon(def.isErrorFlag());
-
-				cell.setCacheValid(true);
-				this.cache.putInCache(def.getPhotosetId(), cell);
+	/*
+	 * Get the cell for a set from the cache, updating it if it is not valid.
+	 */
+	private SetListCell getCachedCell(SSPhotoset def) {
+		SetListCell cell = this.cache.getFromCache(def.getPhotosetId());
+		if (cell == null) {
+			cell = new SetListCell();
+			cell.setCacheValid(false);
+		}
+
+		if (!cell.isCacheValid()) {
+			cell.setTitle(buildTitle(def));
+			cell.setDescription(buildDescription(def));
+
+			if (def.isManaged()) {
+				cell.setLastUpdate(def.getLastRefreshDate());
+			} else {
+				cell.hideLastUpdate();
 			}
+
+			cell.setManaged(def.isManaged());
+			setImage(cell, def);
+			cell.setTwitter(def.isSendTweet());
+			cell.setWarnIcon(def.isErrorFlag());
+
+			cell.setCacheValid(true);
+			this.cache.putInCache(def.getPhotosetId(), cell);
 		}
-		cell.setSelected(isSelected);
 		return cell;
 	}
 
+
+	private void setImage(SetListCell cell, SSPhotoset def) {
+		if (def.getPrimaryPhotoIcon() == null) {
+			cell.setImage(PLACEHOLDER_ICON);
+			this.iconLoader.request(def);
+		} else {
+			cell.setImage(getIcon(def));
+		}
+	}
+
+
+	/*
+	 * Get the decoded icon for a set. The cached icon is used as long as the
+	 * set still has the same bytes.
+	 */
+	private ImageIcon getIcon(SSPhotoset def) {
+		byte[] bytes = def.getPrimaryPhotoIcon();
+		CellIcon icon = this.iconCache.get(def.getPhotosetId());
+		if (icon == null || icon.bytes != bytes) {
+			icon = new CellIcon(bytes, IconUtils.decode(bytes));
+			this.iconCache.put(def.getPhotosetId(), icon);
+		}
+		return icon.icon;
+	}
+
+
+	/*
+	 * Identifies the values the cached text was built from. Invalidating the
+	 * cell cache also invalidates the text, since the refresh wait may have changed.
+	 */
+	private int getVersion(SSPhotoset def) {
+		return Objects.hash(def.getTitle(), def.getPhotos(), def.getVideos(), def.getViewCount(),
+				def.getDescription(), def.getLastRefreshDate(), this.cache.getGeneration());
+	}
+
+
+	private String buildTitle(SSPhotoset def) {
+		StringBuilder sb = new StringBuilder();
+
+		sb.append(def.getTitle());
+		sb.append("  [");
+		sb.append(def.getPhotos()).append(' ');
+		if (def.getPhotos() == 1) {
+			sb.append(resourceBundle.getString("SetListRenderer.text.photo"));
+		} else {
+			sb.append(resourceBundle.getString("SetListRenderer.text.photos"));
+		}
+		if (def.getVideos() > 0) {
+			sb.append(", ").append(def.getVideos()).append(" ");
+			if (def.getVideos() == 1) {
+				sb.append(resourceBundle.getString("SetListRenderer.text.video"));
+			} else {
+				sb.append(resourceBundle.getString("SetListRenderer.text.videos"));
+			}
+		}
+
+		if (def.getViewCount() != -1) {
+			sb.append(", ").append(def.getViewCount()).append(' ');
+			if (def.getViewCount() == 1) {
+				sb.append(resourceBundle.getString("SetListRenderer.text.count"));
+			} else {
+				sb.append(resourceBundle.getString("SetListRenderer.text.counts"));
+			}
+		}
+
+		sb.append(']');
+		return sb.toString();
+	}
+
+
+	private String buildDescription(SSPhotoset def) {
+		if (def.getDescription() == null || def.getDescription().isEmpty()) {
+			return resourceBundle.getString("SetListRenderer.text.nodescription");
+		}
+		return def.getDescription();
+	}
+
+
+	/**
+	 * The text displayed for a set in flyweight mode.
+	 */
+	private static final class CellText {
+		private final int version;
+		private final String title;
+		private final String description;
+		private final String lastUpdate;
+		private final boolean readyForUpdate;
+
+		private CellText(int version, String title, String description, String lastUpdate, boolean readyForUpdate) {
+			this.version = version;
+			this.title = title;
+			this.description = description;
+			this.lastUpdate = lastUpdate;
+			this.readyForUpdate = readyForUpdate;
+		}
+	}
+
+
+	/**
+	 * A decoded set icon, and the bytes it was decoded from.
+	 */
+	private static final class CellIcon {
+		private final byte[] bytes;
+		private final ImageIcon icon;
+
+		private CellIcon(byte[] bytes, ImageIcon icon) {
+			this.bytes = bytes;
+			this.icon = icon;
+		}
+	}
 }
@@ -19,22 +19,25 @@
 
 package net.jeremybrooks.suprsetr.dao;
 
+import net.jeremybrooks.suprsetr.Main;
 import net.jeremybrooks.suprsetr.SSConstants;
+import net.jeremybrooks.suprsetr.utils.FileIsBackupDirectoryFilter;
+import net.jeremybrooks.suprsetr.utils.FilenameComparator;
+import net.jeremybrooks.suprsetr.utils.ThumbnailCache;
+import org.apache.commons.io.FileUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import javax.swing.ImageIcon;
 import javax.swing.JOptionPane;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.awt.GraphicsEnvironment;
 import java.io.File;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.io.IOException;
 import java.sql.CallableStatement;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.Optional;
 import java.util.TreeSet;
@@ -143,65 +146,6 @@ public class DAOHelper {
   }
 
 
-  /**
-   * Convert an icon to bytes.
-   *
-   * <p>If the icon is null, or if there is an error, this method will
-   * return null.</p>
-   *
-   * @param icon the icon to convert.
-   * @return byte array representing the icon.
-   */
-  static byte[] iconToBytes(ImageIcon icon) {
-    if (icon == null) {
-      return null;
-    }
-
-    ByteArrayOutputStream baos = new ByteArrayOutputStream();
-    byte[] bytes = null;
-
-    try (ObjectOutputStream oos = new ObjectOutputStream(baos)) {
-      oos.writeObject(icon);
-      oos.flush();
-      bytes = baos.toByteArray();
-    } catch (Exception e) {
-      logger.error("COULD NOT CONVERT ICON TO BYTES.", e);
-    }
-
-    return bytes;
-  }
-
-
-  /**
-   * Convert bytes to icon.
-   *
-   * <p>If the icon is null, or there is an error, this method will return
-   * null</p>
-   *
-   * @param bytes the bytes to convert into an icon.
-   * @return the icon.
-   */
-  static ImageIcon bytesToIcon(byte[] bytes) {
-    if (bytes == null) {
-      return null;
-    }
-
-    ImageIcon icon = null;
-
-    try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
-      Object o = ois.readObject();
-      if (o instanceof ImageIcon) {
-        icon = (ImageIcon) o;
-      }
-    } catch (Exception e) {
-      logger.error("COULD NOT CONVERT BYTES TO ICON.", e);
-    }
-
-    return icon;
-
-  }
-
-
   /**
    * Convert a string to a boolean value.
    *
@@ -243,21 +187,25 @@ public class DAOHelper {
 
     if (maxPatchVersion.isEmpty()) {
       logger.fatal("Could not determine maximum database patch level.");
-      JOptionPane.showMessageDialog(null,
-          "Could not determine maximum database patch level.",
-          "Runtime error.",
-          JOptionPane.ERROR_MESSAGE);
+      if (!GraphicsEnvironment.isHeadless()) {
+        JOptionPane.showMessageDialog(null,
+            "Could not determine maximum database patch level.",
+            "Runtime error.",
+            JOptionPane.ERROR_MESSAGE);
+      }
       throw new Exception("Could not determine maximum database patch level.");
     } else if (databaseVersion > maxPatchVersion.get()) {
       logger.fatal("Database schema is " + databaseVersion + ", but expecting version " +
           SSConstants.DATABASE_SCHEMA_CURRENT_VERSION + ".");
 
-      JOptionPane.showMessageDialog(null, "The database schema is version " + databaseVersion + ",\n" +
-              "but this version of SuprSetr requires schema version " +
-              SSConstants.DATABASE_SCHEMA_CURRENT_VERSION + ".\n" +
-              "Are you running an old version of SuprSetr?",
-          "Incompatible Schema",
-          JOptionPane.ERROR_MESSAGE);
+      if (!GraphicsEnvironment.isHeadless()) {
+        JOptionPane.showMessageDialog(null, "The database schema is version " + databaseVersion + ",\n" +
+                "but this version of SuprSetr requires schema version " +
+                SSConstants.DATABASE_SCHEMA_CURRENT_VERSION + ".\n" +
+                "Are you running an old version of SuprSetr?",
+            "Incompatible Schema",
+            JOptionPane.ERROR_MESSAGE);
+      }
       throw new Exception("Incompatible schema.");
     }
 
@@ -266,6 +214,16 @@ public class DAOHelper {
       if (patchVersion > databaseVersion) {
         logger.info("Attempting to upgrade schema to version {}.", patchVersion);
         applyPatch(patchVersion);
+        if (patchVersion == SSConstants.DATABASE_SCHEMA_ICON_TABLE_VERSION) {
+          // icons that are not moved will be downloaded again on the next load from Flickr
+          try {
+            PhotosetIconDAO.migrateSerializedIcons();
+          } catch (Exception e) {
+            logger.warn("Could not move photoset icons to the icon table.", e);
+          }
+          // thumbnails are in the thumbnail cache now
+          ThumbnailCache.deleteOldImageCache(Main.configDir);
+        }
         logger.info("Upgrade to schema version {}: success.", patchVersion);
       }
     }
@@ -301,7 +259,50 @@ public class DAOHelper {
       logger.info("Compressing PHOTOSET");
       cs.setString(2, "PHOTOSET");
       cs.execute();
+
+      logger.info("Compressing PHOTO");
+      cs.setString(2, "PHOTO");
+      cs.execute();
+
+      logger.info("Compressing PHOTOSET_ICON");
+      cs.setString(2, "PHOTOSET_ICON");
+      cs.execute();
+
+      logger.info("Compressing PHOTOSET_PHOTOS");
+      cs.setString(2, "PHOTOSET_PHOTOS");
+      cs.execute();
+    }
+  }
+
+
+  /**
+   * Back up the database to a new directory in the backup directory set by
+   * the user.
+   *
+   * <p>If there are already as many backups as the user wants to keep, the
+   * oldest one is deleted first.</p>
+   *
+   * @return the directory the backup was written to.
+   * @throws Exception if there are any errors.
+   */
+  public static File backupDatabase() throws Exception {
+    File backupDirectory = new File(LookupDAO.getValueForKey(SSConstants.LOOKUP_KEY_BACKUP_DIRECTORY));
+
+    logger.info("Checking for old backups.");
+    // list all the current backups, and delete the oldest if there are more than
+    File[] files = backupDirectory.listFiles(new FileIsBackupDirectoryFilter());
+    if (null != files && files.length >= Integer.parseInt(LookupDAO.getValueForKey(SSConstants.LOOKUP_KEY_BACKUP_COUNT))) {
+      Arrays.sort(files, new FilenameComparator());
+      try {
+        logger.info("Deleting old backup {}", files[0].getAbsolutePath());
+        FileUtils.deleteDirectory(files[0]);
+      } catch (IOException ioe) {
+        logger.warn("Could not delete old backup {}", files[0].getAbsolutePath(), ioe);
+      }
     }
+    File newBackup = new File(backupDirectory, Long.toString(System.currentTimeMillis()));
+    performBackup(newBackup);
+    return newBackup;
   }
 
 
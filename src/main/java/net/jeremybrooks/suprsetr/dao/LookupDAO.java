@@ -108,6 +108,30 @@ public class LookupDAO {
   }
 
 
+  /**
+   * Get the value for the specified key as an int.
+   *
+   * <p>If the key does not exist, or the value cannot be parsed as an int,
+   * the default value is returned.</p>
+   *
+   * @param key          the key to look up.
+   * @param defaultValue value to return if the key is missing or invalid.
+   * @return value for the key, or the default value.
+   */
+  public static int getIntValueForKey(String key, int defaultValue) {
+    int value = defaultValue;
+    String s = getValueForKey(key);
+    if (s != null && !s.isEmpty()) {
+      try {
+        value = Integer.parseInt(s.trim());
+      } catch (NumberFormatException e) {
+        logger.warn("getIntValueForKey(" + key + "): Invalid value '" + s + "', using default " + defaultValue);
+      }
+    }
+    return value;
+  }
+
+
   /**
    * Set the value for a key.
    *
@@ -0,0 +1,370 @@
+/*
+ *  SuprSetr is Copyright 2010-2023 by Jeremy Brooks
+ *
+ *  This file is part of SuprSetr.
+ *
+ *   SuprSetr is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   SuprSetr is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with SuprSetr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.jeremybrooks.suprsetr.dao;
+
+import net.jeremybrooks.suprsetr.SSPhoto;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+
+/**
+ * Methods to access the Photo table.
+ *
+ * <p>The Photo table is a local mirror of the metadata for every photo in
+ * the user's account.</p>
+ *
+ * @author Jeremy Brooks
+ */
+public class PhotoDAO {
+
+  /**
+   * Logging.
+   */
+  private static final Logger logger = LogManager.getLogger(PhotoDAO.class);
+
+  /**
+   * SQL to insert a new record.
+   */
+  private static final String SQL_INSERT_PHOTO =
+      "INSERT INTO PHOTO "
+          + "(TITLE, DESCRIPTION, TAGS, MACHINE_TAGS, "
+          + " DATE_TAKEN, DATE_UPLOAD, LAST_UPDATE, VIEWS, MEDIA, "
+          + " IS_PUBLIC, IS_FRIEND, IS_FAMILY, GEOTAGGED, "
+          + " SYNC_TIMESTAMP, ID, SAFE) "
+          + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 'N')";
+
+  /**
+   * SQL to update an existing record.
+   *
+   * <p>The parameters are in the same order as the insert, so the same code
+   * can set them. The SAFE flag is not changed.</p>
+   */
+  private static final String SQL_UPDATE_PHOTO =
+      "UPDATE PHOTO "
+          + "SET TITLE = ?, "
+          + " DESCRIPTION = ?, "
+          + " TAGS = ?, "
+          + " MACHINE_TAGS = ?, "
+          + " DATE_TAKEN = ?, "
+          + " DATE_UPLOAD = ?, "
+          + " LAST_UPDATE = ?, "
+          + " VIEWS = ?, "
+          + " MEDIA = ?, "
+          + " IS_PUBLIC = ?, "
+          + " IS_FRIEND = ?, "
+          + " IS_FAMILY = ?, "
+          + " GEOTAGGED = ?, "
+          + " SYNC_TIMESTAMP = ? "
+          + "WHERE ID = ?";
+
+  /**
+   * SQL to get all photos.
+   */
+  private static final String SQL_GET_ALL_PHOTOS =
+      "SELECT "
+          + " ID, TITLE, DESCRIPTION, TAGS, MACHINE_TAGS, "
+          + " DATE_TAKEN, DATE_UPLOAD, LAST_UPDATE, VIEWS, MEDIA, "
+          + " IS_PUBLIC, IS_FRIEND, IS_FAMILY, GEOTAGGED, SAFE "
+          + "FROM PHOTO";
+
+  /**
+   * SQL to get photos saved by a sync.
+   */
+  private static final String SQL_GET_PHOTOS_SYNCED_SINCE =
+      SQL_GET_ALL_PHOTOS + " WHERE SYNC_TIMESTAMP >= ?";
+
+  /**
+   * SQL to count the photos.
+   */
+  private static final String SQL_COUNT_PHOTOS =
+      "SELECT COUNT(*) FROM PHOTO";
+
+  /**
+   * SQL to clear the safe flag on all photos.
+   */
+  private static final String SQL_CLEAR_SAFE =
+      "UPDATE PHOTO SET SAFE = 'N'";
+
+  /**
+   * SQL to set the safe flag on a photo.
+   */
+  private static final String SQL_SET_SAFE =
+      "UPDATE PHOTO SET SAFE = 'Y' WHERE ID = ?";
+
+  /**
+   * SQL to delete photos that were not seen by a sync.
+   */
+  private static final String SQL_DELETE_NOT_SYNCED =
+      "DELETE FROM PHOTO WHERE SYNC_TIMESTAMP < ?";
+
+
+  /**
+   * No instances.
+   */
+  private PhotoDAO() {
+  }
+
+
+  /**
+   * Insert or update photo records.
+   *
+   * <p>All photos are saved in a single transaction. Existing records are
+   * updated, and any photos that do not have a record yet are inserted.</p>
+   *
+   * @param photos        the photos to save.
+   * @param syncTimestamp the sync timestamp to store with each record.
+   * @return number of records that were inserted.
+   * @throws Exception if there are any errors.
+   */
+  public static int savePhotos(List<SSPhoto> photos, long syncTimestamp) throws Exception {
+    if (photos == null || photos.isEmpty()) {
+      return 0;
+    }
+    int inserted = 0;
+
+    try (Connection conn = DAOHelper.getConnection()) {
+      conn.setAutoCommit(false);
+      try (PreparedStatement update = conn.prepareStatement(SQL_UPDATE_PHOTO);
+           PreparedStatement insert = conn.prepareStatement(SQL_INSERT_PHOTO)) {
+        for (SSPhoto photo : photos) {
+          setParameters(update, photo, syncTimestamp);
+          update.addBatch();
+        }
+        int[] counts = update.executeBatch();
+
+        for (int i = 0; i < counts.length; i++) {
+          if (counts[i] == 0) {
+            setParameters(insert, photos.get(i), syncTimestamp);
+            insert.addBatch();
+            inserted++;
+          }
+        }
+        if (inserted > 0) {
+          insert.executeBatch();
+        }
+        conn.commit();
+      } catch (Exception e) {
+        conn.rollback();
+        throw e;
+      }
+    } catch (Exception e) {
+      logger.error("savePhotos: ERROR SAVING " + photos.size() + " PHOTOS.", e);
+      throw e;
+    }
+
+    return inserted;
+  }
+
+
+  /**
+   * Get all photos.
+   *
+   * @return list of all photos, or an empty list if there are no photos.
+   * @throws Exception if there are any errors.
+   */
+  public static List<SSPhoto> getAllPhotos() throws Exception {
+    List<SSPhoto> list = new ArrayList<>();
+    try (Connection conn = DAOHelper.getConnection();
+         PreparedStatement ps = conn.prepareStatement(SQL_GET_ALL_PHOTOS);
+         ResultSet rs = ps.executeQuery()) {
+      while (rs.next()) {
+        list.add(buildPhoto(rs));
+      }
+    } catch (Exception e) {
+      logger.error("getAllPhotos: ERROR GETTING LIST.", e);
+      throw e;
+    }
+    return list;
+  }
+
+
+  /**
+   * Get the photos that were saved by a sync.
+   *
+   * @param syncTimestamp timestamp of the sync.
+   * @return photos saved at or after the timestamp, or an empty list.
+   * @throws Exception if there are any errors.
+   */
+  public static List<SSPhoto> getPhotosSyncedSince(long syncTimestamp) throws Exception {
+    List<SSPhoto> list = new ArrayList<>();
+    try (Connection conn = DAOHelper.getConnection();
+         PreparedStatement ps = conn.prepareStatement(SQL_GET_PHOTOS_SYNCED_SINCE)) {
+      ps.setLong(1, syncTimestamp);
+      try (ResultSet rs = ps.executeQuery()) {
+        while (rs.next()) {
+          list.add(buildPhoto(rs));
+        }
+      }
+    } catch (Exception e) {
+      logger.error("getPhotosSyncedSince(" + syncTimestamp + "): ERROR GETTING LIST.", e);
+      throw e;
+    }
+    return list;
+  }
+
+
+  /**
+   * Get the number of photos.
+   *
+   * @return number of photos in the table.
+   * @throws Exception if there are any errors.
+   */
+  public static int getPhotoCount() throws Exception {
+    int count = 0;
+    try (Connection conn = DAOHelper.getConnection();
+         Statement s = conn.createStatement();
+         ResultSet rs = s.executeQuery(SQL_COUNT_PHOTOS)) {
+      if (rs.next()) {
+        count = rs.getInt(1);
+      }
+    } catch (Exception e) {
+      logger.error("getPhotoCount: ERROR.", e);
+      throw e;
+    }
+    return count;
+  }
+
+
+  /**
+   * Clear the safe flag on all photos.
+   *
+   * @throws Exception if there are any errors.
+   */
+  public static void clearSafeFlags() throws Exception {
+    try (Connection conn = DAOHelper.getConnection();
+         Statement s = conn.createStatement()) {
+      s.executeUpdate(SQL_CLEAR_SAFE);
+    } catch (Exception e) {
+      logger.error("clearSafeFlags: ERROR.", e);
+      throw e;
+    }
+  }
+
+
+  /**
+   * Set the safe flag on the specified photos.
+   *
+   * @param photoIds the ID's of the photos to mark as safe.
+   * @throws Exception if there are any errors.
+   */
+  public static void setSafeFlags(List<String> photoIds) throws Exception {
+    if (photoIds == null || photoIds.isEmpty()) {
+      return;
+    }
+    try (Connection conn = DAOHelper.getConnection()) {
+      conn.setAutoCommit(false);
+      try (PreparedStatement ps = conn.prepareStatement(SQL_SET_SAFE)) {
+        for (String id : photoIds) {
+          ps.setString(1, id);
+          ps.addBatch();
+        }
+        ps.executeBatch();
+        conn.commit();
+      } catch (Exception e) {
+        conn.rollback();
+        throw e;
+      }
+    } catch (Exception e) {
+      logger.error("setSafeFlags: ERROR.", e);
+      throw e;
+    }
+  }
+
+
+  /**
+   * Delete photos that were not seen by the sync with the given timestamp.
+   *
+   * <p>This should only be called after a full sync, since an incremental
+   * sync does not see every photo.</p>
+   *
+   * @param syncTimestamp timestamp of the full sync.
+   * @return number of records deleted.
+   * @throws Exception if there are any errors.
+   */
+  public static int deleteNotSynced(long syncTimestamp) throws Exception {
+    int count;
+    try (Connection conn = DAOHelper.getConnection();
+         PreparedStatement ps = conn.prepareStatement(SQL_DELETE_NOT_SYNCED)) {
+      ps.setLong(1, syncTimestamp);
+      count = ps.executeUpdate();
+    } catch (Exception e) {
+      logger.error("deleteNotSynced(" + syncTimestamp + "): ERROR.", e);
+      throw e;
+    }
+    return count;
+  }
+
+
+  /*
+   * Set the insert or update parameters. Both statements take the same
+   * parameters in the same order.
+   */
+  private static void setParameters(PreparedStatement ps, SSPhoto photo, long syncTimestamp) throws Exception {
+    ps.setString(1, photo.getTitle());
+    ps.setString(2, photo.getDescription());
+    ps.setString(3, photo.getTags());
+    ps.setString(4, photo.getMachineTags());
+    ps.setTimestamp(5, toTimestamp(photo.getDateTaken()));
+    ps.setTimestamp(6, toTimestamp(photo.getDateUpload()));
+    ps.setTimestamp(7, toTimestamp(photo.getLastUpdate()));
+    ps.setInt(8, photo.getViews());
+    ps.setString(9, photo.getMedia());
+    ps.setString(10, DAOHelper.booleanToString(photo.isPublic()));
+    ps.setString(11, DAOHelper.booleanToString(photo.isFriend()));
+    ps.setString(12, DAOHelper.booleanToString(photo.isFamily()));
+    ps.setString(13, DAOHelper.booleanToString(photo.isGeotagged()));
+    ps.setLong(14, syncTimestamp);
+    ps.setString(15, photo.getPhotoId());
+  }
+
+
+  private static Timestamp toTimestamp(Date date) {
+    return date == null ? null : new Timestamp(date.getTime());
+  }
+
+
+  private static SSPhoto buildPhoto(ResultSet rs) throws Exception {
+    SSPhoto photo = new SSPhoto();
+    photo.setPhotoId(rs.getString("ID"));
+    photo.setTitle(rs.getString("TITLE"));
+    photo.setDescription(rs.getString("DESCRIPTION"));
+    photo.setTags(rs.getString("TAGS"));
+    photo.setMachineTags(rs.getString("MACHINE_TAGS"));
+    photo.setDateTaken(rs.getTimestamp("DATE_TAKEN"));
+    photo.setDateUpload(rs.getTimestamp("DATE_UPLOAD"));
+    photo.setLastUpdate(rs.getTimestamp("LAST_UPDATE"));
+    photo.setViews(rs.getInt("VIEWS"));
+    photo.setMedia(rs.getString("MEDIA"));
+    photo.setPublic(DAOHelper.stringToBoolean(rs.getString("IS_PUBLIC")));
+    photo.setFriend(DAOHelper.stringToBoolean(rs.getString("IS_FRIEND")));
+    photo.setFamily(DAOHelper.stringToBoolean(rs.getString("IS_FAMILY")));
+    photo.setGeotagged(DAOHelper.stringToBoolean(rs.getString("GEOTAGGED")));
+    photo.setSafe(DAOHelper.stringToBoolean(rs.getString("SAFE")));
+    return photo;
+  }
+}
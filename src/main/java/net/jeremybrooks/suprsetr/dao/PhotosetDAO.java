@@ -29,7 +29,9 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 
 /**
@@ -51,7 +53,7 @@ public class PhotosetDAO {
       "INSERT INTO PHOTOSET "
           + "(ID, TITLE, DESCRIPTION, FARM, SERVER, "
           + " PHOTO_COUNT, PRIMARY_PHOTO_ID, SECRET, "
-          + " URL, PRIMARY_PHOTO_ICON, TAG_MATCH_MODE, "
+          + " URL, TAG_MATCH_MODE, "
           + " TAGS, MIN_UPLOAD_DATE, MAX_UPLOAD_DATE, "
           + " MIN_TAKEN_DATE, MAX_TAKEN_DATE, "
           + " MATCH_UPLOAD_DATES, MATCH_TAKEN_DATES, "
@@ -65,7 +67,7 @@ public class PhotosetDAO {
           + " COLOR_CODE, PICTURE_STYLE, ORIENTATION) "
           + "VALUES ("
           + "?, ?, ?, ?, ?, ?, ?,"
-          + "?, ?, ?, ?, ?, ?, ?,"
+          + "?, ?, ?, ?, ?, ?,"
           + "?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, "
           + "?, ?, ?, ?, ?, ?, ?, ?, ?, ?,"
           + "?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
@@ -93,7 +95,7 @@ public class PhotosetDAO {
       "SELECT "
           + " ID, TITLE, DESCRIPTION, FARM, SERVER, "
           + " PHOTO_COUNT, PRIMARY_PHOTO_ID, SECRET, "
-          + " URL, PRIMARY_PHOTO_ICON, TAG_MATCH_MODE, "
+          + " URL, TAG_MATCH_MODE, "
           + " TAGS, MIN_UPLOAD_DATE, MAX_UPLOAD_DATE, "
           + " MIN_TAKEN_DATE, MAX_TAKEN_DATE, "
           + " MATCH_UPLOAD_DATES, MATCH_TAKEN_DATES, "
@@ -104,7 +106,7 @@ public class PhotosetDAO {
           + " LIMIT_SIZE, SIZE_LIMIT, "
           + " ON_THIS_DAY, OTD_MONTH, OTD_DAY, OTD_YEAR_START, OTD_YEAR_END, VIDEO_COUNT, "
           + " MACHINE_TAGS, MACHINE_TAG_MATCH_MODE, TEXT_SEARCH, VIEW_COUNT, "
-          + " COLOR_CODE, PICTURE_STYLE, ORIENTATION "
+          + " COLOR_CODE, PICTURE_STYLE, ORIENTATION, PHOTO_FINGERPRINT "
           + "FROM PHOTOSET ";
   /**
    * SQL to get all photosets ordered by title.
@@ -168,7 +170,7 @@ public class PhotosetDAO {
       "SELECT "
           + " ID, TITLE, DESCRIPTION, FARM, SERVER, "
           + " PHOTO_COUNT, PRIMARY_PHOTO_ID, SECRET, "
-          + " URL, PRIMARY_PHOTO_ICON, TAG_MATCH_MODE, "
+          + " URL, TAG_MATCH_MODE, "
           + " TAGS, MIN_UPLOAD_DATE, MAX_UPLOAD_DATE, "
           + " MIN_TAKEN_DATE, MAX_TAKEN_DATE, "
           + " MATCH_UPLOAD_DATES, MATCH_TAKEN_DATES, "
@@ -179,7 +181,7 @@ public class PhotosetDAO {
           + " LIMIT_SIZE, SIZE_LIMIT, "
           + " ON_THIS_DAY, OTD_MONTH, OTD_DAY, OTD_YEAR_START, OTD_YEAR_END, VIDEO_COUNT, "
           + " MACHINE_TAGS, MACHINE_TAG_MATCH_MODE, TEXT_SEARCH, VIEW_COUNT, "
-          + " COLOR_CODE, PICTURE_STYLE, ORIENTATION "
+          + " COLOR_CODE, PICTURE_STYLE, ORIENTATION, PHOTO_FINGERPRINT "
           + "FROM PHOTOSET "
           + "WHERE ID = ?";
 
@@ -196,7 +198,6 @@ public class PhotosetDAO {
           + " PRIMARY_PHOTO_ID = ?, "
           + " SECRET = ?, "
           + " URL = ?, "
-          + " PRIMARY_PHOTO_ICON = ?, "
           + " TAG_MATCH_MODE = ?, "
           + " TAGS = ?, "
           + " MIN_UPLOAD_DATE = ?, "
@@ -234,25 +235,43 @@ public class PhotosetDAO {
           + " VIEW_COUNT = ?, "
           + " COLOR_CODE = ?, "
           + " PICTURE_STYLE = ?, "
-          + " ORIENTATION = ? "
+          + " ORIENTATION = ?, "
+          + " PHOTO_FINGERPRINT = ? "
           + "WHERE ID = ?";
 
   /**
-   * SQL to update the metadata for a photoset.
+   * SQL to update the refresh date for a photoset that did not change.
    */
-  private static final String SQL_UPDATE_METADATA_FOR_PHOTOSET =
+  private static final String SQL_UPDATE_REFRESH_DATE_FOR_PHOTOSET =
       "UPDATE PHOTOSET "
-          + "SET TITLE = ?, "
-          + " DESCRIPTION = ?, "
-          + " PHOTO_COUNT = ? "
+          + "SET LAST_REFRESH_DATE = ?, "
+          + " SYNC_TIMESTAMP = ? "
           + "WHERE ID = ?";
 
   /**
-   * SQL to update the icon for a photoset.
+   * SQL to record how long a refresh took. The stored cost is a moving
+   * average, so one slow refresh does not change it too much.
+   */
+  private static final String SQL_UPDATE_REFRESH_COST =
+      "UPDATE PHOTOSET "
+          + "SET REFRESH_COST = CASE WHEN REFRESH_COST IS NULL THEN ? "
+          + " ELSE (REFRESH_COST * 7 + ? * 3) / 10 END "
+          + "WHERE ID = ?";
+
+  /**
+   * SQL to get the refresh cost of each photoset that has one.
+   */
+  private static final String SQL_GET_REFRESH_COSTS =
+      "SELECT ID, REFRESH_COST FROM PHOTOSET WHERE REFRESH_COST IS NOT NULL";
+
+  /**
+   * SQL to update the metadata for a photoset.
    */
-  private static final String SQL_UPDATE_ICON_FOR_PHOTOSET =
+  private static final String SQL_UPDATE_METADATA_FOR_PHOTOSET =
       "UPDATE PHOTOSET "
-          + "SET PRIMARY_PHOTO_ICON = ? "
+          + "SET TITLE = ?, "
+          + " DESCRIPTION = ?, "
+          + " PHOTO_COUNT = ? "
           + "WHERE ID = ?";
 
   /**
@@ -263,6 +282,38 @@ public class PhotosetDAO {
           + "FROM PHOTOSET "
           + "WHERE ID = ?";
 
+  /**
+   * SQL condition for photosets that were not seen by a sync.
+   */
+  private static final String SQL_FRAGMENT_NOT_SYNCED =
+      "(SYNC_TIMESTAMP IS NULL OR SYNC_TIMESTAMP <> ?)";
+
+  /**
+   * SQL to get the ID's of photosets that were not seen by a sync.
+   */
+  private static final String SQL_GET_IDS_NOT_SYNCED =
+      "SELECT ID FROM PHOTOSET WHERE " + SQL_FRAGMENT_NOT_SYNCED;
+
+  /**
+   * SQL to delete the icons of photosets that were not seen by a sync.
+   */
+  private static final String SQL_DELETE_ICONS_NOT_SYNCED =
+      "DELETE FROM PHOTOSET_ICON "
+          + "WHERE ID IN (SELECT ID FROM PHOTOSET WHERE " + SQL_FRAGMENT_NOT_SYNCED + ")";
+
+  /**
+   * SQL to delete the photo ID's of photosets that were not seen by a sync.
+   */
+  private static final String SQL_DELETE_PHOTOS_NOT_SYNCED =
+      "DELETE FROM PHOTOSET_PHOTOS "
+          + "WHERE ID IN (SELECT ID FROM PHOTOSET WHERE " + SQL_FRAGMENT_NOT_SYNCED + ")";
+
+  /**
+   * SQL to delete photosets that were not seen by a sync.
+   */
+  private static final String SQL_DELETE_NOT_SYNCED =
+      "DELETE FROM PHOTOSET WHERE " + SQL_FRAGMENT_NOT_SYNCED;
+
 
   /**
    * No instances.
@@ -288,97 +339,17 @@ public class PhotosetDAO {
 
     logger.info("Adding photoset " + p + " to database.");
 
-    try (Connection conn = DAOHelper.getConnection();
-         PreparedStatement ps = conn.prepareStatement(SQL_INSERT_PHOTOSET)) {
-      ps.setString(1, p.getPhotosetId());
-      ps.setString(2, p.getTitle());
-      ps.setString(3, p.getDescription());
-      ps.setString(4, Integer.toString(p.getFarm()));
-      ps.setString(5, p.getServer());
-      ps.setInt(6, p.getPhotos());
-      ps.setString(7, p.getPrimary());
-      ps.setString(8, p.getSecret());
-      ps.setString(9, p.getUrl());
-
-      ps.setBytes(10, DAOHelper.iconToBytes(p.getPrimaryPhotoIcon()));
-
-      ps.setString(11, p.getTagMatchMode());
-      ps.setString(12, p.getTagsAsString());
-
-      if (p.getMinUploadDate() == null) {
-        ps.setTimestamp(13, null);
-      } else {
-        ps.setTimestamp(13, new Timestamp(p.getMinUploadDate().getTime()));
-      }
-
-      if (p.getMaxUploadDate() == null) {
-        ps.setTimestamp(14, null);
-      } else {
-        ps.setTimestamp(14, new Timestamp(p.getMaxUploadDate().getTime()));
-      }
-
-      if (p.getMinTakenDate() == null) {
-        ps.setTimestamp(15, null);
-      } else {
-        ps.setTimestamp(15, new Timestamp(p.getMinTakenDate().getTime()));
-      }
-
-      if (p.getMaxTakenDate() == null) {
-        ps.setTimestamp(16, null);
-      } else {
-        ps.setTimestamp(16, new Timestamp(p.getMaxTakenDate().getTime()));
-      }
-
-      ps.setString(17, DAOHelper.booleanToString(p.isMatchUploadDates()));
-      ps.setString(18, DAOHelper.booleanToString(p.isMatchTakenDates()));
-
-      if (p.getLastRefreshDate() == null) {
-        ps.setTimestamp(19, null);
-      } else {
-        ps.setTimestamp(19, new Timestamp(p.getLastRefreshDate().getTime()));
+    try (Connection conn = DAOHelper.getConnection()) {
+      conn.setAutoCommit(false);
+      try (PreparedStatement ps = conn.prepareStatement(SQL_INSERT_PHOTOSET)) {
+        setInsertParameters(ps, p);
+        count = ps.executeUpdate();
+        PhotosetIconDAO.saveChangedIcons(conn, List.of(p));
+        conn.commit();
+      } catch (Exception e) {
+        conn.rollback();
+        throw e;
       }
-      ps.setLong(20, p.getSyncTimestamp());
-      ps.setString(21, DAOHelper.booleanToString(p.isManaged()));
-
-      ps.setInt(22, p.getSortOrder());
-      ps.setString(23, DAOHelper.booleanToString(p.isSendTweet()));
-      ps.setString(24, p.getTweetTemplate());
-
-      ps.setString(25, DAOHelper.booleanToString(p.isLockPrimaryPhoto()));
-
-      ps.setInt(26, p.getPrivacy());
-      ps.setInt(27, p.getSafeSearch());
-      ps.setInt(28, p.getContentType());
-      ps.setInt(29, p.getMediaType());
-      ps.setInt(30, p.getGeotagged());
-      ps.setString(31, DAOHelper.booleanToString(p.isInCommons()));
-      ps.setString(32, DAOHelper.booleanToString(p.isInGallery()));
-      ps.setString(33, DAOHelper.booleanToString(p.isInGetty()));
-
-      ps.setString(34, DAOHelper.booleanToString(p.isLimitSize()));
-      ps.setInt(35, p.getSizeLimit());
-
-      ps.setString(36, DAOHelper.booleanToString(p.isOnThisDay()));
-      ps.setInt(37, p.getOnThisDayMonth());
-      ps.setInt(38, p.getOnThisDayDay());
-      ps.setInt(39, p.getOnThisDayYearStart());
-      ps.setInt(40, p.getOnThisDayYearEnd());
-
-      ps.setInt(41, p.getVideos());
-
-      ps.setString(42, p.getMachineTagsAsString());
-      ps.setString(43, p.getMachineTagMatchMode());
-
-      ps.setString(44, p.getTextSearch());
-
-      ps.setInt(45, p.getViewCount());
-
-      ps.setString(46, p.getColorCode());
-      ps.setString(47, p.getPictureStyle());
-      ps.setString(48, p.getOrientation());
-
-      count = ps.executeUpdate();
-
     } catch (Exception e) {
       logger.info("insertPhotoset: ERROR.", e);
       throw e;
@@ -440,6 +411,7 @@ public class PhotosetDAO {
       try (ResultSet rs = ps.executeQuery()) {
         if (rs.next()) {
           ssp = PhotosetDAO.buildPhotoset(rs);
+          ssp.setPrimaryPhotoIcon(PhotosetIconDAO.getIcon(id));
         }
       }
     } catch (Exception e) {
@@ -549,6 +521,70 @@ public class PhotosetDAO {
   }
 
 
+  /**
+   * Get all photosets in one query, by photoset ID.
+   *
+   * <p>The icons are not loaded.</p>
+   *
+   * @return map of photoset ID to photoset.
+   * @throws Exception if there are any errors.
+   */
+  public static Map<String, SSPhotoset> getPhotosetMap() throws Exception {
+    Map<String, SSPhotoset> map = new HashMap<>();
+    for (SSPhotoset ssp : PhotosetDAO.getPhotosetList(SQL_FRAGMENT_SELECT_ALL_PHOTOSETS)) {
+      map.put(ssp.getPhotosetId(), ssp);
+    }
+    return map;
+  }
+
+
+  /**
+   * Insert and update photosets in one transaction.
+   *
+   * <p>The inserts and updates are each sent as one JDBC batch. Icons are saved
+   * for the photosets that have one, unless the stored icon is already for
+   * the same primary photo; existing icons are not removed.</p>
+   *
+   * @param inserts photosets to insert.
+   * @param updates photosets to update.
+   * @throws Exception if there are any errors. Nothing is saved if there is an error.
+   */
+  public static void savePhotosets(List<SSPhotoset> inserts, List<SSPhotoset> updates) throws Exception {
+    try (Connection conn = DAOHelper.getConnection()) {
+      conn.setAutoCommit(false);
+      try (PreparedStatement insert = conn.prepareStatement(SQL_INSERT_PHOTOSET);
+           PreparedStatement update = conn.prepareStatement(SQL_UPDATE_PHOTOSET)) {
+        for (SSPhotoset p : inserts) {
+          setInsertParameters(insert, p);
+          insert.addBatch();
+        }
+        if (!inserts.isEmpty()) {
+          insert.executeBatch();
+        }
+        for (SSPhotoset p : updates) {
+          setUpdateParameters(update, p);
+          update.addBatch();
+        }
+        if (!updates.isEmpty()) {
+          update.executeBatch();
+        }
+        List<SSPhotoset> all = new ArrayList<>(inserts);
+        all.addAll(updates);
+        int icons = PhotosetIconDAO.saveChangedIcons(conn, all);
+        conn.commit();
+        logger.info("Inserted " + inserts.size() + " and updated " + updates.size()
+            + " photosets, with " + icons + " icons.");
+      } catch (Exception e) {
+        conn.rollback();
+        throw e;
+      }
+    } catch (Exception e) {
+      logger.error("savePhotosets: ERROR SAVING PHOTOSETS.", e);
+      throw e;
+    }
+  }
+
+
   /**
    * Update the metadata for the photoset.
    *
@@ -600,97 +636,91 @@ public class PhotosetDAO {
 
     logger.info("updatePhotoset: " + ssPhotoset);
 
-    try (Connection conn = DAOHelper.getConnection();
-         PreparedStatement ps = conn.prepareStatement(SQL_UPDATE_PHOTOSET)) {
-      ps.setString(1, ssPhotoset.getTitle());
-      ps.setString(2, ssPhotoset.getDescription());
-      ps.setString(3, Integer.toString(ssPhotoset.getFarm()));
-      ps.setString(4, ssPhotoset.getServer());
-      ps.setInt(5, ssPhotoset.getPhotos());
-      ps.setString(6, ssPhotoset.getPrimary());
-      ps.setString(7, ssPhotoset.getSecret());
-      ps.setString(8, ssPhotoset.getUrl());
-      ps.setBytes(9, DAOHelper.iconToBytes(ssPhotoset.getPrimaryPhotoIcon()));
-      ps.setString(10, ssPhotoset.getTagMatchMode());
-      ps.setString(11, ssPhotoset.getTagsAsString());
-      if (ssPhotoset.getMinUploadDate() == null) {
-        ps.setTimestamp(12, null);
-      } else {
-        ps.setTimestamp(12, new Timestamp(ssPhotoset.getMinUploadDate().getTime()));
-      }
-      if (ssPhotoset.getMaxUploadDate() == null) {
-        ps.setTimestamp(13, null);
-      } else {
-        ps.setTimestamp(13, new Timestamp(ssPhotoset.getMaxUploadDate().getTime()));
-      }
-      if (ssPhotoset.getMinTakenDate() == null) {
-        ps.setTimestamp(14, null);
-      } else {
-        ps.setTimestamp(14, new Timestamp(ssPhotoset.getMinTakenDate().getTime()));
-      }
-      if (ssPhotoset.getMaxTakenDate() == null) {
-        ps.setTimestamp(15, null);
-      } else {
-        ps.setTimestamp(15, new Timestamp(ssPhotoset.getMaxTakenDate().getTime()));
-      }
-      ps.setString(16, DAOHelper.booleanToString(ssPhotoset.isMatchUploadDates()));
-      ps.setString(17, DAOHelper.booleanToString(ssPhotoset.isMatchTakenDates()));
-      if (ssPhotoset.getLastRefreshDate() == null) {
-        ps.setTimestamp(18, null);
-      } else {
-        ps.setTimestamp(18, new Timestamp(ssPhotoset.getLastRefreshDate().getTime()));
+    try (Connection conn = DAOHelper.getConnection()) {
+      conn.setAutoCommit(false);
+      try (PreparedStatement ps = conn.prepareStatement(SQL_UPDATE_PHOTOSET)) {
+        setUpdateParameters(ps, ssPhotoset);
+
+        logger.info("Updating record for photoset " + ssPhotoset.getPhotosetId()
+            + " [" + ssPhotoset.getTitle() + "]");
+
+        count = ps.executeUpdate();
+        // the icon is only written if the primary photo changed
+        PhotosetIconDAO.saveChangedIcons(conn, List.of(ssPhotoset));
+        conn.commit();
+      } catch (Exception e) {
+        conn.rollback();
+        throw e;
       }
-      ps.setLong(19, ssPhotoset.getSyncTimestamp());
-      ps.setString(20, DAOHelper.booleanToString(ssPhotoset.isManaged()));
-      ps.setInt(21, ssPhotoset.getSortOrder());
-      ps.setString(22, DAOHelper.booleanToString(ssPhotoset.isSendTweet()));
-      ps.setString(23, ssPhotoset.getTweetTemplate());
-
-      ps.setString(24, DAOHelper.booleanToString(ssPhotoset.isLockPrimaryPhoto()));
+    } catch (Exception e) {
+      logger.error("updateMetadataForPhotoset(" + ssPhotoset + "): "
+          + "ERROR WHILE UPDATING PHOTOSET RECORD.", e);
+      throw e;
+    }
 
-      ps.setInt(25, ssPhotoset.getPrivacy());
-      ps.setInt(26, ssPhotoset.getSafeSearch());
-      ps.setInt(27, ssPhotoset.getContentType());
-      ps.setInt(28, ssPhotoset.getMediaType());
-      ps.setInt(29, ssPhotoset.getGeotagged());
+    return count;
+  }
 
-      ps.setString(30, DAOHelper.booleanToString(ssPhotoset.isInCommons()));
-      ps.setString(31, DAOHelper.booleanToString(ssPhotoset.isInGallery()));
-      ps.setString(32, DAOHelper.booleanToString(ssPhotoset.isInGetty()));
 
-      ps.setString(33, DAOHelper.booleanToString(ssPhotoset.isLimitSize()));
-      ps.setInt(34, ssPhotoset.getSizeLimit());
+  /**
+   * Update the last refresh date and sync timestamp for the photoset.
+   *
+   * <p>This is used when a refresh finds that the photos in the set have not
+   * changed, so there is no need to rewrite the entire record.</p>
+   *
+   * @param ssPhotoset the photoset to update.
+   * @return number of rows affected.
+   * @throws Exception if there are any errors, or if the photoset is null.
+   */
+  public static int updateRefreshDateForPhotoset(SSPhotoset ssPhotoset) throws Exception {
+    if (ssPhotoset == null) {
+      throw new Exception("PARAMETER PHOTOSET CANNOT BE NULL OR EMPTY.");
+    }
 
-      ps.setString(35, DAOHelper.booleanToString(ssPhotoset.isOnThisDay()));
-      ps.setInt(36, ssPhotoset.getOnThisDayMonth());
-      ps.setInt(37, ssPhotoset.getOnThisDayDay());
-      ps.setInt(38, ssPhotoset.getOnThisDayYearStart());
-      ps.setInt(39, ssPhotoset.getOnThisDayYearEnd());
+    int count;
 
-      ps.setInt(40, ssPhotoset.getVideos());
+    try (Connection conn = DAOHelper.getConnection();
+         PreparedStatement ps = conn.prepareStatement(SQL_UPDATE_REFRESH_DATE_FOR_PHOTOSET)) {
+      if (ssPhotoset.getLastRefreshDate() == null) {
+        ps.setTimestamp(1, null);
+      } else {
+        ps.setTimestamp(1, new Timestamp(ssPhotoset.getLastRefreshDate().getTime()));
+      }
+      ps.setLong(2, ssPhotoset.getSyncTimestamp());
+      ps.setString(3, ssPhotoset.getPhotosetId());
 
-      ps.setString(41, ssPhotoset.getMachineTagsAsString());
-      ps.setString(42, ssPhotoset.getMachineTagMatchMode());
+      count = ps.executeUpdate();
 
-      ps.setString(43, ssPhotoset.getTextSearch());
+    } catch (Exception e) {
+      logger.error("updateRefreshDateForPhotoset(" + ssPhotoset + "): "
+          + "ERROR WHILE UPDATING REFRESH DATE.", e);
+      throw e;
+    }
 
-      ps.setInt(44, ssPhotoset.getViewCount());
+    return count;
+  }
 
-      ps.setString(45, ssPhotoset.getColorCode());
-      ps.setString(46, ssPhotoset.getPictureStyle());
-      ps.setString(47, ssPhotoset.getOrientation());
 
-      // where....
-      ps.setString(48, ssPhotoset.getPhotosetId());
+  /**
+   * Record how long it took to refresh a photoset.
+   *
+   * @param photosetId the photoset ID.
+   * @param elapsed    time taken by the refresh, in milliseconds.
+   * @return number of rows affected.
+   * @throws Exception if there are any errors.
+   */
+  public static int updateRefreshCost(String photosetId, long elapsed) throws Exception {
+    int count;
 
-      logger.info("Updating record for photoset " + ssPhotoset.getPhotosetId()
-          + " [" + ssPhotoset.getTitle() + "]");
+    try (Connection conn = DAOHelper.getConnection();
+         PreparedStatement ps = conn.prepareStatement(SQL_UPDATE_REFRESH_COST)) {
+      ps.setLong(1, elapsed);
+      ps.setLong(2, elapsed);
+      ps.setString(3, photosetId);
 
       count = ps.executeUpdate();
-
     } catch (Exception e) {
-      logger.error("updateMetadataForPhotoset(" + ssPhotoset + "): "
-          + "ERROR WHILE UPDATING PHOTOSET RECORD.", e);
+      logger.error("updateRefreshCost(" + photosetId + "): ERROR WHILE UPDATING REFRESH COST.", e);
       throw e;
     }
 
@@ -698,6 +728,31 @@ public class PhotosetDAO {
   }
 
 
+  /**
+   * Get the recorded refresh cost of each photoset.
+   *
+   * @return refresh cost in milliseconds, by photoset ID. Photosets that have
+   * not been refreshed are not included.
+   * @throws Exception if there are any errors.
+   */
+  public static Map<String, Long> getRefreshCosts() throws Exception {
+    Map<String, Long> costs = new HashMap<>();
+
+    try (Connection conn = DAOHelper.getConnection();
+         PreparedStatement ps = conn.prepareStatement(SQL_GET_REFRESH_COSTS);
+         ResultSet rs = ps.executeQuery()) {
+      while (rs.next()) {
+        costs.put(rs.getString(1), rs.getLong(2));
+      }
+    } catch (Exception e) {
+      logger.error("getRefreshCosts: ERROR WHILE GETTING REFRESH COSTS.", e);
+      throw e;
+    }
+
+    return costs;
+  }
+
+
   /**
    * Update the icon for the photoset.
    *
@@ -710,22 +765,23 @@ public class PhotosetDAO {
       throw new Exception("PARAMETER PHOTOSET CANNOT BE NULL OR EMPTY.");
     }
 
-    int count;
-
-    try (Connection conn = DAOHelper.getConnection();
-         PreparedStatement ps = conn.prepareStatement(SQL_UPDATE_ICON_FOR_PHOTOSET)) {
-      ps.setBytes(1, DAOHelper.iconToBytes(photoset.getPrimaryPhotoIcon()));
-      ps.setString(2, photoset.getPhotosetId());
+    return PhotosetIconDAO.saveIcons(List.of(photoset));
+  }
 
-      count = ps.executeUpdate();
 
-    } catch (Exception e) {
-      logger.error("updateIconForPhotoset(" + photoset + "): "
-          + "ERROR WHILE UPDATING ICON.", e);
-      throw e;
+  /**
+   * Update the icons for several photosets in one transaction.
+   *
+   * @param photosets the photosets to update.
+   * @return number of rows affected.
+   * @throws Exception if there are any errors, or if the list is null.
+   */
+  public static int updateIconsForPhotosets(List<SSPhotoset> photosets) throws Exception {
+    if (photosets == null) {
+      throw new Exception("PARAMETER PHOTOSETS CANNOT BE NULL.");
     }
 
-    return count;
+    return PhotosetIconDAO.saveIcons(photosets);
   }
 
 
@@ -750,6 +806,8 @@ public class PhotosetDAO {
       logger.info("Deleting photoset " + ssPhotoset.getPhotosetId() + "["
           + ssPhotoset.getTitle() + "]");
       count = ps.executeUpdate();
+      PhotosetIconDAO.delete(ssPhotoset.getPhotosetId());
+      PhotosetPhotosDAO.delete(ssPhotoset.getPhotosetId());
 
     } catch (Exception e) {
       logger.error("delete(" + ssPhotoset.getPhotosetId() + "): ERROR WHILE DELETING RECORD.", e);
@@ -760,6 +818,229 @@ public class PhotosetDAO {
   }
 
 
+  /**
+   * Delete photosets that were not seen by the sync with the given timestamp.
+   *
+   * <p>The photosets and their icons are deleted in one transaction, without
+   * reading the photosets.</p>
+   *
+   * @param syncTimestamp timestamp of the sync.
+   * @return ID's of the deleted photosets.
+   * @throws Exception if there are any errors.
+   */
+  public static List<String> deleteNotSynced(long syncTimestamp) throws Exception {
+    List<String> ids = new ArrayList<>();
+    try (Connection conn = DAOHelper.getConnection()) {
+      conn.setAutoCommit(false);
+      try (PreparedStatement select = conn.prepareStatement(SQL_GET_IDS_NOT_SYNCED);
+           PreparedStatement deleteIcons = conn.prepareStatement(SQL_DELETE_ICONS_NOT_SYNCED);
+           PreparedStatement deletePhotos = conn.prepareStatement(SQL_DELETE_PHOTOS_NOT_SYNCED);
+           PreparedStatement delete = conn.prepareStatement(SQL_DELETE_NOT_SYNCED)) {
+        select.setLong(1, syncTimestamp);
+        try (ResultSet rs = select.executeQuery()) {
+          while (rs.next()) {
+            ids.add(rs.getString("ID"));
+          }
+        }
+        if (!ids.isEmpty()) {
+          deleteIcons.setLong(1, syncTimestamp);
+          deleteIcons.executeUpdate();
+          deletePhotos.setLong(1, syncTimestamp);
+          deletePhotos.executeUpdate();
+          delete.setLong(1, syncTimestamp);
+          delete.executeUpdate();
+        }
+        conn.commit();
+      } catch (Exception e) {
+        conn.rollback();
+        throw e;
+      }
+    } catch (Exception e) {
+      logger.error("deleteNotSynced(" + syncTimestamp + "): ERROR.", e);
+      throw e;
+    }
+    return ids;
+  }
+
+
+  /*
+   * Set the parameters for SQL_INSERT_PHOTOSET.
+   */
+  private static void setInsertParameters(PreparedStatement ps, SSPhotoset p) throws Exception {
+    ps.setString(1, p.getPhotosetId());
+    ps.setString(2, p.getTitle());
+    ps.setString(3, p.getDescription());
+    ps.setString(4, Integer.toString(p.getFarm()));
+    ps.setString(5, p.getServer());
+    ps.setInt(6, p.getPhotos());
+    ps.setString(7, p.getPrimary());
+    ps.setString(8, p.getSecret());
+    ps.setString(9, p.getUrl());
+
+    ps.setString(10, p.getTagMatchMode());
+    ps.setString(11, p.getTagsAsString());
+
+    if (p.getMinUploadDate() == null) {
+      ps.setTimestamp(12, null);
+    } else {
+      ps.setTimestamp(12, new Timestamp(p.getMinUploadDate().getTime()));
+    }
+
+    if (p.getMaxUploadDate() == null) {
+      ps.setTimestamp(13, null);
+    } else {
+      ps.setTimestamp(13, new Timestamp(p.getMaxUploadDate().getTime()));
+    }
+
+    if (p.getMinTakenDate() == null) {
+      ps.setTimestamp(14, null);
+    } else {
+      ps.setTimestamp(14, new Timestamp(p.getMinTakenDate().getTime()));
+    }
+
+    if (p.getMaxTakenDate() == null) {
+      ps.setTimestamp(15, null);
+    } else {
+      ps.setTimestamp(15, new Timestamp(p.getMaxTakenDate().getTime()));
+    }
+
+    ps.setString(16, DAOHelper.booleanToString(p.isMatchUploadDates()));
+    ps.setString(17, DAOHelper.booleanToString(p.isMatchTakenDates()));
+
+    if (p.getLastRefreshDate() == null) {
+      ps.setTimestamp(18, null);
+    } else {
+      ps.setTimestamp(18, new Timestamp(p.getLastRefreshDate().getTime()));
+    }
+    ps.setLong(19, p.getSyncTimestamp());
+    ps.setString(20, DAOHelper.booleanToString(p.isManaged()));
+
+    ps.setInt(21, p.getSortOrder());
+    ps.setString(22, DAOHelper.booleanToString(p.isSendTweet()));
+    ps.setString(23, p.getTweetTemplate());
+
+    ps.setString(24, DAOHelper.booleanToString(p.isLockPrimaryPhoto()));
+
+    ps.setInt(25, p.getPrivacy());
+    ps.setInt(26, p.getSafeSearch());
+    ps.setInt(27, p.getContentType());
+    ps.setInt(28, p.getMediaType());
+    ps.setInt(29, p.getGeotagged());
+    ps.setString(30, DAOHelper.booleanToString(p.isInCommons()));
+    ps.setString(31, DAOHelper.booleanToString(p.isInGallery()));
+    ps.setString(32, DAOHelper.booleanToString(p.isInGetty()));
+
+    ps.setString(33, DAOHelper.booleanToString(p.isLimitSize()));
+    ps.setInt(34, p.getSizeLimit());
+
+    ps.setString(35, DAOHelper.booleanToString(p.isOnThisDay()));
+    ps.setInt(36, p.getOnThisDayMonth());
+    ps.setInt(37, p.getOnThisDayDay());
+    ps.setInt(38, p.getOnThisDayYearStart());
+    ps.setInt(39, p.getOnThisDayYearEnd());
+
+    ps.setInt(40, p.getVideos());
+
+    ps.setString(41, p.getMachineTagsAsString());
+    ps.setString(42, p.getMachineTagMatchMode());
+
+    ps.setString(43, p.getTextSearch());
+
+    ps.setInt(44, p.getViewCount());
+
+    ps.setString(45, p.getColorCode());
+    ps.setString(46, p.getPictureStyle());
+    ps.setString(47, p.getOrientation());
+  }
+
+
+  /*
+   * Set the parameters for SQL_UPDATE_PHOTOSET.
+   */
+  private static void setUpdateParameters(PreparedStatement ps, SSPhotoset ssPhotoset) throws Exception {
+    ps.setString(1, ssPhotoset.getTitle());
+    ps.setString(2, ssPhotoset.getDescription());
+    ps.setString(3, Integer.toString(ssPhotoset.getFarm()));
+    ps.setString(4, ssPhotoset.getServer());
+    ps.setInt(5, ssPhotoset.getPhotos());
+    ps.setString(6, ssPhotoset.getPrimary());
+    ps.setString(7, ssPhotoset.getSecret());
+    ps.setString(8, ssPhotoset.getUrl());
+    ps.setString(9, ssPhotoset.getTagMatchMode());
+    ps.setString(10, ssPhotoset.getTagsAsString());
+    if (ssPhotoset.getMinUploadDate() == null) {
+      ps.setTimestamp(11, null);
+    } else {
+      ps.setTimestamp(11, new Timestamp(ssPhotoset.getMinUploadDate().getTime()));
+    }
+    if (ssPhotoset.getMaxUploadDate() == null) {
+      ps.setTimestamp(12, null);
+    } else {
+      ps.setTimestamp(12, new Timestamp(ssPhotoset.getMaxUploadDate().getTime()));
+    }
+    if (ssPhotoset.getMinTakenDate() == null) {
+      ps.setTimestamp(13, null);
+    } else {
+      ps.setTimestamp(13, new Timestamp(ssPhotoset.getMinTakenDate().getTime()));
+    }
+    if (ssPhotoset.getMaxTakenDate() == null) {
+      ps.setTimestamp(14, null);
+    } else {
+      ps.setTimestamp(14, new Timestamp(ssPhotoset.getMaxTakenDate().getTime()));
+    }
+    ps.setString(15, DAOHelper.booleanToString(ssPhotoset.isMatchUploadDates()));
+    ps.setString(16, DAOHelper.booleanToString(ssPhotoset.isMatchTakenDates()));
+    if (ssPhotoset.getLastRefreshDate() == null) {
+      ps.setTimestamp(17, null);
+    } else {
+      ps.setTimestamp(17, new Timestamp(ssPhotoset.getLastRefreshDate().getTime()));
+    }
+    ps.setLong(18, ssPhotoset.getSyncTimestamp());
+    ps.setString(19, DAOHelper.booleanToString(ssPhotoset.isManaged()));
+    ps.setInt(20, ssPhotoset.getSortOrder());
+    ps.setString(21, DAOHelper.booleanToString(ssPhotoset.isSendTweet()));
+    ps.setString(22, ssPhotoset.getTweetTemplate());
+
+    ps.setString(23, DAOHelper.booleanToString(ssPhotoset.isLockPrimaryPhoto()));
+
+    ps.setInt(24, ssPhotoset.getPrivacy());
+    ps.setInt(25, ssPhotoset.getSafeSearch());
+    ps.setInt(26, ssPhotoset.getContentType());
+    ps.setInt(27, ssPhotoset.getMediaType());
+    ps.setInt(28, ssPhotoset.getGeotagged());
+
+    ps.setString(29, DAOHelper.booleanToString(ssPhotoset.isInCommons()));
+    ps.setString(30, DAOHelper.booleanToString(ssPhotoset.isInGallery()));
+    ps.setString(31, DAOHelper.booleanToString(ssPhotoset.isInGetty()));
+
+    ps.setString(32, DAOHelper.booleanToString(ssPhotoset.isLimitSize()));
+    ps.setInt(33, ssPhotoset.getSizeLimit());
+
+    ps.setString(34, DAOHelper.booleanToString(ssPhotoset.isOnThisDay()));
+    ps.setInt(35, ssPhotoset.getOnThisDayMonth());
+    ps.setInt(36, ssPhotoset.getOnThisDayDay());
+    ps.setInt(37, ssPhotoset.getOnThisDayYearStart());
+    ps.setInt(38, ssPhotoset.getOnThisDayYearEnd());
+
+    ps.setInt(39, ssPhotoset.getVideos());
+
+    ps.setString(40, ssPhotoset.getMachineTagsAsString());
+    ps.setString(41, ssPhotoset.getMachineTagMatchMode());
+
+    ps.setString(42, ssPhotoset.getTextSearch());
+
+    ps.setInt(43, ssPhotoset.getViewCount());
+
+    ps.setString(44, ssPhotoset.getColorCode());
+    ps.setString(45, ssPhotoset.getPictureStyle());
+    ps.setString(46, ssPhotoset.getOrientation());
+    ps.setString(47, ssPhotoset.getPhotoFingerprint());
+
+    // where....
+    ps.setString(48, ssPhotoset.getPhotosetId());
+  }
+
+
   /**
    * Build a photoset object from a database record.
    */
@@ -777,7 +1058,6 @@ public class PhotosetDAO {
     ssp.setPrimary(rs.getString("PRIMARY_PHOTO_ID"));
     ssp.setSecret(rs.getString("SECRET"));
     ssp.setUrl(rs.getString("URL"));
-    ssp.setPrimaryPhotoIcon(DAOHelper.bytesToIcon(rs.getBytes("PRIMARY_PHOTO_ICON")));
     ssp.setTagMatchMode(rs.getString("TAG_MATCH_MODE"));
     ssp.setTags(rs.getString("TAGS"));
     ssp.setMachineTagMatchMode(rs.getString("MACHINE_TAG_MATCH_MODE"));
@@ -816,6 +1096,7 @@ public class PhotosetDAO {
     ssp.setColorCode(rs.getString("COLOR_CODE"));
     ssp.setPictureStyle(rs.getString("PICTURE_STYLE"));
     ssp.setOrientation(rs.getString("ORIENTATION"));
+    ssp.setPhotoFingerprint(rs.getString("PHOTO_FINGERPRINT"));
 
     return ssp;
   }
@@ -0,0 +1,406 @@
+/*
+ *  SuprSetr is Copyright 2010-2023 by Jeremy Brooks
+ *
+ *  This file is part of SuprSetr.
+ *
+ *   SuprSetr is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   SuprSetr is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with SuprSetr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.jeremybrooks.suprsetr.dao;
+
+import net.jeremybrooks.suprsetr.SSPhotoset;
+import net.jeremybrooks.suprsetr.utils.IconUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+
+/**
+ * Methods to access the Photoset Icon table.
+ *
+ * <p>The icon for each photoset is kept in its own table, so that reading
+ * the list of photosets does not have to read every icon. Icons are stored as
+ * encoded image bytes: the thumbnail exactly as it was downloaded from Flickr
+ * if it is still in the thumbnail cache, otherwise a PNG.</p>
+ *
+ * @author Jeremy Brooks
+ */
+public class PhotosetIconDAO {
+
+  /**
+   * Logging.
+   */
+  private static final Logger logger = LogManager.getLogger(PhotosetIconDAO.class);
+
+  /**
+   * SQL to update an existing record.
+   */
+  private static final String SQL_UPDATE_ICON =
+      "UPDATE PHOTOSET_ICON "
+          + "SET PHOTO_ID = ?, "
+          + " ICON = ? "
+          + "WHERE ID = ?";
+
+  /**
+   * SQL to insert a new record. The parameters are in the same order as the update.
+   */
+  private static final String SQL_INSERT_ICON =
+      "INSERT INTO PHOTOSET_ICON "
+          + "(PHOTO_ID, ICON, ID) "
+          + "VALUES (?, ?, ?)";
+
+  /**
+   * SQL to get icons, without the list of ID's.
+   */
+  private static final String SQL_FRAGMENT_GET_ICONS =
+      "SELECT ID, ICON "
+          + "FROM PHOTOSET_ICON "
+          + "WHERE ID IN ";
+
+  /**
+   * SQL to get the primary photo of stored icons, without the list of ID's.
+   */
+  private static final String SQL_FRAGMENT_GET_PHOTO_IDS =
+      "SELECT ID, PHOTO_ID "
+          + "FROM PHOTOSET_ICON "
+          + "WHERE ID IN ";
+
+  /**
+   * SQL to get the ID's of photosets that have an icon.
+   */
+  private static final String SQL_GET_PHOTOSET_IDS =
+      "SELECT ID FROM PHOTOSET_ICON";
+
+  /**
+   * SQL to delete a record.
+   */
+  private static final String SQL_DELETE_ICON =
+      "DELETE FROM PHOTOSET_ICON WHERE ID = ?";
+
+  /**
+   * SQL to read the serialized icons stored in the photoset table before
+   * schema version 12.
+   */
+  private static final String SQL_GET_SERIALIZED_ICONS =
+      "SELECT ID, PRIMARY_PHOTO_ID, PRIMARY_PHOTO_ICON "
+          + "FROM PHOTOSET "
+          + "WHERE PRIMARY_PHOTO_ICON IS NOT NULL";
+
+  /**
+   * The most ID's in one query.
+   */
+  static final int BATCH_SIZE = 100;
+
+
+  /**
+   * No instances.
+   */
+  private PhotosetIconDAO() {
+  }
+
+
+  /**
+   * Save the icons for several photosets in one transaction.
+   *
+   * <p>Existing records are updated, and photosets that do not have a record
+   * yet are inserted. Photosets without an icon are skipped.</p>
+   *
+   * @param photosets the photosets.
+   * @return number of icons saved.
+   * @throws Exception if there are any errors.
+   */
+  public static int saveIcons(Collection<SSPhotoset> photosets) throws Exception {
+    int count;
+    try (Connection conn = DAOHelper.getConnection()) {
+      conn.setAutoCommit(false);
+      try {
+        count = saveIcons(conn, photosets);
+        conn.commit();
+      } catch (Exception e) {
+        conn.rollback();
+        throw e;
+      }
+    } catch (Exception e) {
+      logger.error("saveIcons: ERROR SAVING " + photosets.size() + " ICONS.", e);
+      throw e;
+    }
+    return count;
+  }
+
+
+  /**
+   * Save the icons for several photosets, using the caller's connection.
+   *
+   * <p>The caller is responsible for the transaction.</p>
+   *
+   * @param conn      the connection.
+   * @param photosets the photosets.
+   * @return number of icons saved.
+   * @throws Exception if there are any errors.
+   */
+  static int saveIcons(Connection conn, Collection<SSPhotoset> photosets) throws Exception {
+    List<String> ids = new ArrayList<>();
+    List<String> photoIds = new ArrayList<>();
+    List<byte[]> icons = new ArrayList<>();
+    for (SSPhotoset ssPhotoset : photosets) {
+      byte[] bytes = ssPhotoset.getPrimaryPhotoIcon();
+      if (bytes != null) {
+        ids.add(ssPhotoset.getPhotosetId());
+        photoIds.add(ssPhotoset.getPrimary());
+        icons.add(bytes);
+      }
+    }
+    if (!ids.isEmpty()) {
+      saveIcons(conn, ids, photoIds, icons);
+    }
+    return ids.size();
+  }
+
+
+  /**
+   * Save the icons that have changed, using the caller's connection.
+   *
+   * <p>An icon has changed if there is no stored icon for the photoset, or if
+   * the stored icon is for a different primary photo. Icons that have not
+   * changed are not written again.</p>
+   *
+   * <p>The caller is responsible for the transaction.</p>
+   *
+   * @param conn      the connection.
+   * @param photosets the photosets.
+   * @return number of icons saved.
+   * @throws Exception if there are any errors.
+   */
+  static int saveChangedIcons(Connection conn, Collection<SSPhotoset> photosets) throws Exception {
+    List<String> ids = new ArrayList<>();
+    for (SSPhotoset ssPhotoset : photosets) {
+      if (ssPhotoset.getPrimaryPhotoIcon() != null) {
+        ids.add(ssPhotoset.getPhotosetId());
+      }
+    }
+    if (ids.isEmpty()) {
+      return 0;
+    }
+
+    Map<String, String> stored = new HashMap<>();
+    for (int start = 0; start < ids.size(); start += BATCH_SIZE) {
+      List<String> batch = ids.subList(start, Math.min(ids.size(), start + BATCH_SIZE));
+      String sql = SQL_FRAGMENT_GET_PHOTO_IDS + "(" + "?, ".repeat(batch.size() - 1) + "?)";
+      try (PreparedStatement ps = conn.prepareStatement(sql)) {
+        for (int i = 0; i < batch.size(); i++) {
+          ps.setString(i + 1, batch.get(i));
+        }
+        try (ResultSet rs = ps.executeQuery()) {
+          while (rs.next()) {
+            stored.put(rs.getString("ID"), rs.getString("PHOTO_ID"));
+          }
+        }
+      }
+    }
+
+    List<SSPhotoset> changed = new ArrayList<>();
+    for (SSPhotoset ssPhotoset : photosets) {
+      if (ssPhotoset.getPrimaryPhotoIcon() != null
+          && (!stored.containsKey(ssPhotoset.getPhotosetId())
+          || !Objects.equals(stored.get(ssPhotoset.getPhotosetId()), ssPhotoset.getPrimary()))) {
+        changed.add(ssPhotoset);
+      }
+    }
+    return saveIcons(conn, changed);
+  }
+
+
+  private static void saveIcons(Connection conn, List<String> ids, List<String> photoIds, List<byte[]> icons) throws Exception {
+    try (PreparedStatement update = conn.prepareStatement(SQL_UPDATE_ICON);
+         PreparedStatement insert = conn.prepareStatement(SQL_INSERT_ICON)) {
+      for (int i = 0; i < ids.size(); i++) {
+        update.setString(1, photoIds.get(i));
+        update.setBytes(2, icons.get(i));
+        update.setString(3, ids.get(i));
+        update.addBatch();
+      }
+      int[] counts = update.executeBatch();
+
+      boolean inserts = false;
+      for (int i = 0; i < counts.length; i++) {
+        if (counts[i] == 0) {
+          insert.setString(1, photoIds.get(i));
+          insert.setBytes(2, icons.get(i));
+          insert.setString(3, ids.get(i));
+          insert.addBatch();
+          inserts = true;
+        }
+      }
+      if (inserts) {
+        insert.executeBatch();
+      }
+    }
+  }
+
+
+  /**
+   * Get the icon for a photoset.
+   *
+   * @param photosetId the photoset ID.
+   * @return the encoded icon, or null if the photoset does not have one.
+   * @throws Exception if there are any errors.
+   */
+  public static byte[] getIcon(String photosetId) throws Exception {
+    return getIcons(List.of(photosetId)).get(photosetId);
+  }
+
+
+  /**
+   * Get the icons for several photosets.
+   *
+   * <p>The icons are read {@value #BATCH_SIZE} at a time.</p>
+   *
+   * @param photosetIds the photoset ID's.
+   * @return encoded icons by photoset ID. Photosets without an icon are not in the map.
+   * @throws Exception if there are any errors.
+   */
+  public static Map<String, byte[]> getIcons(Collection<String> photosetIds) throws Exception {
+    Map<String, byte[]> icons = new HashMap<>();
+    List<String> ids = new ArrayList<>(new HashSet<>(photosetIds));
+
+    try (Connection conn = DAOHelper.getConnection()) {
+      for (int start = 0; start < ids.size(); start += BATCH_SIZE) {
+        List<String> batch = ids.subList(start, Math.min(ids.size(), start + BATCH_SIZE));
+        String sql = SQL_FRAGMENT_GET_ICONS + "(" + "?, ".repeat(batch.size() - 1) + "?)";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+          for (int i = 0; i < batch.size(); i++) {
+            ps.setString(i + 1, batch.get(i));
+          }
+          try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+              byte[] icon = rs.getBytes("ICON");
+              if (icon != null) {
+                icons.put(rs.getString("ID"), icon);
+              }
+            }
+          }
+        }
+      }
+    } catch (Exception e) {
+      logger.error("getIcons: ERROR GETTING ICONS.", e);
+      throw e;
+    }
+
+    return icons;
+  }
+
+
+  /**
+   * Get the ID's of all photosets that have an icon.
+   *
+   * @return photoset ID's.
+   * @throws Exception if there are any errors.
+   */
+  public static Set<String> getPhotosetIdsWithIcons() throws Exception {
+    Set<String> ids = new HashSet<>();
+    try (Connection conn = DAOHelper.getConnection();
+         PreparedStatement ps = conn.prepareStatement(SQL_GET_PHOTOSET_IDS);
+         ResultSet rs = ps.executeQuery()) {
+      while (rs.next()) {
+        ids.add(rs.getString("ID"));
+      }
+    } catch (Exception e) {
+      logger.error("getPhotosetIdsWithIcons: ERROR GETTING ID'S.", e);
+      throw e;
+    }
+    return ids;
+  }
+
+
+  /**
+   * Delete the icon for a photoset.
+   *
+   * @param photosetId the photoset ID.
+   * @return number of rows deleted.
+   * @throws Exception if there are any errors.
+   */
+  public static int delete(String photosetId) throws Exception {
+    try (Connection conn = DAOHelper.getConnection();
+         PreparedStatement ps = conn.prepareStatement(SQL_DELETE_ICON)) {
+      ps.setString(1, photosetId);
+      return ps.executeUpdate();
+    } catch (Exception e) {
+      logger.error("delete(" + photosetId + "): ERROR WHILE DELETING ICON.", e);
+      throw e;
+    }
+  }
+
+
+  /**
+   * Copy the serialized icons from the photoset table to the icon table.
+   *
+   * <p>This is part of the upgrade to schema version 12. Icons that cannot be
+   * read are skipped; they will be downloaded again the next time the sets are
+   * loaded from Flickr.</p>
+   *
+   * @return number of icons copied.
+   * @throws Exception if the icons cannot be read or saved.
+   */
+  static int migrateSerializedIcons() throws Exception {
+    List<String> ids = new ArrayList<>();
+    List<String> photoIds = new ArrayList<>();
+    List<byte[]> icons = new ArrayList<>();
+    int skipped = 0;
+
+    try (Connection conn = DAOHelper.getConnection()) {
+      conn.setAutoCommit(false);
+      try (Statement s = conn.createStatement();
+           ResultSet rs = s.executeQuery(SQL_GET_SERIALIZED_ICONS)) {
+        while (rs.next()) {
+          byte[] bytes = IconUtils.encode(IconUtils.deserialize(rs.getBytes("PRIMARY_PHOTO_ICON")));
+          if (bytes == null) {
+            skipped++;
+            continue;
+          }
+          ids.add(rs.getString("ID"));
+          photoIds.add(rs.getString("PRIMARY_PHOTO_ID"));
+          icons.add(bytes);
+          if (ids.size() == BATCH_SIZE) {
+            saveIcons(conn, ids, photoIds, icons);
+            ids.clear();
+            photoIds.clear();
+            icons.clear();
+          }
+        }
+        if (!ids.isEmpty()) {
+          saveIcons(conn, ids, photoIds, icons);
+        }
+        conn.commit();
+      } catch (Exception e) {
+        conn.rollback();
+        throw e;
+      }
+    }
+
+    int migrated = getPhotosetIdsWithIcons().size();
+    logger.info("Moved " + migrated + " photoset icons to PHOTOSET_ICON, skipped " + skipped + ".");
+    return migrated;
+  }
+}
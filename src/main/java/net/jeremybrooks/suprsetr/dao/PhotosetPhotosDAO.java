@@ -0,0 +1,169 @@
+/*
+ *  SuprSetr is Copyright 2010-2023 by Jeremy Brooks
+ *
+ *  This file is part of SuprSetr.
+ *
+ *   SuprSetr is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   SuprSetr is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with SuprSetr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.jeremybrooks.suprsetr.dao;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Arrays;
+import java.util.List;
+
+
+/**
+ * Methods to access the Photoset Photos table.
+ *
+ * <p>This table holds the photo ID's that were last written to each
+ * photoset on Flickr, in set order. When a set is refreshed, the changes are
+ * computed against this list, so the contents of the set do not have to be
+ * read from Flickr first. The list is stored as one comma separated value
+ * per set, so reading the list of photosets does not have to read it.</p>
+ *
+ * @author Jeremy Brooks
+ */
+public class PhotosetPhotosDAO {
+
+  /**
+   * Logging.
+   */
+  private static final Logger logger = LogManager.getLogger(PhotosetPhotosDAO.class);
+
+  /**
+   * SQL to update an existing record.
+   */
+  private static final String SQL_UPDATE_PHOTOS =
+      "UPDATE PHOTOSET_PHOTOS "
+          + "SET PHOTO_IDS = ? "
+          + "WHERE ID = ?";
+
+  /**
+   * SQL to insert a new record. The parameters are in the same order as the update.
+   */
+  private static final String SQL_INSERT_PHOTOS =
+      "INSERT INTO PHOTOSET_PHOTOS "
+          + "(PHOTO_IDS, ID) "
+          + "VALUES (?, ?)";
+
+  /**
+   * SQL to get the photos for a photoset.
+   */
+  private static final String SQL_GET_PHOTOS =
+      "SELECT PHOTO_IDS FROM PHOTOSET_PHOTOS WHERE ID = ?";
+
+  /**
+   * SQL to delete a record.
+   */
+  private static final String SQL_DELETE_PHOTOS =
+      "DELETE FROM PHOTOSET_PHOTOS WHERE ID = ?";
+
+
+  /**
+   * No instances.
+   */
+  private PhotosetPhotosDAO() {
+  }
+
+
+  /**
+   * Get the photo ID's last written to a photoset.
+   *
+   * @param photosetId the photoset ID.
+   * @return photo ID's in set order, or null if none have been saved.
+   * @throws Exception if there are any errors.
+   */
+  public static List<String> getPhotoIds(String photosetId) throws Exception {
+    try (Connection conn = DAOHelper.getConnection()) {
+      return getPhotoIds(conn, photosetId);
+    } catch (Exception e) {
+      logger.error("getPhotoIds(" + photosetId + "): ERROR.", e);
+      throw e;
+    }
+  }
+
+
+  static List<String> getPhotoIds(Connection conn, String photosetId) throws Exception {
+    try (PreparedStatement ps = conn.prepareStatement(SQL_GET_PHOTOS)) {
+      ps.setString(1, photosetId);
+      try (ResultSet rs = ps.executeQuery()) {
+        if (!rs.next()) {
+          return null;
+        }
+        String ids = rs.getString("PHOTO_IDS");
+        return ids == null || ids.isEmpty() ? List.of() : Arrays.asList(ids.split(","));
+      }
+    }
+  }
+
+
+  /**
+   * Save the photo ID's that were written to a photoset.
+   *
+   * @param photosetId the photoset ID.
+   * @param photoIds   photo ID's in set order.
+   * @throws Exception if there are any errors.
+   */
+  public static void savePhotoIds(String photosetId, List<String> photoIds) throws Exception {
+    try (Connection conn = DAOHelper.getConnection()) {
+      savePhotoIds(conn, photosetId, photoIds);
+    } catch (Exception e) {
+      logger.error("savePhotoIds(" + photosetId + "): ERROR SAVING " + photoIds.size() + " PHOTO ID'S.", e);
+      throw e;
+    }
+  }
+
+
+  static void savePhotoIds(Connection conn, String photosetId, List<String> photoIds) throws Exception {
+    String ids = String.join(",", photoIds);
+    int count;
+    try (PreparedStatement ps = conn.prepareStatement(SQL_UPDATE_PHOTOS)) {
+      ps.setString(1, ids);
+      ps.setString(2, photosetId);
+      count = ps.executeUpdate();
+    }
+    if (count == 0) {
+      try (PreparedStatement ps = conn.prepareStatement(SQL_INSERT_PHOTOS)) {
+        ps.setString(1, ids);
+        ps.setString(2, photosetId);
+        ps.executeUpdate();
+      }
+    }
+  }
+
+
+  /**
+   * Delete the photo ID's for a photoset.
+   *
+   * @param photosetId the photoset ID.
+   * @return number of rows deleted.
+   * @throws Exception if there are any errors.
+   */
+  public static int delete(String photosetId) throws Exception {
+    try (Connection conn = DAOHelper.getConnection();
+         PreparedStatement ps = conn.prepareStatement(SQL_DELETE_PHOTOS)) {
+      ps.setString(1, photosetId);
+      return ps.executeUpdate();
+    } catch (Exception e) {
+      logger.error("delete(" + photosetId + "): ERROR WHILE DELETING PHOTO ID'S.", e);
+      throw e;
+    }
+  }
+}
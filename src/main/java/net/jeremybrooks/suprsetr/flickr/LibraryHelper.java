@@ -0,0 +1,341 @@
+/*
+ *  SuprSetr is Copyright 2010-2023 by Jeremy Brooks
+ *
+ *  This file is part of SuprSetr.
+ *
+ *   SuprSetr is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   SuprSetr is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with SuprSetr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.jeremybrooks.suprsetr.flickr;
+
+import net.jeremybrooks.jinx.JinxConstants;
+import net.jeremybrooks.jinx.response.photos.Photo;
+import net.jeremybrooks.jinx.response.photos.SearchParameters;
+import net.jeremybrooks.suprsetr.SSConstants;
+import net.jeremybrooks.suprsetr.SSPhoto;
+import net.jeremybrooks.suprsetr.dao.DAOHelper;
+import net.jeremybrooks.suprsetr.dao.LookupDAO;
+import net.jeremybrooks.suprsetr.dao.PhotoDAO;
+import net.jeremybrooks.suprsetr.utils.LocalSearchEngine;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.List;
+
+
+/**
+ * Keeps the local photo library in sync with Flickr.
+ *
+ * <p>The local library is a copy of the metadata for every photo in the
+ * user's account, stored in the PHOTO table. The first sync reads every
+ * photo. After that, only photos uploaded or updated since the previous
+ * sync are read. Flickr does not report deleted photos, so a full sync is
+ * done once a week to remove them.</p>
+ *
+ * <p>This class is implemented as a Singleton. Calling {@code LibraryHelper.getInstance()}
+ * will return a reference to the instance of this class.</p>
+ *
+ * @author Jeremy Brooks
+ */
+public class LibraryHelper {
+
+  /**
+   * Logging.
+   */
+  private static final Logger logger = LogManager.getLogger(LibraryHelper.class);
+
+  /**
+   * Reference to the only instance of this class.
+   */
+  private static LibraryHelper instance = null;
+
+  /**
+   * Searches the library. Created when first needed, and kept up to date
+   * by each sync.
+   */
+  private LocalSearchEngine searchEngine = null;
+
+  /**
+   * How often to do a full sync.
+   */
+  private static final long FULL_SYNC_INTERVAL = 7L * 24 * 60 * 60 * 1000;
+
+  /**
+   * Incremental syncs look back this far before the last sync, to allow for
+   * clock differences and photos that were still processing.
+   */
+  private static final long SYNC_OVERLAP = 60L * 60 * 1000;
+
+  /**
+   * Extras needed to build the local record for a photo.
+   */
+  private static final EnumSet<JinxConstants.PhotoExtras> EXTRAS = EnumSet.of(
+      JinxConstants.PhotoExtras.description,
+      JinxConstants.PhotoExtras.date_upload,
+      JinxConstants.PhotoExtras.date_taken,
+      JinxConstants.PhotoExtras.last_update,
+      JinxConstants.PhotoExtras.geo,
+      JinxConstants.PhotoExtras.tags,
+      JinxConstants.PhotoExtras.machine_tags,
+      JinxConstants.PhotoExtras.views,
+      JinxConstants.PhotoExtras.media);
+
+
+  /**
+   * Private constructor. This class is a Singleton.
+   */
+  private LibraryHelper() {
+  }
+
+
+  /**
+   * Gets a reference to the only instance of this class.
+   *
+   * @return reference to the only instance of LibraryHelper.
+   */
+  public static LibraryHelper getInstance() {
+    if (LibraryHelper.instance == null) {
+      LibraryHelper.instance = new LibraryHelper();
+    }
+
+    return LibraryHelper.instance;
+  }
+
+
+  /**
+   * Check if the local library is enabled.
+   *
+   * @return true if the user has enabled the local library.
+   */
+  public boolean isEnabled() {
+    return DAOHelper.stringToBoolean(LookupDAO.getValueForKey(SSConstants.LOOKUP_KEY_USE_LOCAL_LIBRARY));
+  }
+
+
+  /**
+   * Check if the local library has been synced at least once.
+   *
+   * @return true if the library has been synced.
+   */
+  public boolean isSynced() {
+    return getTime(SSConstants.LOOKUP_KEY_LIBRARY_SYNC_TIME) > 0;
+  }
+
+
+  /**
+   * Get the engine that evaluates set rules against the library.
+   *
+   * <p>The engine is loaded from the database the first time it is needed.
+   * After that, each sync applies its changes to the engine, so it does not
+   * have to be loaded again.</p>
+   *
+   * @return search engine for the local library.
+   * @throws Exception if the library cannot be loaded.
+   */
+  public synchronized LocalSearchEngine getSearchEngine() throws Exception {
+    if (this.searchEngine == null) {
+      long start = System.currentTimeMillis();
+      this.searchEngine = new LocalSearchEngine(PhotoDAO.getAllPhotos());
+      logger.info("Loaded " + this.searchEngine.size() + " photos from the local library in "
+          + (System.currentTimeMillis() - start) + "ms.");
+    }
+    return this.searchEngine;
+  }
+
+
+  /**
+   * Bring the local library up to date.
+   *
+   * <p>The safety level of a photo is not returned as a search extra. Photos
+   * are first read with a restricted search, which returns everything, then
+   * read again with a safe search to flag the photos that are safe.</p>
+   *
+   * @return number of photos that were added or updated.
+   * @throws Exception if there are any errors.
+   */
+  public synchronized int sync() throws Exception {
+    long started = System.currentTimeMillis();
+    long lastSync = getTime(SSConstants.LOOKUP_KEY_LIBRARY_SYNC_TIME);
+    long lastFullSync = getTime(SSConstants.LOOKUP_KEY_LIBRARY_FULL_SYNC_TIME);
+    boolean full = lastSync == 0 || started - lastFullSync > FULL_SYNC_INTERVAL;
+
+    Date minUpload = full ? new Date(0) : new Date(lastSync - SYNC_OVERLAP);
+    Date maxUpload = new Date(started + 86400000);
+    logger.info("Starting " + (full ? "full" : "incremental") + " library sync from " + minUpload);
+
+    int[] saved = new int[1];
+    PhotoHelper.getInstance().forEachPage(() -> {
+      SearchParameters params = getSearchParameters(minUpload, maxUpload, JinxConstants.SafetyLevel.restricted);
+      params.setExtras(EXTRAS);
+      return params;
+    }, (photos, page, pages, total) -> {
+      savePhotos(photos, started);
+      saved[0] += photos.size();
+    });
+
+    // older photos that have changed since the last sync
+    if (!full) {
+      PhotoHelper.getInstance().forEachRecentlyUpdated(minUpload, EXTRAS, (photos, page, pages, total) -> {
+        savePhotos(photos, started);
+        saved[0] += photos.size();
+      });
+    }
+
+    if (full) {
+      PhotoDAO.clearSafeFlags();
+    }
+    PhotoHelper.getInstance().forEachPage(() -> getSearchParameters(minUpload, maxUpload, JinxConstants.SafetyLevel.safe),
+        (photos, page, pages, total) -> {
+          List<String> ids = new ArrayList<>();
+          for (Photo p : photos) {
+            ids.add(p.getPhotoId());
+          }
+          PhotoDAO.setSafeFlags(ids);
+        });
+
+    if (full) {
+      // a full sync can change anything, so load it again when needed
+      this.searchEngine = null;
+      int deleted = PhotoDAO.deleteNotSynced(started);
+      logger.info("Deleted " + deleted + " photos that are no longer on Flickr.");
+      LookupDAO.setKeyAndValue(SSConstants.LOOKUP_KEY_LIBRARY_FULL_SYNC_TIME, Long.toString(started));
+    } else if (this.searchEngine != null) {
+      // read back from the database, since saving does not change the safe flag
+      this.searchEngine.update(PhotoDAO.getPhotosSyncedSince(started));
+    }
+    LookupDAO.setKeyAndValue(SSConstants.LOOKUP_KEY_LIBRARY_SYNC_TIME, Long.toString(started));
+
+    logger.info("Library sync saved " + saved[0] + " photos in " +
+        (System.currentTimeMillis() - started) + "ms. Library contains " +
+        PhotoDAO.getPhotoCount() + " photos.");
+    return saved[0];
+  }
+
+
+  private SearchParameters getSearchParameters(Date minUpload, Date maxUpload,
+                                               JinxConstants.SafetyLevel safetyLevel) {
+    SearchParameters params = new SearchParameters();
+    params.setUserId(FlickrHelper.getInstance().getNSID());
+    params.setMediaType(JinxConstants.MediaType.all);
+    params.setMinUploadDate(minUpload);
+    params.setMaxUploadDate(maxUpload);
+    params.setSafetyLevel(safetyLevel);
+    // oldest first, so photos uploaded during the sync do not shift the pages
+    params.setSort(JinxConstants.SortOrder.date_posted_asc);
+    return params;
+  }
+
+
+  private void savePhotos(List<Photo> photos, long syncTimestamp) throws Exception {
+    List<SSPhoto> list = new ArrayList<>(photos.size());
+    for (Photo p : photos) {
+      list.add(toSSPhoto(p));
+    }
+    PhotoDAO.savePhotos(list, syncTimestamp);
+  }
+
+
+  /**
+   * Convert a search result to a local photo record.
+   *
+   * @param p the photo returned by Flickr.
+   * @return local photo record.
+   */
+  SSPhoto toSSPhoto(Photo p) {
+    SSPhoto photo = new SSPhoto();
+    photo.setPhotoId(p.getPhotoId());
+    photo.setTitle(p.getTitle());
+    photo.setDescription(p.getDescription());
+    photo.setTags(p.getTags());
+    photo.setMachineTags(p.getMachineTags());
+    photo.setDateTaken(toDate(p.getDateTaken()));
+    photo.setDateUpload(toDate(p.getDateUpload()));
+    photo.setLastUpdate(toDate(p.getLastUpdate()));
+    photo.setViews(p.getViews() == null ? 0 : p.getViews());
+    photo.setMedia(p.getMedia());
+    photo.setPublic(toBoolean(p.isPublic()));
+    photo.setFriend(toBoolean(p.isFriend()));
+    photo.setFamily(toBoolean(p.isFamily()));
+    photo.setGeotagged(toDouble(p.getLatitude()) != 0 || toDouble(p.getLongitude()) != 0);
+    return photo;
+  }
+
+
+  /*
+   * Flickr returns upload and update dates as seconds since the epoch, and
+   * taken dates as "yyyy-MM-dd HH:mm:ss".
+   */
+  private Date toDate(Object value) {
+    if (value == null) {
+      return null;
+    }
+    if (value instanceof Date date) {
+      return date;
+    }
+    String s = value.toString().trim();
+    if (s.isEmpty()) {
+      return null;
+    }
+    try {
+      if (s.chars().allMatch(Character::isDigit)) {
+        return new Date(Long.parseLong(s) * 1000);
+      }
+      return new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").parse(s);
+    } catch (Exception e) {
+      logger.warn("Could not parse date '" + s + "'");
+      return null;
+    }
+  }
+
+
+  private boolean toBoolean(Object value) {
+    if (value == null) {
+      return false;
+    }
+    if (value instanceof Boolean b) {
+      return b;
+    }
+    String s = value.toString();
+    return s.equals("1") || s.equalsIgnoreCase("true");
+  }
+
+
+  private double toDouble(Object value) {
+    if (value == null) {
+      return 0;
+    }
+    try {
+      return Double.parseDouble(value.toString());
+    } catch (NumberFormatException e) {
+      return 0;
+    }
+  }
+
+
+  private long getTime(String key) {
+    String value = LookupDAO.getValueForKey(key);
+    if (value == null) {
+      return 0;
+    }
+    try {
+      return Long.parseLong(value);
+    } catch (NumberFormatException e) {
+      logger.warn("Invalid value '" + value + "' for key " + key);
+      return 0;
+    }
+  }
+}
@@ -28,14 +28,32 @@ import net.jeremybrooks.jinx.response.photos.Photo;
 import net.jeremybrooks.jinx.response.photos.PhotoInfo;
 import net.jeremybrooks.jinx.response.photos.Photos;
 import net.jeremybrooks.jinx.response.photos.SearchParameters;
+import net.jeremybrooks.suprsetr.SSConstants;
+import net.jeremybrooks.suprsetr.SSPhotoset;
+import net.jeremybrooks.suprsetr.dao.LookupDAO;
+import net.jeremybrooks.suprsetr.utils.SSUtils;
+import net.jeremybrooks.suprsetr.utils.ThumbnailCache;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import javax.swing.ImageIcon;
+import javax.imageio.ImageIO;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Date;
+import java.util.Deque;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 
 
 /**
@@ -56,9 +74,33 @@ public class PhotoHelper {
   private static final Logger logger = LogManager.getLogger(PhotoHelper.class);
 
   /**
-   * Reference to the only instance of this class.
+   * Holds the only instance of this class. The instance is created the
+   * first time it is used, and the class loader makes sure only one is
+   * created, even when several threads ask for it at once.
    */
-  private static PhotoHelper instance = null;
+  private static class Holder {
+    private static final PhotoHelper INSTANCE = new PhotoHelper();
+  }
+
+  /**
+   * Executes searches that run in parallel. There is one thread for each
+   * search request allowed in flight, so waiting pages are queued instead of
+   * holding a thread. Threads are daemon threads so they do not keep the
+   * application running at exit.
+   */
+  private ExecutorService executor = null;
+
+  /**
+   * Executes the year searches for "On This Day" sets. Each year search
+   * waits for its pages on the search executor, so the two cannot share
+   * threads.
+   */
+  private ExecutorService yearExecutor = null;
+
+  /**
+   * Limits the number of search requests in flight at the same time.
+   */
+  private Semaphore searchPermits = null;
 
 
   /**
@@ -74,11 +116,7 @@ public class PhotoHelper {
    * @return reference to the only instance of PhotoHelper.
    */
   public static PhotoHelper getInstance() {
-    if (PhotoHelper.instance == null) {
-      PhotoHelper.instance = new PhotoHelper();
-    }
-
-    return PhotoHelper.instance;
+    return Holder.INSTANCE;
   }
 
 
@@ -86,19 +124,20 @@ public class PhotoHelper {
    * Get a list of photos matching the search parameters.
    *
    * <p>The search will be executed, and all results will be returned. Flickr
-   * returns results in pages, so this method will continue requesting the
-   * next page until all results have been processed. There is no need for the
-   * caller to worry about paging.</p>
+   * returns results in pages. The first page tells us how many pages there
+   * are, and the remaining pages are then requested concurrently, a few at a
+   * time, and assembled in page order. There is no need for the caller to
+   * worry about paging.</p>
    *
    * <p>This method can take a long time to execute if the search results
    * return a large number of photos.</p>
    *
-   * @param params search parameters.
+   * @param params creates the search parameters for each page.
    * @return list of photo objects matching the search, or an empty list if
    * there were no matches.
    * @throws Exception if there are any errors.
    */
-  public List<Photo> getPhotos(SearchParameters params) throws
+  public List<Photo> getPhotos(SearchParametersFactory params) throws
       Exception {
     return getPhotos(params, Integer.MAX_VALUE);
   }
@@ -109,59 +148,331 @@ public class PhotoHelper {
    * number of returned results.
    *
    * <p>The search will be executed, and all results will be returned. Flickr
-   * returns results in pages, so this method will continue requesting the
-   * next page until all results have been processed. There is no need for the
-   * caller to worry about paging.</p>
+   * returns results in pages. The first page tells us how many pages there
+   * are, and the remaining pages (up to the number needed to reach the max)
+   * are then requested concurrently and assembled in page order. Only as
+   * many pages as the search request limit are requested ahead of the page
+   * being assembled. There is no need for the caller to worry about
+   * paging.</p>
    *
    * <p>This method can take a long time to execute if the search results
    * return a large number of photos.</p>
    *
-   * @param params search parameters.
+   * @param params creates the search parameters for each page.
    * @param max    the maximum number of results that will e returned.
    * @return list of photo objects matching the search, or an empty list if
    * there were no matches.
    * @throws Exception if there are any errors.
    */
-  public List<Photo> getPhotos(SearchParameters params, int max) throws Exception {
-    int page = 1;
-    int count = 0;
-
+  public List<Photo> getPhotos(SearchParametersFactory params, int max) throws Exception {
     int perPage = Math.min(max, 500);
 
-    if (params == null) {
-      throw new Exception("Cannot get photos for a null search parameter.");
+    List<Photo> photoList = new ArrayList<>();
+
+    // The first page tells us how many pages there are
+    Photos results = this.search(createSearchParameters(params, perPage, 1));
+    photoList.addAll(results.getPhotoList());
+    logger.info("Found " + photoList.size() + " on page 1 of " + results.getPages());
+
+    // Only request as many pages as are needed to reach the max
+    int lastPage = results.getPages();
+    if (max < Integer.MAX_VALUE) {
+      lastPage = Math.min(lastPage, (max + perPage - 1) / perPage);
     }
 
-    List<Photo> photoList = new ArrayList<>();
+    if (lastPage > 1 && photoList.size() < max) {
+      // Fetch the remaining pages concurrently. Each page gets its own
+      // search parameters, and the results are added in page order.
+      int lookAhead = this.getSearchPageThreads();
+      Deque<Future<List<Photo>>> pending = new ArrayDeque<>();
+      int nextPage = 2;
+      try {
+        for (int page = 2; page <= lastPage; page++) {
+          while (nextPage <= lastPage && pending.size() < lookAhead) {
+            pending.add(this.submitSearch(createSearchParameters(params, perPage, nextPage++)));
+          }
+          photoList.addAll(getPage(pending.remove()));
+          logger.info("Found " + photoList.size() + " on " + page + " page(s)");
+        }
+      } finally {
+        for (Future<List<Photo>> future : pending) {
+          future.cancel(true);
+        }
+      }
+    }
+
+    // if we have more results than requested, trim the list
+    int count = photoList.size();
+    if (count > max) {
+      photoList.subList(max, photoList.size()).clear();
+      logger.debug(count + " search results trimmed to " + photoList.size());
+    }
 
-    // return max allowed results
-    params.setPerPage(perPage);
+    return photoList;
+  }
+
+
+  /**
+   * Execute a search, handing each page of results to the consumer as it
+   * arrives.
+   *
+   * <p>This is intended for searches that can return a very large number of
+   * photos, such as a search of the entire photo library. Instead of holding
+   * every result in memory, each page is passed to the consumer and then
+   * discarded. While the consumer is working on a page, the next few pages
+   * are downloaded in the background, so the work and the downloads overlap.
+   * The number of pages downloaded ahead is the same as the search request
+   * limit.</p>
+   *
+   * @param params   creates the search parameters for each page.
+   * @param consumer receives each page of results, in page order.
+   * @throws Exception if there are any errors, or if the consumer throws an exception.
+   */
+  public void forEachPage(SearchParametersFactory params, PhotoPageConsumer consumer) throws Exception {
+    Photos results = this.search(createSearchParameters(params, 500, 1));
+    int pages = results.getPages() == null ? 1 : Math.max(1, results.getPages());
+    int total = results.getTotal() == null ? results.getPhotoList().size() : results.getTotal();
+    int lookAhead = this.getSearchPageThreads();
+
+    Deque<Future<List<Photo>>> pending = new ArrayDeque<>();
+    int nextPage = 2;
+    try {
+      for (int page = 1; page <= pages; page++) {
+        // keep the next few pages downloading while the consumer works
+        while (nextPage <= pages && pending.size() < lookAhead) {
+          pending.add(this.submitSearch(createSearchParameters(params, 500, nextPage++)));
+        }
+        List<Photo> photos;
+        if (page == 1) {
+          photos = results.getPhotoList();
+        } else {
+          photos = getPage(pending.remove());
+        }
+        logger.info("Processing page " + page + " of " + pages + " (" + photos.size() + " photos)");
+        consumer.accept(photos, page, pages, total);
+      }
+    } finally {
+      for (Future<List<Photo>> future : pending) {
+        future.cancel(true);
+      }
+    }
+  }
 
-    Photos results;
 
+  /**
+   * Get photos that have been updated since the specified date, handing each
+   * page of results to the consumer as it arrives.
+   *
+   * <p>An update includes changes to the title, description, tags, dates,
+   * privacy, and location of a photo. Pages are requested one at a time.</p>
+   *
+   * @param minDate  photos updated on or after this date will be returned.
+   * @param extras   extra data to return with each photo.
+   * @param consumer receives each page of results, in page order.
+   * @throws Exception if there are any errors, or if the consumer throws an exception.
+   */
+  public void forEachRecentlyUpdated(Date minDate, EnumSet<JinxConstants.PhotoExtras> extras,
+                                     PhotoPageConsumer consumer) throws Exception {
+    int page = 1;
+    int pages;
     do {
-      results = JinxFactory.getInstance().getPhotosApi().search(params);
-      // The first search results object becomes the object that is
-      // returned. The "photos" parameter of the returned object will be
-      // updated with the list of all found photos before the object is
-      // returned to the caller. We use the first returned search results
-      // because it will have valid parameters, such as total, that can
-      // change in the case where the exact number of search results
-      // falls on a page boundary, and the last call returns no results.
-
-      count += results.getPhotoList().size();
-      logger.info("Found " + count + " on " + page + " page(s)");
-      photoList.addAll(results.getPhotoList());
+      int currentPage = page;
+      Photos results = RateLimiter.getInstance().call("flickr.photos.recentlyUpdated", () -> JinxFactory.getInstance().getPhotosApi().recentlyUpdated(minDate, extras, 500, currentPage));
+      pages = results.getPages() == null ? 1 : results.getPages();
+      int total = results.getTotal() == null ? results.getPhotoList().size() : results.getTotal();
+      logger.info("Processing page " + page + " of " + pages + " of recently updated photos");
+      consumer.accept(results.getPhotoList(), page, pages, total);
       page++;
+    } while (page <= pages);
+  }
 
-      params.setPage(page);
 
-    } while (page <= results.getPages() && count < max);
+  /**
+   * Execute a single search request.
+   *
+   * <p>The number of search requests that can be in flight at the same time
+   * is limited by the {@link SSConstants#LOOKUP_KEY_SEARCH_PAGE_THREADS} setting.</p>
+   *
+   * @param params search parameters, including the page to request.
+   * @return search results.
+   * @throws Exception if there are any errors.
+   */
+  private Photos search(SearchParameters params) throws Exception {
+    Semaphore permits = this.getSearchPermits();
+    permits.acquire();
+    try {
+      return RateLimiter.getInstance().call("flickr.photos.search", () -> JinxFactory.getInstance().getPhotosApi().search(params));
+    } finally {
+      permits.release();
+    }
+  }
 
-    // if we have more results than requested, trim the list
-    if (count > max) {
-      photoList.subList(max, photoList.size()).clear();
-      logger.debug(count + " search results trimmed to " + photoList.size());
+
+  /**
+   * Request a page of search results on the search executor.
+   *
+   * @param params search parameters, including the page to request.
+   * @return the photos on the page, when they arrive.
+   */
+  private Future<List<Photo>> submitSearch(SearchParameters params) {
+    return this.getExecutor().submit(() -> this.search(params).getPhotoList());
+  }
+
+
+  /*
+   * Wait for a page requested with submitSearch, unwrapping any error.
+   */
+  private static List<Photo> getPage(Future<List<Photo>> future) throws Exception {
+    try {
+      return future.get();
+    } catch (ExecutionException ee) {
+      if (ee.getCause() instanceof Exception) {
+        throw (Exception) ee.getCause();
+      }
+      throw ee;
+    }
+  }
+
+
+  /**
+   * Get the number of search requests allowed in flight at the same time.
+   *
+   * @return the {@link SSConstants#LOOKUP_KEY_SEARCH_PAGE_THREADS} setting, at least one.
+   */
+  private int getSearchPageThreads() {
+    return Math.max(1, LookupDAO.getIntValueForKey(SSConstants.LOOKUP_KEY_SEARCH_PAGE_THREADS,
+        Integer.parseInt(SSConstants.DEFAULT_SEARCH_PAGE_THREADS)));
+  }
+
+
+  /**
+   * Get the executor for search pages.
+   *
+   * <p>The number of threads is read from the database the first time it is needed.</p>
+   *
+   * @return the executor.
+   */
+  private synchronized ExecutorService getExecutor() {
+    if (this.executor == null) {
+      this.executor = newDaemonPool(this.getSearchPageThreads(), "PhotoHelper-search");
+    }
+    return this.executor;
+  }
+
+
+  /**
+   * Get the executor for "On This Day" year searches.
+   *
+   * @return the executor.
+   */
+  private synchronized ExecutorService getYearExecutor() {
+    if (this.yearExecutor == null) {
+      this.yearExecutor = newDaemonPool(this.getSearchPageThreads(), "PhotoHelper-year");
+    }
+    return this.yearExecutor;
+  }
+
+
+  private static ExecutorService newDaemonPool(int threads, String name) {
+    return Executors.newFixedThreadPool(threads, r -> {
+      Thread t = new Thread(r, name);
+      t.setDaemon(true);
+      return t;
+    });
+  }
+
+
+  /**
+   * Get the semaphore that limits concurrent search requests.
+   *
+   * <p>The limit is read from the database the first time it is needed.</p>
+   *
+   * @return semaphore limiting concurrent search requests.
+   */
+  private synchronized Semaphore getSearchPermits() {
+    if (this.searchPermits == null) {
+      int limit = this.getSearchPageThreads();
+      this.searchPermits = new Semaphore(limit);
+      logger.info("Search requests limited to {} at a time.", limit);
+    }
+    return this.searchPermits;
+  }
+
+
+  /**
+   * Create the search parameters for one page of a search.
+   *
+   * @param params  creates the search parameters.
+   * @param perPage number of results on each page.
+   * @param page    the page number, starting at 1.
+   * @return search parameters for the page.
+   * @throws Exception if the parameters cannot be created.
+   */
+  private SearchParameters createSearchParameters(SearchParametersFactory params, int perPage, int page) throws Exception {
+    SearchParameters pageParams = params == null ? null : params.create();
+    if (pageParams == null) {
+      throw new Exception("Cannot get photos for a null search parameter.");
+    }
+    pageParams.setPerPage(perPage);
+    pageParams.setPage(page);
+    return pageParams;
+  }
+
+
+  /**
+   * Get a list of photos for an "On This Day" photoset.
+   *
+   * <p>An "On This Day" set requires a separate search for every year in the
+   * range. The searches for each year are executed concurrently, and the
+   * results are merged in year order once all searches have finished. If the
+   * set is sorted by date taken descending (sort order 2), the years are merged
+   * from newest to oldest; otherwise they are merged from oldest to newest.</p>
+   *
+   * @param ssPhotoset the photoset to search for.
+   * @return list of photos matching the search for all years, or an empty
+   * list if there were no matches.
+   * @throws Exception if any of the searches fail.
+   */
+  public List<Photo> getPhotosForOnThisDay(SSPhotoset ssPhotoset) throws Exception {
+    int startYear = ssPhotoset.getOnThisDayYearStart();
+    int endYear = ssPhotoset.getOnThisDayYearEnd();
+    if (endYear == 0) {
+      endYear = SSUtils.getCurrentYear();
+    }
+
+    List<Integer> years = new ArrayList<>();
+    for (int year = startYear; year <= endYear; year++) {
+      years.add(year);
+    }
+    if (ssPhotoset.getSortOrder() == 2) {
+      // Sorted by date taken descending
+      Collections.reverse(years);
+    }
+
+    // submit a search for each year
+    List<Future<List<Photo>>> futures = new ArrayList<>();
+    for (int year : years) {
+      futures.add(this.getYearExecutor().submit(() -> {
+        List<Photo> results = getPhotos(() -> SearchHelper.getInstance().getSearchParametersForOnThisDay(ssPhotoset, year));
+        logger.info("Got " + results.size() + " results for " + year + ".");
+        return results;
+      }));
+    }
+
+    // merge the results in year order
+    List<Photo> photoList = new ArrayList<>();
+    try {
+      for (Future<List<Photo>> future : futures) {
+        photoList.addAll(future.get());
+      }
+    } catch (ExecutionException ee) {
+      for (Future<List<Photo>> future : futures) {
+        future.cancel(true);
+      }
+      if (ee.getCause() instanceof Exception) {
+        throw (Exception) ee.getCause();
+      }
+      throw ee;
     }
 
     return photoList;
@@ -171,34 +482,143 @@ public class PhotoHelper {
   /**
    * Get the icon for the specified photo.
    *
-   * <p>This method will get the thumbnail icon from Flickr for the specified
-   * photo, and return it as an ImageIcon instance.</p>
+   * <p>The thumbnail URL is built from the server and secret of the photo,
+   * which are returned with search results and photoset photo lists, so no
+   * extra call to Flickr is needed. Thumbnails are kept in the
+   * {@link ThumbnailCache}, so each one is only downloaded once.</p>
+   *
+   * @param photo photo to get the icon for.
+   * @return the thumbnail image for the photo, or the default empty set icon
+   * if the photo cannot be processed for some reason.
+   * @throws Exception if the parameter is null, or if there are other errors.
+   */
+  public byte[] getIconForPhoto(Photo photo) throws Exception {
+    if (photo == null) {
+      throw new Exception("Photo parameter cannot be null.");
+    }
+    return this.getIconForPhoto(photo.getPhotoId(), photo.getServer(), photo.getSecret());
+  }
+
+
+  /**
+   * Get the icon for the specified photo, using the server and secret that
+   * the caller already has.
+   *
+   * <p>If the server or secret are missing, the photo info is requested from
+   * Flickr to find them.</p>
+   *
+   * @param photoId photo to get the icon for.
+   * @param server  the server the photo is stored on.
+   * @param secret  the secret for the photo.
+   * @return the thumbnail image for the photo, or the default empty set icon
+   * if the photo cannot be processed for some reason.
+   * @throws Exception if there are any errors.
+   */
+  public byte[] getIconForPhoto(String photoId, String server, String secret) throws Exception {
+    String url = buildThumbnailUrl(photoId, server, secret);
+    if (url == null) {
+      return this.getIconForPhoto(photoId);
+    }
+    return this.loadIcon(photoId, secret, url);
+  }
+
+
+  /**
+   * Get the icon for the specified photo.
+   *
+   * <p>This method will get the photo info from Flickr to find the
+   * thumbnail for the specified photo, and return the encoded image. Thumbnails are cached by secret, so the info is needed even
+   * when the thumbnail is cached. If the caller has the server and secret
+   * for the photo, use {@link #getIconForPhoto(String, String, String)}
+   * instead, which does not need the extra call.</p>
    *
    * @param photoId photo to get the icon for.
    * @return the thumbnail image for the photo, or the default empty set icon
    * if the photo cannot be processed for some reason.
    * @throws Exception if the parameter is null or empty, or if there are other errors.
    */
-  public ImageIcon getIconForPhoto(String photoId) throws Exception {
-    PhotoInfo info = JinxFactory.getInstance().getPhotosApi().getInfo(photoId, null);
+  public byte[] getIconForPhoto(String photoId) throws Exception {
+    PhotoInfo info = RateLimiter.getInstance().call("flickr.photos.getInfo", () -> JinxFactory.getInstance().getPhotosApi().getInfo(photoId, null));
     if (info.getCode() > 0) {
       throw new Exception("Error getting info for photo " + photoId + ". Code " + info.getCode() + ":" + info.getMessage());
     }
-    ImageIcon icon = null;
+    String url = buildThumbnailUrl(photoId, info.getServer(), info.getSecret());
+    if (url != null) {
+      return this.loadIcon(photoId, info.getSecret(), url);
+    }
+    byte[] icon;
     try {
-      icon = new ImageIcon(PhotoUtils.getImageForSize(JinxConstants.PhotoSize.SIZE_SMALL_SQUARE, info));
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      ImageIO.write(PhotoUtils.getImageForSize(JinxConstants.PhotoSize.SIZE_SMALL_SQUARE, info), "png", out);
+      icon = out.toByteArray();
     } catch (Exception e) {
       logger.warn("ERROR GETTING ICON FOR PHOTO " + photoId, e);
-      URL url = this.getClass().getClassLoader().getResource("images/empty_set_icon.png");
-      if (url != null) {
-        icon = new ImageIcon(url);
-      }
+      icon = this.getEmptySetIcon();
     }
 
     return icon;
   }
 
 
+  /**
+   * Build the URL of the small square thumbnail for a photo.
+   *
+   * <p>Thumbnail URL's are in the format
+   * https://live.staticflickr.com/{server}/{photo-id}_{secret}_s.jpg</p>
+   *
+   * @param photoId the photo ID.
+   * @param server  the server the photo is stored on.
+   * @param secret  the secret for the photo.
+   * @return the thumbnail URL, or null if any of the parameters are missing.
+   */
+  static String buildThumbnailUrl(String photoId, String server, String secret) {
+    for (String value : new String[]{photoId, server, secret}) {
+      if (value == null || value.isBlank()) {
+        return null;
+      }
+    }
+    return "https://live.staticflickr.com/" + server + '/' + photoId + '_' + secret + "_s.jpg";
+  }
+
+
+  /*
+   * Thumbnails are looked up in the shared cache first. Downloaded bytes are
+   * checked by decoding them before they are cached.
+   */
+  private byte[] loadIcon(String photoId, String secret, String url) {
+    ThumbnailCache cache = ThumbnailCache.getInstance();
+    byte[] bytes = cache.get(photoId, secret, ThumbnailCache.SIZE_SMALL_SQUARE);
+    if (bytes == null) {
+      try (InputStream in = new URL(url).openStream()) {
+        bytes = in.readAllBytes();
+        if (ImageIO.read(new ByteArrayInputStream(bytes)) == null) {
+          throw new IOException("Not an image.");
+        }
+        cache.put(photoId, secret, ThumbnailCache.SIZE_SMALL_SQUARE, bytes);
+      } catch (Exception e) {
+        logger.warn("ERROR GETTING ICON FOR PHOTO " + photoId + " FROM " + url, e);
+        return this.getEmptySetIcon();
+      }
+    }
+    return bytes;
+  }
+
+
+  /**
+   * Get the icon used for photosets that do not have a primary photo yet.
+   *
+   * @return the encoded empty set icon, or null if it cannot be read.
+   */
+  public byte[] getEmptySetIcon() {
+    try (InputStream in = this.getClass().getClassLoader().getResourceAsStream("images/empty_set_icon.png")) {
+      return in == null ? null : in.readAllBytes();
+    } catch (IOException e) {
+      logger.warn("ERROR READING EMPTY SET ICON.", e);
+      return null;
+    }
+  }
+
+
   /**
    * Get the number of people who have favorited a given photo.
    *
@@ -215,7 +635,7 @@ public class PhotoHelper {
     if (p == null) {
       throw new Exception("Photo parameter cannot be null.");
     }
-    Favorites favorites = JinxFactory.getInstance().getPhotosApi().getFavorites(p.getPhotoId(), 0, 0);
+    Favorites favorites = RateLimiter.getInstance().call("flickr.photos.getFavorites", () -> JinxFactory.getInstance().getPhotosApi().getFavorites(p.getPhotoId(), 0, 0));
     return favorites.getTotal() == null ? 0 : favorites.getTotal();
   }
 
@@ -230,7 +650,7 @@ public class PhotoHelper {
   public void addTags(Photo p, String[] tags) throws Exception {
     List<String> tagList = new ArrayList<>();
     Collections.addAll(tagList, tags);
-    AddTags addTags = JinxFactory.getInstance().getPhotosApi().addTags(p.getPhotoId(), tagList);
+    AddTags addTags = RateLimiter.getInstance().call("flickr.photos.addTags", () -> JinxFactory.getInstance().getPhotosApi().addTags(p.getPhotoId(), tagList));
     if (addTags.getCode() != 0) {
       throw new Exception("Error adding tags. Code " + addTags.getCode() + ":" + addTags.getMessage());
     }
@@ -244,7 +664,7 @@ public class PhotoHelper {
    * @throws Exception if there are any errors.
    */
   public void removeTag(String tagId) throws Exception {
-    Response response = JinxFactory.getInstance().getPhotosApi().removeTag(tagId);
+    Response response = RateLimiter.getInstance().call("flickr.photos.removeTag", () -> JinxFactory.getInstance().getPhotosApi().removeTag(tagId));
     if (response.getCode() != 0) {
       throw new Exception("Unable to remove tagId " + tagId + ". Code " + response.getCode() + ":" + response.getMessage());
     }
@@ -259,7 +679,7 @@ public class PhotoHelper {
    * @throws Exception if there are any errors.
    */
   public PhotoInfo getPhotoInfo(Photo p) throws Exception {
-    return JinxFactory.getInstance().getPhotosApi().getInfo(p.getPhotoId(), p.getSecret());
+    return RateLimiter.getInstance().call("flickr.photos.getInfo", () -> JinxFactory.getInstance().getPhotosApi().getInfo(p.getPhotoId(), p.getSecret()));
   }
 
 }
@@ -0,0 +1,51 @@
+/*
+ *  SuprSetr is Copyright 2010-2023 by Jeremy Brooks
+ *
+ *  This file is part of SuprSetr.
+ *
+ *   SuprSetr is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   SuprSetr is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with SuprSetr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.jeremybrooks.suprsetr.flickr;
+
+import net.jeremybrooks.jinx.response.photos.Photo;
+
+import java.util.List;
+
+/**
+ * Receives pages of search results as they arrive.
+ *
+ * <p>Used with {@link PhotoHelper#forEachPage(SearchParametersFactory, PhotoPageConsumer)}
+ * so that callers can start working on the first page of results while later
+ * pages are still being downloaded.</p>
+ *
+ * @author Jeremy Brooks
+ */
+@FunctionalInterface
+public interface PhotoPageConsumer {
+
+  /**
+   * Process a page of search results.
+   *
+   * <p>Pages are delivered in page order, one at a time, on the thread that
+   * called {@code forEachPage}.</p>
+   *
+   * @param photos the photos on this page.
+   * @param page   the page number, starting at 1.
+   * @param pages  the total number of pages.
+   * @param total  the total number of photos matching the search.
+   * @throws Exception if there are any errors. This will stop the search.
+   */
+  void accept(List<Photo> photos, int page, int pages, int total) throws Exception;
+}
@@ -28,12 +28,16 @@ import net.jeremybrooks.jinx.response.photosets.PhotosetInfo;
 import net.jeremybrooks.jinx.response.photosets.PhotosetList;
 import net.jeremybrooks.jinx.response.photosets.PhotosetPhotos;
 import net.jeremybrooks.suprsetr.SSPhotoset;
+import net.jeremybrooks.suprsetr.utils.PhotosetDelta;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import javax.swing.ImageIcon;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 
 /**
@@ -58,6 +62,34 @@ public class PhotosetHelper {
    */
   private static PhotosetHelper instance = null;
 
+  /**
+   * How long the photoset list is kept.
+   */
+  private static final long PHOTOSET_LIST_TTL = 60 * 1000;
+
+  /**
+   * Number of photosets to request on each page.
+   */
+  private static final int PER_PAGE = 500;
+
+  /**
+   * Requests pages of the photoset list in parallel. Threads are daemon
+   * threads so they do not keep the application running at exit.
+   */
+  private final ExecutorService executor = Executors.newCachedThreadPool(r -> {
+    Thread t = new Thread(r, "PhotosetHelper-list");
+    t.setDaemon(true);
+    return t;
+  });
+
+  /**
+   * The last photoset list retrieved, the user it belongs to, and when it
+   * was retrieved.
+   */
+  private List<Photoset> photosetList = null;
+  private String photosetListNsid = null;
+  private long photosetListTime = 0;
+
 
   /**
    * Private constructor. This class is a singleton.
@@ -83,44 +115,89 @@ public class PhotosetHelper {
   /**
    * Get a list of all photosets for the specified user.
    *
+   * <p>The first page is requested to find out how many pages there are,
+   * then the remaining pages are requested in parallel. The photosets are
+   * returned in the order Flickr returns them.</p>
+   *
+   * <p>The list is kept for a short time, so callers that need it one after
+   * the other do not download it again. Any change made to a photoset through
+   * this class discards the saved list.</p>
+   *
    * @param nsid the user ID.
    * @return list of all photosets for the user, or an empty list if the user
    * does not have any photosets.
    * @throws Exception if there are any errors.
    */
-  public List<Photoset> getPhotosets(String nsid) throws Exception {
+  public synchronized List<Photoset> getPhotosets(String nsid) throws Exception {
+    if (this.photosetList != null && nsid.equals(this.photosetListNsid)
+        && System.currentTimeMillis() - this.photosetListTime < PHOTOSET_LIST_TTL) {
+      logger.info("Using the photoset list retrieved {}ms ago.", System.currentTimeMillis() - this.photosetListTime);
+      return new ArrayList<>(this.photosetList);
+    }
+
     // get the first batch of results
-    PhotosetList photosetList = JinxFactory.getInstance().getPhotosetsApi().getList(nsid, 0, 500, null);
+    PhotosetList photosetList = RateLimiter.getInstance().call("flickr.photosets.getList", () -> JinxFactory.getInstance().getPhotosetsApi().getList(nsid, 1, PER_PAGE, null));
     List<Photoset> allPhotosets = new ArrayList<>(photosetList.getPhotosetList());
-    int page = 0;
-    int pages = photosetList.getPages();
-
-    // then loop through the rest of the results
-    while (page < pages) {
-      page++;
-      logger.info("Loading page {} of sets...", page);
-      photosetList = JinxFactory.getInstance().getPhotosetsApi().getList(nsid, page, 500, null);
-      allPhotosets.addAll(photosetList.getPhotosetList());
+    int pages = photosetList.getPages() == null ? 1 : photosetList.getPages();
+
+    // then get the rest of the results at the same time, and add them in page order
+    if (pages > 1) {
+      List<Future<List<Photoset>>> futures = new ArrayList<>();
+      for (int page = 2; page <= pages; page++) {
+        int currentPage = page;
+        futures.add(executor.submit(() -> RateLimiter.getInstance().call("flickr.photosets.getList", () ->
+            JinxFactory.getInstance().getPhotosetsApi().getList(nsid, currentPage, PER_PAGE, null)).getPhotosetList()));
+      }
+      try {
+        for (int i = 0; i < futures.size(); i++) {
+          allPhotosets.addAll(futures.get(i).get());
+          logger.info("Loaded page {} of {} of sets.", i + 2, pages);
+        }
+      } catch (ExecutionException ee) {
+        for (Future<List<Photoset>> future : futures) {
+          future.cancel(true);
+        }
+        if (ee.getCause() instanceof Exception) {
+          throw (Exception) ee.getCause();
+        }
+        throw ee;
+      }
     }
-    return allPhotosets;
+
+    this.photosetList = allPhotosets;
+    this.photosetListNsid = nsid;
+    this.photosetListTime = System.currentTimeMillis();
+    return new ArrayList<>(allPhotosets);
+  }
+
+
+  /**
+   * Discard the saved photoset list, so the next call to
+   * {@link #getPhotosets(String)} gets it from Flickr.
+   */
+  public synchronized void invalidatePhotosetList() {
+    this.photosetList = null;
   }
 
+
   /**
    * Get the icon for the specified photoset.
    *
    * <p>This method will get the thumbnail icon from Flickr for the specified
-   * photoset, and return it as an ImageIcon instance.</p>
+   * photoset, and return the encoded image. The photoset list
+   * includes the server and secret of the primary photo, so the thumbnail
+   * URL can be built without asking Flickr for the photo info.</p>
    *
    * @param p the photoset to get the image for.
    * @return thumbnail icon for the photoset.
    * @throws Exception if there are any errors, or if the photoset is null.
    */
-  public ImageIcon getIconForPhotoset(Photoset p) throws Exception {
+  public byte[] getIconForPhotoset(Photoset p) throws Exception {
     if (p == null) {
       throw new Exception("PHOTOSET CANNOT BE NULL.");
     }
 
-    return PhotoHelper.getInstance().getIconForPhoto(p.getPrimary());
+    return PhotoHelper.getInstance().getIconForPhoto(p.getPrimary(), p.getServer(), p.getSecret());
   }
 
 
@@ -141,7 +218,8 @@ public class PhotosetHelper {
       throw new Exception("PRIMARY PHOTO ID CANNOT BE NULL OR EMPTY.");
     }
 
-    return JinxFactory.getInstance().getPhotosetsApi().create(title, description, primaryPhotoId);
+    this.invalidatePhotosetList();
+    return RateLimiter.getInstance().call("flickr.photosets.create", () -> JinxFactory.getInstance().getPhotosetsApi().create(title, description, primaryPhotoId));
   }
 
 
@@ -153,7 +231,8 @@ public class PhotosetHelper {
    * @throws Exception if there are any errors.
    */
   public void addPhoto(String photosetId, String photoId) throws Exception {
-    Response response = JinxFactory.getInstance().getPhotosetsApi().addPhoto(photosetId, photoId);
+    this.invalidatePhotosetList();
+    Response response = RateLimiter.getInstance().call("flickr.photosets.addPhoto", () -> JinxFactory.getInstance().getPhotosetsApi().addPhoto(photosetId, photoId));
     if (response.getCode() != 0) {
       throw new Exception("Unable to add photo. Code " + response.getCode() + ":" + response.getMessage());
     }
@@ -168,7 +247,7 @@ public class PhotosetHelper {
    * @throws Exception if there are any errors.
    */
   public PhotosetInfo getPhotosetById(String photosetId) throws Exception {
-    return JinxFactory.getInstance().getPhotosetsApi().getInfo(photosetId);
+    return RateLimiter.getInstance().call("flickr.photosets.getInfo", () -> JinxFactory.getInstance().getPhotosetsApi().getInfo(photosetId));
   }
 
 
@@ -182,7 +261,8 @@ public class PhotosetHelper {
     if (ssPhotoset == null) {
       throw new Exception("delete: PARAMETER CANNOT BE NULL.");
     }
-    Response response = JinxFactory.getInstance().getPhotosetsApi().delete(ssPhotoset.getPhotosetId());
+    this.invalidatePhotosetList();
+    Response response = RateLimiter.getInstance().call("flickr.photosets.delete", () -> JinxFactory.getInstance().getPhotosetsApi().delete(ssPhotoset.getPhotosetId()));
     if (response.getCode() != 0) {
       throw new Exception("Error deleting photoset. Code " + response.getCode() + ":" + response.getMessage());
     }
@@ -204,8 +284,9 @@ public class PhotosetHelper {
       throw new Exception("addPhoto: PHOTO CANNOT BE NULL.");
     }
 
+    this.invalidatePhotosetList();
     try {
-      Response response = JinxFactory.getInstance().getPhotosetsApi().addPhoto(ssPhotoset.getPhotosetId(), photo.getPhotoId());
+      Response response = RateLimiter.getInstance().call("flickr.photosets.addPhoto", () -> JinxFactory.getInstance().getPhotosetsApi().addPhoto(ssPhotoset.getPhotosetId(), photo.getPhotoId()));
       if (response.getCode() == 0) {
         logger.info("Photo " + photo.getTitle() + " added to set " + ssPhotoset.getTitle());
       } else if (response.getCode() == 3) {
@@ -229,40 +310,26 @@ public class PhotosetHelper {
    *
    * @param ssPhotoset the photoset to get a list of photos for.
    * @return list of photo ID's in the set.
-   * @throws Exception if there are any errors.
+   * @throws Exception if there are any errors. Part of a set is never returned.
    */
   public List<String> getListOfPhotoIdsInSet(SSPhotoset ssPhotoset) throws Exception {
     List<String> list = new ArrayList<>();
     int page = 1;
-    int count = 0;
+    int pages;
 
     logger.info("Getting photos in set " + ssPhotoset);
 
-    try {
-      PhotosetPhotos pp;
-      do {
-        pp = JinxFactory.getInstance().getPhotosetsApi().getPhotos(ssPhotoset.getPhotosetId(), null, JinxConstants.PrivacyFilter.privacyPrivate, 500, page, JinxConstants.MediaType.photos);
-        count += pp.getPhotoList().size();
-        logger.info("Found " + count + " on " + page + " page(s)");
-        for (Photo p : pp.getPhotoList()) {
-          list.add(p.getPhotoId());
-        }
-
-        page++;
-      } while (pp.getPhotoList().size() == 500);
-
-    } catch (Exception e) {
-      // ignore "set not found" errors when we already have found some
-      // stuff in the set, since this seems to happen when the end of the
-      // set is reached
-      if (e instanceof JinxException) {
-        if (((JinxException) e).getFlickrErrorCode() == 1) {
-          if (list.isEmpty()) {
-            throw e;
-          }
-        }
+    do {
+      int currentPage = page;
+      // no privacy filter, so photos of every privacy level are returned
+      PhotosetPhotos pp = RateLimiter.getInstance().call("flickr.photosets.getPhotos", () -> JinxFactory.getInstance().getPhotosetsApi().getPhotos(ssPhotoset.getPhotosetId(), null, null, 500, currentPage, JinxConstants.MediaType.all));
+      for (Photo p : pp.getPhotoList()) {
+        list.add(p.getPhotoId());
       }
-    }
+      logger.info("Found " + list.size() + " on " + page + " page(s)");
+      pages = pp.getPages() == null ? 1 : pp.getPages();
+      page++;
+    } while (page <= pages);
 
     return list;
   }
@@ -282,7 +349,8 @@ public class PhotosetHelper {
     if (photoId == null) {
       throw new Exception("removePhoto: PHOTO CANNOT BE NULL.");
     }
-    Response response = JinxFactory.getInstance().getPhotosetsApi().removePhoto(ssPhotoset.getPhotosetId(), photoId);
+    this.invalidatePhotosetList();
+    Response response = RateLimiter.getInstance().call("flickr.photosets.removePhoto", () -> JinxFactory.getInstance().getPhotosetsApi().removePhoto(ssPhotoset.getPhotosetId(), photoId));
     if (response.getCode() == 0) {
       logger.info("Photo " + photoId + " removed from set " + ssPhotoset.getPhotosetId());
     } else {
@@ -299,7 +367,8 @@ public class PhotosetHelper {
    */
   public void orderSets(List<String> photosetIdList) throws Exception {
     logger.info("Reordering photosets.");
-    Response response = JinxFactory.getInstance().getPhotosetsApi().orderSets(photosetIdList);
+    this.invalidatePhotosetList();
+    Response response = RateLimiter.getInstance().call("flickr.photosets.orderSets", () -> JinxFactory.getInstance().getPhotosetsApi().orderSets(photosetIdList));
     if (response.getCode() != 0) {
       throw new Exception("There was an error while ordering sets. Code " + response.getCode() + ":" + response.getMessage());
     }
@@ -313,8 +382,9 @@ public class PhotosetHelper {
    * @throws Exception if there are any errors
    */
   public void editMeta(SSPhotoset ssPhotoset) throws Exception {
-    Response response = JinxFactory.getInstance().getPhotosetsApi().editMeta(ssPhotoset.getPhotosetId(),
-        ssPhotoset.getTitle(), ssPhotoset.getDescription());
+    this.invalidatePhotosetList();
+    Response response = RateLimiter.getInstance().call("flickr.photosets.editMeta", () -> JinxFactory.getInstance().getPhotosetsApi().editMeta(ssPhotoset.getPhotosetId(),
+        ssPhotoset.getTitle(), ssPhotoset.getDescription()));
     if (response.getCode() != 0) {
       throw new Exception("There was an error while editing set. Code " + response.getCode() + ":" + response.getMessage());
     }
@@ -333,17 +403,87 @@ public class PhotosetHelper {
    * @throws Exception if there are any errors
    */
   public void editPhotos(String photosetId, String photoId, List<Photo> photoList) throws Exception {
-    logger.info("Executing editPhotos on photoset " + photosetId
-        + ", using primary photo " + photoId
-        + ", and " + photoList.size() + " photos.");
     List<String> idList = new ArrayList<>();
     for (Photo p : photoList) {
       idList.add(p.getPhotoId());
     }
+    this.replacePhotos(photosetId, photoId, idList);
+  }
+
 
-    Response response = JinxFactory.getInstance().getPhotosetsApi().editPhotos(photosetId, photoId, idList);
+  /**
+   * Replace the photos contained in the photoset.
+   *
+   * @param photosetId  the photoset to change.
+   * @param photoId     the ID of the primary photo.
+   * @param photoIdList ID's of the photos that the set should contain, in set order.
+   * @throws Exception if there are any errors
+   */
+  public void replacePhotos(String photosetId, String photoId, List<String> photoIdList) throws Exception {
+    logger.info("Executing editPhotos on photoset " + photosetId
+        + ", using primary photo " + photoId
+        + ", and " + photoIdList.size() + " photos.");
+    this.invalidatePhotosetList();
+    Response response = RateLimiter.getInstance().call("flickr.photosets.editPhotos", () -> JinxFactory.getInstance().getPhotosetsApi().editPhotos(photosetId, photoId, photoIdList));
     if (response.getCode() != 0) {
       throw new Exception("Error editing photos. Code " + response.getCode() + ":" + response.getMessage());
     }
   }
+
+
+  /**
+   * Update the photos contained in the photoset, using the cheapest method.
+   *
+   * <p>The photos last written to the set are compared with the new list of
+   * photos. If only a few photos have changed, and the order of the set will
+   * still be correct, the changes are applied by adding and removing
+   * individual photos. Otherwise, the contents of the set are replaced with
+   * {@link #replacePhotos(String, String, List)}. If the primary photo is
+   * changing, or the photos last written to the set are not known, the set
+   * is always replaced. Reading the contents of the set from Flickr would
+   * cost at least as many calls as replacing it.</p>
+   *
+   * @param ssPhotoset       the photoset to change.
+   * @param currentPrimaryId the ID of the current primary photo.
+   * @param currentIdList    ID's of the photos last written to the set, in set
+   *                         order, or null if they are not known.
+   * @param photoId          the ID of the primary photo.
+   * @param photoIdList      ID's of the photos that the set should contain, in set order.
+   * @throws Exception if there are any errors.
+   */
+  public void updatePhotos(SSPhotoset ssPhotoset, String currentPrimaryId, List<String> currentIdList,
+                           String photoId, List<String> photoIdList) throws Exception {
+    String photosetId = ssPhotoset.getPhotosetId();
+    if (currentPrimaryId == null || !currentPrimaryId.equals(photoId)) {
+      logger.info("Primary photo for photoset " + photosetId + " is changing.");
+      this.replacePhotos(photosetId, photoId, photoIdList);
+      return;
+    }
+    if (currentIdList == null) {
+      logger.info("Photos last written to photoset " + photosetId + " are not known.");
+      this.replacePhotos(photosetId, photoId, photoIdList);
+      return;
+    }
+
+    // sort order 6 is "No Particular Order"
+    PhotosetDelta delta = PhotosetDelta.compute(currentIdList, photoIdList, ssPhotoset.getSortOrder() != 6);
+    logger.info("Changes for photoset " + photosetId + ": " + delta);
+
+    if (delta.isReplace()) {
+      this.replacePhotos(photosetId, photoId, photoIdList);
+    } else if (!delta.isEmpty()) {
+      try {
+        for (String id : delta.getToRemove()) {
+          this.removePhoto(ssPhotoset, id);
+        }
+        for (String id : delta.getToAdd()) {
+          this.addPhoto(photosetId, id);
+        }
+      } catch (Exception e) {
+        // make sure the set ends up with the right contents
+        logger.warn("Error applying changes to photoset " + photosetId + ", replacing all photos.", e);
+        this.replacePhotos(photosetId, photoId, photoIdList);
+      }
+    }
+  }
 }
@@ -0,0 +1,303 @@
+/*
+ *  SuprSetr is Copyright 2010-2023 by Jeremy Brooks
+ *
+ *  This file is part of SuprSetr.
+ *
+ *   SuprSetr is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   SuprSetr is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with SuprSetr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.jeremybrooks.suprsetr.flickr;
+
+import net.jeremybrooks.jinx.JinxException;
+import net.jeremybrooks.suprsetr.SSConstants;
+import net.jeremybrooks.suprsetr.dao.LookupDAO;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.net.SocketTimeoutException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.function.LongSupplier;
+import java.util.regex.Pattern;
+
+
+/**
+ * Limits the rate and concurrency of calls to the Flickr API.
+ *
+ * <p>Flickr allows a fixed number of calls per hour for each API key. The
+ * hourly budget is tracked with a token bucket: each call takes a token, and
+ * tokens are added back at a steady rate, up to the size of the budget. When
+ * the bucket is empty, calls wait for the next token.</p>
+ *
+ * <p>The number of calls in flight at the same time is adjusted as calls
+ * finish. While calls are fast, the limit grows by about one for each round
+ * of calls. If a call is much slower than usual for its API method, or
+ * Flickr reports that calls are being rate limited, the limit is cut in
+ * half. Each API method has its own usual latency, because a search for
+ * 500 photos normally takes much longer than adding a photo to a set.
+ * After a rate limit error, no new calls are started for a short time.</p>
+ *
+ * <p>Every call to Flickr should go through {@link #call(String, Callable)}.</p>
+ *
+ * <p>This class is implemented as a Singleton. Calling {@code RateLimiter.getInstance()}
+ * will return a reference to the instance of this class.</p>
+ *
+ * @author Jeremy Brooks
+ */
+public class RateLimiter {
+
+  /**
+   * Logging.
+   */
+  private static final Logger logger = LogManager.getLogger(RateLimiter.class);
+
+  /**
+   * Reference to the only instance of this class.
+   */
+  private static RateLimiter instance = null;
+
+  private static final long HOUR = 60L * 60 * 1000;
+
+  /**
+   * Matches an HTTP 429 status in an exception message.
+   */
+  private static final Pattern HTTP_429 = Pattern.compile(
+      "\\b(HTTP|status)\\b[a-z ]*:?\\s*429\\b", Pattern.CASE_INSENSITIVE);
+
+  /**
+   * A call this many times slower than the baseline latency for its method
+   * reduces the limit.
+   */
+  static final double LATENCY_TOLERANCE = 2.0;
+
+  /**
+   * Calls faster than this never reduce the limit.
+   */
+  static final long MIN_SLOW_LATENCY = 1000;
+
+  /**
+   * How long to stop starting calls after a rate limit error.
+   */
+  static final long BACKOFF = 10L * 1000;
+
+  private final int hourlyBudget;
+  private final int maxConcurrency;
+  private final LongSupplier clock;
+
+  private double tokens;
+  private long lastRefill;
+  private double limit;
+  private int inFlight = 0;
+  private final Map<String, Double> baselineLatency = new HashMap<>();
+  private long lastDecrease = 0;
+  private long holdUntil = 0;
+
+
+  RateLimiter(int hourlyBudget, int maxConcurrency, LongSupplier clock) {
+    this.hourlyBudget = Math.max(1, hourlyBudget);
+    this.maxConcurrency = Math.max(1, maxConcurrency);
+    this.clock = clock;
+    this.tokens = this.hourlyBudget;
+    this.lastRefill = clock.getAsLong();
+    this.limit = Math.max(1, (this.maxConcurrency + 1) / 2);
+  }
+
+
+  /**
+   * Gets a reference to the only instance of this class.
+   *
+   * <p>The hourly budget is read from the database when the instance is
+   * created. The most calls allowed in flight is the number of sets that
+   * can be refreshed at once, times the number of search pages that can be
+   * requested at once.</p>
+   *
+   * @return reference to the only instance of RateLimiter.
+   */
+  public static synchronized RateLimiter getInstance() {
+    if (RateLimiter.instance == null) {
+      int budget = LookupDAO.getIntValueForKey(SSConstants.LOOKUP_KEY_API_CALLS_PER_HOUR,
+          Integer.parseInt(SSConstants.DEFAULT_API_CALLS_PER_HOUR));
+      int refreshThreads = LookupDAO.getIntValueForKey(SSConstants.LOOKUP_KEY_REFRESH_THREADS,
+          Integer.parseInt(SSConstants.DEFAULT_REFRESH_THREADS));
+      int pageThreads = LookupDAO.getIntValueForKey(SSConstants.LOOKUP_KEY_SEARCH_PAGE_THREADS,
+          Integer.parseInt(SSConstants.DEFAULT_SEARCH_PAGE_THREADS));
+      RateLimiter.instance = new RateLimiter(budget, Math.max(1, refreshThreads) * Math.max(1, pageThreads),
+          System::currentTimeMillis);
+      logger.info("Flickr calls limited to {} per hour, {} at a time.", budget,
+          RateLimiter.instance.maxConcurrency);
+    }
+    return RateLimiter.instance;
+  }
+
+
+  /**
+   * Make a call to Flickr, waiting until the budget and the concurrency
+   * limit allow it.
+   *
+   * @param method the Flickr API method, such as "flickr.photos.search". The
+   *               latency of the call is compared to other calls to the
+   *               same method.
+   * @param call   the call to make.
+   * @param <T>    type returned by the call.
+   * @return the value returned by the call.
+   * @throws Exception if the call throws an exception, or if the thread is
+   *                   interrupted while waiting.
+   */
+  public <T> T call(String method, Callable<T> call) throws Exception {
+    this.acquire();
+    long start = this.clock.getAsLong();
+    boolean rateLimited = false;
+    try {
+      return call.call();
+    } catch (Exception e) {
+      rateLimited = isRateLimited(e);
+      throw e;
+    } finally {
+      this.release(method, this.clock.getAsLong() - start, rateLimited);
+    }
+  }
+
+
+  /**
+   * Get the number of calls that can be made right now without waiting for
+   * the budget.
+   *
+   * <p>Long jobs can use this to pace themselves.</p>
+   *
+   * @return remaining calls in the hourly budget.
+   */
+  public synchronized int getRemainingBudget() {
+    this.refill(this.clock.getAsLong());
+    return (int) this.tokens;
+  }
+
+
+  /**
+   * Get the number of calls allowed per hour.
+   *
+   * @return hourly budget.
+   */
+  public int getHourlyBudget() {
+    return this.hourlyBudget;
+  }
+
+
+  /**
+   * Get the number of calls currently allowed in flight at the same time.
+   *
+   * @return concurrency limit.
+   */
+  public synchronized int getConcurrencyLimit() {
+    return (int) this.limit;
+  }
+
+
+  synchronized void acquire() throws InterruptedException {
+    while (true) {
+      long now = this.clock.getAsLong();
+      this.refill(now);
+      long wait;
+      if (now < this.holdUntil) {
+        wait = this.holdUntil - now;
+      } else if (this.inFlight >= (int) this.limit) {
+        // woken when a call finishes
+        wait = 0;
+      } else if (this.tokens < 1) {
+        wait = (long) Math.ceil((1 - this.tokens) * HOUR / this.hourlyBudget);
+        logger.debug("Hourly budget used up, waiting {}ms.", wait);
+      } else {
+        this.tokens--;
+        this.inFlight++;
+        return;
+      }
+      this.wait(wait);
+    }
+  }
+
+
+  synchronized void release(String method, long latency, boolean rateLimited) {
+    boolean saturated = this.inFlight >= (int) this.limit;
+    this.inFlight--;
+    long now = this.clock.getAsLong();
+
+    if (rateLimited) {
+      this.decrease(now, latency, "rate limit error");
+      this.holdUntil = now + BACKOFF;
+    } else {
+      // the first call to a method sets its baseline, which then follows a moving average
+      Double baseline = this.baselineLatency.get(method);
+      this.baselineLatency.put(method, baseline == null ? latency : baseline * 0.9 + latency * 0.1);
+      if (baseline != null && latency > Math.max(MIN_SLOW_LATENCY, baseline * LATENCY_TOLERANCE)) {
+        this.decrease(now, latency, "slow call to " + method + " (" + latency + "ms)");
+      } else if (saturated) {
+        this.limit = Math.min(this.maxConcurrency, this.limit + 1 / this.limit);
+      }
+    }
+    this.notifyAll();
+  }
+
+
+  /*
+   * Calls that were already in flight will report the same problem, so only
+   * cut the limit once for each round of calls. A round lasts about as long
+   * as the call that caused the cut.
+   */
+  private void decrease(long now, long latency, String reason) {
+    if (now - this.lastDecrease < Math.max(MIN_SLOW_LATENCY, latency)) {
+      return;
+    }
+    this.lastDecrease = now;
+    this.limit = Math.max(1, this.limit / 2);
+    logger.info("Flickr calls reduced to {} at a time after {}.", (int) this.limit, reason);
+  }
+
+
+  private void refill(long now) {
+    if (now > this.lastRefill) {
+      this.tokens = Math.min(this.hourlyBudget,
+          this.tokens + (double) (now - this.lastRefill) * this.hourlyBudget / HOUR);
+      this.lastRefill = now;
+    }
+  }
+
+
+  /**
+   * Check if an exception means Flickr is limiting the rate of calls.
+   *
+   * <p>Flickr answers with HTTP status 429 when the rate is exceeded, and
+   * sometimes with error 105, service currently unavailable. A call that
+   * times out is treated the same way. The status is
+   * only recognized after "HTTP" or "status", as in "Server returned HTTP
+   * response code: 429", so an ID containing those digits is not mistaken
+   * for it.</p>
+   *
+   * @param e the exception to check.
+   * @return true if the exception is a rate limit error.
+   */
+  static boolean isRateLimited(Throwable e) {
+    for (Throwable t = e; t != null; t = t.getCause()) {
+      if (t instanceof JinxException je && je.getFlickrErrorCode() == 105) {
+        return true;
+      }
+      if (t instanceof SocketTimeoutException) {
+        return true;
+      }
+      String message = t.getMessage();
+      if (message != null && (HTTP_429.matcher(message).find() || message.contains("Too Many Requests"))) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,45 @@
+/*
+ *  SuprSetr is Copyright 2010-2023 by Jeremy Brooks
+ *
+ *  This file is part of SuprSetr.
+ *
+ *   SuprSetr is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   SuprSetr is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with SuprSetr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.jeremybrooks.suprsetr.flickr;
+
+import net.jeremybrooks.jinx.response.photos.SearchParameters;
+
+/**
+ * Creates search parameters.
+ *
+ * <p>Search parameters are mutable, and the page number is one of the
+ * parameters, so each page of a search that is requested concurrently needs
+ * its own instance. {@link PhotoHelper} calls the factory once for each page
+ * it requests.</p>
+ *
+ * @author Jeremy Brooks
+ */
+@FunctionalInterface
+public interface SearchParametersFactory {
+
+  /**
+   * Create a new instance of the search parameters.
+   *
+   * <p>Every call must return a new instance with the same search.</p>
+   *
+   * @return new search parameters.
+   * @throws Exception if there are any errors.
+   */
+  SearchParameters create() throws Exception;
+}
@@ -0,0 +1,467 @@
+/*
+ *  SuprSetr is Copyright 2010-2023 by Jeremy Brooks
+ *
+ *  This file is part of SuprSetr.
+ *
+ *   SuprSetr is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   SuprSetr is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with SuprSetr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.jeremybrooks.suprsetr.refresh;
+
+import net.jeremybrooks.jinx.response.photos.Photo;
+import net.jeremybrooks.suprsetr.SSConstants;
+import net.jeremybrooks.suprsetr.SSPhotoset;
+import net.jeremybrooks.suprsetr.dao.LookupDAO;
+import net.jeremybrooks.suprsetr.dao.PhotosetDAO;
+import net.jeremybrooks.suprsetr.dao.PhotosetIconDAO;
+import net.jeremybrooks.suprsetr.dao.PhotosetPhotosDAO;
+import net.jeremybrooks.suprsetr.flickr.LibraryHelper;
+import net.jeremybrooks.suprsetr.flickr.PhotoHelper;
+import net.jeremybrooks.suprsetr.flickr.PhotosetHelper;
+import net.jeremybrooks.suprsetr.flickr.RateLimiter;
+import net.jeremybrooks.suprsetr.flickr.SearchHelper;
+import net.jeremybrooks.suprsetr.flickr.SearchParametersFactory;
+import net.jeremybrooks.suprsetr.twitter.TwitterHelper;
+import net.jeremybrooks.suprsetr.utils.LocalSearchEngine;
+import net.jeremybrooks.suprsetr.utils.LocalSearchResult;
+import net.jeremybrooks.suprsetr.utils.SSUtils;
+import net.jeremybrooks.suprsetr.utils.ThumbnailCache;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.ResourceBundle;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Refreshes managed photosets on Flickr.
+ *
+ * <p>This class does the work of a refresh, without any user interface.
+ * Progress is reported to a {@link RefreshListener}, so the same code can
+ * be used by the main window and by the command line.</p>
+ *
+ * @author Jeremy Brooks
+ */
+public class RefreshEngine {
+
+  private static final Logger logger = LogManager.getLogger(RefreshEngine.class);
+  private final ResourceBundle resourceBundle = ResourceBundle.getBundle("net.jeremybrooks.suprsetr.workers");
+  private final RefreshListener listener;
+  private final AtomicInteger completed = new AtomicInteger(0);
+  private final AtomicInteger skipped = new AtomicInteger(0);
+
+  /**
+   * Evaluates set rules against the local library, or null if the local
+   * library is not in use.
+   */
+  private LocalSearchEngine localSearchEngine = null;
+
+
+  /**
+   * Create a refresh engine.
+   *
+   * @param listener receives progress messages and results.
+   */
+  public RefreshEngine(RefreshListener listener) {
+    this.listener = listener;
+  }
+
+
+  /**
+   * Refresh the photosets.
+   *
+   * <p>Photosets are refreshed on a fixed size thread pool, so several sets
+   * can be refreshed at the same time. The number of threads is controlled
+   * by the {@link SSConstants#LOOKUP_KEY_REFRESH_THREADS} setting. Each set
+   * is saved to the database as soon as its refresh finishes.</p>
+   *
+   * <p>Sets whose photos have not changed since the last refresh are not
+   * updated on Flickr, and only the refresh date is saved. The number of
+   * sets skipped this way is written to the log.</p>
+   *
+   * <p>If the local library is enabled, it is synced first, and each set is
+   * evaluated against it. Sets with rules that cannot be answered locally
+   * are searched on Flickr.</p>
+   *
+   * @param photosetList the photosets to refresh.
+   * @return the result for each photoset, in the same order as the list.
+   */
+  public List<RefreshResult> refresh(List<SSPhotoset> photosetList) {
+    List<RefreshResult> results = new ArrayList<>();
+    if (photosetList == null || photosetList.isEmpty()) {
+      return results;
+    }
+    int total = photosetList.size();
+    int threads = LookupDAO.getIntValueForKey(SSConstants.LOOKUP_KEY_REFRESH_THREADS,
+        Integer.parseInt(SSConstants.DEFAULT_REFRESH_THREADS));
+    threads = Math.max(1, Math.min(threads, total));
+    logger.info("Refreshing {} sets using {} thread(s).", total, threads);
+
+    if (LibraryHelper.getInstance().isEnabled()) {
+      listener.message(resourceBundle.getString("RefreshPhotosetWorker.blocker.library"));
+      try {
+        LibraryHelper.getInstance().sync();
+        this.localSearchEngine = LibraryHelper.getInstance().getSearchEngine();
+        logger.info("Local library contains {} photos.", this.localSearchEngine.size());
+      } catch (Exception e) {
+        logger.warn("Error syncing local library, searching Flickr instead.", e);
+      }
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<RefreshResult>> futures = new ArrayList<>();
+      for (SSPhotoset set : photosetList) {
+        futures.add(executor.submit(() -> {
+          listener.setStarted(set);
+          RefreshResult result = this.refreshPhotoset(set);
+          listener.setFinished(result, this.completed.incrementAndGet(), total);
+          return result;
+        }));
+      }
+      for (Future<RefreshResult> future : futures) {
+        try {
+          results.add(future.get());
+        } catch (ExecutionException e) {
+          // errors are logged in the refreshPhotoset method
+          // continue with the next set
+          logger.warn("Unexpected error during refresh.", e.getCause());
+        }
+      }
+    } catch (InterruptedException ie) {
+      logger.warn("Interrupted while waiting for refresh to finish.");
+      Thread.currentThread().interrupt();
+    } finally {
+      executor.shutdownNow();
+    }
+
+    String summary = resourceBundle.getString("RefreshPhotosetWorker.log.summary1") + " " + total + " "
+        + resourceBundle.getString("RefreshPhotosetWorker.log.summary2") + " " + this.skipped.get() + " "
+        + resourceBundle.getString("RefreshPhotosetWorker.log.summary3");
+    logger.info(summary);
+    listener.log(summary);
+    logger.info("{} Flickr calls left in the hourly budget.", RateLimiter.getInstance().getRemainingBudget());
+    logger.info(ThumbnailCache.getInstance().toString());
+
+    return results;
+  }
+
+
+  /**
+   * Refresh the specified photoset, and save it to the database.
+   *
+   * @param ssPhotoset the photoset to refresh.
+   * @return the outcome of the refresh.
+   */
+  RefreshResult refreshPhotoset(SSPhotoset ssPhotoset) {
+    RefreshResult.Status status = RefreshResult.Status.UNMANAGED;
+    boolean local = false;
+    int oldCount = ssPhotoset.getPhotos() + ssPhotoset.getVideos();
+    String oldPrimaryId = ssPhotoset.getPrimary();
+    int matches;
+    List<String> idList = null;
+    Photo firstResult = null;
+    String newPrimaryPhotoId = null;
+    String currentPrimaryId;
+    int photoCount = 0;
+    int videoCount = 0;
+    String fingerprint = null;
+    boolean unchanged = false;
+
+    long started = System.currentTimeMillis();
+    long time = started;
+
+    // assume things will be OK
+    ssPhotoset.setErrorFlag(false);
+
+    if (ssPhotoset.isManaged()) {
+      listener.setMessage(ssPhotoset, resourceBundle.getString("RefreshPhotosetWorker.blocker.searching"));
+      try {
+        // get the search results
+        logger.info(ssPhotoset.toString());
+
+        LocalSearchResult localResult = null;
+        if (this.localSearchEngine != null) {
+          localResult = this.localSearchEngine.search(ssPhotoset);
+          if (!localResult.isSupported()) {
+            logger.info("Searching Flickr for set " + ssPhotoset.getTitle()
+                + ", rules not supported locally: " + localResult.getUnsupportedRules());
+          }
+        }
+
+        if (localResult != null && localResult.isSupported()) {
+          idList = new ArrayList<>(localResult.getPhotoIds());
+          local = true;
+          photoCount = localResult.getPhotoCount();
+          videoCount = localResult.getVideoCount();
+        } else {
+          List<Photo> searchResults;
+          if (ssPhotoset.isOnThisDay()) {
+            listener.setMessage(ssPhotoset, resourceBundle.getString("RefreshPhotosetWorker.blocker.searchingon") + " "
+                + ssPhotoset.getOnThisDayMonth() + "/"
+                + ssPhotoset.getOnThisDayDay() + "....");
+            searchResults = PhotoHelper.getInstance().getPhotosForOnThisDay(ssPhotoset);
+          } else {
+            SearchParametersFactory params = () -> SearchHelper.getInstance().getSearchParameters(ssPhotoset);
+            if (ssPhotoset.isLimitSize() && ssPhotoset.getSortOrder() != 9) {
+              // handle limited size sets that are not sorted by random order
+              // limited size sets sorted by random order are sized AFTER randomizing
+              searchResults = PhotoHelper.getInstance().getPhotos(params, ssPhotoset.getSizeLimit());
+            } else {
+              searchResults = PhotoHelper.getInstance().getPhotos(params);
+            }
+          }
+          if (searchResults != null) {
+            SSUtils.sortPhotoList(searchResults, ssPhotoset.getSortOrder());
+
+            // if random sort AND limit size, do the sizing here
+            if (ssPhotoset.isLimitSize() && ssPhotoset.getSortOrder() == 9) {
+              while (searchResults.size() > ssPhotoset.getSizeLimit()) {
+                searchResults.remove(searchResults.size() - 1);
+              }
+            }
+
+            // count photos and videos
+            // counting media type avoids a call to get photoset info
+            idList = new ArrayList<>();
+            if (!searchResults.isEmpty()) {
+              // search results include what is needed to build the thumbnail URL
+              firstResult = searchResults.get(0);
+            }
+            for (Photo p : searchResults) {
+              idList.add(p.getPhotoId());
+              if (p.getMedia().equalsIgnoreCase("video")) {
+                videoCount++;
+              } else {
+                photoCount++;
+              }
+            }
+          }
+        }
+
+        matches = idList == null ? 0 : idList.size();
+
+        logger.info("Got " + matches + " search results.");
+
+        if (matches > 0) {
+          // determine which photo should be the primary photo
+          if (ssPhotoset.isLockPrimaryPhoto()) {
+            currentPrimaryId = ssPhotoset.getPrimary();
+
+            // if the current primary photo is in the search results,
+            // use it
+            if (idList.contains(currentPrimaryId)) {
+              newPrimaryPhotoId = currentPrimaryId;
+              logger.info("Search results contain the current primary photo, so not changing it.");
+            }
+          }
+
+          // if the newPrimaryPhotoId is still null, use the first
+          // photo in the search results, and set the data structure
+          // to reflect the change
+          if (newPrimaryPhotoId == null) {
+            newPrimaryPhotoId = idList.get(0);
+            logger.info("Using photo " + newPrimaryPhotoId + " as new primary photo.");
+            ssPhotoset.setPrimary(newPrimaryPhotoId);
+            if (ssPhotoset.getPrimaryPhotoIcon() == null) {
+              // the set list does not load icons, so check the database before downloading
+              ssPhotoset.setPrimaryPhotoIcon(PhotosetIconDAO.getIcon(ssPhotoset.getPhotosetId()));
+            }
+            if (!newPrimaryPhotoId.equals(oldPrimaryId) || ssPhotoset.getPrimaryPhotoIcon() == null) {
+              if (firstResult != null) {
+                // the set secret and server are those of the primary photo
+                ssPhotoset.setSecret(firstResult.getSecret());
+                ssPhotoset.setServer(firstResult.getServer());
+                ssPhotoset.setPrimaryPhotoIcon(PhotoHelper.getInstance().getIconForPhoto(firstResult));
+              } else {
+                ssPhotoset.setPrimaryPhotoIcon(PhotoHelper.getInstance().getIconForPhoto(newPrimaryPhotoId));
+              }
+            }
+          }
+
+          // if the set will have the same photos in the same order as the
+          // last time it was refreshed, there is nothing to do
+          fingerprint = SSUtils.fingerprint(newPrimaryPhotoId, idList);
+          unchanged = fingerprint.equals(ssPhotoset.getPhotoFingerprint()) && oldCount == idList.size();
+
+          if (unchanged) {
+            logger.info("Photos in set " + ssPhotoset.getTitle() + " have not changed, skipping update.");
+            this.skipped.incrementAndGet();
+            status = RefreshResult.Status.UNCHANGED;
+          } else {
+            listener.setMessage(ssPhotoset, resourceBundle.getString("RefreshPhotosetWorker.blocker.applying"));
+            // ADD PHOTOS TO THE SET
+            List<String> appliedIds = null;
+            try {
+              appliedIds = checkAppliedPhotoIds(PhotosetPhotosDAO.getPhotoIds(ssPhotoset.getPhotosetId()),
+                  oldPrimaryId, ssPhotoset.getPhotoFingerprint(), oldCount);
+            } catch (Exception e) {
+              logger.warn("Could not read the photos last written to set " + ssPhotoset.getPhotosetId(), e);
+            }
+            PhotosetHelper.getInstance().updatePhotos(ssPhotoset, oldPrimaryId, appliedIds, newPrimaryPhotoId, idList);
+            status = RefreshResult.Status.UPDATED;
+            try {
+              PhotosetPhotosDAO.savePhotoIds(ssPhotoset.getPhotosetId(), idList);
+            } catch (Exception e) {
+              // the saved list will not match the fingerprint, so it will not be used
+              logger.warn("Could not save the photos written to set " + ssPhotoset.getPhotosetId(), e);
+            }
+          }
+
+          time = System.currentTimeMillis() - time;
+
+          StringBuilder sb = new StringBuilder(resourceBundle.getString(
+              unchanged ? "RefreshPhotosetWorker.log.unchanged" : "RefreshPhotosetWorker.log.refresh1"));
+          sb.append(" '").append(ssPhotoset.getTitle());
+          sb.append("'. ").append(resourceBundle.getString("RefreshPhotosetWorker.log.refresh2")).append(" ").append(oldCount);
+          sb.append(" ").append(resourceBundle.getString("RefreshPhotosetWorker.log.refresh3")).append(" ").append(idList.size());
+          sb.append(" ").append(resourceBundle.getString("RefreshPhotosetWorker.log.refresh4")).append(" ");
+          sb.append(time).append("ms");
+
+          logger.info(sb.toString());
+          listener.log(sb.toString());
+        } else {
+          logger.warn("No results found for set " + ssPhotoset.getTitle() + ". This is probably temporary.");
+
+          listener.log(" " + resourceBundle.getString("RefreshPhotosetWorker.log.noresults") +
+              " '" + ssPhotoset.getTitle() + "'");
+          ssPhotoset.setErrorFlag(true);
+          status = RefreshResult.Status.NO_RESULTS;
+        }
+
+      } catch (Exception e) {
+        logger.error("ERROR REFRESHING SET " + ssPhotoset, e);
+
+        listener.log(resourceBundle.getString("RefreshPhotosetWorker.log.error1") +
+            " '" + ssPhotoset.getTitle() + "', " +
+            resourceBundle.getString("RefreshPhotosetWorker.log.error2") +
+            " '" + e.getMessage() + "'. " +
+            resourceBundle.getString("RefreshPhotosetWorker.log.error3") +
+            ".");
+        ssPhotoset.setErrorFlag(true);
+        status = RefreshResult.Status.FAILED;
+      }
+    }
+
+    try {
+      if (ssPhotoset.isManaged()) {
+        listener.setMessage(ssPhotoset, resourceBundle.getString("RefreshPhotosetWorker.blocker.saving"));
+        applyRefresh(ssPhotoset, status, photoCount, videoCount, fingerprint, System.currentTimeMillis());
+      }
+
+      if (status == RefreshResult.Status.UNCHANGED) {
+        PhotosetDAO.updateRefreshDateForPhotoset(ssPhotoset);
+      } else {
+        PhotosetDAO.updatePhotoset(ssPhotoset);
+      }
+
+      // Send tweet if user has requested it AND there are new photos in the set
+      if (status == RefreshResult.Status.UPDATED && ssPhotoset.isSendTweet()
+          && (oldCount != (ssPhotoset.getPhotos() + ssPhotoset.getVideos()))) {
+        try {
+          String tweet = TwitterHelper.buildTweet(
+              ssPhotoset.getTweetTemplate(),
+              ssPhotoset.getTitle(),
+              ssPhotoset.getUrl(),
+              Math.abs(oldCount - ssPhotoset.getPhotos()),
+              ssPhotoset.getPhotos());
+
+          logger.info("Sending tweet (" + tweet.length() + " chars): '"
+              + tweet + "'");
+
+          TwitterHelper.updateStatus(tweet);
+        } catch (Exception e) {
+          logger.warn("ERROR SENDING TWEET - IGNORING.", e);
+        }
+      }
+    } catch (Exception e) {
+      logger.error("ERROR SAVING SET TO DATABASE.", e);
+      listener.log(" WARN: Error saving set info to database.");
+      ssPhotoset.setErrorFlag(true);
+      status = RefreshResult.Status.FAILED;
+    }
+
+    long elapsed = System.currentTimeMillis() - started;
+    if (ssPhotoset.isManaged()) {
+      // the refresh scheduler uses this to spread out the next refresh
+      try {
+        PhotosetDAO.updateRefreshCost(ssPhotoset.getPhotosetId(), elapsed);
+      } catch (Exception e) {
+        logger.warn("Could not save the refresh cost for set " + ssPhotoset.getPhotosetId(), e);
+      }
+    }
+
+    return new RefreshResult(ssPhotoset, status, oldCount, ssPhotoset.getPhotos() + ssPhotoset.getVideos(),
+        elapsed, local);
+  }
+
+
+  /**
+   * Check that the photo ID's last written to a set are still what is in
+   * the set on Flickr.
+   *
+   * <p>The list is only used if it matches the fingerprint saved by the last
+   * successful refresh, and has as many photos as Flickr reported for the set
+   * at the last sync. A failed refresh clears the fingerprint, and a set
+   * changed on Flickr usually has a different count.</p>
+   *
+   * @param appliedIds  the photo ID's last written to the set, or null.
+   * @param primaryId   the current primary photo ID.
+   * @param fingerprint the fingerprint saved by the last refresh, or null.
+   * @param count       number of photos and videos in the set.
+   * @return the photo ID's, or null if they cannot be trusted.
+   */
+  static List<String> checkAppliedPhotoIds(List<String> appliedIds, String primaryId, String fingerprint, int count) {
+    if (appliedIds == null || fingerprint == null || appliedIds.size() != count
+        || !fingerprint.equals(SSUtils.fingerprint(primaryId, appliedIds))) {
+      return null;
+    }
+    return appliedIds;
+  }
+
+
+  /**
+   * Update the photoset to reflect the outcome of a refresh, before it is
+   * saved to the database.
+   *
+   * <p>The counts, refresh date, and fingerprint are only changed if the set
+   * on Flickr has the right photos. If the refresh failed, the fingerprint
+   * is cleared, so the next refresh writes the set to Flickr again instead
+   * of treating it as unchanged.</p>
+   *
+   * @param ssPhotoset  the photoset.
+   * @param status      the outcome of the refresh.
+   * @param photoCount  number of photos in the set.
+   * @param videoCount  number of videos in the set.
+   * @param fingerprint fingerprint of the photos in the set.
+   * @param now         the current time.
+   */
+  static void applyRefresh(SSPhotoset ssPhotoset, RefreshResult.Status status, int photoCount, int videoCount,
+                           String fingerprint, long now) {
+    if (status == RefreshResult.Status.UPDATED || status == RefreshResult.Status.UNCHANGED) {
+      ssPhotoset.setLastRefreshDate(new Date(now));
+      ssPhotoset.setPhotos(photoCount);
+      ssPhotoset.setVideos(videoCount);
+      ssPhotoset.setSyncTimestamp(now);
+      ssPhotoset.setPhotoFingerprint(fingerprint);
+    } else if (status == RefreshResult.Status.FAILED) {
+      ssPhotoset.setPhotoFingerprint(null);
+    }
+  }
+}
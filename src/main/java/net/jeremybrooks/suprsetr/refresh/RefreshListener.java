@@ -0,0 +1,76 @@
+/*
+ *  SuprSetr is Copyright 2010-2023 by Jeremy Brooks
+ *
+ *  This file is part of SuprSetr.
+ *
+ *   SuprSetr is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   SuprSetr is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with SuprSetr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.jeremybrooks.suprsetr.refresh;
+
+import net.jeremybrooks.suprsetr.SSPhotoset;
+
+/**
+ * Receives progress from a {@link RefreshEngine}.
+ *
+ * <p>Several sets are refreshed at once, so these methods are called from
+ * the refresh threads, and may be called at the same time. Implementations
+ * that update a user interface must move the work to the right thread.</p>
+ *
+ * @author Jeremy Brooks
+ */
+public interface RefreshListener {
+
+  /**
+   * A status message that does not apply to a single set.
+   *
+   * @param message the message.
+   */
+  default void message(String message) {
+  }
+
+  /**
+   * A set is about to be refreshed.
+   *
+   * @param ssPhotoset the set.
+   */
+  default void setStarted(SSPhotoset ssPhotoset) {
+  }
+
+  /**
+   * A status message for a set that is being refreshed.
+   *
+   * @param ssPhotoset the set.
+   * @param message    the message.
+   */
+  default void setMessage(SSPhotoset ssPhotoset, String message) {
+  }
+
+  /**
+   * A set has been refreshed and saved to the database.
+   *
+   * @param result    the outcome of the refresh.
+   * @param completed number of sets that have finished.
+   * @param total     number of sets being refreshed.
+   */
+  default void setFinished(RefreshResult result, int completed, int total) {
+  }
+
+  /**
+   * A message that should be shown to the user in the activity log.
+   *
+   * @param message the message.
+   */
+  default void log(String message) {
+  }
+}
@@ -0,0 +1,114 @@
+/*
+ *  SuprSetr is Copyright 2010-2023 by Jeremy Brooks
+ *
+ *  This file is part of SuprSetr.
+ *
+ *   SuprSetr is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   SuprSetr is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with SuprSetr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.jeremybrooks.suprsetr.refresh;
+
+import net.jeremybrooks.suprsetr.SSPhotoset;
+
+/**
+ * The outcome of refreshing a single photoset.
+ *
+ * @author Jeremy Brooks
+ */
+public class RefreshResult {
+
+  /**
+   * What happened to the photoset.
+   */
+  public enum Status {
+    /** The photos in the set were changed on Flickr. */
+    UPDATED,
+    /** The set already contained the right photos, so Flickr was not changed. */
+    UNCHANGED,
+    /** The search did not find any photos, so the set was not changed. */
+    NO_RESULTS,
+    /** There was an error while refreshing the set. */
+    FAILED,
+    /** The set is not managed by SuprSetr, so only the database was updated. */
+    UNMANAGED
+  }
+
+  private final SSPhotoset photoset;
+  private final Status status;
+  private final int oldCount;
+  private final int newCount;
+  private final long elapsed;
+  private final boolean local;
+
+
+  RefreshResult(SSPhotoset photoset, Status status, int oldCount, int newCount, long elapsed, boolean local) {
+    this.photoset = photoset;
+    this.status = status;
+    this.oldCount = oldCount;
+    this.newCount = newCount;
+    this.elapsed = elapsed;
+    this.local = local;
+  }
+
+  public SSPhotoset getPhotoset() {
+    return photoset;
+  }
+
+  public Status getStatus() {
+    return status;
+  }
+
+  /**
+   * Check if the refresh failed.
+   *
+   * @return true if the set could not be refreshed.
+   */
+  public boolean isError() {
+    return status == Status.FAILED || status == Status.NO_RESULTS;
+  }
+
+  /**
+   * @return number of photos and videos in the set before the refresh.
+   */
+  public int getOldCount() {
+    return oldCount;
+  }
+
+  /**
+   * @return number of photos and videos in the set after the refresh.
+   */
+  public int getNewCount() {
+    return newCount;
+  }
+
+  /**
+   * @return time taken to refresh the set, in milliseconds.
+   */
+  public long getElapsed() {
+    return elapsed;
+  }
+
+  /**
+   * @return true if the photos were found in the local library, rather than
+   * by searching Flickr.
+   */
+  public boolean isLocal() {
+    return local;
+  }
+
+  @Override
+  public String toString() {
+    return "RefreshResult{" + photoset.getPhotosetId() + ", " + status + ", " + oldCount + " -> " + newCount
+        + ", " + elapsed + "ms" + (local ? ", local" : "") + "}";
+  }
+}
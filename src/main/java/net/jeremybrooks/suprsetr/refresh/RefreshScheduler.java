@@ -0,0 +1,350 @@
+/*
+ *  SuprSetr is Copyright 2010-2023 by Jeremy Brooks
+ *
+ *  This file is part of SuprSetr.
+ *
+ *   SuprSetr is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   SuprSetr is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with SuprSetr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.jeremybrooks.suprsetr.refresh;
+
+import net.jeremybrooks.suprsetr.SSPhotoset;
+import net.jeremybrooks.suprsetr.dao.PhotosetDAO;
+import net.jeremybrooks.suprsetr.flickr.RateLimiter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Schedules the daily automatic refresh of managed sets.
+ *
+ * <p>Once a day, at the configured time, every managed set is given a due
+ * time within the refresh window. Sets that have gone the longest without a
+ * refresh are due first. The due times are spread over the window in
+ * proportion to how long each set took to refresh recently, so the calls
+ * to Flickr are spread out instead of arriving in one burst. The refresh
+ * time is saved with each set, so it is known after a restart.</p>
+ *
+ * <p>Sets are kept in a priority queue ordered by due time, then by how
+ * stale they are, then by cost. When sets come due, they are handed to the
+ * {@link Client} in small batches. If the client is busy, the batch is tried
+ * again a little later.</p>
+ *
+ * @author Jeremy Brooks
+ */
+public class RefreshScheduler {
+
+  private static final Logger logger = LogManager.getLogger(RefreshScheduler.class);
+
+  /**
+   * Estimated cost of a set that has not been refreshed yet.
+   */
+  static final long DEFAULT_COST = 5000;
+
+  /**
+   * Sets due within this long of each other are dispatched together.
+   */
+  static final long BATCH_WINDOW = 60L * 1000;
+
+  /**
+   * The most sets that will be dispatched together.
+   */
+  static final int MAX_BATCH_SIZE = 50;
+
+  /**
+   * How long to wait before trying again when the client is busy.
+   */
+  private static final long BUSY_RETRY = 60L * 1000;
+
+  /**
+   * Batches are held back while less than this share of the hourly Flickr
+   * budget is left, so a scheduled refresh does not use up the budget.
+   */
+  private static final int LOW_BUDGET_PERCENT = 10;
+
+  /**
+   * Does the actual work for the scheduler.
+   */
+  public interface Client {
+
+    /**
+     * Get the sets that should be refreshed.
+     *
+     * @return managed sets.
+     */
+    List<SSPhotoset> getPhotosets();
+
+    /**
+     * Refresh a batch of sets, and wait for the refresh to finish.
+     *
+     * @param batch the sets to refresh.
+     * @return the results, or null if the client is busy and the batch
+     * should be tried again later.
+     * @throws Exception if there are any errors.
+     */
+    List<RefreshResult> dispatch(List<SSPhotoset> batch) throws Exception;
+
+    /**
+     * A scheduled refresh has started.
+     *
+     * @param count number of sets that will be refreshed.
+     */
+    default void runStarted(int count) {
+    }
+
+    /**
+     * All sets in a scheduled refresh have been dispatched.
+     */
+    default void runFinished() {
+    }
+  }
+
+  private final Client client;
+  private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+    Thread t = new Thread(r, "RefreshScheduler");
+    t.setDaemon(true);
+    return t;
+  });
+
+  /* Sets waiting to be dispatched. Only used on the scheduler thread. */
+  private final PriorityQueue<Entry> queue = new PriorityQueue<>();
+
+  private ScheduledFuture<?> pending = null;
+
+  /* Changes when the schedule changes, so tasks from the old schedule stop. */
+  private volatile int generation = 0;
+  private LocalTime runTime;
+  private long window;
+
+
+  /**
+   * Create a scheduler.
+   *
+   * @param client does the refreshing.
+   */
+  public RefreshScheduler(Client client) {
+    this.client = client;
+  }
+
+
+  /**
+   * Start scheduling refreshes, or change the schedule.
+   *
+   * <p>Any refresh that is in progress is abandoned, and the next refresh
+   * will start at the given time.</p>
+   *
+   * @param runTime       time of day to start refreshing.
+   * @param windowMinutes number of minutes to spread the refresh over.
+   */
+  public synchronized void start(LocalTime runTime, int windowMinutes) {
+    this.runTime = runTime;
+    this.window = Math.max(0, windowMinutes) * 60L * 1000;
+    this.cancel();
+    this.scheduleRun();
+  }
+
+
+  /**
+   * Stop scheduling refreshes.
+   */
+  public synchronized void stop() {
+    this.runTime = null;
+    this.cancel();
+    logger.info("Auto-refresh stopped.");
+  }
+
+
+  private synchronized void cancel() {
+    this.generation++;
+    if (this.pending != null) {
+      this.pending.cancel(false);
+      this.pending = null;
+    }
+    this.executor.execute(this.queue::clear);
+  }
+
+
+  private synchronized void schedule(Runnable task, long delay) {
+    if (this.runTime != null) {
+      this.pending = this.executor.schedule(task, Math.max(0, delay), TimeUnit.MILLISECONDS);
+    }
+  }
+
+
+  private synchronized void scheduleRun() {
+    if (this.runTime == null) {
+      return;
+    }
+    LocalDateTime now = LocalDateTime.now();
+    LocalDateTime next = now.with(this.runTime).withSecond(0).withNano(0);
+    if (!next.isAfter(now)) {
+      next = next.plusDays(1);
+    }
+    logger.info("Next auto-refresh at {}, spread over {} minutes.", next, this.window / 60000);
+    int gen = this.generation;
+    this.schedule(() -> this.beginRun(gen),
+        next.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() - System.currentTimeMillis());
+  }
+
+
+  private void beginRun(int gen) {
+    if (gen != this.generation) {
+      return;
+    }
+    try {
+      List<SSPhotoset> list = new ArrayList<>();
+      for (SSPhotoset ssPhotoset : this.client.getPhotosets()) {
+        if (ssPhotoset.isManaged()) {
+          list.add(ssPhotoset);
+        }
+      }
+      Map<String, Long> costs;
+      try {
+        costs = PhotosetDAO.getRefreshCosts();
+      } catch (Exception e) {
+        logger.warn("Could not read refresh costs, using the default.", e);
+        costs = Map.of();
+      }
+      this.queue.clear();
+      this.queue.addAll(plan(list, costs, System.currentTimeMillis(), this.window));
+      logger.info("Auto-refresh triggered for {} sets.", this.queue.size());
+      this.client.runStarted(this.queue.size());
+    } catch (Exception e) {
+      logger.error("Could not start auto-refresh.", e);
+    }
+    this.dispatchDue(gen);
+  }
+
+
+  private void dispatchDue(int gen) {
+    while (!this.queue.isEmpty()) {
+      if (gen != this.generation) {
+        return;
+      }
+      long now = System.currentTimeMillis();
+      if (this.queue.peek().due > now) {
+        this.schedule(() -> this.dispatchDue(gen), this.queue.peek().due - now);
+        return;
+      }
+      RateLimiter limiter = RateLimiter.getInstance();
+      if (limiter.getRemainingBudget() * 100 < limiter.getHourlyBudget() * LOW_BUDGET_PERCENT) {
+        logger.info("Flickr budget is low, delaying auto-refresh.");
+        this.schedule(() -> this.dispatchDue(gen), BUSY_RETRY);
+        return;
+      }
+      List<Entry> batch = new ArrayList<>();
+      while (!this.queue.isEmpty() && this.queue.peek().due <= now + BATCH_WINDOW && batch.size() < MAX_BATCH_SIZE) {
+        batch.add(this.queue.poll());
+      }
+      List<SSPhotoset> sets = new ArrayList<>();
+      for (Entry entry : batch) {
+        sets.add(entry.ssPhotoset);
+      }
+
+      List<RefreshResult> results;
+      try {
+        results = this.client.dispatch(sets);
+      } catch (Exception e) {
+        logger.error("Error during auto-refresh.", e);
+        results = new ArrayList<>();
+      }
+      if (results == null) {
+        logger.info("Busy, will try auto-refresh of {} sets again later.", batch.size());
+        this.queue.addAll(batch);
+        this.schedule(() -> this.dispatchDue(gen), BUSY_RETRY);
+        return;
+      }
+    }
+
+    if (gen != this.generation) {
+      return;
+    }
+    logger.info("Auto-refresh finished.");
+    this.client.runFinished();
+    this.scheduleRun();
+  }
+
+
+  /**
+   * Work out when each set should be refreshed.
+   *
+   * <p>The stalest sets go first. Each set is due when the estimated cost of
+   * the sets before it has used up the same share of the window.</p>
+   *
+   * @param list   the sets to refresh.
+   * @param costs  the measured cost of each set, by photoset ID.
+   * @param start  the time the refresh starts.
+   * @param window the time to spread the refresh over, in milliseconds.
+   * @return entries for each set, in dispatch order.
+   */
+  static List<Entry> plan(List<SSPhotoset> list, Map<String, Long> costs, long start, long window) {
+    List<Entry> entries = new ArrayList<>();
+    long totalCost = 0;
+    for (SSPhotoset ssPhotoset : list) {
+      long cost = costs.getOrDefault(ssPhotoset.getPhotosetId(), DEFAULT_COST);
+      long lastRefresh = ssPhotoset.getLastRefreshDate() == null ? 0 : ssPhotoset.getLastRefreshDate().getTime();
+      entries.add(new Entry(ssPhotoset, lastRefresh, cost));
+      totalCost += cost;
+    }
+    entries.sort(Comparator.comparingLong((Entry e) -> e.lastRefresh).thenComparingLong(e -> e.cost));
+
+    long elapsed = 0;
+    for (Entry entry : entries) {
+      entry.due = start + (totalCost == 0 ? 0 : (long) ((double) window * elapsed / totalCost));
+      elapsed += entry.cost;
+    }
+    return entries;
+  }
+
+
+  /**
+   * A set waiting to be refreshed.
+   */
+  static class Entry implements Comparable<Entry> {
+    final SSPhotoset ssPhotoset;
+    final long lastRefresh;
+    final long cost;
+    long due;
+
+    Entry(SSPhotoset ssPhotoset, long lastRefresh, long cost) {
+      this.ssPhotoset = ssPhotoset;
+      this.lastRefresh = lastRefresh;
+      this.cost = cost;
+    }
+
+    @Override
+    public int compareTo(Entry other) {
+      int result = Long.compare(this.due, other.due);
+      if (result == 0) {
+        result = Long.compare(this.lastRefresh, other.lastRefresh);
+      }
+      if (result == 0) {
+        result = Long.compare(this.cost, other.cost);
+      }
+      return result;
+    }
+  }
+}
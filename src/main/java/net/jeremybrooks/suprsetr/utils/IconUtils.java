@@ -0,0 +1,112 @@
+/*
+ *  SuprSetr is Copyright 2010-2023 by Jeremy Brooks
+ *
+ *  This file is part of SuprSetr.
+ *
+ *   SuprSetr is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   SuprSetr is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with SuprSetr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.jeremybrooks.suprsetr.utils;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.imageio.ImageIO;
+import javax.swing.ImageIcon;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+
+
+/**
+ * Converts between set icons and the image bytes they are stored as.
+ *
+ * <p>Photosets carry their icon as encoded image bytes, so the refresh code
+ * does not need Swing. The user interface uses this class to turn the bytes
+ * into an icon when it displays them.</p>
+ *
+ * @author Jeremy Brooks
+ */
+public class IconUtils {
+
+  private static final Logger logger = LogManager.getLogger(IconUtils.class);
+
+
+  /**
+   * No instances.
+   */
+  private IconUtils() {
+  }
+
+
+  /**
+   * Decode image bytes to an icon.
+   *
+   * @param bytes the encoded image.
+   * @return the icon, or null if the bytes are null.
+   */
+  public static ImageIcon decode(byte[] bytes) {
+    return bytes == null ? null : new ImageIcon(bytes);
+  }
+
+
+  /**
+   * Encode an icon as a PNG.
+   *
+   * @param icon the icon.
+   * @return encoded image, or null if the icon is null or cannot be encoded.
+   */
+  public static byte[] encode(ImageIcon icon) {
+    if (icon == null || icon.getIconWidth() <= 0 || icon.getIconHeight() <= 0) {
+      return null;
+    }
+    try {
+      BufferedImage image = new BufferedImage(icon.getIconWidth(), icon.getIconHeight(), BufferedImage.TYPE_INT_ARGB);
+      Graphics2D g = image.createGraphics();
+      g.drawImage(icon.getImage(), 0, 0, null);
+      g.dispose();
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      ImageIO.write(image, "png", out);
+      return out.toByteArray();
+    } catch (Exception e) {
+      logger.error("COULD NOT CONVERT ICON TO BYTES.", e);
+      return null;
+    }
+  }
+
+
+  /**
+   * Read an icon in the format used before schema version 12, a serialized
+   * ImageIcon.
+   *
+   * @param bytes the serialized icon.
+   * @return the icon, or null if the bytes are null or cannot be read.
+   */
+  public static ImageIcon deserialize(byte[] bytes) {
+    if (bytes == null) {
+      return null;
+    }
+    try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+      Object o = ois.readObject();
+      if (o instanceof ImageIcon icon) {
+        return icon;
+      }
+    } catch (Exception e) {
+      logger.warn("COULD NOT CONVERT BYTES TO ICON.", e);
+    }
+    return null;
+  }
+}
@@ -0,0 +1,612 @@
+/*
+ *  SuprSetr is Copyright 2010-2023 by Jeremy Brooks
+ *
+ *  This file is part of SuprSetr.
+ *
+ *   SuprSetr is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   SuprSetr is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with SuprSetr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.jeremybrooks.suprsetr.utils;
+
+import net.jeremybrooks.suprsetr.SSConstants;
+import net.jeremybrooks.suprsetr.SSPhoto;
+import net.jeremybrooks.suprsetr.SSPhotoset;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Evaluates the rules for a managed set against the local photo library.
+ *
+ * <p>This mirrors the search that {@code SearchHelper.getSearchParameters}
+ * builds for Flickr: tags and machine tags, taken and upload date ranges,
+ * media type, privacy, safe search, geotag, text search, sort order, and size
+ * limit. Rules that Flickr evaluates with data that is not stored locally,
+ * such as color codes or interestingness, are reported as unsupported.</p>
+ *
+ * <p>Tags and machine tags are matched with a {@link TagIndex}, so sets
+ * defined by tags are answered without looking at every photo. The engine is
+ * built once from the library, and then kept up to date by calling
+ * {@link #update(List)} and {@link #remove(Collection)} as photos change.
+ * Searches can run on several threads at once; updates wait until running
+ * searches are finished.</p>
+ *
+ * @author Jeremy Brooks
+ */
+public class LocalSearchEngine {
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  /* Photo data, by ordinal. Removed photos leave a null entry. */
+  private final List<SSPhoto> photos = new ArrayList<>();
+  private final List<String[]> machineTags = new ArrayList<>();
+  private final List<String> text = new ArrayList<>();
+
+  private final Map<String, Integer> ordinals = new HashMap<>();
+  private final BitSet live = new BitSet();
+  private final TagIndex tagIndex = new TagIndex();
+  private final TagIndex machineTagIndex = new TagIndex();
+
+
+  /**
+   * Create an engine for the photos in the library.
+   *
+   * @param photos every photo in the local library.
+   */
+  public LocalSearchEngine(List<SSPhoto> photos) {
+    this.update(photos);
+  }
+
+
+  /**
+   * Add new photos, or replace the data for photos that have changed.
+   *
+   * @param changed the new or changed photos.
+   */
+  public void update(List<SSPhoto> changed) {
+    lock.writeLock().lock();
+    try {
+      for (SSPhoto photo : changed) {
+        Integer ordinal = ordinals.get(photo.getPhotoId());
+        if (ordinal == null) {
+          ordinal = photos.size();
+          ordinals.put(photo.getPhotoId(), ordinal);
+          photos.add(null);
+          machineTags.add(null);
+          text.add(null);
+        }
+        List<String> photoTags = split(photo.getTags());
+        String[] photoMachineTags = split(photo.getMachineTags()).toArray(new String[0]);
+        photos.set(ordinal, photo);
+        machineTags.set(ordinal, photoMachineTags);
+        text.set(ordinal, (nullToEmpty(photo.getTitle()) + ' ' + nullToEmpty(photo.getDescription()) + ' '
+            + nullToEmpty(photo.getTags())).toLowerCase(Locale.ROOT));
+        tagIndex.put(ordinal, photoTags);
+        machineTagIndex.put(ordinal, MachineTag.indexKeys(photoMachineTags));
+        live.set(ordinal);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+
+  /**
+   * Remove photos that are no longer in the library.
+   *
+   * @param photoIds ID's of the photos to remove.
+   */
+  public void remove(Collection<String> photoIds) {
+    lock.writeLock().lock();
+    try {
+      for (String photoId : photoIds) {
+        Integer ordinal = ordinals.remove(photoId);
+        if (ordinal != null) {
+          photos.set(ordinal, null);
+          machineTags.set(ordinal, null);
+          text.set(ordinal, null);
+          tagIndex.remove(ordinal);
+          machineTagIndex.remove(ordinal);
+          live.clear(ordinal);
+        }
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+
+  /**
+   * Get the number of photos the engine is searching.
+   *
+   * @return number of photos in the library.
+   */
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return ordinals.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+
+  /**
+   * Get the rules for the set that cannot be answered locally.
+   *
+   * @param ssPhotoset the set to check.
+   * @return names of the unsupported rules, or an empty list.
+   */
+  public static List<String> getUnsupportedRules(SSPhotoset ssPhotoset) {
+    List<String> list = new ArrayList<>();
+    if (ssPhotoset.isOnThisDay()) {
+      list.add("on this day");
+    }
+    // interestingness is not available to the API
+    // sort orders 6, 7, 8, 10 and 11 search by interestingness, then sort
+    // the results, so the size limit picks the most interesting photos
+    int sortOrder = ssPhotoset.getSortOrder();
+    if (sortOrder == 0 || sortOrder == 1) {
+      list.add("sort order");
+    } else if (ssPhotoset.isLimitSize() && sortOrder != 9 && (sortOrder < 2 || sortOrder > 5)) {
+      list.add("size limit with sort order");
+    }
+    // the safe flag only separates safe from everything else
+    if (ssPhotoset.getSafeSearch() == 1) {
+      list.add("safe search");
+    }
+    // content type is not returned by search
+    if (ssPhotoset.getContentType() != 6) {
+      list.add("content type");
+    }
+    if (ssPhotoset.isInCommons()) {
+      list.add("commons");
+    }
+    if (ssPhotoset.isInGallery()) {
+      list.add("gallery");
+    }
+    if (ssPhotoset.isInGetty()) {
+      list.add("getty");
+    }
+    if (!SSUtils.stringToColorCodeList(ssPhotoset.getColorCode()).isEmpty()) {
+      list.add("color code");
+    }
+    if (!SSUtils.stringToPictureStyleList(ssPhotoset.getPictureStyle()).isEmpty()) {
+      list.add("picture style");
+    }
+    if (!SSUtils.stringToOrientationList(ssPhotoset.getOrientation()).isEmpty()) {
+      list.add("orientation");
+    }
+    if (usesTags(ssPhotoset.getMachineTagMatchMode(), ssPhotoset.getMachineTags())) {
+      for (String tag : ssPhotoset.getMachineTags()) {
+        if (MachineTag.parse(tag) == null) {
+          list.add("machine tag " + tag);
+        }
+      }
+    }
+    return list;
+  }
+
+
+  /**
+   * Find the photos that belong in the set.
+   *
+   * @param ssPhotoset the set to evaluate.
+   * @return the ordered photo ID's, or the list of unsupported rules.
+   */
+  public LocalSearchResult search(SSPhotoset ssPhotoset) {
+    List<String> unsupported = getUnsupportedRules(ssPhotoset);
+    if (!unsupported.isEmpty()) {
+      return new LocalSearchResult(unsupported, Collections.emptyList(), 0, 0);
+    }
+
+    Set<String> tagSet = null;
+    boolean allTags = false;
+    if (usesTags(ssPhotoset.getTagMatchMode(), ssPhotoset.getTags())) {
+      tagSet = new HashSet<>();
+      for (String tag : ssPhotoset.getTags()) {
+        String normalized = normalizeTag(tag);
+        if (!normalized.isEmpty()) {
+          tagSet.add(normalized);
+        }
+      }
+      allTags = ssPhotoset.getTagMatchMode().equals(SSConstants.TAG_MATCH_MODE_ALL);
+    }
+    List<MachineTag> machineTagList = null;
+    boolean allMachineTags = false;
+    if (usesTags(ssPhotoset.getMachineTagMatchMode(), ssPhotoset.getMachineTags())) {
+      machineTagList = new ArrayList<>();
+      for (String tag : ssPhotoset.getMachineTags()) {
+        machineTagList.add(MachineTag.parse(tag));
+      }
+      allMachineTags = ssPhotoset.getMachineTagMatchMode().equals(SSConstants.TAG_MATCH_MODE_ALL);
+    }
+    TextQuery textQuery = TextQuery.parse(ssPhotoset.getTextSearch());
+
+    List<SSPhoto> matches = new ArrayList<>();
+    lock.readLock().lock();
+    try {
+      BitSet candidates = (BitSet) live.clone();
+      if (tagSet != null) {
+        candidates.and(allTags ? tagIndex.all(tagSet) : tagIndex.any(tagSet));
+      }
+      List<String> machineTagKeys = machineTagList == null ? null : MachineTag.queryKeys(machineTagList);
+      if (machineTagKeys != null) {
+        candidates.and(allMachineTags ? machineTagIndex.all(machineTagKeys) : machineTagIndex.any(machineTagKeys));
+      }
+
+      for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+        SSPhoto photo = photos.get(i);
+        if (machineTagList != null && machineTagKeys == null
+            && !matchMachineTags(machineTags.get(i), machineTagList, allMachineTags)) {
+          continue;
+        }
+        if (textQuery != null && !textQuery.matches(text.get(i))) {
+          continue;
+        }
+        if (ssPhotoset.isMatchTakenDates()
+            && !inRange(photo.getDateTaken(), ssPhotoset.getMinTakenDate(), ssPhotoset.getMaxTakenDate())) {
+          continue;
+        }
+        if (ssPhotoset.isMatchUploadDates()
+            && !inRange(photo.getDateUpload(), ssPhotoset.getMinUploadDate(), ssPhotoset.getMaxUploadDate())) {
+          continue;
+        }
+        if (!matchMediaType(photo, ssPhotoset.getMediaType())
+            || !matchPrivacy(photo, ssPhotoset.getPrivacy())
+            || !matchGeotagged(photo, ssPhotoset.getGeotagged())
+            || (ssPhotoset.getSafeSearch() != 2 && !photo.isSafe())) {
+          continue;
+        }
+        matches.add(photo);
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+
+    sort(matches, ssPhotoset.getSortOrder());
+    if (ssPhotoset.isLimitSize() && matches.size() > ssPhotoset.getSizeLimit()) {
+      matches = matches.subList(0, Math.max(0, ssPhotoset.getSizeLimit()));
+    }
+
+    List<String> ids = new ArrayList<>(matches.size());
+    int videoCount = 0;
+    for (SSPhoto photo : matches) {
+      ids.add(photo.getPhotoId());
+      if ("video".equalsIgnoreCase(photo.getMedia())) {
+        videoCount++;
+      }
+    }
+    return new LocalSearchResult(Collections.emptyList(), ids, ids.size() - videoCount, videoCount);
+  }
+
+
+  private static boolean usesTags(String matchMode, List<String> tagList) {
+    return matchMode != null && !matchMode.equals(SSConstants.TAG_MATCH_MODE_NONE)
+        && tagList != null && !tagList.isEmpty();
+  }
+
+
+  private static boolean matchMachineTags(String[] photoTags, List<MachineTag> wanted, boolean all) {
+    for (MachineTag machineTag : wanted) {
+      boolean found = false;
+      for (String tag : photoTags) {
+        if (machineTag.matches(tag)) {
+          found = true;
+          break;
+        }
+      }
+      if (found && !all) {
+        return true;
+      } else if (!found && all) {
+        return false;
+      }
+    }
+    return all;
+  }
+
+
+  /*
+   * Flickr treats the min and max dates as inclusive.
+   */
+  private static boolean inRange(Date date, Date min, Date max) {
+    if (min == null && max == null) {
+      return true;
+    }
+    if (date == null) {
+      return false;
+    }
+    return (min == null || !date.before(min)) && (max == null || !date.after(max));
+  }
+
+
+  /*
+   * Order is all, photos, video.
+   */
+  private static boolean matchMediaType(SSPhoto photo, int mediaType) {
+    boolean video = "video".equalsIgnoreCase(photo.getMedia());
+    return switch (mediaType) {
+      case 1 -> !video;
+      case 2 -> video;
+      default -> true;
+    };
+  }
+
+
+  /*
+   * Order is ignore, public, friends, family, friends/family, private.
+   * These match the Flickr privacy filter values.
+   */
+  private static boolean matchPrivacy(SSPhoto photo, int privacy) {
+    return switch (privacy) {
+      case 1 -> photo.isPublic();
+      case 2 -> !photo.isPublic() && photo.isFriend() && !photo.isFamily();
+      case 3 -> !photo.isPublic() && !photo.isFriend() && photo.isFamily();
+      case 4 -> !photo.isPublic() && photo.isFriend() && photo.isFamily();
+      case 5 -> !photo.isPublic() && !photo.isFriend() && !photo.isFamily();
+      default -> true;
+    };
+  }
+
+
+  /*
+   * Order is ignore, has, does not have.
+   */
+  private static boolean matchGeotagged(SSPhoto photo, int geotagged) {
+    return switch (geotagged) {
+      case 1 -> photo.isGeotagged();
+      case 2 -> !photo.isGeotagged();
+      default -> true;
+    };
+  }
+
+
+  private static void sort(List<SSPhoto> list, int sortOrder) {
+    Comparator<SSPhoto> byId = Comparator.comparing(SSPhoto::getPhotoId,
+        Comparator.comparingInt(String::length).thenComparing(Comparator.naturalOrder()));
+    Comparator<SSPhoto> byTaken = Comparator.comparing(SSPhoto::getDateTaken,
+        Comparator.nullsFirst(Comparator.naturalOrder()));
+    Comparator<SSPhoto> byUpload = Comparator.comparing(SSPhoto::getDateUpload,
+        Comparator.nullsFirst(Comparator.naturalOrder()));
+    Comparator<SSPhoto> byTitle = Comparator.comparing(p -> nullToEmpty(p.getTitle()), String.CASE_INSENSITIVE_ORDER);
+
+    switch (sortOrder) {
+      case 2 -> list.sort(byTaken.thenComparing(byId).reversed());
+      case 3 -> list.sort(byTaken.thenComparing(byId));
+      case 5 -> list.sort(byUpload.thenComparing(byId));
+      case 7 -> list.sort(byTitle.reversed());
+      case 8 -> list.sort(byTitle);
+      case 9 -> Collections.shuffle(list);
+      case 10 -> list.sort(Comparator.comparingInt(SSPhoto::getViews).reversed());
+      case 11 -> list.sort(Comparator.comparingInt(SSPhoto::getViews));
+      // 4, and 6 (no particular order)
+      default -> list.sort(byUpload.thenComparing(byId).reversed());
+    }
+  }
+
+
+  /**
+   * Normalize a tag the way Flickr does: lower case, with spaces and
+   * punctuation removed.
+   *
+   * @param tag the tag as entered by the user.
+   * @return normalized tag.
+   */
+  static String normalizeTag(String tag) {
+    if (tag == null) {
+      return "";
+    }
+    StringBuilder sb = new StringBuilder(tag.length());
+    tag.toLowerCase(Locale.ROOT).codePoints()
+        .filter(Character::isLetterOrDigit)
+        .forEach(sb::appendCodePoint);
+    return sb.toString();
+  }
+
+
+  private static List<String> split(String s) {
+    List<String> list = new ArrayList<>();
+    if (s != null) {
+      for (String part : s.trim().split("\\s+")) {
+        if (!part.isEmpty()) {
+          list.add(part.toLowerCase(Locale.ROOT));
+        }
+      }
+    }
+    return list;
+  }
+
+
+  private static String nullToEmpty(String s) {
+    return s == null ? "" : s;
+  }
+
+
+  /**
+   * A machine tag search term, in the form namespace:predicate=value.
+   *
+   * <p>As with Flickr, any part may be left empty or given as "*" to match
+   * anything, so "geo:" and "geo:*=" match every machine tag in the geo
+   * namespace.</p>
+   */
+  static class MachineTag {
+    private final String namespace;
+    private final String predicate;
+    private final String value;
+
+    private MachineTag(String namespace, String predicate, String value) {
+      this.namespace = namespace;
+      this.predicate = predicate;
+      this.value = value;
+    }
+
+    /**
+     * Parse a machine tag search term.
+     *
+     * @param tag the search term.
+     * @return the machine tag, or null if the term is not a machine tag.
+     */
+    static MachineTag parse(String tag) {
+      if (tag == null) {
+        return null;
+      }
+      String s = tag.trim().toLowerCase(Locale.ROOT);
+      if (s.length() > 1 && s.startsWith("\"") && s.endsWith("\"")) {
+        s = s.substring(1, s.length() - 1);
+      }
+      int colon = s.indexOf(':');
+      if (colon <= 0) {
+        return null;
+      }
+      String rest = s.substring(colon + 1);
+      int equals = rest.indexOf('=');
+      String predicate = equals < 0 ? rest : rest.substring(0, equals);
+      String value = equals < 0 ? "" : rest.substring(equals + 1);
+      return new MachineTag(wildcard(s.substring(0, colon)), wildcard(predicate), wildcard(normalizeTag(value)));
+    }
+
+    /**
+     * Get the index keys for the machine tags on a photo. Each tag is
+     * indexed by namespace, by namespace and predicate, and in full, so
+     * those three kinds of search term can use the index.
+     *
+     * @param photoTags machine tags on the photo, in lower case.
+     * @return index keys.
+     */
+    static List<String> indexKeys(String[] photoTags) {
+      List<String> keys = new ArrayList<>();
+      for (String tag : photoTags) {
+        int colon = tag.indexOf(':');
+        int equals = tag.indexOf('=', colon + 1);
+        if (colon > 0 && equals > 0) {
+          keys.add(tag.substring(0, colon + 1));
+          keys.add(tag.substring(0, equals + 1));
+          keys.add(tag.substring(0, equals + 1) + normalizeTag(tag.substring(equals + 1)));
+        }
+      }
+      return keys;
+    }
+
+    /**
+     * Get the index keys for a list of search terms.
+     *
+     * @param tags the search terms.
+     * @return index keys, or null if any term has a wildcard namespace, or a
+     * wildcard predicate with a value, and so cannot use the index.
+     */
+    static List<String> queryKeys(List<MachineTag> tags) {
+      List<String> keys = new ArrayList<>();
+      for (MachineTag tag : tags) {
+        if (tag.namespace == null || (tag.predicate == null && tag.value != null)) {
+          return null;
+        }
+        if (tag.predicate == null) {
+          keys.add(tag.namespace + ':');
+        } else {
+          keys.add(tag.namespace + ':' + tag.predicate + '=' + (tag.value == null ? "" : tag.value));
+        }
+      }
+      return keys;
+    }
+
+    private static String wildcard(String s) {
+      return s.isEmpty() || s.equals("*") ? null : s;
+    }
+
+    boolean matches(String photoTag) {
+      int colon = photoTag.indexOf(':');
+      int equals = photoTag.indexOf('=', colon + 1);
+      if (colon <= 0 || equals < 0) {
+        return false;
+      }
+      return (namespace == null || namespace.equals(photoTag.substring(0, colon)))
+          && (predicate == null || predicate.equals(photoTag.substring(colon + 1, equals)))
+          && (value == null || value.equals(normalizeTag(photoTag.substring(equals + 1))));
+    }
+  }
+
+
+  /**
+   * A full text search, matched against the title, description and tags.
+   *
+   * <p>Every term must appear. Terms in double quotes are matched as a
+   * phrase, and terms starting with "-" must not appear.</p>
+   */
+  static class TextQuery {
+    private final List<String> include = new ArrayList<>();
+    private final List<String> exclude = new ArrayList<>();
+
+    static TextQuery parse(String text) {
+      if (text == null || text.trim().isEmpty()) {
+        return null;
+      }
+      TextQuery query = new TextQuery();
+      String s = text.trim().toLowerCase(Locale.ROOT);
+      int i = 0;
+      while (i < s.length()) {
+        if (Character.isWhitespace(s.charAt(i))) {
+          i++;
+          continue;
+        }
+        boolean negate = s.charAt(i) == '-';
+        if (negate) {
+          i++;
+        }
+        String term;
+        if (i < s.length() && s.charAt(i) == '"') {
+          int end = s.indexOf('"', i + 1);
+          end = end < 0 ? s.length() : end;
+          term = s.substring(i + 1, end);
+          i = end + 1;
+        } else {
+          int end = i;
+          while (end < s.length() && !Character.isWhitespace(s.charAt(end))) {
+            end++;
+          }
+          term = s.substring(i, end);
+          i = end;
+        }
+        if (!term.isBlank()) {
+          (negate ? query.exclude : query.include).add(term.trim());
+        }
+      }
+      return query;
+    }
+
+    boolean matches(String lowerCaseText) {
+      for (String term : include) {
+        if (!lowerCaseText.contains(term)) {
+          return false;
+        }
+      }
+      for (String term : exclude) {
+        if (lowerCaseText.contains(term)) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+}
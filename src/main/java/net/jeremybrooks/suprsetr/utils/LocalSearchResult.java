@@ -0,0 +1,92 @@
+/*
+ *  SuprSetr is Copyright 2010-2023 by Jeremy Brooks
+ *
+ *  This file is part of SuprSetr.
+ *
+ *   SuprSetr is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   SuprSetr is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with SuprSetr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.jeremybrooks.suprsetr.utils;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The result of evaluating the rules for a managed set against the local
+ * photo library.
+ *
+ * <p>If any of the rules cannot be answered locally, the result is not
+ * supported, and the photo list is empty. The caller should search Flickr
+ * instead.</p>
+ *
+ * @author Jeremy Brooks
+ * @see LocalSearchEngine
+ */
+public class LocalSearchResult {
+
+  private final List<String> unsupportedRules;
+  private final List<String> photoIds;
+  private final int photoCount;
+  private final int videoCount;
+
+
+  LocalSearchResult(List<String> unsupportedRules, List<String> photoIds, int photoCount, int videoCount) {
+    this.unsupportedRules = Collections.unmodifiableList(unsupportedRules);
+    this.photoIds = Collections.unmodifiableList(photoIds);
+    this.photoCount = photoCount;
+    this.videoCount = videoCount;
+  }
+
+
+  /**
+   * Check if the set could be evaluated locally.
+   *
+   * @return true if every rule was answered locally.
+   */
+  public boolean isSupported() {
+    return unsupportedRules.isEmpty();
+  }
+
+  /**
+   * Get the names of the rules that could not be answered locally.
+   *
+   * @return rule names, or an empty list if all rules are supported.
+   */
+  public List<String> getUnsupportedRules() {
+    return unsupportedRules;
+  }
+
+  /**
+   * Get the matching photo ID's, in the order they should appear in the set.
+   *
+   * @return ordered photo ID's.
+   */
+  public List<String> getPhotoIds() {
+    return photoIds;
+  }
+
+  public int getPhotoCount() {
+    return photoCount;
+  }
+
+  public int getVideoCount() {
+    return videoCount;
+  }
+
+  @Override
+  public String toString() {
+    return isSupported()
+        ? "LocalSearchResult{" + photoIds.size() + " matches}"
+        : "LocalSearchResult{unsupported=" + unsupportedRules + "}";
+  }
+}
@@ -0,0 +1,157 @@
+/*
+ *  SuprSetr is Copyright 2010-2023 by Jeremy Brooks
+ *
+ *  This file is part of SuprSetr.
+ *
+ *   SuprSetr is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   SuprSetr is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with SuprSetr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.jeremybrooks.suprsetr.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Describes the changes needed to make a photoset contain a new list of photos.
+ *
+ * <p>Replacing the contents of a photoset with editPhotos sends every photo ID
+ * in the set to Flickr. When only a few photos have changed, it is cheaper to
+ * add and remove the individual photos. This class compares the current
+ * contents of a set with the desired contents, and decides which approach
+ * should be used.</p>
+ *
+ * <p>Flickr adds photos to the end of a set, so if the order of the set
+ * matters, individual adds can only be used when the new photos belong at
+ * the end of the set.</p>
+ *
+ * @author Jeremy Brooks
+ */
+public class PhotosetDelta {
+
+  /**
+   * The most individual add/remove calls that will be used for a single set.
+   */
+  static final int MAX_INCREMENTAL_CHANGES = 50;
+
+  private final List<String> toAdd;
+  private final List<String> toRemove;
+  private final boolean replace;
+
+
+  private PhotosetDelta(List<String> toAdd, List<String> toRemove, boolean replace) {
+    this.toAdd = toAdd;
+    this.toRemove = toRemove;
+    this.replace = replace;
+  }
+
+
+  /**
+   * Compare the current contents of a set with the desired contents.
+   *
+   * <p>The result will indicate that the set should be replaced if the
+   * number of changes is too large, or if adding and removing photos
+   * would not produce the desired order. The number of changes allowed is
+   * one tenth of the set size, up to {@link #MAX_INCREMENTAL_CHANGES}.</p>
+   *
+   * @param current      photo ID's currently in the set, in set order.
+   * @param desired      photo ID's the set should contain, in the desired order.
+   * @param orderMatters true if the order of the photos in the set is important.
+   * @return the changes needed to update the set.
+   */
+  public static PhotosetDelta compute(List<String> current, List<String> desired, boolean orderMatters) {
+    Set<String> currentIds = new HashSet<>(current);
+    Set<String> desiredIds = new HashSet<>(desired);
+
+    List<String> toRemove = new ArrayList<>();
+    for (String id : current) {
+      if (!desiredIds.contains(id)) {
+        toRemove.add(id);
+      }
+    }
+    List<String> toAdd = new ArrayList<>();
+    for (String id : desired) {
+      if (!currentIds.contains(id)) {
+        toAdd.add(id);
+      }
+    }
+
+    int changes = toAdd.size() + toRemove.size();
+    int maxChanges = Math.min(MAX_INCREMENTAL_CHANGES, Math.max(1, desired.size() / 10));
+    boolean replace = changes > maxChanges;
+
+    if (!replace && orderMatters) {
+      // what the set would look like after removing and appending photos
+      List<String> result = new ArrayList<>(current.size() + toAdd.size());
+      for (String id : current) {
+        if (desiredIds.contains(id)) {
+          result.add(id);
+        }
+      }
+      result.addAll(toAdd);
+      replace = !result.equals(desired);
+    }
+
+    return new PhotosetDelta(Collections.unmodifiableList(toAdd), Collections.unmodifiableList(toRemove), replace);
+  }
+
+
+  /**
+   * Get the photo ID's that need to be added to the set, in the order they
+   * should be added.
+   *
+   * @return photo ID's to add.
+   */
+  public List<String> getToAdd() {
+    return toAdd;
+  }
+
+
+  /**
+   * Get the photo ID's that need to be removed from the set.
+   *
+   * @return photo ID's to remove.
+   */
+  public List<String> getToRemove() {
+    return toRemove;
+  }
+
+
+  /**
+   * Check if the contents of the set should be replaced with editPhotos.
+   *
+   * @return true if the set should be replaced, false if the changes should
+   * be applied individually.
+   */
+  public boolean isReplace() {
+    return replace;
+  }
+
+
+  /**
+   * Check if the set is already up to date.
+   *
+   * @return true if there is nothing to change.
+   */
+  public boolean isEmpty() {
+    return !replace && toAdd.isEmpty() && toRemove.isEmpty();
+  }
+
+
+  @Override
+  public String toString() {
+    return "PhotosetDelta{add=" + toAdd.size() + ", remove=" + toRemove.size() + ", replace=" + replace + "}";
+  }
+}
@@ -29,6 +29,9 @@ import org.apache.logging.log4j.Logger;
 
 import java.io.Serial;
 import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
@@ -36,6 +39,7 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.GregorianCalendar;
+import java.util.HexFormat;
 import java.util.List;
 
 
@@ -204,6 +208,33 @@ public class SSUtils {
     }
   }
 
+  /**
+   * Calculate a fingerprint for the contents of a photoset.
+   *
+   * <p>The fingerprint is a SHA-256 hash of the primary photo ID and the
+   * ordered list of photo ID's. If two fingerprints match, the set contains
+   * the same photos, in the same order, with the same primary photo.</p>
+   *
+   * @param primaryPhotoId the ID of the primary photo.
+   * @param photoIdList    the photo ID's in the set, in set order.
+   * @return hex encoded fingerprint.
+   */
+  public static String fingerprint(String primaryPhotoId, List<String> photoIdList) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      digest.update(String.valueOf(primaryPhotoId).getBytes(StandardCharsets.UTF_8));
+      for (String id : photoIdList) {
+        digest.update((byte) ',');
+        digest.update(id.getBytes(StandardCharsets.UTF_8));
+      }
+      return HexFormat.of().formatHex(digest.digest());
+    } catch (NoSuchAlgorithmException e) {
+      // every Java platform is required to support SHA-256
+      throw new IllegalStateException(e);
+    }
+  }
+
+
   /**
    * Format the date with the long format.
    *
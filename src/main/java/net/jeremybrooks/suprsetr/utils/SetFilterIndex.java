@@ -0,0 +1,174 @@
+/*
+ *  SuprSetr is Copyright 2010-2023 by Jeremy Brooks
+ *
+ *  This file is part of SuprSetr.
+ *
+ *   SuprSetr is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   SuprSetr is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with SuprSetr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.jeremybrooks.suprsetr.utils;
+
+import net.jeremybrooks.suprsetr.SSPhotoset;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An index of set titles for filtering the set list.
+ *
+ * <p>The titles are converted to lower case once, when the index is built.
+ * Every substring of one to {@value #GRAM_LENGTH} characters in a title is an
+ * n-gram, and each n-gram maps to a bitmap of the sets whose titles contain it.
+ * A filter only has to check the sets that contain every n-gram of the filter
+ * text.</p>
+ *
+ * <p>The result of the last filter is kept. If the next filter text contains
+ * the last one, as it does when the user types another character, only the
+ * sets in the last result are checked.</p>
+ *
+ * <p>The index does not change when the sets change; build a new index
+ * instead. The filter method is synchronized, so the index can be built on
+ * one thread and used on another.</p>
+ *
+ * @author Jeremy Brooks
+ */
+public class SetFilterIndex {
+
+  /**
+   * The longest n-gram in the index.
+   */
+  static final int GRAM_LENGTH = 3;
+
+  private final SSPhotoset[] sets;
+  private final String[] titles;
+  private final Map<String, BitSet> grams = new HashMap<>();
+
+  private String lastFilter;
+  private BitSet lastResult;
+
+
+  /**
+   * Build an index.
+   *
+   * @param list the sets, in the order they should be returned by a filter.
+   */
+  public SetFilterIndex(List<SSPhotoset> list) {
+    this.sets = list.toArray(new SSPhotoset[0]);
+    this.titles = new String[this.sets.length];
+    for (int i = 0; i < this.sets.length; i++) {
+      String title = this.sets[i].getTitle() == null ? "" : this.sets[i].getTitle().toLowerCase();
+      this.titles[i] = title;
+      for (int start = 0; start < title.length(); start++) {
+        for (int end = start + 1; end <= Math.min(title.length(), start + GRAM_LENGTH); end++) {
+          this.grams.computeIfAbsent(title.substring(start, end), k -> new BitSet()).set(i);
+        }
+      }
+    }
+  }
+
+
+  /**
+   * Get the sets that match a filter.
+   *
+   * @param filter        lower case text to look for in the titles, or null to match every set.
+   * @param hideUnmanaged true to leave out sets that are not managed.
+   * @param hideManaged   true to leave out managed sets.
+   * @return matching sets, in the order the index was built with.
+   */
+  public synchronized List<SSPhotoset> filter(String filter, boolean hideUnmanaged, boolean hideManaged) {
+    BitSet matches = match(filter);
+    List<SSPhotoset> result = new ArrayList<>(matches.cardinality());
+    for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+      SSPhotoset set = this.sets[i];
+      if ((hideUnmanaged && !set.isManaged()) || (hideManaged && set.isManaged())) {
+        continue;
+      }
+      result.add(set);
+    }
+    return result;
+  }
+
+
+  /**
+   * Get the number of sets in the index.
+   *
+   * @return number of sets.
+   */
+  public int size() {
+    return this.sets.length;
+  }
+
+
+  /*
+   * Find the sets whose titles contain the filter text.
+   */
+  private BitSet match(String filter) {
+    BitSet result;
+    if (filter == null || filter.isEmpty()) {
+      result = new BitSet(this.sets.length);
+      result.set(0, this.sets.length);
+    } else if (filter.length() <= GRAM_LENGTH) {
+      // a short filter is itself an n-gram, so the index has the answer
+      BitSet bits = this.grams.get(filter);
+      result = bits == null ? new BitSet() : (BitSet) bits.clone();
+    } else if (this.lastFilter != null && filter.contains(this.lastFilter)) {
+      // narrowing the last filter, so only the last matches can match
+      result = verify(filter, (BitSet) this.lastResult.clone());
+    } else {
+      result = verify(filter, candidates(filter));
+    }
+    this.lastFilter = filter;
+    this.lastResult = result;
+    return (BitSet) result.clone();
+  }
+
+
+  /*
+   * Sets that contain every n-gram in the filter. The filter must be longer
+   * than an n-gram.
+   */
+  private BitSet candidates(String filter) {
+    BitSet result = null;
+    for (int start = 0; start + GRAM_LENGTH <= filter.length(); start++) {
+      BitSet bits = this.grams.get(filter.substring(start, start + GRAM_LENGTH));
+      if (bits == null) {
+        return new BitSet();
+      }
+      if (result == null) {
+        result = (BitSet) bits.clone();
+      } else {
+        result.and(bits);
+      }
+      if (result.isEmpty()) {
+        break;
+      }
+    }
+    return result;
+  }
+
+
+  /*
+   * Remove the candidates whose titles do not contain the filter.
+   */
+  private BitSet verify(String filter, BitSet candidates) {
+    for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+      if (!this.titles[i].contains(filter)) {
+        candidates.clear(i);
+      }
+    }
+    return candidates;
+  }
+}
@@ -16,12 +16,11 @@
  *   You should have received a copy of the GNU General Public License
  *   along with SuprSetr.  If not, see <http://www.gnu.org/licenses/>.
  */
-
 package net.jeremybrooks.suprsetr.utils;
 
 import net.jeremybrooks.suprsetr.SetListCell;
 
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
@@ -32,31 +31,67 @@ import java.util.Map;
  * CellRenderer will use cached instances unless the instance has been marked
  * as invalid.</p>
  *
+ * <p>The cache holds at most {@value #DEFAULT_MAX_SIZE} cells. When it is full,
+ * the cell that was used least recently is evicted; since the cells on screen
+ * are used on every paint, these are the cells that have scrolled out of view.</p>
+ *
  * <p>This class is implemented as a Singleton. When a photoset is possibly changed,
  * for example by a refresh, the SetListCell in the cache will be marked as
- * invalid.</p>
+ * invalid. All methods are thread safe, so cells can be invalidated from
+ * worker threads.</p>
  *
  * @author Jeremy Brooks
  */
 public class SimpleCache {
 
+  /**
+   * Default number of cells to keep.
+   */
+  static final int DEFAULT_MAX_SIZE = 500;
 
   /**
-   * Maps the photoset ID to the list cell instance.
+   * Maps the photoset ID to the list cell instance, in access order.
    */
-  private final Map<String, SetListCell> cache;
+  private final LinkedHashMap<String, SetListCell> cache;
+
+  private final int maxSize;
+
+  private long hits;
+  private long misses;
+  private long evictions;
 
   /**
-   * Reference to this class.
+   * Incremented each time all the cells are invalidated.
    */
-  private static SimpleCache instance = null;
+  private int generation;
+
+
+  /**
+   * Holds the only instance of this class. The instance is created when the
+   * holder class is initialized, which the JVM does exactly once.
+   */
+  private static class Holder {
+    private static final SimpleCache INSTANCE = new SimpleCache(DEFAULT_MAX_SIZE);
+  }
 
 
   /**
    * Constructor.
+   *
+   * @param maxSize the most cells to keep.
    */
-  private SimpleCache() {
-    this.cache = new HashMap<>();
+  SimpleCache(int maxSize) {
+    this.maxSize = maxSize;
+    this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, SetListCell> eldest) {
+        if (size() > SimpleCache.this.maxSize) {
+          evictions++;
+          return true;
+        }
+        return false;
+      }
+    };
   }
 
 
@@ -66,11 +101,7 @@ public class SimpleCache {
    * @return instance of this class.
    */
   public static SimpleCache getInstance() {
-    if (instance == null) {
-      instance = new SimpleCache();
-    }
-
-    return instance;
+    return Holder.INSTANCE;
   }
 
 
@@ -80,18 +111,26 @@ public class SimpleCache {
    * @param id the photoset ID for the cell.
    * @return the instance of the cell, or null if it does not exist in cache.
    */
-  public SetListCell getFromCache(String id) {
-    return this.cache.get(id);
+  public synchronized SetListCell getFromCache(String id) {
+    SetListCell cell = this.cache.get(id);
+    if (cell == null) {
+      misses++;
+    } else {
+      hits++;
+    }
+    return cell;
   }
 
 
   /**
    * Put a cell in the cache.
    *
+   * <p>If the cache is full, the least recently used cell is evicted.</p>
+   *
    * @param id   the photoset ID to associate with the cell instance.
    * @param cell the cell to put in cache.
    */
-  public void putInCache(String id, SetListCell cell) {
+  public synchronized void putInCache(String id, SetListCell cell) {
     this.cache.put(id, cell);
   }
 
@@ -103,22 +142,88 @@ public class SimpleCache {
    *
    * @param id the photoset ID to mark as invalid.
    */
-  public void invalidate(String id) {
-    if (this.cache.containsKey(id)) {
-      this.cache.get(id).setCacheValid(false);
+  public synchronized void invalidate(String id) {
+    SetListCell cell = this.cache.get(id);
+    if (cell != null) {
+      cell.setCacheValid(false);
     }
   }
 
+  /**
+   * Remove the cell for a photoset that no longer exists.
+   *
+   * @param id the photoset ID.
+   */
+  public synchronized void remove(String id) {
+    this.cache.remove(id);
+  }
+
   /**
    * Invalidate the state of all the cells in the cache.
    *
    * <p>This is used when we want to force the cells to be redrawn, for example when the user
    * changes the refresh time in settings.</p>
    */
-  public void invalidateAll() {
+  public synchronized void invalidateAll() {
+    generation++;
     for (SetListCell cell : this.cache.values()) {
       cell.setCacheValid(false);
     }
   }
 
+
+  /**
+   * Get the number of times all the cells have been invalidated.
+   *
+   * <p>Renderers that cache their own values for the cells can compare this
+   * to know when their values should also be rebuilt.</p>
+   *
+   * @return the invalidation generation.
+   */
+  public synchronized int getGeneration() {
+    return this.generation;
+  }
+
+
+  /**
+   * Get the number of cells in the cache.
+   *
+   * @return number of cells.
+   */
+  public synchronized int size() {
+    return this.cache.size();
+  }
+
+  /**
+   * Get the most cells the cache will hold.
+   *
+   * @return maximum number of cells.
+   */
+  public int getMaxSize() {
+    return this.maxSize;
+  }
+
+  /**
+   * Get the number of cells that have been evicted to keep the cache within its size.
+   *
+   * @return number of evictions.
+   */
+  public synchronized long getEvictionCount() {
+    return this.evictions;
+  }
+
+  public synchronized long getHitCount() {
+    return this.hits;
+  }
+
+  public synchronized long getMissCount() {
+    return this.misses;
+  }
+
+  @Override
+  public synchronized String toString() {
+    return "SimpleCache{size=" + this.cache.size() + "/" + this.maxSize
+        + ", hits=" + this.hits + ", misses=" + this.misses
+        + ", evictions=" + this.evictions + "}";
+  }
 }
@@ -0,0 +1,141 @@
+/*
+ *  SuprSetr is Copyright 2010-2023 by Jeremy Brooks
+ *
+ *  This file is part of SuprSetr.
+ *
+ *   SuprSetr is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   SuprSetr is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with SuprSetr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.jeremybrooks.suprsetr.utils;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An inverted index from tags to the photos that have them.
+ *
+ * <p>Each photo is identified by an ordinal, and each tag maps to a bitmap of
+ * the ordinals of the photos with that tag. Matching any of several tags is
+ * then a bitwise OR of their bitmaps, and matching all of them is an AND.</p>
+ *
+ * <p>Tags are stored as given; callers are responsible for normalizing them.
+ * This class is not thread safe.</p>
+ *
+ * @author Jeremy Brooks
+ */
+public class TagIndex {
+
+  private final Map<String, BitSet> postings = new HashMap<>();
+  private final List<String[]> keysByOrdinal = new ArrayList<>();
+
+
+  /**
+   * Set the tags for a photo, replacing any tags it had before.
+   *
+   * @param ordinal the photo ordinal.
+   * @param tags    the tags for the photo.
+   */
+  public void put(int ordinal, Collection<String> tags) {
+    remove(ordinal);
+    String[] keys = new LinkedHashSet<>(tags).toArray(new String[0]);
+    for (String key : keys) {
+      postings.computeIfAbsent(key, k -> new BitSet()).set(ordinal);
+    }
+    while (keysByOrdinal.size() <= ordinal) {
+      keysByOrdinal.add(null);
+    }
+    keysByOrdinal.set(ordinal, keys);
+  }
+
+
+  /**
+   * Remove a photo from the index.
+   *
+   * @param ordinal the photo ordinal.
+   */
+  public void remove(int ordinal) {
+    if (ordinal >= keysByOrdinal.size() || keysByOrdinal.get(ordinal) == null) {
+      return;
+    }
+    for (String key : keysByOrdinal.get(ordinal)) {
+      BitSet bits = postings.get(key);
+      bits.clear(ordinal);
+      if (bits.isEmpty()) {
+        postings.remove(key);
+      }
+    }
+    keysByOrdinal.set(ordinal, null);
+  }
+
+
+  /**
+   * Get the photos that have at least one of the tags.
+   *
+   * @param tags the tags to match.
+   * @return a new bitmap of matching photo ordinals.
+   */
+  public BitSet any(Collection<String> tags) {
+    BitSet result = new BitSet();
+    for (String tag : tags) {
+      BitSet bits = postings.get(tag);
+      if (bits != null) {
+        result.or(bits);
+      }
+    }
+    return result;
+  }
+
+
+  /**
+   * Get the photos that have every one of the tags.
+   *
+   * @param tags the tags to match.
+   * @return a new bitmap of matching photo ordinals. If there are no tags,
+   * the bitmap is empty.
+   */
+  public BitSet all(Collection<String> tags) {
+    List<BitSet> list = new ArrayList<>();
+    for (String tag : tags) {
+      BitSet bits = postings.get(tag);
+      if (bits == null) {
+        return new BitSet();
+      }
+      list.add(bits);
+    }
+    if (list.isEmpty()) {
+      return new BitSet();
+    }
+    // start with the rarest tag so the result is small from the beginning
+    list.sort((a, b) -> Integer.compare(a.cardinality(), b.cardinality()));
+    BitSet result = (BitSet) list.get(0).clone();
+    for (int i = 1; i < list.size() && !result.isEmpty(); i++) {
+      result.and(list.get(i));
+    }
+    return result;
+  }
+
+
+  /**
+   * Get the number of distinct tags in the index.
+   *
+   * @return number of tags.
+   */
+  public int size() {
+    return postings.size();
+  }
+}
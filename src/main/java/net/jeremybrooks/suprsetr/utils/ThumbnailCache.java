@@ -0,0 +1,324 @@
+/*
+ *  SuprSetr is Copyright 2010-2023 by Jeremy Brooks
+ *
+ *  This file is part of SuprSetr.
+ *
+ *   SuprSetr is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   SuprSetr is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with SuprSetr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.jeremybrooks.suprsetr.utils;
+
+import net.jeremybrooks.suprsetr.Main;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Shared cache for photo thumbnails.
+ *
+ * <p>Thumbnails are stored as the image bytes downloaded from Flickr, keyed
+ * by photo ID, secret and size. Flickr gives a photo a new secret when it is
+ * replaced, so a replaced photo gets a new key instead of showing the old
+ * thumbnail. Otherwise the bytes do not change, so they can be used by every
+ * window and worker that needs them, and sets that share a primary photo
+ * only download it once.</p>
+ *
+ * <p>There are two tiers. Recently used thumbnails are kept in memory, up
+ * to a fixed number of bytes; the least recently used are dropped first.
+ * Every thumbnail is also written to disk, so it survives a restart. When
+ * the files on disk grow past their limit, the files that have gone the
+ * longest without being read are deleted.</p>
+ *
+ * <p>This class is thread safe. It is implemented as a Singleton. Calling
+ * {@code ThumbnailCache.getInstance()} will return a reference to the
+ * instance of this class.</p>
+ *
+ * @author Jeremy Brooks
+ */
+public class ThumbnailCache {
+
+  private static final Logger logger = LogManager.getLogger(ThumbnailCache.class);
+
+  /**
+   * Reference to the only instance of this class.
+   */
+  private static ThumbnailCache instance = null;
+
+  /**
+   * Size suffix used by Flickr for the 75x75 small square thumbnail.
+   */
+  public static final String SIZE_SMALL_SQUARE = "s";
+
+  static final long DEFAULT_MEMORY_LIMIT = 8L * 1024 * 1024;
+  static final long DEFAULT_DISK_LIMIT = 64L * 1024 * 1024;
+
+  private final File cacheDir;
+  private final long memoryLimit;
+  private final long diskLimit;
+
+  /* access ordered, so iteration starts with the least recently used */
+  private final LinkedHashMap<String, byte[]> memory = new LinkedHashMap<>(256, 0.75f, true);
+  private long memoryBytes = 0;
+  private long diskBytes = -1;
+
+  private final AtomicLong memoryHits = new AtomicLong();
+  private final AtomicLong diskHits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+
+  ThumbnailCache(File cacheDir, long memoryLimit, long diskLimit) {
+    this.cacheDir = cacheDir;
+    this.memoryLimit = memoryLimit;
+    this.diskLimit = diskLimit;
+    if (!cacheDir.isDirectory() && !cacheDir.mkdirs()) {
+      logger.warn("Could not create thumbnail cache directory " + cacheDir.getAbsolutePath()
+          + ", thumbnails will only be cached in memory.");
+    }
+  }
+
+
+  /**
+   * Get a reference to the only instance of this class.
+   *
+   * @return instance of this class.
+   */
+  public static synchronized ThumbnailCache getInstance() {
+    if (instance == null) {
+      instance = new ThumbnailCache(new File(Main.configDir, "thumbnail_cache"),
+          DEFAULT_MEMORY_LIMIT, DEFAULT_DISK_LIMIT);
+    }
+    return instance;
+  }
+
+
+  /**
+   * Get a thumbnail.
+   *
+   * @param photoId the photo ID.
+   * @param secret  the photo secret.
+   * @param size    the Flickr size suffix.
+   * @return the image bytes, or null if the thumbnail is not cached.
+   */
+  public byte[] get(String photoId, String secret, String size) {
+    String key = key(photoId, secret, size);
+    synchronized (this) {
+      byte[] bytes = this.memory.get(key);
+      if (bytes != null) {
+        this.memoryHits.incrementAndGet();
+        return bytes;
+      }
+    }
+
+    File file = new File(this.cacheDir, key);
+    if (file.isFile()) {
+      try {
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        // the modification time records when the file was last read, for eviction
+        file.setLastModified(System.currentTimeMillis());
+        this.putInMemory(key, bytes);
+        this.diskHits.incrementAndGet();
+        return bytes;
+      } catch (IOException e) {
+        logger.warn("Could not read cached thumbnail " + file.getAbsolutePath(), e);
+      }
+    }
+    this.misses.incrementAndGet();
+    return null;
+  }
+
+
+  /**
+   * Add a thumbnail to the cache.
+   *
+   * @param photoId the photo ID.
+   * @param secret  the photo secret.
+   * @param size    the Flickr size suffix.
+   * @param bytes   the image bytes, exactly as downloaded.
+   */
+  public void put(String photoId, String secret, String size, byte[] bytes) {
+    if (bytes == null || bytes.length == 0) {
+      return;
+    }
+    String key = key(photoId, secret, size);
+    this.putInMemory(key, bytes);
+
+    File file = new File(this.cacheDir, key);
+    File temp = new File(this.cacheDir, key + ".tmp");
+    try {
+      long previous = file.isFile() ? file.length() : 0;
+      Files.write(temp.toPath(), bytes);
+      Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      this.addDiskBytes(bytes.length - previous);
+    } catch (IOException e) {
+      logger.warn("Could not write cached thumbnail " + file.getAbsolutePath(), e);
+      temp.delete();
+    }
+  }
+
+
+  /**
+   * Remove a thumbnail from both tiers.
+   *
+   * @param photoId the photo ID.
+   * @param secret  the photo secret.
+   * @param size    the Flickr size suffix.
+   */
+  public void remove(String photoId, String secret, String size) {
+    String key = key(photoId, secret, size);
+    synchronized (this) {
+      byte[] bytes = this.memory.remove(key);
+      if (bytes != null) {
+        this.memoryBytes -= bytes.length;
+      }
+    }
+    File file = new File(this.cacheDir, key);
+    long length = file.length();
+    if (file.delete()) {
+      this.addDiskBytes(-length);
+    }
+  }
+
+
+  public long getMemoryHits() {
+    return this.memoryHits.get();
+  }
+
+  public long getDiskHits() {
+    return this.diskHits.get();
+  }
+
+  public long getMisses() {
+    return this.misses.get();
+  }
+
+
+  /**
+   * Get the share of requests that were answered from either tier.
+   *
+   * @return hit rate from 0 to 1, or 0 if there have been no requests.
+   */
+  public double getHitRate() {
+    long hits = this.memoryHits.get() + this.diskHits.get();
+    long total = hits + this.misses.get();
+    return total == 0 ? 0 : (double) hits / total;
+  }
+
+
+  @Override
+  public synchronized String toString() {
+    return String.format("ThumbnailCache{hitRate=%.1f%%, memoryHits=%d, diskHits=%d, misses=%d, memory=%d entries/%dKB}",
+        this.getHitRate() * 100, this.memoryHits.get(), this.diskHits.get(), this.misses.get(),
+        this.memory.size(), this.memoryBytes / 1024);
+  }
+
+
+  private synchronized void putInMemory(String key, byte[] bytes) {
+    byte[] previous = this.memory.put(key, bytes);
+    this.memoryBytes += bytes.length - (previous == null ? 0 : previous.length);
+    Iterator<Map.Entry<String, byte[]>> it = this.memory.entrySet().iterator();
+    while (this.memoryBytes > this.memoryLimit && it.hasNext()) {
+      Map.Entry<String, byte[]> eldest = it.next();
+      if (!eldest.getKey().equals(key)) {
+        this.memoryBytes -= eldest.getValue().length;
+        it.remove();
+      }
+    }
+  }
+
+
+  /*
+   * The size of the files on disk is counted the first time it is needed,
+   * then kept up to date as files are added and removed.
+   */
+  private synchronized void addDiskBytes(long delta) {
+    if (this.diskBytes < 0) {
+      this.diskBytes = 0;
+      for (File file : this.listFiles()) {
+        this.diskBytes += file.length();
+      }
+    } else {
+      this.diskBytes += delta;
+    }
+    if (this.diskBytes > this.diskLimit) {
+      this.evictFromDisk();
+    }
+  }
+
+
+  /*
+   * Delete the least recently read files until the cache is well under the
+   * limit, so eviction does not happen again on the next put.
+   */
+  private void evictFromDisk() {
+    File[] files = this.listFiles();
+    Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+    long target = this.diskLimit * 9 / 10;
+    int deleted = 0;
+    for (File file : files) {
+      if (this.diskBytes <= target) {
+        break;
+      }
+      long length = file.length();
+      if (file.delete()) {
+        this.diskBytes -= length;
+        deleted++;
+      }
+    }
+    logger.info("Deleted " + deleted + " thumbnails from the disk cache, " + (this.diskBytes / 1024) + "KB left.");
+  }
+
+
+  private File[] listFiles() {
+    File[] files = this.cacheDir.listFiles(file -> file.isFile() && !file.getName().endsWith(".tmp"));
+    return files == null ? new File[0] : files;
+  }
+
+
+  /**
+   * Delete the image_cache directory that was used by older versions of
+   * SuprSetr for the photo picker. Nothing reads it any more.
+   *
+   * @param configDir the configuration directory.
+   */
+  public static void deleteOldImageCache(File configDir) {
+    File dir = new File(configDir, "image_cache");
+    File[] files = dir.listFiles();
+    if (files == null) {
+      return;
+    }
+    for (File file : files) {
+      if (!file.delete()) {
+        logger.warn("Could not delete " + file.getAbsolutePath());
+      }
+    }
+    if (dir.delete()) {
+      logger.info("Deleted old image cache " + dir.getAbsolutePath());
+    }
+  }
+
+
+  private static String key(String photoId, String secret, String size) {
+    // photo ID's and secrets are hex or numeric; anything else is replaced so it is safe as a file name
+    return (photoId + '_' + secret + '_' + size).replaceAll("[^A-Za-z0-9_]", "_");
+  }
+}
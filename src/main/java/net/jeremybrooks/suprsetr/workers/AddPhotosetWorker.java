@@ -20,7 +20,6 @@
 package net.jeremybrooks.suprsetr.workers;
 
 import net.jeremybrooks.jinx.response.photos.Photo;
-import net.jeremybrooks.jinx.response.photos.SearchParameters;
 import net.jeremybrooks.jinx.response.photosets.Photoset;
 import net.jeremybrooks.jinx.response.photosets.PhotosetInfo;
 import net.jeremybrooks.suprsetr.BlockerPanel;
@@ -31,6 +30,7 @@ import net.jeremybrooks.suprsetr.dao.PhotosetDAO;
 import net.jeremybrooks.suprsetr.flickr.PhotoHelper;
 import net.jeremybrooks.suprsetr.flickr.PhotosetHelper;
 import net.jeremybrooks.suprsetr.flickr.SearchHelper;
+import net.jeremybrooks.suprsetr.flickr.SearchParametersFactory;
 import net.jeremybrooks.suprsetr.twitter.TwitterHelper;
 import net.jeremybrooks.suprsetr.utils.SSUtils;
 import org.apache.logging.log4j.LogManager;
@@ -95,38 +95,15 @@ public class AddPhotosetWorker extends SwingWorker<Void, Void> {
 		try {
 			logger.info(this.ssPhotoset.toString());
 			blocker.updateMessage(resourceBundle.getString("AddPhotosetWorker.blocker.searching"));
-			SearchParameters params;
+			SearchParametersFactory params;
 
 			if (ssPhotoset.isOnThisDay()) {
-				List<Photo> tempResults;
-				int endYear = ssPhotoset.getOnThisDayYearEnd();
-				if (endYear == 0) {
-					endYear = SSUtils.getCurrentYear();
-				}
-				if (ssPhotoset.getSortOrder() == 2) {
-					// Sorted by date taken descending
-					for (int year = endYear; year >= ssPhotoset.getOnThisDayYearStart(); year--) {
-					  tempResults = doSearchForYear(ssPhotoset, year);
-						logger.info("Got " + tempResults.size() + " results.");
-						if (photos == null) {
-							photos = tempResults;
-						} else {
-							photos.addAll(tempResults);
-						}
-					}
-				} else {
-					for (int year = ssPhotoset.getOnThisDayYearStart(); year <= endYear; year++) {
-					  tempResults = doSearchForYear(ssPhotoset, year);
-						logger.info("Got " + tempResults.size() + " results.");
-						if (photos == null) {
-							photos = tempResults;
-						} else {
-							photos.addAll(tempResults);
-						}
-					}
-				}
+				blocker.updateMessage(resourceBundle.getString("AddPhotosetWorker.blocker.searchingon") + " "
+						+ ssPhotoset.getOnThisDayMonth() + "/"
+						+ ssPhotoset.getOnThisDayDay() + "....");
+				photos = PhotoHelper.getInstance().getPhotosForOnThisDay(ssPhotoset);
 			} else {
-				params = SearchHelper.getInstance().getSearchParameters(this.ssPhotoset);
+				params = () -> SearchHelper.getInstance().getSearchParameters(this.ssPhotoset);
 				if (this.ssPhotoset.isLimitSize() && this.ssPhotoset.getSortOrder() != 9) {
 				  // handle limited size sets that are not sorted by random order
           // limited size sets sorted by random order are sized AFTER randomizing
@@ -214,7 +191,7 @@ public class AddPhotosetWorker extends SwingWorker<Void, Void> {
 				this.ssPhotoset.setLastRefreshDate(new Date());
 				this.ssPhotoset.setPhotos(photoCount);
                 this.ssPhotoset.setVideos(videoCount);
-				this.ssPhotoset.setPrimaryPhotoIcon(PhotoHelper.getInstance().getIconForPhoto(firstPhoto.getPhotoId()));
+				this.ssPhotoset.setPrimaryPhotoIcon(PhotoHelper.getInstance().getIconForPhoto(firstPhoto));
 				this.ssPhotoset.setSecret(newSet.getSecret());
 				this.ssPhotoset.setServer(newSet.getServer());
 				this.ssPhotoset.setSyncTimestamp(System.currentTimeMillis());
@@ -286,16 +263,4 @@ public class AddPhotosetWorker extends SwingWorker<Void, Void> {
 		}
 		blocker.unBlock();
 	}
-
-  private List<Photo> doSearchForYear(SSPhotoset ssPhotoset, int year) throws Exception {
-    SearchParameters params = SearchHelper.getInstance().getSearchParametersForOnThisDay(ssPhotoset, year);
-    blocker.updateMessage(resourceBundle.getString("RefreshPhotosetWorker.blocker.searchingon") + " " 
-        + ssPhotoset.getOnThisDayMonth() + "/"
-        + ssPhotoset.getOnThisDayDay() + "/"
-        + year + "....");
-
-    List<Photo> tempResults = PhotoHelper.getInstance().getPhotos(params);
-    logger.info("Got " + tempResults.size() + " results.");
-    return tempResults;
-  }
 }
@@ -21,20 +21,12 @@ package net.jeremybrooks.suprsetr.workers;
 
 import net.jeremybrooks.suprsetr.BlockerPanel;
 import net.jeremybrooks.suprsetr.MainWindow;
-import net.jeremybrooks.suprsetr.SSConstants;
 import net.jeremybrooks.suprsetr.dao.DAOHelper;
-import net.jeremybrooks.suprsetr.dao.LookupDAO;
-import net.jeremybrooks.suprsetr.utils.FileIsBackupDirectoryFilter;
-import net.jeremybrooks.suprsetr.utils.FilenameComparator;
-import org.apache.commons.io.FileUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import javax.swing.JOptionPane;
 import javax.swing.SwingWorker;
-import java.io.File;
-import java.io.IOException;
-import java.util.Arrays;
 import java.util.ResourceBundle;
 
 /**
@@ -74,22 +66,7 @@ public class DatabaseBackupWorker extends SwingWorker<Void, Void> {
 	protected Void doInBackground() {
 		try {
 			blocker.updateMessage(resourceBundle.getString("DatabaseBackupWorker.blocker.starting"));
-      File backupDirectory = new File(LookupDAO.getValueForKey(SSConstants.LOOKUP_KEY_BACKUP_DIRECTORY));
-
-      logger.info("Checking for old backups.");
-      // list all the current backups, and delete the oldest if there are more than
-      File[] files = backupDirectory.listFiles(new FileIsBackupDirectoryFilter());
-      if (null != files && files.length >= Integer.parseInt(LookupDAO.getValueForKey(SSConstants.LOOKUP_KEY_BACKUP_COUNT))) {
-        Arrays.sort(files, new FilenameComparator());
-        try {
-          logger.info("Deleting old backup {}", files[0].getAbsolutePath());
-          FileUtils.deleteDirectory(files[0]);
-        } catch (IOException ioe) {
-          logger.warn("Could not delete old backup {}", files[0].getAbsolutePath(), ioe);
-        }
-      }
-      File newBackup = new File(backupDirectory, Long.toString(System.currentTimeMillis()));
-      DAOHelper.performBackup(newBackup);
+      DAOHelper.backupDatabase();
 		} catch (Exception e) {
 			logger.error("THERE WAS AN ERROR DURING DATABASE BACKUP.", e);
 			JOptionPane.showMessageDialog(MainWindow.getMainWindow(),
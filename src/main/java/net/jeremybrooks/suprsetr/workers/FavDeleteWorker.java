@@ -31,6 +31,7 @@ import net.jeremybrooks.suprsetr.SSConstants;
 import net.jeremybrooks.suprsetr.dao.LookupDAO;
 import net.jeremybrooks.suprsetr.flickr.FlickrHelper;
 import net.jeremybrooks.suprsetr.flickr.PhotoHelper;
+import net.jeremybrooks.suprsetr.flickr.SearchParametersFactory;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -38,7 +39,6 @@ import javax.swing.JOptionPane;
 import javax.swing.SwingWorker;
 import java.util.Date;
 import java.util.EnumSet;
-import java.util.List;
 import java.util.ResourceBundle;
 
 
@@ -67,6 +67,9 @@ public class FavDeleteWorker extends SwingWorker<Void, Void> {
 
   private final String tagType;
 
+  /* Count of how many photos have been processed. */
+  private int processed = 0;
+
   /**
    * Create a new instance of FavrTagr.
    *
@@ -92,10 +95,6 @@ public class FavDeleteWorker extends SwingWorker<Void, Void> {
    */
   @Override
   protected Void doInBackground() {
-    List<Photo> photos;
-    int processed = 0;
-    int total;
-
     try {
       blocker.setTitle(resourceBundle.getString("FavDeleteWorker.blocker.title.running"));
       blocker.updateMessage(resourceBundle.getString("FavDeleteWorker.blocker.list"));
@@ -104,67 +103,35 @@ public class FavDeleteWorker extends SwingWorker<Void, Void> {
       //    All media types
       //    Uploaded from the beginning of time until tomorrow
       //    Return tags as well
-      SearchParameters params = new SearchParameters();
-      params.setUserId(FlickrHelper.getInstance().getNSID());
-      params.setMediaType(JinxConstants.MediaType.all);
-      params.setMinUploadDate(new Date(0));
-      params.setMaxUploadDate(new Date(System.currentTimeMillis() + 86400000));
-      if (this.tagType.equals("fav")) {
-        params.setExtras(EnumSet.of(JinxConstants.PhotoExtras.tags));
-      } else {
-        params.setExtras(EnumSet.of(JinxConstants.PhotoExtras.machine_tags));
-      }
-      photos = PhotoHelper.getInstance().getPhotos(params);
-
-      total = photos.size();
-
-      logger.info("Got " + total + " photos.");
-
-      blocker.updateMessage(resourceBundle.getString("FavDeleteWorker.blocker.looking"));
-
-      blocker.setTitle(resourceBundle.getString("FavDeleteWorker.blocker.title.status") + " " + processed + "/" + total);
-
-      // iterate through all photos
-      for (Photo p : photos) {
-        // if it looks like we might have some fav tags, get the photo info
-        boolean containsTag = false;
-        if (this.tagType.equals("fav")) {
-          String tags = p.getMachineTags();
-          if (tags != null) {
-            containsTag = tags.contains(this.tagType);
-          }
-        } else {
-          String machineTags = p.getMachineTags();
-          if (machineTags != null) {
-            containsTag = machineTags.contains(this.tagType);
-          }
+      Date maxUploadDate = new Date(System.currentTimeMillis() + 86400000);
+      EnumSet<JinxConstants.PhotoExtras> extras = this.tagType.equals("fav")
+          ? EnumSet.of(JinxConstants.PhotoExtras.tags)
+          : EnumSet.of(JinxConstants.PhotoExtras.machine_tags);
+      SearchParametersFactory params = () -> {
+        SearchParameters p = new SearchParameters();
+        p.setUserId(FlickrHelper.getInstance().getNSID());
+        p.setMediaType(JinxConstants.MediaType.all);
+        p.setMinUploadDate(new Date(0));
+        p.setMaxUploadDate(maxUploadDate);
+        p.setExtras(EnumSet.copyOf(extras));
+        return p;
+      };
+
+      // process each page of photos as it arrives
+      PhotoHelper.getInstance().forEachPage(params, (photos, page, pages, total) -> {
+        if (page == 1) {
+          logger.info("Got " + total + " photos.");
+          blocker.updateMessage(resourceBundle.getString("FavDeleteWorker.blocker.looking"));
+          blocker.setTitle(resourceBundle.getString("FavDeleteWorker.blocker.title.status") + " " + this.processed + "/" + total);
         }
-        if (containsTag) {
-          PhotoInfo pi = PhotoHelper.getInstance().getPhotoInfo(p);
-          // Look for this.tagType tags, and delete them.
-          for (Tag tag : pi.getTags()) {
-            if (tag.getRaw().startsWith(this.tagType)) {
-              try {
-                if (Integer.parseInt(tag.getRaw().substring(this.tagType.length())) > 0) {
-                  logger.info("Removing tag {} from photo {}", tag, p.getPhotoId());
-                  PhotoHelper.getInstance().removeTag(tag.getTagId());
-                  this.count++;
-                  LogWindow.addLogMessage(resourceBundle.getString("FavDeleteWorker.log.removed") +
-                      " " + tag.getTag() + " " +
-                      resourceBundle.getString("FavDeleteWorker.log.fromphoto") +
-                      " " + p.getPhotoId());
-                }
-              } catch (Exception e) {
-                logger.warn("Error removing tag " + tag.getRaw() + " from photo + " + p.getPhotoId(), e);
-              }
-            }
+        for (Photo p : photos) {
+          this.processPhoto(p);
+          this.processed++;
+          if (this.processed % 100 == 0) {
+            blocker.setTitle(resourceBundle.getString("FavDeleteWorker.blocker.title.finished") + " " + this.processed + "/" + total);
           }
         }
-        processed++;
-        if (processed % 100 == 0) {
-          blocker.setTitle(resourceBundle.getString("FavDeleteWorker.blocker.title.finished") + " " + processed + "/" + total);
-        }
-      }
+      });
     } catch (Exception e) {
       logger.info("ERROR RUNNING FAV TAG DELETE.", e);
     }
@@ -172,6 +139,50 @@ public class FavDeleteWorker extends SwingWorker<Void, Void> {
   }
 
 
+  /**
+   * Remove fave tags from a photo.
+   *
+   * @param p the photo to process.
+   * @throws Exception if there are any errors getting the photo info.
+   */
+  private void processPhoto(Photo p) throws Exception {
+    // if it looks like we might have some fav tags, get the photo info
+    boolean containsTag = false;
+    if (this.tagType.equals("fav")) {
+      String tags = p.getMachineTags();
+      if (tags != null) {
+        containsTag = tags.contains(this.tagType);
+      }
+    } else {
+      String machineTags = p.getMachineTags();
+      if (machineTags != null) {
+        containsTag = machineTags.contains(this.tagType);
+      }
+    }
+    if (containsTag) {
+      PhotoInfo pi = PhotoHelper.getInstance().getPhotoInfo(p);
+      // Look for this.tagType tags, and delete them.
+      for (Tag tag : pi.getTags()) {
+        if (tag.getRaw().startsWith(this.tagType)) {
+          try {
+            if (Integer.parseInt(tag.getRaw().substring(this.tagType.length())) > 0) {
+              logger.info("Removing tag {} from photo {}", tag, p.getPhotoId());
+              PhotoHelper.getInstance().removeTag(tag.getTagId());
+              this.count++;
+              LogWindow.addLogMessage(resourceBundle.getString("FavDeleteWorker.log.removed") +
+                  " " + tag.getTag() + " " +
+                  resourceBundle.getString("FavDeleteWorker.log.fromphoto") +
+                  " " + p.getPhotoId());
+            }
+          } catch (Exception e) {
+            logger.warn("Error removing tag " + tag.getRaw() + " from photo + " + p.getPhotoId(), e);
+          }
+        }
+      }
+    }
+  }
+
+
   /**
    * Finished, so unblock the GUI and tell the user how many photos were
    * updated by the operation. That way they know the wait was worth it.
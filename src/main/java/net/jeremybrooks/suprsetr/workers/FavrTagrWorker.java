@@ -31,6 +31,7 @@ import net.jeremybrooks.suprsetr.dao.LookupDAO;
 import net.jeremybrooks.suprsetr.flickr.FlickrHelper;
 import net.jeremybrooks.suprsetr.flickr.JinxFactory;
 import net.jeremybrooks.suprsetr.flickr.PhotoHelper;
+import net.jeremybrooks.suprsetr.flickr.SearchParametersFactory;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -82,6 +83,9 @@ public class FavrTagrWorker extends SwingWorker<Void, Void> {
 
   private String tagType = "fav";
 
+  /* Count of how many photos have been processed. */
+  private int processed = 0;
+
   private final ResourceBundle resourceBundle = ResourceBundle.getBundle("net.jeremybrooks.suprsetr.workers");
 
   /**
@@ -135,11 +139,6 @@ public class FavrTagrWorker extends SwingWorker<Void, Void> {
       return null;
     }
 
-    List<Photo> photoList;
-    List<String> newFaves;
-    int processed = 0;
-    int total;
-
     try {
       blocker.setTitle(resourceBundle.getString("FavrTagrWorker.blocker.title"));
       blocker.updateMessage(resourceBundle.getString("FavrTagrWorker.blocker.list"));
@@ -148,96 +147,108 @@ public class FavrTagrWorker extends SwingWorker<Void, Void> {
       //    All media types
       //    Uploaded from the beginning of time until tomorrow
       //    Return tags as well
-      SearchParameters params = new SearchParameters();
-      params.setUserId(FlickrHelper.getInstance().getNSID());
-      params.setMediaType(JinxConstants.MediaType.all);
-      params.setMinUploadDate(new Date(0));
-      params.setMaxUploadDate(new Date(System.currentTimeMillis() + 86400000));
-      params.setExtras(EnumSet.of(JinxConstants.PhotoExtras.tags));
-      photoList = PhotoHelper.getInstance().getPhotos(params);
+      Date maxUploadDate = new Date(System.currentTimeMillis() + 86400000);
+      SearchParametersFactory params = () -> {
+        SearchParameters p = new SearchParameters();
+        p.setUserId(FlickrHelper.getInstance().getNSID());
+        p.setMediaType(JinxConstants.MediaType.all);
+        p.setMinUploadDate(new Date(0));
+        p.setMaxUploadDate(maxUploadDate);
+        p.setExtras(EnumSet.of(JinxConstants.PhotoExtras.tags));
+        return p;
+      };
 
-      total = photoList.size();
+      // process each page of photos as it arrives
+      PhotoHelper.getInstance().forEachPage(params, (photos, page, pages, total) -> {
+        if (page == 1) {
+          logger.info("Got " + total + " photos.");
+          blocker.updateMessage(resourceBundle.getString("FavrTagrWorker.blocker.looking"));
+          blocker.setTitle(resourceBundle.getString("FavrTagrWorker.blocker.title.status") + " " + this.processed + "/" + total);
+        }
+        for (Photo p : photos) {
+          this.processPhoto(p);
+          this.processed++;
+          if (this.processed % 100 == 0) {
+            blocker.setTitle(resourceBundle.getString("FavrTagrWorker.blocker.title.status") +
+                " " + this.processed + "/" + total);
+          }
+        }
+      });
 
-      logger.info("Got " + total + " photos.");
+    } catch (Exception e) {
+      logger.info("ERROR RUNNING FAVRTAGR.", e);
+    }
 
-      blocker.updateMessage(resourceBundle.getString("FavrTagrWorker.blocker.looking"));
+    return null;
+  }
 
-      blocker.setTitle(resourceBundle.getString("FavrTagrWorker.blocker.title.status") + " " + processed + "/" + total);
 
-      // iterate through all photos
-      for (Photo p : photoList) {
-        int faves = PhotoHelper.getInstance().getFavoriteCount(p);
-        if (faves > this.maxFaves) {
-          maxFaves = faves;
-          this.favoritePhoto = p;
-        }
+  /**
+   * Add any missing fave tags to a photo.
+   *
+   * @param p the photo to process.
+   * @throws Exception if there are any errors getting the favorite count.
+   */
+  private void processPhoto(Photo p) throws Exception {
+    int faves = PhotoHelper.getInstance().getFavoriteCount(p);
+    if (faves > this.maxFaves) {
+      maxFaves = faves;
+      this.favoritePhoto = p;
+    }
+
+    // tags look like this:
+    // street usa abstract bike bicycle boston lights bokeh commuter massachusets
+
+    // get the new fave tags that should be added to this photo, if any
+    List<String> existingTags = Arrays.asList(p.getTags().split(" "));
+    List<String> newFaves = this.getFavTags(existingTags, faves);
+    if (newFaves != null && newFaves.size() > 0) {
+      // Try to stay within the limit of 75 tags per photo
+      // count existing tags
+      // if existing + new > 75, trim the new tag list
+      if (existingTags.size() >= 75) {
+        this.hasErrors = true;
+        StringBuilder sb = new StringBuilder(resourceBundle.getString("FavrTagrWorker.message.toomanytags1"));
+        sb.append(" ").append(p.getPhotoId()).append(" <").append(JinxFactory.getInstance().buildUrlForPhoto(p)).append("> ");
+        sb.append(resourceBundle.getString("FavrTagrWorker.message.toomanytags2"));
+        LogWindow.addLogMessage(sb.toString());
+      } else if (existingTags.size() + newFaves.size() > 75) {
+        // remove elements from the beginning of the list as needed
+        int del = (existingTags.size() + newFaves.size()) - 75;
+        newFaves.subList(0, del).clear();
+        LogWindow.addLogMessage(resourceBundle.getString("message.photo") + " " + p.getPhotoId() +
+            " " + resourceBundle.getString("FavrTagrWorker.message.toomanytags3"));
+      }
 
-        // tags look like this:
-        // street usa abstract bike bicycle boston lights bokeh commuter massachusets
-
-        // get the new fave tags that should be added to this photo, if any
-        List<String> existingTags = Arrays.asList(p.getTags().split(" "));
-        newFaves = this.getFavTags(existingTags, faves);
-        if (newFaves != null && newFaves.size() > 0) {
-          // Try to stay within the limit of 75 tags per photo
-          // count existing tags
-          // if existing + new > 75, trim the new tag list
-          if (existingTags.size() >= 75) {
+      // Don't even try if there are too many tags.
+      if (existingTags.size() < 75) {
+        try {
+          PhotoHelper.getInstance().addTags(p, newFaves.toArray(new String[0]));
+          LogWindow.addLogMessage(resourceBundle.getString("message.Photo") +
+              " " + p.getPhotoId() + "  " + resourceBundle.getString("FavrTagrWorker.message.taggedwith") + " " + newFaves);
+          blocker.updateMessage(resourceBundle.getString("FavrTagrWorker.blocker.tagged") +
+              " '" + p.getTitle() +
+              resourceBundle.getString("FavrTagrWorker.blocker.lookingmore"));
+          this.count++;
+        } catch (JinxException je) {
+          if (je.getFlickrErrorCode() == 2) {
+            // Too many tags, so display a message in the log window,
+            // and set a flag
+            // This should not happen unless Flickr changes
+            // the limit, since we already check for the number
+            // of tags before attempting to add more.
             this.hasErrors = true;
             StringBuilder sb = new StringBuilder(resourceBundle.getString("FavrTagrWorker.message.toomanytags1"));
             sb.append(" ").append(p.getPhotoId()).append(" <").append(JinxFactory.getInstance().buildUrlForPhoto(p)).append("> ");
             sb.append(resourceBundle.getString("FavrTagrWorker.message.toomanytags2"));
             LogWindow.addLogMessage(sb.toString());
-          } else if (existingTags.size() + newFaves.size() > 75) {
-            // remove elements from the beginning of the list as needed
-            int del = (existingTags.size() + newFaves.size()) - 75;
-            newFaves.subList(0, del).clear();
-            LogWindow.addLogMessage(resourceBundle.getString("message.photo") + " " + p.getPhotoId() +
-                " " + resourceBundle.getString("FavrTagrWorker.message.toomanytags3"));
-          }
-
-          // Don't even try if there are too many tags.
-          if (existingTags.size() < 75) {
-            try {
-              PhotoHelper.getInstance().addTags(p, newFaves.toArray(new String[0]));
-              LogWindow.addLogMessage(resourceBundle.getString("message.Photo") +
-                  " " + p.getPhotoId() + "  " + resourceBundle.getString("FavrTagrWorker.message.taggedwith") + " " + newFaves);
-              blocker.updateMessage(resourceBundle.getString("FavrTagrWorker.blocker.tagged") +
-                  " '" + p.getTitle() +
-                  resourceBundle.getString("FavrTagrWorker.blocker.lookingmore"));
-              this.count++;
-            } catch (JinxException je) {
-              if (je.getFlickrErrorCode() == 2) {
-                // Too many tags, so display a message in the log window,
-                // and set a flag
-                // This should not happen unless Flickr changes
-                // the limit, since we already check for the number
-                // of tags before attempting to add more.
-                this.hasErrors = true;
-                StringBuilder sb = new StringBuilder(resourceBundle.getString("FavrTagrWorker.message.toomanytags1"));
-                sb.append(" ").append(p.getPhotoId()).append(" <").append(JinxFactory.getInstance().buildUrlForPhoto(p)).append("> ");
-                sb.append(resourceBundle.getString("FavrTagrWorker.message.toomanytags2"));
-                LogWindow.addLogMessage(sb.toString());
-              }
-            } catch (Exception e) {
-
-              logger.warn("ERROR ADDING TAGS.", e);
-            }
           }
-        }
+        } catch (Exception e) {
 
-        processed++;
-        if (processed % 100 == 0) {
-          blocker.setTitle(resourceBundle.getString("FavrTagrWorker.blocker.title.status") +
-              " " + processed + "/" + total);
+          logger.warn("ERROR ADDING TAGS.", e);
         }
       }
-
-    } catch (Exception e) {
-      logger.info("ERROR RUNNING FAVRTAGR.", e);
     }
-
-    return null;
   }
 
 
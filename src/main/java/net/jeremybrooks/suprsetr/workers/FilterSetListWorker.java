@@ -16,54 +16,53 @@
  *   You should have received a copy of the GNU General Public License
  *   along with SuprSetr.  If not, see <http://www.gnu.org/licenses/>.
  */
-
 package net.jeremybrooks.suprsetr.workers;
 
-import net.jeremybrooks.suprsetr.BlockerPanel;
 import net.jeremybrooks.suprsetr.MainWindow;
 import net.jeremybrooks.suprsetr.SSPhotoset;
+import net.jeremybrooks.suprsetr.SetListModel;
+import net.jeremybrooks.suprsetr.utils.SetFilterIndex;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
-import javax.swing.DefaultListModel;
 import javax.swing.SwingWorker;
 import java.util.List;
-import java.util.ResourceBundle;
 
 
 /**
- * This class updates the main window list on a background thread.
+ * This class filters the main window list on a background thread.
+ *
+ * <p>The matching sets are found with a {@link SetFilterIndex}, which is fast
+ * enough that the GUI does not need to be blocked. When the worker is done,
+ * the list model is replaced with the matching sets in one update.</p>
  *
- * <p>This class extends SwingWorker, so the GUI can remain responsive and
- * the user can be updated about the progress of the operation. The
- * BlockerPanel class is used to prevent the user from accessing the GUI during
- * the operation, and to provide the user with feedback.</p>
+ * <p>If the user changes the filter before this worker is done, the worker
+ * should be cancelled. A cancelled worker does not change the list model.</p>
  *
  * @author Jeremy Brooks
  */
-public class FilterSetListWorker extends SwingWorker<Void, SSPhotoset> {
-  private final BlockerPanel blocker;
-  private final List<SSPhotoset> list;
+public class FilterSetListWorker extends SwingWorker<List<SSPhotoset>, Void> {
+  private static final Logger logger = LogManager.getLogger(FilterSetListWorker.class);
+  private final SetFilterIndex index;
   private final String filter;
-  private final DefaultListModel<SSPhotoset> listModel;
+  private final SetListModel listModel;
   private final boolean hideUnmanaged;
   private final boolean hideManaged;
   private final String visiblePhotosetId;
-  private final ResourceBundle resourceBundle = ResourceBundle.getBundle("net.jeremybrooks.suprsetr.workers");
 
   /**
-   * Create a new instance of MasterListWorker.
+   * Create a new instance of FilterSetListWorker.
    *
-   * @param blocker           the blocker instance.
-   * @param list              the list of photosets.
+   * @param index             the index of the photosets.
    * @param filter            filter used to determine which sets to add.
    * @param listModel         the list model.
    * @param hideUnmanaged     hide unmanaged sets.
-   *                          @param hideManaged hide managed sets.
+   * @param hideManaged       hide managed sets.
    * @param visiblePhotosetId the photoset that should be visible in the list.
    */
-  public FilterSetListWorker(BlockerPanel blocker, List<SSPhotoset> list, String filter, DefaultListModel<SSPhotoset> listModel,
+  public FilterSetListWorker(SetFilterIndex index, String filter, SetListModel listModel,
                              boolean hideUnmanaged, boolean hideManaged, String visiblePhotosetId) {
-    this.blocker = blocker;
-    this.list = list;
+    this.index = index;
     this.filter = filter;
     this.listModel = listModel;
     this.hideUnmanaged = hideUnmanaged;
@@ -73,47 +72,33 @@ public class FilterSetListWorker extends SwingWorker<Void, SSPhotoset> {
 
 
   /**
-   * Updates the list model, adding photosets that match the filter.
+   * Find the photosets that match the filter.
    *
    * <p>The filter is NOT case sensitive.</p>
    *
-   * @return this method does not return any data.
+   * @return the matching photosets.
    */
   @Override
-  protected Void doInBackground() {
-    blocker.block(resourceBundle.getString("FilterSetListWorker.blocker.working"));
-    int i = 1;
-    for (SSPhotoset set : this.list) {
-      if (filter == null || set.getTitle().toLowerCase().contains(filter)) {
-        if (!hideUnmanaged && !hideManaged) {
-          publish(set);
-        } else if (hideUnmanaged && set.isManaged()) {
-          publish(set);
-        } else if (hideManaged && !set.isManaged()) {
-          publish(set);
-        }
-      }
-
-      if (i % 10 == 0) {
-        blocker.updateMessage(resourceBundle.getString("FilterSetListWorker.blocker.working") + " (" + i + "/" + list.size() + ")");
-      }
-      i++;
-    }
-    return null;
-  }
-
-  @Override
-  protected void process(List<SSPhotoset> list) {
-    for (SSPhotoset set : list) {
-      this.listModel.addElement(set);
-    }
+  protected List<SSPhotoset> doInBackground() {
+    return this.index.filter(this.filter, this.hideUnmanaged, this.hideManaged);
   }
 
   /**
-   * Finished, so unblock.
+   * Finished, so replace the contents of the list model.
    */
   @Override
   protected void done() {
+    if (isCancelled()) {
+      return;
+    }
+    try {
+      List<SSPhotoset> result = get();
+      this.listModel.setAll(result);
+    } catch (Exception e) {
+      logger.error("Error filtering the set list.", e);
+      return;
+    }
+
     // if updating a specific photoset, scroll to it
     // otherwise, scroll to the top
     if (this.visiblePhotosetId == null) {
@@ -122,6 +107,5 @@ public class FilterSetListWorker extends SwingWorker<Void, SSPhotoset> {
       MainWindow.getMainWindow().scrollToPhotoset(this.visiblePhotosetId);
     }
     MainWindow.getMainWindow().updateTitle();
-    blocker.unBlock();
   }
 }
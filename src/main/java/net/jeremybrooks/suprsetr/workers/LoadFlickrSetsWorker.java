@@ -25,15 +25,22 @@ import net.jeremybrooks.suprsetr.MainWindow;
 import net.jeremybrooks.suprsetr.SSConstants;
 import net.jeremybrooks.suprsetr.SSPhotoset;
 import net.jeremybrooks.suprsetr.dao.PhotosetDAO;
+import net.jeremybrooks.suprsetr.dao.PhotosetIconDAO;
 import net.jeremybrooks.suprsetr.flickr.FlickrHelper;
 import net.jeremybrooks.suprsetr.flickr.PhotosetHelper;
+import net.jeremybrooks.suprsetr.utils.SimpleCache;
+import net.jeremybrooks.suprsetr.utils.ThumbnailCache;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import javax.swing.JOptionPane;
 import javax.swing.SwingWorker;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.ResourceBundle;
+import java.util.Set;
 
 
 /**
@@ -57,6 +64,12 @@ public class LoadFlickrSetsWorker extends SwingWorker<Void, SSPhotoset> {
 
   private final ResourceBundle resourceBundle = ResourceBundle.getBundle("net.jeremybrooks.suprsetr.workers");
 
+  /* Photosets that need an icon from Flickr, retrieved after the list is shown. */
+  private final List<SSPhotoset> needIcons = new ArrayList<>();
+
+  /* The Flickr photosets, by photoset ID. */
+  private final Map<String, Photoset> flickrPhotosets = new HashMap<>();
+
 
   /**
    * Create a new instance of LoadFlickrSets.
@@ -83,11 +96,19 @@ public class LoadFlickrSetsWorker extends SwingWorker<Void, SSPhotoset> {
 
     try {
       List<Photoset> photosets = PhotosetHelper.getInstance().getPhotosets(nsid);
+
+      // read what is already in the database in two queries, instead of two per set
+      Map<String, SSPhotoset> existing = PhotosetDAO.getPhotosetMap();
+      Set<String> withIcons = PhotosetIconDAO.getPhotosetIdsWithIcons();
+      List<SSPhotoset> inserts = new ArrayList<>();
+      List<SSPhotoset> updates = new ArrayList<>();
+
       for (Photoset p : photosets) {
+        flickrPhotosets.put(p.getPhotosetId(), p);
         blocker.updateMessage(resourceBundle.getString("LoadFlickrSetsWorker.blocker.processing") +
             " \"" + p.getTitle() + "\"");
 
-        SSPhotoset ssp = PhotosetDAO.getPhotosetForId(p.getPhotosetId());
+        SSPhotoset ssp = existing.get(p.getPhotosetId());
 
         if (ssp == null) {
           // NEW SET, ADD TO DATABASE
@@ -117,14 +138,14 @@ public class LoadFlickrSetsWorker extends SwingWorker<Void, SSPhotoset> {
           ssp.setManaged(false);
           ssp.setMatchTakenDates(false);
           ssp.setMatchUploadDates(false);
-          ssp.setPrimaryPhotoIcon(PhotosetHelper.getInstance().getIconForPhotoset(p));
           ssp.setSyncTimestamp(sync);
           ssp.setTagMatchMode("NONE");
           ssp.setTags("");
           ssp.setSendTweet(false);
           ssp.setTweetTemplate(SSConstants.DEFAULT_TWEET_TEMPLATE);
 
-          PhotosetDAO.insertPhotoset(ssp);
+          inserts.add(ssp);
+          needIcons.add(ssp);
 
 
         } else {
@@ -133,14 +154,13 @@ public class LoadFlickrSetsWorker extends SwingWorker<Void, SSPhotoset> {
           ssp.setVideos(p.getVideos());
           ssp.setViewCount(p.getCountViews());
 
-          if (ssp.getPrimaryPhotoIcon() == null) {
+          if (!withIcons.contains(ssp.getPhotosetId())) {
             logger.info("Retrieving missing icon for set " + ssp.getTitle());
-            ssp.setPrimaryPhotoIcon(PhotosetHelper.getInstance().getIconForPhotoset(p));
-          }
-          if (!p.getPrimary().equals(ssp.getPrimary())) {
-            ssp.setPrimary(p.getPrimary());
-            ssp.setPrimaryPhotoIcon(PhotosetHelper.getInstance().getIconForPhotoset(p));
+            needIcons.add(ssp);
+          } else if (!p.getPrimary().equals(ssp.getPrimary())) {
+            needIcons.add(ssp);
           }
+          ssp.setPrimary(p.getPrimary());
           if (!p.getTitle().equals(ssp.getTitle())) {
             ssp.setTitle(p.getTitle());
           }
@@ -162,20 +182,26 @@ public class LoadFlickrSetsWorker extends SwingWorker<Void, SSPhotoset> {
           sb.append("/");
           ssp.setUrl(sb.toString());
 
-          // SAVE THE UPDATED SET TO THE DATABASE
-          PhotosetDAO.updatePhotoset(ssp);
+          updates.add(ssp);
         }
 
       }
 
+      // SAVE ALL THE CHANGES IN ONE TRANSACTION
+      // icons are retrieved after the list is shown, by LoadSetIconsWorker
+      blocker.updateMessage(resourceBundle.getString("LoadFlickrSetsWorker.blocker.saving"));
+      PhotosetDAO.savePhotosets(inserts, updates);
+
       // NOW, DELETE RECORDS THAT NO LONGER EXIST ON FLICKR
-      List<SSPhotoset> allData = PhotosetDAO.getPhotosetListOrderByTitle();
-      for (SSPhotoset ssp : allData) {
-        if (ssp.getSyncTimestamp() != sync) {
-          PhotosetDAO.delete(ssp);
-        }
+      List<String> deleted = PhotosetDAO.deleteNotSynced(sync);
+      for (String id : deleted) {
+        logger.info("Deleted photoset " + id + ", which is no longer on Flickr.");
+        SimpleCache.getInstance().remove(id);
       }
+      logger.info(ThumbnailCache.getInstance().toString());
+      logger.info(SimpleCache.getInstance().toString());
     } catch (Exception e) {
+      needIcons.clear();
       logger.error("ERROR GETTING PHOTOSET LIST.", e);
       JOptionPane.showMessageDialog(null,
           resourceBundle.getString("LoadFlickrSetsWorker.dialog.error.message") + " " + e.getMessage(),
@@ -202,5 +228,10 @@ public class LoadFlickrSetsWorker extends SwingWorker<Void, SSPhotoset> {
           JOptionPane.WARNING_MESSAGE);
     }
     blocker.unBlock();
+
+    if (!needIcons.isEmpty()) {
+      logger.info("Retrieving icons for " + needIcons.size() + " photosets.");
+      new LoadSetIconsWorker(needIcons, flickrPhotosets).execute();
+    }
   }
 }
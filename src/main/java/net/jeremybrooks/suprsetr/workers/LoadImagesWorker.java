@@ -25,7 +25,8 @@ import net.jeremybrooks.jinx.response.photosets.PhotosetPhotos;
 import net.jeremybrooks.suprsetr.BlockerPanel;
 import net.jeremybrooks.suprsetr.flickr.JinxFactory;
 import net.jeremybrooks.suprsetr.flickr.PhotoHelper;
-import net.jeremybrooks.suprsetr.utils.ObjectCache;
+import net.jeremybrooks.suprsetr.flickr.RateLimiter;
+import net.jeremybrooks.suprsetr.utils.IconUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -33,6 +34,7 @@ import javax.swing.ImageIcon;
 import javax.swing.JDialog;
 import javax.swing.SwingWorker;
 import java.util.List;
+import java.util.Map;
 import java.util.ResourceBundle;
 
 
@@ -60,8 +62,8 @@ public class LoadImagesWorker extends SwingWorker<Void, Void> {
   /* The page of photos to get. */
   private final int page;
 
-  /* The object cache to use. */
-  private final ObjectCache cache;
+  /* Icons for the photos the picker has shown, by photo ID. */
+  private final Map<String, ImageIcon> icons;
 
   /* The photos object used by the picker. */
   private final List<Photo> thePhotos;
@@ -78,16 +80,16 @@ public class LoadImagesWorker extends SwingWorker<Void, Void> {
    * @param blocker    the blocker instance.
    * @param photosetId string array of photoset id's.
    * @param page       page of photos.
-   * @param cache      the object cache.
+   * @param icons      icons for the photos, by photo ID.
    * @param thePhotos  list of photos.
    * @param parent     the parent component.
    */
   public LoadImagesWorker(BlockerPanel blocker, String photosetId, int page,
-                          ObjectCache cache, List<Photo> thePhotos, JDialog parent) {
+                          Map<String, ImageIcon> icons, List<Photo> thePhotos, JDialog parent) {
     this.blocker = blocker;
     this.photosetId = photosetId;
     this.page = page;
-    this.cache = cache;
+    this.icons = icons;
     this.thePhotos = thePhotos;
     this.parent = parent;
   }
@@ -106,17 +108,20 @@ public class LoadImagesWorker extends SwingWorker<Void, Void> {
     this.thePhotos.clear();
     try {
       // Now get the first 25 photos and populate the model
-      p = JinxFactory.getInstance().getPhotosetsApi().getPhotos(photosetId, null, null, 25, page, JinxConstants.MediaType.all);
+      p = RateLimiter.getInstance().call("flickr.photosets.getPhotos", () -> JinxFactory.getInstance().getPhotosetsApi().getPhotos(photosetId, null, null, 25, page, JinxConstants.MediaType.all));
       List<Photo> photoList = p.getPhotoList();
       if (photoList != null) {
         total = photoList.size();
         for (Photo photo : photoList) {
-          if (this.cache.get(photo.getPhotoId()) == null) {
+          if (!this.icons.containsKey(photo.getPhotoId())) {
             blocker.updateMessage(resourceBundle.getString("LoadImagesWorker.blocker.loading") +
                 " " + (count++) + "/" + total + " ("
                 + photo.getTitle() + ")");
-            ImageIcon image = PhotoHelper.getInstance().getIconForPhoto(photo.getPhotoId());
-            this.cache.put(photo.getPhotoId(), image);
+            // thumbnails already downloaded come from the shared thumbnail cache
+            ImageIcon image = IconUtils.decode(PhotoHelper.getInstance().getIconForPhoto(photo));
+            if (image != null) {
+              this.icons.put(photo.getPhotoId(), image);
+            }
           }
           this.thePhotos.add(photo);
           this.parent.repaint();
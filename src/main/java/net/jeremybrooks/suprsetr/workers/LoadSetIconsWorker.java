@@ -0,0 +1,164 @@
+/*
+ *  SuprSetr is Copyright 2010-2023 by Jeremy Brooks
+ *
+ *  This file is part of SuprSetr.
+ *
+ *   SuprSetr is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   SuprSetr is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with SuprSetr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.jeremybrooks.suprsetr.workers;
+
+import net.jeremybrooks.jinx.response.photosets.Photoset;
+import net.jeremybrooks.suprsetr.MainWindow;
+import net.jeremybrooks.suprsetr.SSPhotoset;
+import net.jeremybrooks.suprsetr.dao.PhotosetDAO;
+import net.jeremybrooks.suprsetr.flickr.PhotosetHelper;
+import net.jeremybrooks.suprsetr.flickr.RateLimiter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.swing.SwingWorker;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+
+/**
+ * This class retrieves the icons for photosets from Flickr after the
+ * photosets have been saved.
+ *
+ * <p>The icons are downloaded by a pool of threads. As they arrive, they are
+ * saved to the database in batches, and the rows showing those photosets are
+ * repainted. The user does not have to wait for the icons, so there is no
+ * blocker.</p>
+ *
+ * @author Jeremy Brooks
+ */
+public class LoadSetIconsWorker extends SwingWorker<Void, SSPhotoset> {
+
+  /* Logging. */
+  private static final Logger logger = LogManager.getLogger(LoadSetIconsWorker.class);
+
+  /* Number of icons to save to the database at a time. */
+  static final int BATCH_SIZE = 25;
+
+  /* The photosets that need icons. */
+  private final List<SSPhotoset> photosets;
+
+  /* The Flickr photosets, with the primary photo information, by photoset ID. */
+  private final Map<String, Photoset> flickrPhotosets;
+
+
+  /**
+   * Create a new instance of LoadSetIconsWorker.
+   *
+   * @param photosets       the photosets that need icons.
+   * @param flickrPhotosets the Flickr photoset for each of the photosets,
+   *                        by photoset ID.
+   */
+  public LoadSetIconsWorker(List<SSPhotoset> photosets, Map<String, Photoset> flickrPhotosets) {
+    this.photosets = photosets;
+    this.flickrPhotosets = flickrPhotosets;
+  }
+
+
+  /**
+   * Download the icons, saving them as they arrive.
+   *
+   * <p>Every call goes through the rate limiter, so the pool is sized to
+   * the number of calls it currently allows at once.</p>
+   *
+   * @return this method does not return any data.
+   */
+  @Override
+  protected Void doInBackground() {
+    long start = System.currentTimeMillis();
+    int threads = Math.max(1, Math.min(this.photosets.size(), RateLimiter.getInstance().getConcurrencyLimit()));
+    ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+      Thread t = new Thread(r, "SetIconDownloader");
+      t.setDaemon(true);
+      return t;
+    });
+    CompletionService<SSPhotoset> completionService = new ExecutorCompletionService<>(executor);
+    for (SSPhotoset ssp : this.photosets) {
+      Photoset p = this.flickrPhotosets.get(ssp.getPhotosetId());
+      completionService.submit(() -> {
+        ssp.setPrimaryPhotoIcon(PhotosetHelper.getInstance().getIconForPhotoset(p));
+        return ssp;
+      });
+    }
+    executor.shutdown();
+
+    int saved = 0;
+    List<SSPhotoset> batch = new ArrayList<>();
+    try {
+      for (int i = 0; i < this.photosets.size(); i++) {
+        Future<SSPhotoset> future = completionService.take();
+        try {
+          batch.add(future.get());
+        } catch (Exception e) {
+          logger.warn("Could not retrieve a photoset icon.", e);
+        }
+        if (batch.size() >= BATCH_SIZE) {
+          saved += save(batch);
+        }
+      }
+      saved += save(batch);
+    } catch (InterruptedException e) {
+      logger.warn("Interrupted while retrieving photoset icons.");
+      executor.shutdownNow();
+      Thread.currentThread().interrupt();
+    }
+    logger.info("Retrieved " + saved + " of " + this.photosets.size() + " photoset icons using " +
+        threads + " threads in " + (System.currentTimeMillis() - start) + "ms.");
+    return null;
+  }
+
+
+  /*
+   * Save a batch of icons and send the photosets to the GUI.
+   * The batch is cleared.
+   */
+  private int save(List<SSPhotoset> batch) {
+    if (batch.isEmpty()) {
+      return 0;
+    }
+    int count = batch.size();
+    try {
+      PhotosetDAO.updateIconsForPhotosets(batch);
+      publish(batch.toArray(new SSPhotoset[0]));
+    } catch (Exception e) {
+      logger.error("ERROR SAVING " + count + " PHOTOSET ICONS.", e);
+      count = 0;
+    }
+    batch.clear();
+    return count;
+  }
+
+
+  /**
+   * Show the new icons in the main window.
+   *
+   * @param chunks photosets with new icons.
+   */
+  @Override
+  protected void process(List<SSPhotoset> chunks) {
+    MainWindow.getMainWindow().updatePhotosetIcons(chunks);
+  }
+}
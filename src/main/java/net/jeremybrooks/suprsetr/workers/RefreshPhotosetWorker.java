@@ -20,30 +20,23 @@
 package net.jeremybrooks.suprsetr.workers;
 
 
-import net.jeremybrooks.jinx.response.photos.Photo;
-import net.jeremybrooks.jinx.response.photos.SearchParameters;
 import net.jeremybrooks.suprsetr.BlockerPanel;
 import net.jeremybrooks.suprsetr.LogWindow;
 import net.jeremybrooks.suprsetr.MainWindow;
 import net.jeremybrooks.suprsetr.SSPhotoset;
-import net.jeremybrooks.suprsetr.dao.PhotosetDAO;
-import net.jeremybrooks.suprsetr.flickr.PhotoHelper;
-import net.jeremybrooks.suprsetr.flickr.PhotosetHelper;
-import net.jeremybrooks.suprsetr.flickr.SearchHelper;
-import net.jeremybrooks.suprsetr.twitter.TwitterHelper;
-import net.jeremybrooks.suprsetr.utils.SSUtils;
+import net.jeremybrooks.suprsetr.refresh.RefreshEngine;
+import net.jeremybrooks.suprsetr.refresh.RefreshListener;
+import net.jeremybrooks.suprsetr.refresh.RefreshResult;
 import net.jeremybrooks.suprsetr.utils.SimpleCache;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import javax.swing.JOptionPane;
+import javax.swing.SwingUtilities;
 import javax.swing.SwingWorker;
-import java.util.ArrayList;
-import java.util.Date;
 import java.util.List;
 import java.util.ResourceBundle;
 
-
 /**
  * This class refreshes a photoset on Flickr, or a list of photosets.
  *
@@ -52,9 +45,12 @@ import java.util.ResourceBundle;
  * BlockerPanel class is used to prevent the user from accessing the GUI during
  * the operation, and to provide the user with feedback.</p>
  *
+ * <p>The refresh itself is done by {@link RefreshEngine}. This class shows
+ * the progress of the engine in the main window.</p>
+ *
  * @author Jeremy Brooks
  */
-public class RefreshPhotosetWorker extends SwingWorker<Void, Void> {
+public class RefreshPhotosetWorker extends SwingWorker<List<RefreshResult>, Void> implements RefreshListener {
 
   private static final Logger logger = LogManager.getLogger(RefreshPhotosetWorker.class);
   private final BlockerPanel blocker;
@@ -84,212 +80,66 @@ public class RefreshPhotosetWorker extends SwingWorker<Void, Void> {
    * Execute the Flickr operation and database operations on a background
    * thread.
    *
-   * @return this method does not return any data.
+   * @return the result of refreshing each photoset.
    */
   @Override
-  protected Void doInBackground() {
-    if (this.photosetList != null) {
-      for (SSPhotoset set : this.photosetList) {
-        try {
-          MainWindow.getMainWindow().scrollToPhotoset(set.getPhotosetId());
-          this.updatePhotoset(set);
-          MainWindow.getMainWindow().updatePhotosetInList(set);
-        } catch (Exception e) {
-          // error was already logged in the updatePhotoset method
-          // continue with the next set
-        }
-      }
+  protected List<RefreshResult> doInBackground() {
+    if (this.photosetList != null && !this.photosetList.isEmpty()) {
+      this.updateProgress(0, this.photosetList.size());
     }
-
-    return null;
+    return new RefreshEngine(this).refresh(this.photosetList);
   }
 
 
   /**
-   * Update the specified photoset.
-   *
-   * @param ssPhotoset the photoset to refresh.
+   * Show the number of sets that have been refreshed in the blocker title.
    */
-  private void updatePhotoset(SSPhotoset ssPhotoset) {
-    int oldCount = ssPhotoset.getPhotos() + ssPhotoset.getVideos();
-    int matches;
-    List<Photo> searchResults = null;
-    SearchParameters params;
-    String newPrimaryPhotoId = null;
-    String currentPrimaryId;
-    int photoCount = 0;
-    int videoCount = 0;
-
-    blocker.setTitle(resourceBundle.getString("RefreshPhotosetWorker.blocker.title") + " '" + ssPhotoset.getTitle() + "'");
-
-    long time = System.currentTimeMillis();
-
-    // assume things will be OK
-    ssPhotoset.setErrorFlag(false);
-
-    if (ssPhotoset.isManaged()) {
-      blocker.updateMessage(resourceBundle.getString("RefreshPhotosetWorker.blocker.searching"));
-      try {
-        // get the search results
-        logger.info(ssPhotoset.toString());
-
-        if (ssPhotoset.isOnThisDay()) {
-          searchResults = new ArrayList<>();
-          int endYear = ssPhotoset.getOnThisDayYearEnd();
-          if (endYear == 0) {
-            endYear = SSUtils.getCurrentYear();
-          }
-          if (ssPhotoset.getSortOrder() == 2) {
-            // Sorted by date taken descending
-            for (int year = endYear; year >= ssPhotoset.getOnThisDayYearStart(); year--) {
-              searchResults.addAll(doSearchForYear(ssPhotoset, year));
-            }
-          } else {
-            for (int year = ssPhotoset.getOnThisDayYearStart(); year <= endYear; year++) {
-              searchResults.addAll(doSearchForYear(ssPhotoset, year));
-            }
-          }
-        } else {
-          params = SearchHelper.getInstance().getSearchParameters(ssPhotoset);
-          if (ssPhotoset.isLimitSize() && ssPhotoset.getSortOrder() != 9) {
-            // handle limited size sets that are not sorted by random order
-            // limited size sets sorted by random order are sized AFTER randomizing
-            searchResults = PhotoHelper.getInstance().getPhotos(params, ssPhotoset.getSizeLimit());
-          } else {
-            searchResults = PhotoHelper.getInstance().getPhotos(params);
-          }
-        }
-
-        matches = searchResults == null ? 0 : searchResults.size();
-
-        logger.info("Got " + matches + " search results.");
-
-        if (matches > 0) {
-          SSUtils.sortPhotoList(searchResults, ssPhotoset.getSortOrder());
-
-          // if random sort AND limit size, do the sizing here
-          if (ssPhotoset.isLimitSize() && ssPhotoset.getSortOrder() == 9) {
-            if (searchResults.size() > ssPhotoset.getSizeLimit()) {
-              while (searchResults.size() > ssPhotoset.getSizeLimit()) {
-                searchResults.remove(searchResults.size() - 1);
-              }
-            }
-          }
-
-          // determine which photo should be the primary photo
-          if (ssPhotoset.isLockPrimaryPhoto()) {
-            currentPrimaryId = ssPhotoset.getPrimary();
-
-            // if the current primary photo is in the search results,
-            // use it
-            for (Photo p : searchResults) {
-              if (p.getPhotoId().equals(currentPrimaryId)) {
-                newPrimaryPhotoId = currentPrimaryId;
-                logger.info("Search results contain the current primary photo, so not changing it.");
-                break;
-              }
-            }
-          }
-
-          // if the newPrimaryPhotoId is still null, use the first
-          // photo in the search results, and set the data structure
-          // to reflect the change
-          if (newPrimaryPhotoId == null) {
-            Photo p = searchResults.get(0);
-            logger.info("Using photo " + p.getTitle() + " as new primary photo.");
-            newPrimaryPhotoId = p.getPhotoId();
-            ssPhotoset.setPrimary(newPrimaryPhotoId);
-            ssPhotoset.setPrimaryPhotoIcon(PhotoHelper.getInstance().getIconForPhoto(newPrimaryPhotoId));
-          }
-
-
-          blocker.updateMessage(resourceBundle.getString("RefreshPhotosetWorker.blocker.applying"));
-          // ADD PHOTOS TO THE SET
-          PhotosetHelper.getInstance().editPhotos(ssPhotoset.getPhotosetId(), newPrimaryPhotoId, searchResults);
-
-          time = System.currentTimeMillis() - time;
-
-          // count photos and videos
-          // counting media type avoids a call to get photoset info
-          for (Photo p : searchResults) {
-            if (p.getMedia().equalsIgnoreCase("video")) {
-              videoCount++;
-            } else {
-              photoCount++;
-            }
-          }
-
-          StringBuilder sb = new StringBuilder(resourceBundle.getString("RefreshPhotosetWorker.log.refresh1"));
-          sb.append(" '").append(ssPhotoset.getTitle());
-          sb.append("'. ").append(resourceBundle.getString("RefreshPhotosetWorker.log.refresh2")).append(" ").append(oldCount);
-          sb.append(" ").append(resourceBundle.getString("RefreshPhotosetWorker.log.refresh3")).append(" ").append(searchResults.size());
-          sb.append(" ").append(resourceBundle.getString("RefreshPhotosetWorker.log.refresh4")).append(" ");
-          sb.append(time).append("ms");
-
-          logger.info(sb.toString());
-          LogWindow.addLogMessage(sb.toString());
-        } else {
-          logger.warn("No results found for set " + ssPhotoset.getTitle() + ". This is probably temporary.");
-
-          LogWindow.addLogMessage(" " + resourceBundle.getString("RefreshPhotosetWorker.log.noresults") +
-              " '" + ssPhotoset.getTitle() + "'");
-          ssPhotoset.setErrorFlag(true);
-        }
+  private void updateProgress(int completed, int total) {
+    blocker.setTitle(resourceBundle.getString("RefreshPhotosetWorker.blocker.title") + " "
+        + completed + "/" + total);
+  }
 
-      } catch (Exception e) {
-        logger.error("ERROR REFRESHING SET " + ssPhotoset, e);
 
-        LogWindow.addLogMessage(resourceBundle.getString("RefreshPhotosetWorker.log.error1") +
-            " '" + ssPhotoset.getTitle() + "', " +
-            resourceBundle.getString("RefreshPhotosetWorker.log.error2") +
-            " '" + e.getMessage() + "'. " +
-            resourceBundle.getString("RefreshPhotosetWorker.log.error3") +
-            ".");
-        ssPhotoset.setErrorFlag(true);
-      }
-    }
+  @Override
+  public void message(String message) {
+    blocker.updateMessage(message);
+  }
 
-    try {
-      if (ssPhotoset.isManaged() && (searchResults != null)) {  // null search results means something failed above, so don't bother with saving to db
 
-        blocker.updateMessage(resourceBundle.getString("RefreshPhotosetWorker.blocker.saving"));
+  @Override
+  public void setStarted(SSPhotoset ssPhotoset) {
+    SwingUtilities.invokeLater(() -> MainWindow.getMainWindow().scrollToPhotoset(ssPhotoset.getPhotosetId()));
+  }
 
-        // UPDATE OUR DATA STRUCTURE TO REFLECT THE NEW PHOTOSET ON FLICKR
-        ssPhotoset.setLastRefreshDate(new Date());
-        ssPhotoset.setPhotos(photoCount);
-        ssPhotoset.setVideos(videoCount);
-        ssPhotoset.setSyncTimestamp(System.currentTimeMillis());
-      }
 
-      // mark the list cell as invalid, so anything that has changed
-      // will get updated when the list is repainted
-      SimpleCache.getInstance().invalidate(ssPhotoset.getPhotosetId());
+  /**
+   * Show a progress message for a set.
+   *
+   * <p>Since several sets can be refreshed at once, the message is prefixed
+   * with the title of the set it applies to.</p>
+   *
+   * @param ssPhotoset the set being refreshed.
+   * @param message    the message to display.
+   */
+  @Override
+  public void setMessage(SSPhotoset ssPhotoset, String message) {
+    blocker.updateMessage("'" + ssPhotoset.getTitle() + "': " + message);
+  }
 
-      PhotosetDAO.updatePhotoset(ssPhotoset);
 
-      // Send tweet if user has requested it AND there are new photos in the set
-      if (ssPhotoset.isSendTweet() && (oldCount != (ssPhotoset.getPhotos() + ssPhotoset.getVideos()))) {
-        try {
-          String tweet = TwitterHelper.buildTweet(
-              ssPhotoset.getTweetTemplate(),
-              ssPhotoset.getTitle(),
-              ssPhotoset.getUrl(),
-              Math.abs(oldCount - ssPhotoset.getPhotos()),
-              ssPhotoset.getPhotos());
+  @Override
+  public void setFinished(RefreshResult result, int completed, int total) {
+    // mark the list cell as invalid, so anything that has changed
+    // will get updated when the list is repainted
+    SimpleCache.getInstance().invalidate(result.getPhotoset().getPhotosetId());
+    MainWindow.getMainWindow().updatePhotosetInList(result.getPhotoset());
+    this.updateProgress(completed, total);
+  }
 
-          logger.info("Sending tweet (" + tweet.length() + " chars): '"
-              + tweet + "'");
 
-          TwitterHelper.updateStatus(tweet);
-        } catch (Exception e) {
-          logger.warn("ERROR SENDING TWEET - IGNORING.", e);
-        }
-      }
-    } catch (Exception e) {
-      logger.error("ERROR SAVING SET TO DATABASE.", e);
-      LogWindow.addLogMessage(" WARN: Error saving set info to database.");
-      ssPhotoset.setErrorFlag(true);
-    }
+  @Override
+  public void log(String message) {
+    LogWindow.addLogMessage(message);
   }
 
 
@@ -316,16 +166,4 @@ public class RefreshPhotosetWorker extends SwingWorker<Void, Void> {
       MainWindow.getMainWindow().backupAndExit();
     }
   }
-
-  private List<Photo> doSearchForYear(SSPhotoset ssPhotoset, int year) throws Exception {
-    SearchParameters params = SearchHelper.getInstance().getSearchParametersForOnThisDay(ssPhotoset, year);
-    blocker.updateMessage(resourceBundle.getString("RefreshPhotosetWorker.blocker.searchingon") + " "
-        + ssPhotoset.getOnThisDayMonth() + "/"
-        + ssPhotoset.getOnThisDayDay() + "/"
-        + year + "....");
-
-    List<Photo> tempResults = PhotoHelper.getInstance().getPhotos(params);
-    logger.info("Got " + tempResults.size() + " results.");
-    return tempResults;
-  }
 }
@@ -28,6 +28,7 @@ import net.jeremybrooks.suprsetr.SetOrdererDTO;
 import net.jeremybrooks.suprsetr.dao.PhotosetDAO;
 import net.jeremybrooks.suprsetr.flickr.FlickrHelper;
 import net.jeremybrooks.suprsetr.flickr.PhotosetHelper;
+import net.jeremybrooks.suprsetr.utils.IconUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -107,13 +108,13 @@ public class SetOrdererDTOListWorker extends SwingWorker<List<SetOrdererDTO>, SS
             // SuprSetr was launched. So load the icon from Flickr
             // This is slower than loading from the database, but at
             // least we get the icon
-            sod.setIcon(PhotosetHelper.getInstance().getIconForPhotoset(p));
+            sod.setIcon(IconUtils.decode(PhotosetHelper.getInstance().getIconForPhotoset(p)));
           } else {
             // Check for missing icon, setting if needed
             if (ssp.getPrimaryPhotoIcon() == null) {
-              sod.setIcon(PhotosetHelper.getInstance().getIconForPhotoset(p));
+              sod.setIcon(IconUtils.decode(PhotosetHelper.getInstance().getIconForPhotoset(p)));
             } else {
-              sod.setIcon(ssp.getPrimaryPhotoIcon());
+              sod.setIcon(IconUtils.decode(ssp.getPrimaryPhotoIcon()));
             }
           }
           // add to the list
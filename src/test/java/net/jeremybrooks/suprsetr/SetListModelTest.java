@@ -0,0 +1,123 @@
+/*
+ *  SuprSetr is Copyright 2010-2023 by Jeremy Brooks
+ *
+ *  This file is part of SuprSetr.
+ *
+ *   SuprSetr is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   SuprSetr is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with SuprSetr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.jeremybrooks.suprsetr;
+
+import org.junit.Test;
+
+import javax.swing.JList;
+import javax.swing.event.ListDataEvent;
+import javax.swing.event.ListDataListener;
+import java.util.ArrayList;
+import java.util.List;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertSame;
+
+public class SetListModelTest {
+
+  private SSPhotoset set(String id) {
+    SSPhotoset set = new SSPhotoset();
+    set.setPhotosetId(id);
+    set.setTitle("Set " + id);
+    set.setTags("");
+    return set;
+  }
+
+  private static class Events implements ListDataListener {
+    private final List<ListDataEvent> events = new ArrayList<>();
+
+    @Override
+    public void intervalAdded(ListDataEvent e) {
+      events.add(e);
+    }
+
+    @Override
+    public void intervalRemoved(ListDataEvent e) {
+      events.add(e);
+    }
+
+    @Override
+    public void contentsChanged(ListDataEvent e) {
+      events.add(e);
+    }
+  }
+
+  @Test
+  public void testSetAllFiresOneEventWhenGrowing() {
+    SetListModel model = new SetListModel();
+    Events events = new Events();
+    model.addListDataListener(events);
+    List<SSPhotoset> sets = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      sets.add(set(Integer.toString(i)));
+    }
+    model.setAll(sets);
+
+    assertEquals(1, events.events.size());
+    assertEquals(ListDataEvent.INTERVAL_ADDED, events.events.get(0).getType());
+    assertEquals(999, events.events.get(0).getIndex1());
+    assertEquals(1000, model.getSize());
+    assertEquals(500, model.indexOf("500"));
+  }
+
+  @Test
+  public void testSetAllShrinking() {
+    SetListModel model = new SetListModel();
+    model.setAll(List.of(set("a"), set("b"), set("c"), set("d")));
+    JList<SSPhotoset> list = new JList<>(model);
+    list.setSelectedIndex(3);
+    Events events = new Events();
+    model.addListDataListener(events);
+    model.setAll(List.of(set("a")));
+
+    assertEquals(2, events.events.size());
+    assertEquals(ListDataEvent.INTERVAL_REMOVED, events.events.get(0).getType());
+    assertEquals(1, events.events.get(0).getIndex0());
+    assertEquals(3, events.events.get(0).getIndex1());
+    assertEquals(ListDataEvent.CONTENTS_CHANGED, events.events.get(1).getType());
+    assertEquals(0, events.events.get(1).getIndex1());
+    assertEquals(-1, list.getSelectedIndex());
+  }
+
+  @Test
+  public void testUpdate() {
+    SetListModel model = new SetListModel();
+    model.setAll(List.of(set("a"), set("b")));
+    SSPhotoset b = set("b");
+    assertEquals(1, model.update(b));
+    assertSame(b, model.get(1));
+    assertEquals(-1, model.update(set("c")));
+  }
+
+  @Test
+  public void testAddAndRemove() {
+    SetListModel model = new SetListModel();
+    model.setAll(List.of(set("a"), set("c")));
+    model.add(1, set("b"));
+    assertEquals(1, model.indexOf("b"));
+    assertEquals(2, model.indexOf("c"));
+
+    model.removeElement(model.get(0));
+    assertEquals(-1, model.indexOf("a"));
+    assertEquals(0, model.indexOf("b"));
+    assertEquals(1, model.indexOf("c"));
+    assertFalse(model.removeElement(set("a")));
+  }
+}
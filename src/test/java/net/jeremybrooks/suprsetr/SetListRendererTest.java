@@ -0,0 +1,70 @@
+/*
+ *  SuprSetr is Copyright 2010-2023 by Jeremy Brooks
+ *
+ *  This file is part of SuprSetr.
+ *
+ *   SuprSetr is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   SuprSetr is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with SuprSetr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.jeremybrooks.suprsetr;
+
+import org.junit.Test;
+
+import javax.swing.JList;
+import java.awt.Component;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertNotSame;
+import static junit.framework.TestCase.assertSame;
+import static junit.framework.TestCase.assertTrue;
+
+public class SetListRendererTest {
+
+  private SSPhotoset set(String id, String title, int photos) {
+    SSPhotoset set = new SSPhotoset();
+    set.setPhotosetId(id);
+    set.setTitle(title);
+    set.setPhotos(photos);
+    set.setViewCount(-1);
+    return set;
+  }
+
+  @Test
+  public void testFlyweightReusesCell() {
+    JList list = new JList();
+    SetListRenderer renderer = new SetListRenderer(list, true);
+    SSPhotoset one = set("1", "One", 1);
+    SSPhotoset two = set("2", "Two", 2);
+
+    Component first = renderer.getListCellRendererComponent(list, one, 0, false, false);
+    assertTrue(((SetListCell) first).getTitle().startsWith("One  [1 "));
+    Component second = renderer.getListCellRendererComponent(list, two, 1, false, false);
+    assertSame(first, second);
+    assertTrue(((SetListCell) second).getTitle().startsWith("Two  [2 "));
+
+    // text is rebuilt when the set changes
+    one.setPhotos(3);
+    renderer.getListCellRendererComponent(list, one, 0, false, false);
+    assertTrue(((SetListCell) first).getTitle().startsWith("One  [3 "));
+  }
+
+  @Test
+  public void testCachedCellPerSet() {
+    JList list = new JList();
+    SetListRenderer renderer = new SetListRenderer(list, false);
+    Component first = renderer.getListCellRendererComponent(list, set("a", "A", 1), 0, false, false);
+    Component second = renderer.getListCellRendererComponent(list, set("b", "B", 1), 1, false, false);
+    assertNotSame(first, second);
+    assertEquals(first, renderer.getListCellRendererComponent(list, set("a", "A", 1), 0, false, false));
+  }
+}
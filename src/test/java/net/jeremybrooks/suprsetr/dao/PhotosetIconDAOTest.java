@@ -0,0 +1,53 @@
+/*
+ *  SuprSetr is Copyright 2010-2023 by Jeremy Brooks
+ *
+ *  This file is part of SuprSetr.
+ *
+ *   SuprSetr is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   SuprSetr is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with SuprSetr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.jeremybrooks.suprsetr.dao;
+
+import net.jeremybrooks.suprsetr.SSConstants;
+import net.jeremybrooks.suprsetr.SSPhotoset;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.List;
+
+import static junit.framework.TestCase.assertEquals;
+
+public class PhotosetIconDAOTest {
+
+  @Test
+  public void testSaveChangedIcons() throws Exception {
+    try (Connection conn = DriverManager.getConnection("jdbc:derby:memory:PhotosetIconDAOTest;create=true");
+         Statement s = conn.createStatement()) {
+      s.execute(SSConstants.DB_UPGRADES.get(SSConstants.DATABASE_SCHEMA_ICON_TABLE_VERSION).get(0));
+      SSPhotoset set = new SSPhotoset();
+      set.setPhotosetId("1");
+      set.setPrimary("100");
+      set.setPrimaryPhotoIcon(new byte[]{1, 2, 3});
+
+      assertEquals(1, PhotosetIconDAO.saveChangedIcons(conn, List.of(set)));
+      assertEquals(0, PhotosetIconDAO.saveChangedIcons(conn, List.of(set)));
+      set.setPrimary("200");
+      assertEquals(1, PhotosetIconDAO.saveChangedIcons(conn, List.of(set)));
+      set.setPrimaryPhotoIcon(null);
+      set.setPrimary("300");
+      assertEquals(0, PhotosetIconDAO.saveChangedIcons(conn, List.of(set)));
+    }
+  }
+}
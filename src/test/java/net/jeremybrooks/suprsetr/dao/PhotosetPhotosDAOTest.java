@@ -0,0 +1,52 @@
+/*
+ *  SuprSetr is Copyright 2010-2023 by Jeremy Brooks
+ *
+ *  This file is part of SuprSetr.
+ *
+ *   SuprSetr is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   SuprSetr is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with SuprSetr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.jeremybrooks.suprsetr.dao;
+
+import net.jeremybrooks.suprsetr.SSConstants;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.List;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertNull;
+
+public class PhotosetPhotosDAOTest {
+
+  @Test
+  public void testSaveAndGet() throws Exception {
+    try (Connection conn = DriverManager.getConnection("jdbc:derby:memory:PhotosetPhotosDAOTest;create=true");
+         Statement s = conn.createStatement()) {
+      s.execute(SSConstants.DB_UPGRADES.get(15).get(0));
+      assertNull(PhotosetPhotosDAO.getPhotoIds(conn, "1"));
+
+      PhotosetPhotosDAO.savePhotoIds(conn, "1", List.of("100", "200"));
+      assertEquals(List.of("100", "200"), PhotosetPhotosDAO.getPhotoIds(conn, "1"));
+
+      PhotosetPhotosDAO.savePhotoIds(conn, "1", List.of("300"));
+      assertEquals(List.of("300"), PhotosetPhotosDAO.getPhotoIds(conn, "1"));
+
+      PhotosetPhotosDAO.savePhotoIds(conn, "1", List.of());
+      assertEquals(List.of(), PhotosetPhotosDAO.getPhotoIds(conn, "1"));
+    }
+  }
+}
@@ -0,0 +1,35 @@
+/*
+ *  SuprSetr is Copyright 2010-2023 by Jeremy Brooks
+ *
+ *  This file is part of SuprSetr.
+ *
+ *   SuprSetr is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   SuprSetr is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with SuprSetr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.jeremybrooks.suprsetr.flickr;
+
+import org.junit.Test;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertNull;
+
+public class PhotoHelperTest {
+
+  @Test
+  public void testBuildThumbnailUrl() {
+    assertEquals("https://live.staticflickr.com/65535/12345_abcdef_s.jpg",
+        PhotoHelper.buildThumbnailUrl("12345", "65535", "abcdef"));
+    assertNull(PhotoHelper.buildThumbnailUrl("12345", null, "abcdef"));
+    assertNull(PhotoHelper.buildThumbnailUrl("12345", "65535", ""));
+  }
+}
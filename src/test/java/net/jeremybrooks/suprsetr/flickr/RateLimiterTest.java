@@ -0,0 +1,113 @@
+/*
+ *  SuprSetr is Copyright 2010-2023 by Jeremy Brooks
+ *
+ *  This file is part of SuprSetr.
+ *
+ *   SuprSetr is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   SuprSetr is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with SuprSetr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.jeremybrooks.suprsetr.flickr;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertTrue;
+
+public class RateLimiterTest {
+
+  private long now = 0;
+
+  @Test
+  public void testBudget() throws Exception {
+    RateLimiter limiter = new RateLimiter(3600, 4, () -> now);
+    for (int i = 0; i < 10; i++) {
+      limiter.call("flickr.test.echo", () -> "ok");
+    }
+    assertEquals(3590, limiter.getRemainingBudget());
+    // one call per second is added back
+    now += 5000;
+    assertEquals(3595, limiter.getRemainingBudget());
+    now += 60000;
+    assertEquals(3600, limiter.getRemainingBudget());
+  }
+
+  @Test
+  public void testIncreaseWhenSaturated() throws Exception {
+    RateLimiter limiter = new RateLimiter(3600, 4, () -> now);
+    assertEquals(2, limiter.getConcurrencyLimit());
+    for (int i = 0; i < 10; i++) {
+      int limit = limiter.getConcurrencyLimit();
+      for (int j = 0; j < limit; j++) {
+        limiter.acquire();
+      }
+      for (int j = 0; j < limit; j++) {
+        limiter.release("flickr.test.echo", 100, false);
+      }
+    }
+    // never more than the maximum
+    assertEquals(4, limiter.getConcurrencyLimit());
+  }
+
+  @Test
+  public void testDecrease() throws Exception {
+    RateLimiter limiter = new RateLimiter(3600, 8, () -> now);
+    limiter.acquire();
+    limiter.release("flickr.photos.search", 200, false);
+    now += 5000;
+    limiter.acquire();
+    limiter.release("flickr.photos.search", 5000, false);
+    assertEquals(2, limiter.getConcurrencyLimit());
+    now += 5000;
+    limiter.acquire();
+    limiter.release("flickr.photos.search", 200, true);
+    assertEquals(1, limiter.getConcurrencyLimit());
+  }
+
+  @Test
+  public void testBaselinePerMethod() throws Exception {
+    RateLimiter limiter = new RateLimiter(3600, 8, () -> now);
+    assertEquals(4, limiter.getConcurrencyLimit());
+    // searches are always slower than adding a photo, which is not a problem
+    for (int i = 0; i < 10; i++) {
+      now += 2000;
+      limiter.acquire();
+      limiter.release("flickr.photosets.addPhoto", 150, false);
+      limiter.acquire();
+      limiter.release("flickr.photos.search", 1800, false);
+    }
+    assertEquals(4, limiter.getConcurrencyLimit());
+    // a search much slower than other searches is
+    now += 2000;
+    limiter.acquire();
+    limiter.release("flickr.photos.search", 6000, false);
+    assertEquals(2, limiter.getConcurrencyLimit());
+  }
+
+  @Test
+  public void testIsRateLimited() {
+    assertTrue(RateLimiter.isRateLimited(new Exception("Error", new SocketTimeoutException("Read timed out"))));
+    assertTrue(RateLimiter.isRateLimited(new Exception("Error", new IOException("HTTP 429 Too Many Requests"))));
+    assertTrue(RateLimiter.isRateLimited(new IOException(
+        "Server returned HTTP response code: 429 for URL: https://api.flickr.com/services/rest")));
+    assertTrue(RateLimiter.isRateLimited(new Exception("Unexpected status 429")));
+    assertFalse(RateLimiter.isRateLimited(new Exception("Photo not found")));
+    assertFalse(RateLimiter.isRateLimited(new Exception("Error getting info for photo 51234295871")));
+    assertFalse(RateLimiter.isRateLimited(new Exception("HTTP 404 for photo 429")));
+    assertFalse(RateLimiter.isRateLimited(new IOException(
+        "Server returned HTTP response code: 500 for URL: https://api.flickr.com/services/rest?photo_id=4290429")));
+  }
+}
@@ -0,0 +1,87 @@
+/*
+ *  SuprSetr is Copyright 2010-2023 by Jeremy Brooks
+ *
+ *  This file is part of SuprSetr.
+ *
+ *   SuprSetr is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   SuprSetr is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with SuprSetr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.jeremybrooks.suprsetr.refresh;
+
+import net.jeremybrooks.suprsetr.SSPhotoset;
+import net.jeremybrooks.suprsetr.utils.SSUtils;
+import org.junit.Test;
+
+import java.util.Date;
+import java.util.List;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertNull;
+
+public class RefreshEngineTest {
+
+  private SSPhotoset set() {
+    SSPhotoset set = new SSPhotoset();
+    set.setPhotosetId("1");
+    set.setPhotos(10);
+    set.setVideos(2);
+    set.setLastRefreshDate(new Date(1000));
+    set.setSyncTimestamp(1000);
+    set.setPhotoFingerprint("old");
+    return set;
+  }
+
+  @Test
+  public void testApplyUpdated() {
+    SSPhotoset set = set();
+    RefreshEngine.applyRefresh(set, RefreshResult.Status.UPDATED, 20, 3, "new", 5000);
+    assertEquals(20, set.getPhotos());
+    assertEquals(3, set.getVideos());
+    assertEquals("new", set.getPhotoFingerprint());
+    assertEquals(5000, set.getLastRefreshDate().getTime());
+    assertEquals(5000, set.getSyncTimestamp());
+  }
+
+  @Test
+  public void testApplyFailed() {
+    SSPhotoset set = set();
+    RefreshEngine.applyRefresh(set, RefreshResult.Status.FAILED, 20, 3, "new", 5000);
+    assertEquals(10, set.getPhotos());
+    assertEquals(2, set.getVideos());
+    assertNull(set.getPhotoFingerprint());
+    assertEquals(1000, set.getLastRefreshDate().getTime());
+    assertEquals(1000, set.getSyncTimestamp());
+  }
+
+  @Test
+  public void testApplyNoResults() {
+    SSPhotoset set = set();
+    RefreshEngine.applyRefresh(set, RefreshResult.Status.NO_RESULTS, 0, 0, null, 5000);
+    assertEquals(10, set.getPhotos());
+    assertEquals("old", set.getPhotoFingerprint());
+  }
+
+  @Test
+  public void testCheckAppliedPhotoIds() {
+    List<String> ids = List.of("100", "200", "300");
+    String fingerprint = SSUtils.fingerprint("100", ids);
+    assertEquals(ids, RefreshEngine.checkAppliedPhotoIds(ids, "100", fingerprint, 3));
+    assertNull(RefreshEngine.checkAppliedPhotoIds(null, "100", fingerprint, 3));
+    // the last refresh failed
+    assertNull(RefreshEngine.checkAppliedPhotoIds(ids, "100", null, 3));
+    // the list was saved, but the set was written again without it
+    assertNull(RefreshEngine.checkAppliedPhotoIds(ids, "200", fingerprint, 3));
+    // the set was changed on Flickr
+    assertNull(RefreshEngine.checkAppliedPhotoIds(ids, "100", fingerprint, 4));
+  }
+}
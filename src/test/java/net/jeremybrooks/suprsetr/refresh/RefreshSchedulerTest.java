@@ -0,0 +1,57 @@
+/*
+ *  SuprSetr is Copyright 2010-2023 by Jeremy Brooks
+ *
+ *  This file is part of SuprSetr.
+ *
+ *   SuprSetr is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   SuprSetr is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with SuprSetr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.jeremybrooks.suprsetr.refresh;
+
+import net.jeremybrooks.suprsetr.SSPhotoset;
+import org.junit.Test;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static junit.framework.TestCase.assertEquals;
+
+public class RefreshSchedulerTest {
+
+  private SSPhotoset set(String id, long lastRefresh) {
+    SSPhotoset set = new SSPhotoset();
+    set.setPhotosetId(id);
+    set.setLastRefreshDate(new Date(lastRefresh));
+    return set;
+  }
+
+  @Test
+  public void testPlanOrdersByStaleness() {
+    List<RefreshScheduler.Entry> plan = RefreshScheduler.plan(
+        List.of(set("a", 3000), set("b", 1000), set("c", 2000)), Map.of(), 0, 3000);
+    assertEquals("b", plan.get(0).ssPhotoset.getPhotosetId());
+    assertEquals("c", plan.get(1).ssPhotoset.getPhotosetId());
+    assertEquals("a", plan.get(2).ssPhotoset.getPhotosetId());
+  }
+
+  @Test
+  public void testPlanSpreadsByCost() {
+    List<RefreshScheduler.Entry> plan = RefreshScheduler.plan(
+        List.of(set("a", 1000), set("b", 2000), set("c", 3000)),
+        Map.of("a", 1000L, "b", 3000L, "c", 4000L), 10000, 8000);
+    assertEquals(10000, plan.get(0).due);
+    assertEquals(11000, plan.get(1).due);
+    assertEquals(14000, plan.get(2).due);
+  }
+}
@@ -0,0 +1,77 @@
+/*
+ *  SuprSetr is Copyright 2010-2023 by Jeremy Brooks
+ *
+ *  This file is part of SuprSetr.
+ *
+ *   SuprSetr is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   SuprSetr is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with SuprSetr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.jeremybrooks.suprsetr.utils;
+
+import org.junit.Test;
+
+import javax.swing.ImageIcon;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectOutputStream;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertNotNull;
+import static junit.framework.TestCase.assertNull;
+import static junit.framework.TestCase.assertTrue;
+
+public class IconUtilsTest {
+
+  @Test
+  public void testEncodeAndDecode() {
+    BufferedImage image = new BufferedImage(75, 75, BufferedImage.TYPE_INT_RGB);
+    image.setRGB(10, 20, 0xff0000);
+    byte[] bytes = IconUtils.encode(new ImageIcon(image));
+    assertNotNull(bytes);
+    // PNG signature
+    assertEquals((byte) 0x89, bytes[0]);
+    assertEquals('P', bytes[1]);
+
+    ImageIcon icon = IconUtils.decode(bytes);
+    assertEquals(75, icon.getIconWidth());
+    assertEquals(75, icon.getIconHeight());
+  }
+
+  @Test
+  public void testEncodeSmallerThanSerialized() throws Exception {
+    ImageIcon icon = new ImageIcon(new BufferedImage(75, 75, BufferedImage.TYPE_INT_RGB));
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (ObjectOutputStream oos = new ObjectOutputStream(out)) {
+      oos.writeObject(icon);
+    }
+    assertTrue(IconUtils.encode(icon).length < out.size());
+  }
+
+  @Test
+  public void testDeserialize() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (ObjectOutputStream oos = new ObjectOutputStream(out)) {
+      oos.writeObject(new ImageIcon(new BufferedImage(75, 75, BufferedImage.TYPE_INT_RGB)));
+    }
+    assertEquals(75, IconUtils.deserialize(out.toByteArray()).getIconWidth());
+    assertNull(IconUtils.deserialize(new byte[]{1, 2, 3}));
+  }
+
+  @Test
+  public void testNull() {
+    assertNull(IconUtils.encode(null));
+    assertNull(IconUtils.decode(null));
+    assertNull(IconUtils.deserialize(null));
+  }
+}
@@ -0,0 +1,140 @@
+/*
+ *  SuprSetr is Copyright 2010-2023 by Jeremy Brooks
+ *
+ *  This file is part of SuprSetr.
+ *
+ *   SuprSetr is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   SuprSetr is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with SuprSetr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.jeremybrooks.suprsetr.utils;
+
+import net.jeremybrooks.suprsetr.SSConstants;
+import net.jeremybrooks.suprsetr.SSPhoto;
+import net.jeremybrooks.suprsetr.SSPhotoset;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertTrue;
+
+public class LocalSearchEngineTest {
+
+  private SSPhoto photo(String id, String tags, long uploaded, String media) {
+    SSPhoto photo = new SSPhoto();
+    photo.setPhotoId(id);
+    photo.setTitle("Photo " + id);
+    photo.setTags(tags);
+    photo.setMachineTags("");
+    photo.setDateUpload(new Date(uploaded));
+    photo.setMedia(media);
+    photo.setPublic(true);
+    photo.setSafe(true);
+    return photo;
+  }
+
+  private LocalSearchEngine engine() {
+    return new LocalSearchEngine(Arrays.asList(
+        photo("1", "cat dog", 1000, "photo"),
+        photo("2", "cat", 2000, "video"),
+        photo("3", "dog", 3000, "photo"),
+        photo("4", "bird", 4000, "photo")));
+  }
+
+  private SSPhotoset set(String tagMode, String... tags) {
+    SSPhotoset set = new SSPhotoset();
+    set.setTagMatchMode(tagMode);
+    set.setTags(Arrays.asList(tags));
+    set.setMachineTagMatchMode(SSConstants.TAG_MATCH_MODE_NONE);
+    set.setSortOrder(4);
+    return set;
+  }
+
+  @Test
+  public void testTagModeAny() {
+    LocalSearchResult result = engine().search(set(SSConstants.TAG_MATCH_MODE_ANY, "Cat", "dog"));
+    assertTrue(result.isSupported());
+    assertEquals(List.of("3", "2", "1"), result.getPhotoIds());
+    assertEquals(2, result.getPhotoCount());
+    assertEquals(1, result.getVideoCount());
+  }
+
+  @Test
+  public void testTagModeAll() {
+    LocalSearchResult result = engine().search(set(SSConstants.TAG_MATCH_MODE_ALL, "cat", "dog"));
+    assertEquals(List.of("1"), result.getPhotoIds());
+  }
+
+  @Test
+  public void testIncrementalUpdate() {
+    LocalSearchEngine engine = engine();
+    engine.update(List.of(photo("4", "bird cat", 4000, "photo"), photo("5", "cat", 5000, "photo")));
+    engine.remove(List.of("2"));
+    assertEquals(4, engine.size());
+    assertEquals(List.of("5", "4", "1"), engine.search(set(SSConstants.TAG_MATCH_MODE_ANY, "cat")).getPhotoIds());
+  }
+
+  @Test
+  public void testIndexedMachineTags() {
+    SSPhoto tagged = photo("6", "", 6000, "photo");
+    tagged.setMachineTags("geo:locality=minneapolis geo:country=usa");
+    LocalSearchEngine engine = engine();
+    engine.update(List.of(tagged));
+    SSPhotoset set = set(SSConstants.TAG_MATCH_MODE_NONE);
+    set.setMachineTagMatchMode(SSConstants.TAG_MATCH_MODE_ALL);
+    set.setMachineTags("geo:,geo:country=USA");
+    assertEquals(List.of("6"), engine.search(set).getPhotoIds());
+    set.setMachineTags("*:country=usa");
+    assertEquals(List.of("6"), engine.search(set).getPhotoIds());
+  }
+
+  @Test
+  public void testSortAndLimit() {
+    SSPhotoset set = set(SSConstants.TAG_MATCH_MODE_NONE);
+    set.setSortOrder(5);
+    set.setLimitSize(true);
+    set.setSizeLimit(2);
+    set.setMediaType(1);
+    assertEquals(List.of("1", "3"), engine().search(set).getPhotoIds());
+  }
+
+  @Test
+  public void testUnsupported() {
+    SSPhotoset set = set(SSConstants.TAG_MATCH_MODE_ANY, "cat");
+    set.setSortOrder(0);
+    set.setContentType(0);
+    LocalSearchResult result = engine().search(set);
+    assertFalse(result.isSupported());
+    assertEquals(2, result.getUnsupportedRules().size());
+    assertTrue(result.getPhotoIds().isEmpty());
+  }
+
+  @Test
+  public void testMachineTag() {
+    LocalSearchEngine.MachineTag tag = LocalSearchEngine.MachineTag.parse("geo:locality=");
+    assertTrue(tag.matches("geo:locality=minneapolis"));
+    assertFalse(tag.matches("geo:country=usa"));
+    assertEquals(null, LocalSearchEngine.MachineTag.parse("notamachinetag"));
+  }
+
+  @Test
+  public void testTextQuery() {
+    LocalSearchEngine.TextQuery query = LocalSearchEngine.TextQuery.parse("\"red barn\" -winter");
+    assertTrue(query.matches("the red barn in summer"));
+    assertFalse(query.matches("the red barn in winter"));
+    assertFalse(query.matches("a barn that is red"));
+  }
+}
@@ -0,0 +1,69 @@
+/*
+ *  SuprSetr is Copyright 2010-2023 by Jeremy Brooks
+ *
+ *  This file is part of SuprSetr.
+ *
+ *   SuprSetr is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   SuprSetr is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with SuprSetr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.jeremybrooks.suprsetr.utils;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertTrue;
+
+public class PhotosetDeltaTest {
+
+  private List<String> ids(int from, int to) {
+    List<String> list = new ArrayList<>();
+    for (int i = from; i <= to; i++) {
+      list.add(Integer.toString(i));
+    }
+    return list;
+  }
+
+  @Test
+  public void testNoChanges() {
+    PhotosetDelta delta = PhotosetDelta.compute(ids(1, 100), ids(1, 100), true);
+    assertTrue(delta.isEmpty());
+  }
+
+  @Test
+  public void testAppendAndRemove() {
+    List<String> desired = ids(3, 102);
+    PhotosetDelta delta = PhotosetDelta.compute(ids(1, 100), desired, true);
+    assertFalse(delta.isReplace());
+    assertEquals(Arrays.asList("1", "2"), delta.getToRemove());
+    assertEquals(Arrays.asList("101", "102"), delta.getToAdd());
+  }
+
+  @Test
+  public void testNewPhotosAtStart() {
+    List<String> desired = ids(101, 101);
+    desired.addAll(ids(1, 100));
+    assertTrue(PhotosetDelta.compute(ids(1, 100), desired, true).isReplace());
+    assertFalse(PhotosetDelta.compute(ids(1, 100), desired, false).isReplace());
+  }
+
+  @Test
+  public void testTooManyChanges() {
+    PhotosetDelta delta = PhotosetDelta.compute(ids(1, 100), ids(51, 150), false);
+    assertTrue(delta.isReplace());
+  }
+}
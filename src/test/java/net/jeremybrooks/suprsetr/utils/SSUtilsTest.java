@@ -23,9 +23,11 @@ import net.jeremybrooks.jinx.JinxConstants;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
 import static junit.framework.TestCase.assertTrue;
 
 /**
@@ -99,4 +101,14 @@ public class SSUtilsTest {
     assertTrue(list.isEmpty());
   }
 
-}
\ No newline at end of file
+  @Test
+  public void fingerprint() throws Exception {
+    String fp = SSUtils.fingerprint("1", Arrays.asList("1", "2", "3"));
+    assertEquals(64, fp.length());
+    assertEquals(fp, SSUtils.fingerprint("1", Arrays.asList("1", "2", "3")));
+    assertFalse(fp.equals(SSUtils.fingerprint("1", Arrays.asList("1", "3", "2"))));
+    assertFalse(fp.equals(SSUtils.fingerprint("2", Arrays.asList("1", "2", "3"))));
+    assertFalse(fp.equals(SSUtils.fingerprint("1", Arrays.asList("12", "3"))));
+  }
+
+}
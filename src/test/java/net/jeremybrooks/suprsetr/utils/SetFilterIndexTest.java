@@ -0,0 +1,88 @@
+/*
+ *  SuprSetr is Copyright 2010-2023 by Jeremy Brooks
+ *
+ *  This file is part of SuprSetr.
+ *
+ *   SuprSetr is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   SuprSetr is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with SuprSetr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.jeremybrooks.suprsetr.utils;
+
+import net.jeremybrooks.suprsetr.SSPhotoset;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertTrue;
+
+public class SetFilterIndexTest {
+
+  private SSPhotoset set(String title, boolean managed) {
+    SSPhotoset set = new SSPhotoset();
+    set.setPhotosetId(title);
+    set.setTitle(title);
+    set.setManaged(managed);
+    return set;
+  }
+
+  private SetFilterIndex index() {
+    return new SetFilterIndex(List.of(
+        set("Minneapolis Skyline", true),
+        set("Cats", false),
+        set("Minnesota Parks", true),
+        set("Apples", false)));
+  }
+
+  private List<String> titles(List<SSPhotoset> sets) {
+    List<String> titles = new ArrayList<>();
+    for (SSPhotoset set : sets) {
+      titles.add(set.getTitle());
+    }
+    return titles;
+  }
+
+  @Test
+  public void testNoFilter() {
+    assertEquals(4, index().filter(null, false, false).size());
+  }
+
+  @Test
+  public void testShortFilter() {
+    assertEquals(List.of("Cats"), titles(index().filter("c", false, false)));
+    assertEquals(List.of("Minneapolis Skyline", "Apples"), titles(index().filter("ap", false, false)));
+  }
+
+  @Test
+  public void testLongFilter() {
+    assertEquals(List.of("Minneapolis Skyline", "Minnesota Parks"), titles(index().filter("minne", false, false)));
+    // both words appear, but not together
+    assertTrue(index().filter("sota sky", false, false).isEmpty());
+  }
+
+  @Test
+  public void testNarrowAndWiden() {
+    SetFilterIndex index = index();
+    assertEquals(2, index.filter("minn", false, false).size());
+    assertEquals(List.of("Minneapolis Skyline"), titles(index.filter("minnea", false, false)));
+    assertEquals(List.of("Minnesota Parks"), titles(index.filter("parks", false, false)));
+    assertEquals(2, index.filter("minn", false, false).size());
+  }
+
+  @Test
+  public void testManagedFlags() {
+    assertEquals(List.of("Cats", "Apples"), titles(index().filter(null, false, true)));
+    assertEquals(List.of("Minneapolis Skyline", "Minnesota Parks"), titles(index().filter(null, true, false)));
+  }
+}
@@ -0,0 +1,66 @@
+/*
+ *  SuprSetr is Copyright 2010-2023 by Jeremy Brooks
+ *
+ *  This file is part of SuprSetr.
+ *
+ *   SuprSetr is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   SuprSetr is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with SuprSetr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.jeremybrooks.suprsetr.utils;
+
+import net.jeremybrooks.suprsetr.SetListCell;
+import org.junit.Test;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertNotNull;
+import static junit.framework.TestCase.assertNull;
+
+public class SimpleCacheTest {
+
+  @Test
+  public void testEvictsLeastRecentlyUsed() {
+    SimpleCache cache = new SimpleCache(2);
+    cache.putInCache("1", new SetListCell());
+    cache.putInCache("2", new SetListCell());
+    cache.getFromCache("1");
+    cache.putInCache("3", new SetListCell());
+
+    assertEquals(2, cache.size());
+    assertEquals(1, cache.getEvictionCount());
+    assertNotNull(cache.getFromCache("1"));
+    assertNull(cache.getFromCache("2"));
+    assertNotNull(cache.getFromCache("3"));
+  }
+
+  @Test
+  public void testInvalidate() {
+    SimpleCache cache = new SimpleCache(10);
+    SetListCell cell = new SetListCell();
+    cell.setCacheValid(true);
+    cache.putInCache("1", cell);
+    cache.invalidate("1");
+    cache.invalidate("2");
+    assertFalse(cell.isCacheValid());
+  }
+
+  @Test
+  public void testStats() {
+    SimpleCache cache = new SimpleCache(10);
+    cache.putInCache("1", new SetListCell());
+    cache.getFromCache("1");
+    cache.getFromCache("2");
+    assertEquals(1, cache.getHitCount());
+    assertEquals(1, cache.getMissCount());
+  }
+}
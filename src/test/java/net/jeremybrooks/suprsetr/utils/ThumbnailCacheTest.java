@@ -0,0 +1,92 @@
+/*
+ *  SuprSetr is Copyright 2010-2023 by Jeremy Brooks
+ *
+ *  This file is part of SuprSetr.
+ *
+ *   SuprSetr is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   SuprSetr is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with SuprSetr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.jeremybrooks.suprsetr.utils;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertNotNull;
+import static junit.framework.TestCase.assertNull;
+import static junit.framework.TestCase.assertTrue;
+
+public class ThumbnailCacheTest {
+
+  private File tempDir() throws Exception {
+    File dir = Files.createTempDirectory("thumbnails").toFile();
+    dir.deleteOnExit();
+    return dir;
+  }
+
+  @Test
+  public void testMemoryAndDiskTiers() throws Exception {
+    File dir = tempDir();
+    ThumbnailCache cache = new ThumbnailCache(dir, 1024, 1024 * 1024);
+    cache.put("1", "abc", ThumbnailCache.SIZE_SMALL_SQUARE, new byte[600]);
+    cache.put("2", "abc", ThumbnailCache.SIZE_SMALL_SQUARE, new byte[600]);
+
+    // "1" was dropped from memory, but is still on disk
+    assertNotNull(cache.get("2", "abc", "s"));
+    assertNotNull(cache.get("1", "abc", "s"));
+    assertNull(cache.get("3", "abc", "s"));
+    assertEquals(1, cache.getMemoryHits());
+    assertEquals(1, cache.getDiskHits());
+    assertEquals(1, cache.getMisses());
+
+    // a new instance reads what the first one wrote
+    assertNotNull(new ThumbnailCache(dir, 1024, 1024 * 1024).get("2", "abc", "s"));
+  }
+
+  @Test
+  public void testDiskLimit() throws Exception {
+    File dir = tempDir();
+    ThumbnailCache cache = new ThumbnailCache(dir, 0, 2500);
+    for (int i = 1; i <= 5; i++) {
+      cache.put(Integer.toString(i), "abc", "s", new byte[1000]);
+      new File(dir, i + "_abc_s").setLastModified(i * 100000L);
+    }
+    assertNull(cache.get("1", "abc", "s"));
+    assertNotNull(cache.get("5", "abc", "s"));
+    File[] files = dir.listFiles();
+    assertNotNull(files);
+    assertTrue(files.length <= 2);
+  }
+
+  @Test
+  public void testReplacedPhotoIsNotFound() throws Exception {
+    ThumbnailCache cache = new ThumbnailCache(tempDir(), 1024, 1024 * 1024);
+    cache.put("1", "abc", "s", new byte[10]);
+    // a replaced photo has a new secret
+    assertNull(cache.get("1", "def", "s"));
+    assertNotNull(cache.get("1", "abc", "s"));
+  }
+
+  @Test
+  public void testDeleteOldImageCache() throws Exception {
+    File configDir = tempDir();
+    File old = new File(configDir, "image_cache");
+    assertTrue(old.mkdir());
+    Files.write(new File(old, "1").toPath(), new byte[10]);
+    ThumbnailCache.deleteOldImageCache(configDir);
+    assertFalse(old.exists());
+  }
+}